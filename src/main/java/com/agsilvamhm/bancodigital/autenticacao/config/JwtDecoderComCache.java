@@ -0,0 +1,73 @@
+package com.agsilvamhm.bancodigital.autenticacao.config;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.util.cache.CacheLocal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Guarda os tokens já verificados pelo decodificador real, pelo hash SHA-256 do token, para que as
+ * requisições seguintes com o mesmo token não verifiquem a assinatura RSA de novo. Uma entrada só é
+ * usada até o instante de expiração do token; depois dele, o token volta ao decodificador real, que o
+ * recusa (ou aceita, dentro da tolerância de relógio dos validadores). Tokens sem expiração e tokens
+ * recusados nunca são guardados.
+ */
+public class JwtDecoderComCache implements JwtDecoder {
+
+    private final JwtDecoder decodificador;
+    private final Supplier<Instant> agora;
+    // Nulo com o cache desligado
+    private final CacheLocal<String, Jwt> verificados;
+
+    public JwtDecoderComCache(JwtDecoder decodificador, boolean habilitado, int tamanhoMaximo, Duration validadeMaxima) {
+        this(decodificador, habilitado, tamanhoMaximo, validadeMaxima, Instant::now);
+    }
+
+    JwtDecoderComCache(JwtDecoder decodificador, boolean habilitado, int tamanhoMaximo, Duration validadeMaxima, Supplier<Instant> agora) {
+        this.decodificador = decodificador;
+        this.agora = agora;
+        this.verificados = habilitado ? new CacheLocal<>("jwt-verificados", tamanhoMaximo, validadeMaxima) : null;
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        if (verificados == null || token == null) {
+            return decodificador.decode(token);
+        }
+        String chave = hash(token);
+        Jwt emCache = verificados.buscar(chave);
+        if (emCache != null && agora.get().isBefore(emCache.getExpiresAt())) {
+            return emCache;
+        }
+        long geracao = verificados.geracao();
+        Jwt jwt = decodificador.decode(token);
+        Instant expiraEm = jwt.getExpiresAt();
+        if (expiraEm != null && agora.get().isBefore(expiraEm)) {
+            verificados.guardar(chave, jwt, geracao);
+        }
+        return jwt;
+    }
+
+    public List<RelatorioCacheDTO> gerarRelatorioCache() {
+        return verificados != null ? List.of(verificados.gerarRelatorio()) : List.of();
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível para o cache de tokens.", e);
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.springframework.security.web.access.AccessDeniedHandler;
 
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
 
 import static org.springframework.boot.autoconfigure.security.servlet.PathRequest.toH2Console;
 
@@ -64,8 +65,11 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder(){
-        return NimbusJwtDecoder.withPublicKey(publicKey).build();
+    public JwtDecoderComCache jwtDecoder(@Value("${bancodigital.cache.jwt.habilitado:true}") boolean cacheHabilitado,
+                                         @Value("${bancodigital.cache.jwt.tamanho-maximo:10000}") int tamanhoMaximoCache,
+                                         @Value("${bancodigital.cache.jwt.validade-ms:300000}") long validadeCacheMs){
+        JwtDecoder decodificador = NimbusJwtDecoder.withPublicKey(publicKey).build();
+        return new JwtDecoderComCache(decodificador, cacheHabilitado, tamanhoMaximoCache, Duration.ofMillis(validadeCacheMs));
     }
 
     @Bean
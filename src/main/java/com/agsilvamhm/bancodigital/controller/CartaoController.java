@@ -3,6 +3,7 @@ package com.agsilvamhm.bancodigital.controller;
 import com.agsilvamhm.bancodigital.model.Cartao;
 import com.agsilvamhm.bancodigital.model.dto.*;
 import com.agsilvamhm.bancodigital.service.CartaoService;
+import com.agsilvamhm.bancodigital.service.IdempotenciaService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -19,10 +20,12 @@ import java.time.YearMonth;
 public class CartaoController {
 
     private final CartaoService cartaoService;
+    private final IdempotenciaService idempotenciaService;
 
     @Autowired
-    public CartaoController(CartaoService cartaoService) {
+    public CartaoController(CartaoService cartaoService, IdempotenciaService idempotenciaService) {
         this.cartaoService = cartaoService;
+        this.idempotenciaService = idempotenciaService;
     }
 
     @PostMapping
@@ -46,8 +49,12 @@ public class CartaoController {
 
     @PostMapping("/{id}/pagamento")
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
-    public ResponseEntity<Void> realizarPagamento(@PathVariable Integer id, @Valid @RequestBody PagamentoCartaoRequest request) {
-        cartaoService.realizarPagamento(id, request);
+    public ResponseEntity<Void> realizarPagamento(@PathVariable Integer id, @Valid @RequestBody PagamentoCartaoRequest request,
+                                                  @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
+        idempotenciaService.executar(chaveIdempotencia, "POST /cartoes/" + id + "/pagamento", request, Void.class, () -> {
+            cartaoService.realizarPagamento(id, request);
+            return null;
+        });
         return ResponseEntity.ok().build();
     }
 
@@ -2,27 +2,56 @@ package com.agsilvamhm.bancodigital.controller;
 
 import com.agsilvamhm.bancodigital.model.Conta;
 import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
 import com.agsilvamhm.bancodigital.model.dto.*;
 import com.agsilvamhm.bancodigital.service.ContaService;
+import com.agsilvamhm.bancodigital.service.ExportacaoExtratoService;
+import com.agsilvamhm.bancodigital.service.FormatoExportacao;
+import com.agsilvamhm.bancodigital.service.IdempotenciaService;
+import com.agsilvamhm.bancodigital.service.LoteMovimentacoesService;
+import com.agsilvamhm.bancodigital.service.RequisicoesCondicionaisConta;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping(value = "/contas")
 public class ContaController {
 
     private final ContaService contaService;
-
-
-    public ContaController(ContaService contaService) {
+    private final IdempotenciaService idempotenciaService;
+    private final LoteMovimentacoesService loteMovimentacoesService;
+    private final ExportacaoExtratoService exportacaoExtratoService;
+    private final RequisicoesCondicionaisConta requisicoesCondicionais;
+
+    // Saldo e extrato podem ficar no cache do cliente, mas sempre revalidados pelo ETag
+    private static final CacheControl REVALIDAR = CacheControl.noCache().cachePrivate();
+
+    public ContaController(ContaService contaService, IdempotenciaService idempotenciaService,
+                           LoteMovimentacoesService loteMovimentacoesService,
+                           ExportacaoExtratoService exportacaoExtratoService,
+                           RequisicoesCondicionaisConta requisicoesCondicionais) {
         this.contaService = contaService;
+        this.idempotenciaService = idempotenciaService;
+        this.loteMovimentacoesService = loteMovimentacoesService;
+        this.exportacaoExtratoService = exportacaoExtratoService;
+        this.requisicoesCondicionais = requisicoesCondicionais;
     }
 
     @PostMapping
@@ -48,19 +77,24 @@ public class ContaController {
 
     @GetMapping("/{id}/saldo")
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
-    public ResponseEntity<ContaInfoDTO> consultarInfoConta(@PathVariable Long id) {
+    public ResponseEntity<ContaInfoDTO> consultarInfoConta(@PathVariable Long id, WebRequest requisicao) {
+        if (requisicoesCondicionais.naoModificada(id, requisicao)) {
+            return null; // 304 já preparado pelo checkNotModified
+        }
         Conta conta = contaService.buscarPorId(id);
         ContaInfoDTO contaInfoDTO = ContaInfoDTO.fromEntity(conta);
-        return ResponseEntity.ok(contaInfoDTO);
+        return ResponseEntity.ok().cacheControl(REVALIDAR).body(contaInfoDTO);
     }
 
     @PostMapping("/{id}/transferencia")
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
     public ResponseEntity<Movimentacao> realizarTransferencia(
             @PathVariable Long id,
-            @Valid @RequestBody TransferenciaRequestDTO request) {
+            @Valid @RequestBody TransferenciaRequestDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
 
-        Movimentacao recibo = contaService.realizarTransferencia(id, request);
+        Movimentacao recibo = idempotenciaService.executar(chaveIdempotencia, "POST /contas/" + id + "/transferencia", request,
+                Movimentacao.class, () -> contaService.realizarTransferencia(id, request));
         return ResponseEntity.ok(recibo);
     }
 
@@ -68,9 +102,11 @@ public class ContaController {
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
     public ResponseEntity<Movimentacao> realizarDeposito(
             @PathVariable Long id,
-            @Valid @RequestBody DepositoRequestDTO request) {
+            @Valid @RequestBody DepositoRequestDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
 
-        Movimentacao recibo = contaService.realizarDeposito(id, request);
+        Movimentacao recibo = idempotenciaService.executar(chaveIdempotencia, "POST /contas/" + id + "/deposito", request,
+                Movimentacao.class, () -> contaService.realizarDeposito(id, request));
         return ResponseEntity.ok(recibo);
     }
 
@@ -78,9 +114,11 @@ public class ContaController {
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
     public ResponseEntity<Movimentacao> realizarSaque(
             @PathVariable Long id,
-            @Valid @RequestBody OperacaoContaDTO request) {
+            @Valid @RequestBody OperacaoContaDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
 
-        Movimentacao recibo = contaService.realizarSaque(id, request);
+        Movimentacao recibo = idempotenciaService.executar(chaveIdempotencia, "POST /contas/" + id + "/saque", request,
+                Movimentacao.class, () -> contaService.realizarSaque(id, request));
         return ResponseEntity.ok(recibo);
     }
 
@@ -88,17 +126,73 @@ public class ContaController {
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
     public ResponseEntity<Movimentacao> realizarPix(
             @PathVariable Long id,
-            @Valid @RequestBody PixRequestDTO request) {
+            @Valid @RequestBody PixRequestDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
 
-        Movimentacao recibo = contaService.realizarPix(id, request);
+        Movimentacao recibo = idempotenciaService.executar(chaveIdempotencia, "POST /contas/" + id + "/pix", request,
+                Movimentacao.class, () -> contaService.realizarPix(id, request));
         return ResponseEntity.ok(recibo);
     }
 
+    @PostMapping("/lote")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<ResultadoLoteDTO> executarLote(
+            @Valid @RequestBody LoteMovimentacoesRequestDTO request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String chaveIdempotencia) {
+
+        ResultadoLoteDTO resultado = idempotenciaService.executar(chaveIdempotencia, "POST /contas/lote", request,
+                ResultadoLoteDTO.class, () -> loteMovimentacoesService.executar(request));
+        return ResponseEntity.ok(resultado);
+    }
+
     @GetMapping("/{id}/movimentacoes")
     @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
-    public ResponseEntity<List<Movimentacao>> listarMovimentacoes(@PathVariable Long id) {
-        List<Movimentacao> extrato = contaService.listarMovimentacoesPorConta(id);
-        return ResponseEntity.ok(extrato);
+    public ResponseEntity<PaginaMovimentacoesDTO> listarMovimentacoes(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int tamanho,
+            @RequestParam(defaultValue = "false") boolean comSaldo,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+            @RequestParam(required = false) Set<TipoMovimentacao> tipo,
+            @RequestParam(required = false) BigDecimal valorMinimo,
+            @RequestParam(required = false) BigDecimal valorMaximo,
+            WebRequest requisicao) {
+        FiltroExtratoDTO filtro = FiltroExtratoDTO.de(de, ate, tipo, valorMinimo, valorMaximo);
+        if (requisicoesCondicionais.naoModificada(id, requisicao)) {
+            return null;
+        }
+        PaginaMovimentacoesDTO extrato = contaService.listarMovimentacoesPorConta(id, cursor, tamanho, comSaldo, filtro);
+        return ResponseEntity.ok().cacheControl(REVALIDAR).body(extrato);
+    }
+
+    // O corpo é escrito fora da thread da requisição, direto do ResultSet para a resposta
+    @GetMapping("/{id}/movimentacoes/exportacao")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportarMovimentacoes(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "CSV") FormatoExportacao formato) {
+        exportacaoExtratoService.verificarConta(id);
+        StreamingResponseBody corpo = saida -> exportacaoExtratoService.exportar(id, formato, saida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getTipoConteudo() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"extrato-conta-" + id + "." + formato.getExtensao() + "\"")
+                .body(corpo);
+    }
+
+    @GetMapping("/{id}/resumo-mensal")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<List<ResumoMensalDTO>> consultarResumoMensal(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes) {
+        return ResponseEntity.ok(contaService.consultarResumoMensal(id, mes));
+    }
+
+    @PostMapping("/resumo-mensal/reconstrucao")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<Map<String, Integer>> reconstruirResumosMensais() {
+        return ResponseEntity.ok(Map.of("linhas", contaService.reconstruirResumosMensais()));
     }
 
     @PutMapping("/{id}/manutencao")
@@ -0,0 +1,70 @@
+package com.agsilvamhm.bancodigital.controller;
+
+import com.agsilvamhm.bancodigital.autenticacao.config.JwtDecoderComCache;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioBloqueiosDTO;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioConcorrenciaOtimistaDTO;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioRequisicoesCondicionaisDTO;
+import com.agsilvamhm.bancodigital.repository.CartaoDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.service.GerenciadorBloqueioContas;
+import com.agsilvamhm.bancodigital.service.RequisicoesCondicionaisConta;
+import com.agsilvamhm.bancodigital.service.RetentativaOtimista;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/metricas")
+public class MetricasController {
+
+    private final GerenciadorBloqueioContas gerenciadorBloqueio;
+    private final RetentativaOtimista retentativaOtimista;
+    private final RequisicoesCondicionaisConta requisicoesCondicionais;
+    private final ContaDao contaDao;
+    private final CartaoDao cartaoDao;
+    private final JwtDecoderComCache jwtDecoder;
+
+    public MetricasController(GerenciadorBloqueioContas gerenciadorBloqueio, RetentativaOtimista retentativaOtimista,
+                              RequisicoesCondicionaisConta requisicoesCondicionais, ContaDao contaDao, CartaoDao cartaoDao,
+                              JwtDecoderComCache jwtDecoder) {
+        this.gerenciadorBloqueio = gerenciadorBloqueio;
+        this.retentativaOtimista = retentativaOtimista;
+        this.requisicoesCondicionais = requisicoesCondicionais;
+        this.contaDao = contaDao;
+        this.cartaoDao = cartaoDao;
+        this.jwtDecoder = jwtDecoder;
+    }
+
+    @GetMapping("/bloqueios")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<RelatorioBloqueiosDTO> relatorioBloqueios(@RequestParam(defaultValue = "10") int contas) {
+        return ResponseEntity.ok(gerenciadorBloqueio.gerarRelatorio(contas));
+    }
+
+    @GetMapping("/concorrencia")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<RelatorioConcorrenciaOtimistaDTO> relatorioConcorrencia() {
+        return ResponseEntity.ok(retentativaOtimista.gerarRelatorio());
+    }
+
+    @GetMapping("/requisicoes-condicionais")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<RelatorioRequisicoesCondicionaisDTO> relatorioRequisicoesCondicionais() {
+        return ResponseEntity.ok(requisicoesCondicionais.gerarRelatorio());
+    }
+
+    @GetMapping("/caches")
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<List<RelatorioCacheDTO>> relatorioCaches() {
+        return ResponseEntity.ok(Stream.of(contaDao.gerarRelatorioCache(), cartaoDao.gerarRelatorioCache(),
+                        jwtDecoder.gerarRelatorioCache())
+                .flatMap(List::stream).toList());
+    }
+}
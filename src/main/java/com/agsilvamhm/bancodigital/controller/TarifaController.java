@@ -0,0 +1,38 @@
+package com.agsilvamhm.bancodigital.controller;
+
+import com.agsilvamhm.bancodigital.model.TarifaCategoria;
+import com.agsilvamhm.bancodigital.model.dto.CadastrarTarifaRequest;
+import com.agsilvamhm.bancodigital.service.GerenciadorTarifas;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/tarifas")
+public class TarifaController {
+
+    private final GerenciadorTarifas gerenciadorTarifas;
+
+    @Autowired
+    public TarifaController(GerenciadorTarifas gerenciadorTarifas) {
+        this.gerenciadorTarifas = gerenciadorTarifas;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TarifaCategoria>> listarVigentes() {
+        return ResponseEntity.ok(gerenciadorTarifas.atual().listar());
+    }
+
+    @PostMapping
+    @PreAuthorize("hasAuthority('SCOPE_ADMIN')")
+    public ResponseEntity<TarifaCategoria> cadastrar(@Valid @RequestBody CadastrarTarifaRequest request) {
+        TarifaCategoria tarifa = gerenciadorTarifas.cadastrar(request.categoria(), request.taxaManutencao(),
+                request.taxaRendimentoAnual(), request.limiteCreditoPadrao(), request.vigenteDesde());
+        return ResponseEntity.status(HttpStatus.CREATED).body(tarifa);
+    }
+}
@@ -0,0 +1,7 @@
+package com.agsilvamhm.bancodigital.controller.exception;
+
+public class ConflitoConcorrenciaException extends RuntimeException {
+    public ConflitoConcorrenciaException(String message) {
+        super(message);
+    }
+}
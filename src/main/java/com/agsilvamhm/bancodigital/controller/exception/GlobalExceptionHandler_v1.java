@@ -56,6 +56,31 @@ public class GlobalExceptionHandler_v1 {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    @ExceptionHandler(ConflitoConcorrenciaException.class)
+    public ResponseEntity<Map<String, Object>> handleConflitoConcorrencia(ConflitoConcorrenciaException ex, HttpServletRequest request) {
+        logger.warn("Conflito de concorrência em {}: {}", request.getRequestURI(), ex.getMessage());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflito de Concorrência");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    // A operação foi aceita e pode ainda ser confirmada: não é um conflito que o cliente possa simplesmente repetir
+    @ExceptionHandler(OperacaoPendenteException.class)
+    public ResponseEntity<Map<String, Object>> handleOperacaoPendente(OperacaoPendenteException ex, HttpServletRequest request) {
+        logger.warn("Operação com resultado pendente em {}: {}", request.getRequestURI(), ex.getMessage());
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.ACCEPTED.value());
+        body.put("error", "Operação Pendente");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getRequestURI());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handlerBusinessException(IllegalArgumentException ex, HttpServletRequest request) {
         logger.warn("Requisição com argumento ilegal: {}", ex.getMessage());
@@ -0,0 +1,7 @@
+package com.agsilvamhm.bancodigital.controller.exception;
+
+public class OperacaoPendenteException extends RuntimeException {
+    public OperacaoPendenteException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.agsilvamhm.bancodigital.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * O que é preciso para autorizar um pagamento com o cartão, sem conta nem cliente: situação, tipo,
+ * limites, a conta a debitar e um verificador da senha no lugar da senha em si.
+ */
+public record AutorizacaoCartao(
+        Integer id,
+        Long idConta,
+        TipoCartao tipoCartao,
+        boolean ativo,
+        BigDecimal limiteCredito,
+        BigDecimal limiteDiarioDebito,
+        byte[] verificadorSenha
+) {
+
+    public static AutorizacaoCartao de(Integer id, Long idConta, TipoCartao tipoCartao, boolean ativo,
+                                       BigDecimal limiteCredito, BigDecimal limiteDiarioDebito, String senha) {
+        return new AutorizacaoCartao(id, idConta, tipoCartao, ativo, limiteCredito, limiteDiarioDebito,
+                senha != null ? verificador(senha) : null);
+    }
+
+    public static AutorizacaoCartao de(Cartao cartao) {
+        return de(cartao.getId(), cartao.getConta().getId(), cartao.getTipoCartao(), cartao.isAtivo(),
+                cartao.getLimiteCredito(), cartao.getLimiteDiarioDebito(), cartao.getSenha());
+    }
+
+    public boolean senhaConfere(String senha) {
+        return verificadorSenha != null && senha != null && MessageDigest.isEqual(verificadorSenha, verificador(senha));
+    }
+
+    private static byte[] verificador(String senha) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(senha.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível para verificar a senha do cartão.", e);
+        }
+    }
+}
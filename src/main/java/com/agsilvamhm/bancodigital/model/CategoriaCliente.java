@@ -3,6 +3,10 @@ package com.agsilvamhm.bancodigital.model;
 import java.math.BigDecimal;
 import java.math.MathContext;
 
+/**
+ * Categorias de cliente com as tarifas padrão de cada uma. As tarifas aplicadas nas operações vêm da
+ * tabela de tarifas ({@link TabelaTarifas}); os valores daqui só valem para categorias sem tarifa vigente.
+ */
 public enum CategoriaCliente {
     COMUM("Comum", new BigDecimal("12.00"), new BigDecimal("0.005"), new BigDecimal("1000.00")),
     SUPER("Super", new BigDecimal("8.00"), new BigDecimal("0.007"), new BigDecimal("5000.00")),
@@ -12,12 +16,14 @@ public enum CategoriaCliente {
     private final BigDecimal taxaManutencao;
     private final BigDecimal taxaRendimentoAnual;
     private final BigDecimal limiteCreditoPadrao;
+    private final BigDecimal taxaRendimentoMensalEquivalente;
 
     CategoriaCliente(String descricao, BigDecimal taxaManutencao, BigDecimal taxaRendimentoAnual, BigDecimal limiteCreditoPadrao) {
         this.descricao = descricao;
         this.taxaManutencao = taxaManutencao;
         this.taxaRendimentoAnual = taxaRendimentoAnual;
         this.limiteCreditoPadrao = limiteCreditoPadrao;
+        this.taxaRendimentoMensalEquivalente = taxaMensalEquivalente(taxaRendimentoAnual);
     }
 
     public String getDescricao() {
@@ -37,17 +43,22 @@ public enum CategoriaCliente {
     }
 
     public BigDecimal getTaxaRendimentoMensalEquivalente() {
-        if (this.taxaRendimentoAnual.compareTo(BigDecimal.ZERO) == 0) {
+        return taxaRendimentoMensalEquivalente;
+    }
+
+    /**
+     * Taxa mensal composta equivalente à taxa anual: (1 + anual)^(1/12) - 1, com 10 dígitos significativos.
+     */
+    public static BigDecimal taxaMensalEquivalente(BigDecimal taxaAnual) {
+        if (taxaAnual.compareTo(BigDecimal.ZERO) == 0) {
             return BigDecimal.ZERO;
         }
 
         MathContext mc = new MathContext(10);
 
-          BigDecimal base = BigDecimal.ONE.add(this.taxaRendimentoAnual);
+        BigDecimal base = BigDecimal.ONE.add(taxaAnual);
         double exponente = 1.0 / 12.0;
 
-        BigDecimal taxaMensal = BigDecimal.valueOf(Math.pow(base.doubleValue(), exponente)).subtract(BigDecimal.ONE, mc);
-
-        return taxaMensal;
+        return BigDecimal.valueOf(Math.pow(base.doubleValue(), exponente)).subtract(BigDecimal.ONE, mc);
     }
-}
\ No newline at end of file
+}
@@ -23,6 +23,7 @@ public abstract class Conta {
     private String numero;
     private String agencia;
     private BigDecimal saldo;
+    private Long versao;
 
     public Long getId() {
         return id;
@@ -63,4 +64,12 @@ public abstract class Conta {
     public void setSaldo(BigDecimal saldo) {
         this.saldo = saldo;
     }
+
+    public Long getVersao() {
+        return versao;
+    }
+
+    public void setVersao(Long versao) {
+        this.versao = versao;
+    }
 }
\ No newline at end of file
@@ -1,11 +1,15 @@
 package com.agsilvamhm.bancodigital.model;
 
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class Movimentacao {
     private Integer id;
     private TipoMovimentacao tipo;
-    private double valor;
+    private long valorCentavos; // Valor exato em centavos
     private LocalDateTime dataHora;
     private Conta contaOrigem;
     private Conta contaDestino;
@@ -28,12 +32,18 @@ public class Movimentacao {
         this.tipo = tipo;
     }
 
-    public double getValor() {
-        return valor;
+    public long getValorCentavos() {
+        return valorCentavos;
+    }
+
+    public void setValorCentavos(long valorCentavos) {
+        this.valorCentavos = valorCentavos;
     }
 
-    public void setValor(double valor) {
-        this.valor = valor;
+    // Valor em reais derivado dos centavos, exposto no JSON apenas para leitura
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public BigDecimal getValor() {
+        return Centavos.paraReais(valorCentavos);
     }
 
     public LocalDateTime getDataHora() {
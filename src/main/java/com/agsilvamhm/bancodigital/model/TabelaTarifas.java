@@ -0,0 +1,85 @@
+package com.agsilvamhm.bancodigital.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fotografia imutável das tarifas vigentes em uma data, uma por categoria. É montada a partir de todas
+ * as tarifas cadastradas e trocada inteira quando a tabela muda ou quando chega a vigência seguinte.
+ */
+public final class TabelaTarifas {
+
+    private final Map<CategoriaCliente, TarifaCategoria> tarifas;
+    private final String versao;
+    private final LocalDate data;
+    private final LocalDate proximaVigencia;
+
+    private TabelaTarifas(Map<CategoriaCliente, TarifaCategoria> tarifas, String versao, LocalDate data,
+                          LocalDate proximaVigencia) {
+        this.tarifas = tarifas;
+        this.versao = versao;
+        this.data = data;
+        this.proximaVigencia = proximaVigencia;
+    }
+
+    /**
+     * Escolhe, para cada categoria, a tarifa de vigência mais recente até a data; em vigências iguais
+     * vale a última da lista. Categorias sem tarifa vigente ficam com os valores padrão do enum.
+     *
+     * @param cadastradas todas as tarifas, na ordem em que foram cadastradas
+     */
+    public static TabelaTarifas montar(List<TarifaCategoria> cadastradas, String versao, LocalDate data) {
+        Map<CategoriaCliente, TarifaCategoria> vigentes = new EnumMap<>(CategoriaCliente.class);
+        LocalDate proxima = null;
+        for (TarifaCategoria tarifa : cadastradas) {
+            if (tarifa.vigenteDesde().isAfter(data)) {
+                if (proxima == null || tarifa.vigenteDesde().isBefore(proxima)) {
+                    proxima = tarifa.vigenteDesde();
+                }
+                continue;
+            }
+            vigentes.merge(tarifa.categoria(), tarifa,
+                    (atual, nova) -> nova.vigenteDesde().isBefore(atual.vigenteDesde()) ? atual : nova);
+        }
+        for (CategoriaCliente categoria : CategoriaCliente.values()) {
+            vigentes.computeIfAbsent(categoria, TarifaCategoria::padrao);
+        }
+        return new TabelaTarifas(Collections.unmodifiableMap(vigentes), versao, data, proxima);
+    }
+
+    public TarifaCategoria tarifa(CategoriaCliente categoria) {
+        return tarifas.get(categoria);
+    }
+
+    public List<TarifaCategoria> listar() {
+        return List.copyOf(tarifas.values());
+    }
+
+    /**
+     * Identifica o conteúdo da tabela de tarifas no banco quando esta fotografia foi montada.
+     */
+    public String getVersao() {
+        return versao;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    /**
+     * Data da próxima tarifa cadastrada com vigência futura, ou null se não houver.
+     */
+    public LocalDate getProximaVigencia() {
+        return proximaVigencia;
+    }
+
+    /**
+     * Indica se em {@code hoje} esta fotografia já não representa as tarifas vigentes.
+     */
+    public boolean vencidaEm(LocalDate hoje) {
+        return hoje.isBefore(data) || (proximaVigencia != null && !hoje.isBefore(proximaVigencia));
+    }
+}
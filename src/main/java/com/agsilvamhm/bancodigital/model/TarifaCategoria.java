@@ -0,0 +1,33 @@
+package com.agsilvamhm.bancodigital.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Tarifas de uma categoria de cliente a partir de uma data de vigência. A taxa de rendimento mensal é
+ * calculada uma vez, na criação, a partir da taxa anual.
+ */
+public record TarifaCategoria(
+        CategoriaCliente categoria,
+        BigDecimal taxaManutencao,
+        BigDecimal taxaRendimentoAnual,
+        BigDecimal taxaRendimentoMensal,
+        BigDecimal limiteCreditoPadrao,
+        LocalDate vigenteDesde
+) {
+
+    public static TarifaCategoria de(CategoriaCliente categoria, BigDecimal taxaManutencao, BigDecimal taxaRendimentoAnual,
+                                     BigDecimal limiteCreditoPadrao, LocalDate vigenteDesde) {
+        return new TarifaCategoria(categoria, taxaManutencao, taxaRendimentoAnual,
+                CategoriaCliente.taxaMensalEquivalente(taxaRendimentoAnual), limiteCreditoPadrao, vigenteDesde);
+    }
+
+    /**
+     * Tarifa com os valores padrão da categoria, sem data de vigência, para quando a tabela não tiver
+     * nenhuma vigente.
+     */
+    public static TarifaCategoria padrao(CategoriaCliente categoria) {
+        return new TarifaCategoria(categoria, categoria.getTaxaManutencao(), categoria.getTaxaRendimentoAnual(),
+                categoria.getTaxaRendimentoMensalEquivalente(), categoria.getLimiteCreditoPadrao(), null);
+    }
+}
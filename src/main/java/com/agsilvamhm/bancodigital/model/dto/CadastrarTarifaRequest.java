@@ -0,0 +1,28 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import com.agsilvamhm.bancodigital.model.CategoriaCliente;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record CadastrarTarifaRequest(
+        @NotNull(message = "A categoria é obrigatória.")
+        CategoriaCliente categoria,
+
+        @NotNull(message = "A taxa de manutenção é obrigatória.")
+        @PositiveOrZero(message = "A taxa de manutenção não pode ser negativa.")
+        BigDecimal taxaManutencao,
+
+        @NotNull(message = "A taxa de rendimento anual é obrigatória.")
+        @PositiveOrZero(message = "A taxa de rendimento anual não pode ser negativa.")
+        BigDecimal taxaRendimentoAnual,
+
+        @NotNull(message = "O limite de crédito padrão é obrigatório.")
+        @PositiveOrZero(message = "O limite de crédito padrão não pode ser negativo.")
+        BigDecimal limiteCreditoPadrao,
+
+        @NotNull(message = "A data de início da vigência é obrigatória.")
+        LocalDate vigenteDesde
+) {}
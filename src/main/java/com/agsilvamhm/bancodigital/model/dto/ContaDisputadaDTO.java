@@ -0,0 +1,7 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+public record ContaDisputadaDTO(
+        Long contaId,
+        long esperas,
+        long esperaTotalMicros
+) {}
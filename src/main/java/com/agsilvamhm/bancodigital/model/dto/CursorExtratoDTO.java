@@ -0,0 +1,41 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição da última movimentação entregue em uma página do extrato: a próxima página começa na
+ * movimentação imediatamente anterior a (dataHora, id), na ordem data_hora DESC, id DESC.
+ * No extrato com saldo, saldoCentavos é o saldo logo após essa próxima movimentação, de onde a
+ * próxima página continua o cálculo sem reler as anteriores.
+ * Trafega na API como um token opaco em Base64.
+ */
+public record CursorExtratoDTO(LocalDateTime dataHora, int id, Long saldoCentavos) {
+
+    public CursorExtratoDTO(LocalDateTime dataHora, int id) {
+        this(dataHora, id, null);
+    }
+
+    public String codificar() {
+        String valor = dataHora + "|" + id + (saldoCentavos != null ? "|" + saldoCentavos : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o token não foi gerado por {@link #codificar()}.
+     */
+    public static CursorExtratoDTO decodificar(String token) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (partes.length < 2 || partes.length > 3) {
+                throw new IllegalArgumentException("Cursor de paginação inválido.");
+            }
+            return new CursorExtratoDTO(LocalDateTime.parse(partes[0]), Integer.parseInt(partes[1]),
+                    partes.length == 3 ? Long.valueOf(partes[2]) : null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor de paginação inválido.");
+        }
+    }
+}
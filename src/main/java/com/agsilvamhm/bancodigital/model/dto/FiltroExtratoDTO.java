@@ -0,0 +1,68 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Filtros opcionais do extrato; campos nulos (ou tipos vazio) não restringem.
+// O período é semiaberto: inicio inclusivo, fim exclusivo. Os tipos ficam na ordem do enum.
+public record FiltroExtratoDTO(
+        LocalDateTime inicio,
+        LocalDateTime fim,
+        Set<TipoMovimentacao> tipos,
+        Long valorMinimoCentavos,
+        Long valorMaximoCentavos
+) {
+
+    public static final FiltroExtratoDTO SEM_FILTRO = new FiltroExtratoDTO(null, null, null, null, null);
+
+    public FiltroExtratoDTO {
+        tipos = tipos == null || tipos.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(tipos));
+    }
+
+    /**
+     * Monta o filtro a partir dos parâmetros da API, com datas inclusivas e valores em reais.
+     *
+     * @throws IllegalArgumentException se o período ou a faixa de valores for invertida, ou se um valor
+     *                                  for negativo ou tiver mais de duas casas decimais.
+     */
+    public static FiltroExtratoDTO de(LocalDate de, LocalDate ate, Set<TipoMovimentacao> tipos,
+                                      BigDecimal valorMinimo, BigDecimal valorMaximo) {
+        if (de != null && ate != null && de.isAfter(ate)) {
+            throw new IllegalArgumentException("A data inicial do extrato não pode ser posterior à data final.");
+        }
+        if ((valorMinimo != null && valorMinimo.signum() < 0) || (valorMaximo != null && valorMaximo.signum() < 0)) {
+            throw new IllegalArgumentException("Os valores do filtro do extrato não podem ser negativos.");
+        }
+        if (valorMinimo != null && valorMaximo != null && valorMinimo.compareTo(valorMaximo) > 0) {
+            throw new IllegalArgumentException("O valor mínimo do extrato não pode ser maior que o valor máximo.");
+        }
+        return new FiltroExtratoDTO(
+                de != null ? de.atStartOfDay() : null,
+                ate != null ? ate.plusDays(1).atStartOfDay() : null,
+                tipos,
+                valorMinimo != null ? Centavos.deReais(valorMinimo) : null,
+                valorMaximo != null ? Centavos.deReais(valorMaximo) : null);
+    }
+
+    /**
+     * Aplica o filtro a uma linha já lida, para fontes em que ele não pode ir para o SQL.
+     */
+    public boolean aceita(LinhaExtratoDTO linha) {
+        return (inicio == null || !linha.dataHora().isBefore(inicio))
+                && (fim == null || linha.dataHora().isBefore(fim))
+                && (tipos.isEmpty() || tipos.contains(linha.tipo()))
+                && (valorMinimoCentavos == null || linha.valorCentavos() >= valorMinimoCentavos)
+                && (valorMaximoCentavos == null || linha.valorCentavos() <= valorMaximoCentavos);
+    }
+
+    public boolean isVazio() {
+        return inicio == null && fim == null && tipos.isEmpty() && valorMinimoCentavos == null && valorMaximoCentavos == null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+// Uma perna de um lote: TRANSFERENCIA (origem e destino), DEPOSITO (destino) ou SAQUE (origem)
+public record InstrucaoLoteDTO(
+        @NotNull(message = "O tipo da instrução não pode ser nulo.")
+        TipoMovimentacao tipo,
+
+        String contaOrigemNumero,
+
+        String contaDestinoNumero,
+
+        @NotNull(message = "O valor da instrução não pode ser nulo.")
+        @Positive(message = "O valor da instrução deve ser positivo.")
+        BigDecimal valor,
+
+        String descricao
+) {}
@@ -0,0 +1,39 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Uma linha do extrato: apenas o que é exibido, com as contas identificadas pelo número.
+// saldoAposCentavos (saldo da conta logo após a movimentação) só vem preenchido quando solicitado.
+public record LinhaExtratoDTO(
+        int id,
+        TipoMovimentacao tipo,
+        long valorCentavos,
+        LocalDateTime dataHora,
+        String descricao,
+        String contaOrigemNumero,
+        String contaDestinoNumero,
+        @JsonIgnore Long saldoAposCentavos
+) {
+    public LinhaExtratoDTO(int id, TipoMovimentacao tipo, long valorCentavos, LocalDateTime dataHora, String descricao,
+                           String contaOrigemNumero, String contaDestinoNumero) {
+        this(id, tipo, valorCentavos, dataHora, descricao, contaOrigemNumero, contaDestinoNumero, null);
+    }
+
+    @JsonProperty("valor")
+    public BigDecimal valor() {
+        return Centavos.paraReais(valorCentavos);
+    }
+
+    @JsonProperty("saldoApos")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public BigDecimal saldoApos() {
+        return saldoAposCentavos != null ? Centavos.paraReais(saldoAposCentavos) : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record LoteMovimentacoesRequestDTO(
+        @NotEmpty(message = "O lote deve conter ao menos uma instrução.")
+        @Size(max = 10000, message = "O lote pode conter no máximo 10000 instruções.")
+        List<@Valid InstrucaoLoteDTO> instrucoes
+) {}
@@ -0,0 +1,9 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.util.List;
+
+// proximoCursor é nulo na última página
+public record PaginaMovimentacoesDTO(
+        List<LinhaExtratoDTO> movimentacoes,
+        String proximoCursor
+) {}
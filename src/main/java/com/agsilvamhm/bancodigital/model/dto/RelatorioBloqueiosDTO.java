@@ -0,0 +1,13 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.util.List;
+
+public record RelatorioBloqueiosDTO(
+        boolean habilitado,
+        int quantidadeSegmentos,
+        long aquisicoes,
+        long aquisicoesComEspera,
+        long timeouts,
+        List<SegmentoBloqueioDTO> segmentos,          // Apenas segmentos já utilizados, do mais ao menos disputado
+        List<ContaDisputadaDTO> contasMaisDisputadas  // Contas que mais esperaram por bloqueio
+) {}
@@ -0,0 +1,14 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+public record RelatorioCacheDTO(
+        String nome,
+        int entradas,
+        int tamanhoMaximo,
+        long validadeMs,
+        long acertos,
+        long faltas,
+        long remocoesPorCapacidade,
+        long expiradas,
+        long invalidacoes,
+        double taxaAcertos
+) {}
@@ -0,0 +1,11 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+public record RelatorioConcorrenciaOtimistaDTO(
+        String modoAtual,
+        int maxTentativas,
+        long operacoes,
+        long conflitos,
+        long retentativas,
+        long esgotadas,
+        double conflitosPorOperacao
+) {}
@@ -0,0 +1,8 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+public record RelatorioRequisicoesCondicionaisDTO(
+        long consultas,
+        long comIfNoneMatch,
+        long naoModificadas,
+        double naoModificadasPorConsulta
+) {}
@@ -0,0 +1,9 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.time.LocalDateTime;
+
+public record RespostaIdempotenteDTO(
+        String impressaoDigital,
+        String resposta,
+        LocalDateTime expiraEm
+) {}
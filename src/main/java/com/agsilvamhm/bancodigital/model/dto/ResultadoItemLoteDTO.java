@@ -0,0 +1,7 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+public record ResultadoItemLoteDTO(
+        int indice,
+        boolean efetivada,
+        String mensagem
+) {}
@@ -0,0 +1,10 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.util.List;
+
+public record ResultadoLoteDTO(
+        int total,
+        int efetivadas,
+        int recusadas,
+        List<ResultadoItemLoteDTO> itens
+) {}
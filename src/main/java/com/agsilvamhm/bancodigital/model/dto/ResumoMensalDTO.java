@@ -0,0 +1,28 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+// Totais de um tipo de movimentação de uma conta em um mês; entradas e saídas do ponto de vista da conta.
+public record ResumoMensalDTO(
+        YearMonth mes,
+        TipoMovimentacao tipo,
+        long quantidade,
+        @JsonIgnore long entradasCentavos,
+        @JsonIgnore long saidasCentavos
+) {
+    @JsonProperty("entradas")
+    public BigDecimal entradas() {
+        return Centavos.paraReais(entradasCentavos);
+    }
+
+    @JsonProperty("saidas")
+    public BigDecimal saidas() {
+        return Centavos.paraReais(saidasCentavos);
+    }
+}
@@ -0,0 +1,13 @@
+package com.agsilvamhm.bancodigital.model.dto;
+
+import java.util.Map;
+
+public record SegmentoBloqueioDTO(
+        int segmento,
+        long aquisicoes,
+        long aquisicoesComEspera,
+        double esperaMediaMicros,
+        long esperaP99Micros,
+        long esperaMaximaMicros,
+        Map<String, Long> histogramaEspera // Faixa de espera (limite superior em µs) -> quantidade
+) {}
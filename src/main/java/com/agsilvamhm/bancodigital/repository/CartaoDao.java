@@ -1,20 +1,30 @@
 package com.agsilvamhm.bancodigital.repository;
 
 import com.agsilvamhm.bancodigital.model.*;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.util.cache.CacheLocal;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -23,12 +33,33 @@ public class CartaoDao {
 
     private static final Logger logger = LoggerFactory.getLogger(CartaoDao.class);
     private final JdbcTemplate jdbcTemplate;
+    // Nulo com o cache desligado; as entradas saem a cada alteração de situação, limite ou senha.
+    private final CacheLocal<Integer, AutorizacaoCartao> autorizacoes;
 
-    @Autowired
     public CartaoDao(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, false, 1, 1);
+    }
+
+    /**
+     * Assim como o de contas, o cache de autorizações só enxerga as alterações feitas por este nó; com
+     * mais de um nó, um cartão bloqueado em outro pode seguir autorizando aqui por até validade-ms.
+     */
+    @Autowired
+    public CartaoDao(JdbcTemplate jdbcTemplate,
+                     @Value("${bancodigital.cache.cartoes.habilitado:true}") boolean cacheHabilitado,
+                     @Value("${bancodigital.cache.cartoes.tamanho-maximo:10000}") int cacheTamanhoMaximo,
+                     @Value("${bancodigital.cache.cartoes.validade-ms:30000}") long cacheValidadeMs) {
         this.jdbcTemplate = jdbcTemplate;
+        this.autorizacoes = cacheHabilitado
+                ? new CacheLocal<>("autorizacoes-cartao", cacheTamanhoMaximo, Duration.ofMillis(cacheValidadeMs)) : null;
     }
 
+    private static final String SELECT_AUTORIZACAO = """
+            SELECT id_conta, tipo_cartao, ativo, limite_credito, limite_diario_debito, senha
+            FROM cartao
+            WHERE id = ?
+            """;
+
     // ATENÇÃO: Adicione 'co.tipo_conta' à sua SELECT para que o mapeamento funcione!
     private static final String BASE_SELECT_SQL = """
             SELECT
@@ -43,48 +74,74 @@ public class CartaoDao {
             JOIN cliente cl ON co.id_cliente = cl.id
             """;
 
-    private final RowMapper<Cartao> cartaoRowMapper = (rs, rowNum) -> {
-        Cartao cartao = new Cartao();
-        cartao.setId(rs.getInt("cartao_id"));
-        cartao.setNumero(rs.getString("cartao_numero"));
-        cartao.setNomeTitular(rs.getString("nome_titular"));
-        cartao.setDataValidade(rs.getDate("data_validade").toLocalDate());
-        cartao.setCvv(rs.getString("cvv"));
-        cartao.setSenha(rs.getString("senha"));
-        cartao.setTipoCartao(TipoCartao.valueOf(rs.getString("tipo_cartao")));
-        cartao.setLimiteCredito(rs.getBigDecimal("limite_credito"));
-        cartao.setLimiteDiarioDebito(rs.getBigDecimal("limite_diario_debito"));
-        cartao.setAtivo(rs.getBoolean("ativo"));
-
-        // Mapeia o objeto Cliente
-        Cliente cliente = new Cliente();
-        cliente.setId(rs.getInt("cliente_id"));
-        cliente.setCpf(rs.getString("cliente_cpf"));
-        cliente.setNome(rs.getString("cliente_nome"));
-        cliente.setDataNascimento(rs.getDate("cliente_data_nascimento").toLocalDate());
-        cliente.setCategoria(CategoriaCliente.valueOf(rs.getString("cliente_categoria")));
-
-        // Mapeia o objeto Conta
-        String tipoContaStr = rs.getString("tipo_conta"); // Obtém o tipo de conta da coluna SQL
-        Conta conta;
-        if (TipoConta.CORRENTE.name().equals(tipoContaStr)) {
-            conta = new ContaCorrente(); // Instancia ContaCorrente
-        } else if (TipoConta.POUPANCA.name().equals(tipoContaStr)) {
-            conta = new ContaPoupanca(); // Instancia ContaPoupanca
-        } else {
-            // Lançar exceção ou logar erro se o tipo de conta for desconhecido
-            throw new IllegalArgumentException("Tipo de conta desconhecido: " + tipoContaStr);
+    /**
+     * Mapeador de um único resultado (crie um por consulta): os cartões de uma mesma conta compartilham
+     * as instâncias de Conta e Cliente, montadas na primeira linha em que aparecem.
+     */
+    private static final class CartaoRowMapper implements RowMapper<Cartao> {
+
+        private final Map<Long, Conta> contas = new HashMap<>();
+        private final Map<Integer, Cliente> clientes = new HashMap<>();
+
+        @Override
+        public Cartao mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Cartao cartao = new Cartao();
+            cartao.setId(rs.getInt("cartao_id"));
+            cartao.setNumero(rs.getString("cartao_numero"));
+            cartao.setNomeTitular(rs.getString("nome_titular"));
+            cartao.setDataValidade(rs.getDate("data_validade").toLocalDate());
+            cartao.setCvv(rs.getString("cvv"));
+            cartao.setSenha(rs.getString("senha"));
+            cartao.setTipoCartao(TipoCartao.valueOf(rs.getString("tipo_cartao")));
+            cartao.setLimiteCredito(rs.getBigDecimal("limite_credito"));
+            cartao.setLimiteDiarioDebito(rs.getBigDecimal("limite_diario_debito"));
+            cartao.setAtivo(rs.getBoolean("ativo"));
+            cartao.setConta(conta(rs));
+            return cartao;
         }
 
-        conta.setId(rs.getLong("conta_id"));
-        conta.setNumero(rs.getString("conta_numero"));
-        conta.setAgencia(rs.getString("agencia"));
-        conta.setSaldo(rs.getBigDecimal("conta_saldo"));
-        conta.setCliente(cliente);
-        cartao.setConta(conta);
+        private Conta conta(ResultSet rs) throws SQLException {
+            long id = rs.getLong("conta_id");
+            Conta conta = contas.get(id);
+            if (conta != null) {
+                return conta;
+            }
 
-        return cartao;
-    };
+            String tipoContaStr = rs.getString("tipo_conta"); // Obtém o tipo de conta da coluna SQL
+            if (TipoConta.CORRENTE.name().equals(tipoContaStr)) {
+                conta = new ContaCorrente(); // Instancia ContaCorrente
+            } else if (TipoConta.POUPANCA.name().equals(tipoContaStr)) {
+                conta = new ContaPoupanca(); // Instancia ContaPoupanca
+            } else {
+                // Lançar exceção ou logar erro se o tipo de conta for desconhecido
+                throw new IllegalArgumentException("Tipo de conta desconhecido: " + tipoContaStr);
+            }
+            conta.setId(id);
+            conta.setNumero(rs.getString("conta_numero"));
+            conta.setAgencia(rs.getString("agencia"));
+            conta.setSaldo(rs.getBigDecimal("conta_saldo"));
+            conta.setCliente(cliente(rs));
+            contas.put(id, conta);
+            return conta;
+        }
+
+        private Cliente cliente(ResultSet rs) throws SQLException {
+            int id = rs.getInt("cliente_id");
+            Cliente cliente = clientes.get(id);
+            if (cliente != null) {
+                return cliente;
+            }
+
+            cliente = new Cliente();
+            cliente.setId(id);
+            cliente.setCpf(rs.getString("cliente_cpf"));
+            cliente.setNome(rs.getString("cliente_nome"));
+            cliente.setDataNascimento(rs.getDate("cliente_data_nascimento").toLocalDate());
+            cliente.setCategoria(CategoriaCliente.valueOf(rs.getString("cliente_categoria")));
+            clientes.put(id, cliente);
+            return cliente;
+        }
+    }
 
     @Transactional
     public Cartao salvar(Cartao cartao) {
@@ -123,7 +180,7 @@ public class CartaoDao {
     public Optional<Cartao> buscarPorId(Integer id) {
         String sql = BASE_SELECT_SQL + " WHERE ca.id = ?";
         try {
-            Cartao cartao = jdbcTemplate.queryForObject(sql, cartaoRowMapper, id);
+            Cartao cartao = jdbcTemplate.queryForObject(sql, new CartaoRowMapper(), id);
             return Optional.ofNullable(cartao);
         } catch (EmptyResultDataAccessException e) {
             logger.warn("Nenhum cartão encontrado com ID: {}", id);
@@ -131,32 +188,93 @@ public class CartaoDao {
         }
     }
 
+    /**
+     * Dados de autorização do cartão, lidos só da tabela cartao e guardados no cache.
+     */
+    public Optional<AutorizacaoCartao> buscarAutorizacao(Integer id) {
+        if (autorizacoes == null || autorizacoes.alteradaNaTransacao(id)) {
+            return consultarAutorizacao(id);
+        }
+        AutorizacaoCartao emCache = autorizacoes.buscar(id);
+        if (emCache != null) {
+            return Optional.of(emCache);
+        }
+        long geracao = autorizacoes.geracao();
+        Optional<AutorizacaoCartao> autorizacao = consultarAutorizacao(id);
+        autorizacao.ifPresent(lida -> autorizacoes.guardar(id, lida, geracao));
+        return autorizacao;
+    }
+
+    private Optional<AutorizacaoCartao> consultarAutorizacao(Integer id) {
+        List<AutorizacaoCartao> encontradas = jdbcTemplate.query(SELECT_AUTORIZACAO, (rs, rowNum) -> AutorizacaoCartao.de(
+                id,
+                rs.getLong("id_conta"),
+                TipoCartao.valueOf(rs.getString("tipo_cartao")),
+                rs.getBoolean("ativo"),
+                rs.getBigDecimal("limite_credito"),
+                rs.getBigDecimal("limite_diario_debito"),
+                rs.getString("senha")), id);
+        return encontradas.stream().findFirst();
+    }
+
+    public List<RelatorioCacheDTO> gerarRelatorioCache() {
+        return autorizacoes != null ? List.of(autorizacoes.gerarRelatorio()) : List.of();
+    }
+
+    private void invalidarCache(Integer id) {
+        if (autorizacoes != null) {
+            autorizacoes.invalidarNaTransacao(id);
+        }
+    }
+
+    /**
+     * Esvazia o cache, para exclusões que removem cartões em cascata (ex.: exclusão do cliente).
+     */
+    public void limparCache() {
+        if (autorizacoes == null) {
+            return;
+        }
+        autorizacoes.limpar();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    autorizacoes.limpar();
+                }
+            });
+        }
+    }
+
     public List<Cartao> buscarPorContaId(Integer contaId) {
         String sql = BASE_SELECT_SQL + " WHERE ca.id_conta = ?";
-        return jdbcTemplate.query(sql, cartaoRowMapper, contaId);
+        return jdbcTemplate.query(sql, new CartaoRowMapper(), contaId);
     }
 
     @Transactional
     public int atualizarStatus(Integer id, boolean ativo) {
         String sql = "UPDATE cartao SET ativo = ? WHERE id = ?";
+        invalidarCache(id);
         return jdbcTemplate.update(sql, ativo, id);
     }
 
     @Transactional
     public int atualizarSenha(Integer id, String novaSenhaHasheada) {
         String sql = "UPDATE cartao SET senha = ? WHERE id = ?";
+        invalidarCache(id);
         return jdbcTemplate.update(sql, novaSenhaHasheada, id);
     }
 
     @Transactional
     public int atualizarLimiteCredito(Integer id, java.math.BigDecimal novoLimite) {
         String sql = "UPDATE cartao SET limite_credito = ? WHERE id = ?";
+        invalidarCache(id);
         return jdbcTemplate.update(sql, novoLimite, id);
     }
 
     @Transactional
     public int atualizarLimiteDiarioDebito(Integer id, java.math.BigDecimal novoLimite) {
         String sql = "UPDATE cartao SET limite_diario_debito = ? WHERE id = ?";
+        invalidarCache(id);
         return jdbcTemplate.update(sql, novoLimite, id);
     }
 }
\ No newline at end of file
@@ -1,11 +1,15 @@
 package com.agsilvamhm.bancodigital.repository;
 
 import com.agsilvamhm.bancodigital.model.*;
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
 import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.util.cache.CacheLocal;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -13,32 +17,69 @@ import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Repository
 public class ContaDao {
 
     private static final Logger logger = LoggerFactory.getLogger(ContaDao.class);
     private final JdbcTemplate jdbcTemplate;
+    // Nulos com o cache desligado. O número de uma conta nunca muda, então o índice por número só
+    // precisa de limite de tamanho; as contas em si saem do cache a cada escrita de saldo.
+    private final CacheLocal<Long, Conta> cachePorId;
+    private final CacheLocal<String, Long> idPorNumero;
 
-    @Autowired
     public ContaDao(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, false, 1, 1);
+    }
+
+    /**
+     * O cache de buscarPorId e buscarPorNumero só enxerga as escritas feitas por este DAO (e as
+     * avisadas por {@link #invalidarCache}); em implantações com mais de um nó, outro nó pode ler um
+     * saldo defasado por até o tempo de vida das entradas. As escritas continuam condicionais no
+     * banco, então o defasamento afeta apenas leituras, nunca a validação de saldo.
+     */
+    @Autowired
+    public ContaDao(JdbcTemplate jdbcTemplate,
+                    @Value("${bancodigital.cache.contas.habilitado:true}") boolean cacheHabilitado,
+                    @Value("${bancodigital.cache.contas.tamanho-maximo:10000}") int cacheTamanhoMaximo,
+                    @Value("${bancodigital.cache.contas.validade-ms:30000}") long cacheValidadeMs) {
         this.jdbcTemplate = jdbcTemplate;
+        this.cachePorId = cacheHabilitado ? new CacheLocal<>("contas", cacheTamanhoMaximo, Duration.ofMillis(cacheValidadeMs)) : null;
+        this.idPorNumero = cacheHabilitado ? new CacheLocal<>("contas-por-numero", cacheTamanhoMaximo, Duration.ofMillis(cacheValidadeMs)) : null;
     }
 
     private static final String BASE_SELECT_SQL = """
             SELECT
-                c.id as conta_id, c.numero, c.agencia, c.saldo, c.tipo_conta,
+                c.id as conta_id, c.numero, c.agencia, c.saldo, c.versao, c.tipo_conta,
                 cl.id as cliente_id, cl.cpf, cl.nome, cl.categoria as cliente_categoria
             FROM conta c
             JOIN cliente cl ON c.id_cliente = cl.id
             """;
 
+    // Toda escrita de saldo incrementa a versão, para que atualizações otimistas concorrentes a detectem
+    private static final String DEBITAR_SQL = "UPDATE conta SET saldo = saldo - ?, versao = versao + 1 WHERE id = ? AND saldo >= ?";
+    private static final String CREDITAR_SQL = "UPDATE conta SET saldo = saldo + ?, versao = versao + 1 WHERE id = ?";
+    private static final int TAMANHO_MAXIMO_IN = 1000;
+    private static final String BLOQUEAR_SQL = "SELECT id FROM conta WHERE id = ? FOR UPDATE";
+    private static final String APLICAR_DELTA_SQL = "UPDATE conta SET saldo = saldo + ?, versao = versao + 1 WHERE id = ? AND saldo + ? >= 0";
+
     private final RowMapper<Conta> contaRowMapper = (rs, rowNum) -> {
         String tipoConta = rs.getString("tipo_conta");
         Conta conta;
@@ -55,6 +96,7 @@ public class ContaDao {
         conta.setNumero(rs.getString("numero"));
         conta.setAgencia(rs.getString("agencia"));
         conta.setSaldo(rs.getBigDecimal("saldo"));
+        conta.setVersao(rs.getLong("versao"));
 
         Cliente cliente = new Cliente();
         cliente.setId(rs.getInt("cliente_id"));
@@ -96,12 +138,46 @@ public class ContaDao {
 
         long generatedId = Objects.requireNonNull(keyHolder.getKey()).longValue();
         conta.setId(generatedId);
+        conta.setVersao(0L);
 
         logger.info("Conta do tipo {} salva com ID: {}", tipoConta, generatedId);
         return conta;
     }
 
     public Optional<Conta> buscarPorId(Long id) {
+        if (cachePorId == null || cachePorId.alteradaNaTransacao(id)) {
+            return consultarPorId(id);
+        }
+        Conta emCache = cachePorId.buscar(id);
+        if (emCache != null) {
+            return Optional.of(copiar(emCache));
+        }
+        long geracao = cachePorId.geracao();
+        Optional<Conta> conta = consultarPorId(id);
+        conta.ifPresent(lida -> cachePorId.guardar(id, copiar(lida), geracao));
+        return conta;
+    }
+
+    public Optional<Conta> buscarPorNumero(String numero) {
+        if (cachePorId == null) {
+            return consultarPorNumero(numero);
+        }
+        Long id = idPorNumero.buscar(numero);
+        if (id != null) {
+            return buscarPorId(id);
+        }
+        long geracao = cachePorId.geracao();
+        Optional<Conta> conta = consultarPorNumero(numero);
+        conta.ifPresent(lida -> {
+            idPorNumero.guardar(numero, lida.getId(), idPorNumero.geracao());
+            if (!cachePorId.alteradaNaTransacao(lida.getId())) {
+                cachePorId.guardar(lida.getId(), copiar(lida), geracao);
+            }
+        });
+        return conta;
+    }
+
+    private Optional<Conta> consultarPorId(Long id) {
         String sql = BASE_SELECT_SQL + " WHERE c.id = ?";
         try {
             Conta conta = jdbcTemplate.queryForObject(sql, contaRowMapper, id);
@@ -112,7 +188,7 @@ public class ContaDao {
         }
     }
 
-    public Optional<Conta> buscarPorNumero(String numero) {
+    private Optional<Conta> consultarPorNumero(String numero) {
         String sql = BASE_SELECT_SQL + " WHERE c.numero = ?";
         try {
             Conta conta = jdbcTemplate.queryForObject(sql, contaRowMapper, numero);
@@ -123,6 +199,80 @@ public class ContaDao {
         }
     }
 
+    /**
+     * Remove as contas do cache; ver {@link CacheLocal#invalidarNaTransacao(Object)}.
+     */
+    public void invalidarCache(Long... ids) {
+        if (cachePorId == null) {
+            return;
+        }
+        for (Long id : ids) {
+            cachePorId.invalidarNaTransacao(id);
+        }
+    }
+
+    /**
+     * Esvazia o cache, para alterações que não são de uma conta específica (ex.: dados do cliente).
+     */
+    public void limparCache() {
+        if (cachePorId == null) {
+            return;
+        }
+        cachePorId.limpar();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cachePorId.limpar();
+                }
+            });
+        }
+    }
+
+    public List<RelatorioCacheDTO> gerarRelatorioCache() {
+        if (cachePorId == null) {
+            return List.of();
+        }
+        return List.of(cachePorId.gerarRelatorio(), idPorNumero.gerarRelatorio());
+    }
+
+    // O cache guarda e devolve cópias: os serviços ajustam o saldo dos objetos para montar os recibos
+    private static Conta copiar(Conta origem) {
+        Conta copia = origem instanceof ContaPoupanca ? new ContaPoupanca() : new ContaCorrente();
+        copia.setId(origem.getId());
+        copia.setNumero(origem.getNumero());
+        copia.setAgencia(origem.getAgencia());
+        copia.setSaldo(origem.getSaldo());
+        copia.setVersao(origem.getVersao());
+        Cliente cliente = new Cliente();
+        cliente.setId(origem.getCliente().getId());
+        cliente.setCpf(origem.getCliente().getCpf());
+        cliente.setNome(origem.getCliente().getNome());
+        cliente.setCategoria(origem.getCliente().getCategoria());
+        copia.setCliente(cliente);
+        return copia;
+    }
+
+    /**
+     * Busca várias contas pelo número com consultas IN, em blocos de até
+     * {@value #TAMANHO_MAXIMO_IN} números por consulta.
+     */
+    public List<Conta> buscarPorNumeros(Collection<String> numeros) {
+        List<String> distintos = numeros.stream().filter(Objects::nonNull).distinct().toList();
+        List<Conta> contas = new ArrayList<>(distintos.size());
+        for (int inicio = 0; inicio < distintos.size(); inicio += TAMANHO_MAXIMO_IN) {
+            List<String> bloco = distintos.subList(inicio, Math.min(inicio + TAMANHO_MAXIMO_IN, distintos.size()));
+            String sql = BASE_SELECT_SQL + " WHERE c.numero IN (" + String.join(", ", Collections.nCopies(bloco.size(), "?")) + ")";
+            try {
+                contas.addAll(jdbcTemplate.query(sql, contaRowMapper, bloco.toArray()));
+            } catch (DataAccessException ex) {
+                logger.error("Erro ao buscar {} contas por número.", bloco.size(), ex);
+                throw new RepositorioException("Erro ao buscar contas por número.", ex);
+            }
+        }
+        return contas;
+    }
+
     public List<Conta> listarContasCorrente() {
         String sql = BASE_SELECT_SQL + " WHERE c.tipo_conta = 'CORRENTE'";
         return jdbcTemplate.query(sql, contaRowMapper);
@@ -133,21 +283,193 @@ public class ContaDao {
         return jdbcTemplate.query(sql, contaRowMapper);
     }
 
+    /**
+     * Atualiza o saldo da conta. Quando a conta carrega uma versão, a escrita só acontece se a versão
+     * no banco ainda for a mesma (compare-and-set); caso contrário, outra operação alterou a conta
+     * desde a leitura e é lançada {@link ConflitoConcorrenciaException}. Em caso de sucesso, a versão
+     * do objeto é avançada.
+     */
     @Transactional
     public void atualizar(Conta conta) throws RepositorioException {
         Objects.requireNonNull(conta, "O objeto conta não pode ser nulo.");
         Objects.requireNonNull(conta.getId(), "O ID da conta não pode ser nulo para atualização.");
 
-        String sqlConta = "UPDATE conta SET saldo = ? WHERE id = ?";
-        int rowsAffected = jdbcTemplate.update(sqlConta, conta.getSaldo(), conta.getId());
+        invalidarCache(conta.getId());
+        int rowsAffected;
+        if (conta.getVersao() != null) {
+            String sqlConta = "UPDATE conta SET saldo = ?, versao = versao + 1 WHERE id = ? AND versao = ?";
+            rowsAffected = jdbcTemplate.update(sqlConta, conta.getSaldo(), conta.getId(), conta.getVersao());
+            if (rowsAffected == 0 && buscarSaldo(conta.getId()).isPresent()) {
+                logger.debug("Conflito de versão ao atualizar a conta ID {} (versão {}).", conta.getId(), conta.getVersao());
+                throw new ConflitoConcorrenciaException("A conta foi alterada por outra operação. Tente novamente.");
+            }
+        } else {
+            String sqlConta = "UPDATE conta SET saldo = ?, versao = versao + 1 WHERE id = ?";
+            rowsAffected = jdbcTemplate.update(sqlConta, conta.getSaldo(), conta.getId());
+        }
 
         if (rowsAffected == 0) {
             throw new RepositorioException("Conta com ID " + conta.getId() + " não encontrada para atualização.");
         }
 
+        if (conta.getVersao() != null) {
+            conta.setVersao(conta.getVersao() + 1);
+        }
         logger.info("Conta ID {} atualizada com sucesso.", conta.getId());
     }
 
+    /**
+     * Debita o valor diretamente no banco, somente se a conta possuir saldo suficiente.
+     * A verificação e a escrita acontecem no mesmo UPDATE, sem leitura prévia do saldo.
+     *
+     * @return true se o débito foi aplicado; false se o saldo é insuficiente ou a conta não existe.
+     */
+    @Transactional
+    public boolean debitar(Long id, BigDecimal valor) {
+        Objects.requireNonNull(id, "O ID da conta não pode ser nulo para débito.");
+        Objects.requireNonNull(valor, "O valor do débito não pode ser nulo.");
+
+        invalidarCache(id);
+        int rowsAffected = jdbcTemplate.update(DEBITAR_SQL, valor, id, valor);
+        if (rowsAffected == 0) {
+            logger.warn("Débito de {} recusado para a conta ID {}: saldo insuficiente ou conta inexistente.", valor, id);
+            return false;
+        }
+
+        logger.debug("Débito de {} aplicado na conta ID {}.", valor, id);
+        return true;
+    }
+
+    /**
+     * Credita o valor diretamente no banco, sem leitura prévia do saldo.
+     *
+     * @return true se o crédito foi aplicado; false se a conta não existe.
+     */
+    @Transactional
+    public boolean creditar(Long id, BigDecimal valor) {
+        Objects.requireNonNull(id, "O ID da conta não pode ser nulo para crédito.");
+        Objects.requireNonNull(valor, "O valor do crédito não pode ser nulo.");
+
+        invalidarCache(id);
+        int rowsAffected = jdbcTemplate.update(CREDITAR_SQL, valor, id);
+        if (rowsAffected == 0) {
+            logger.warn("Crédito de {} recusado: conta ID {} não encontrada.", valor, id);
+            return false;
+        }
+
+        logger.debug("Crédito de {} aplicado na conta ID {}.", valor, id);
+        return true;
+    }
+
+    /**
+     * Bloqueia as linhas das contas informadas até o fim da transação corrente.
+     * Os bloqueios são adquiridos sempre em ordem crescente de ID, uma conta por vez,
+     * para que operações cruzadas entre as mesmas contas não entrem em deadlock.
+     */
+    @Transactional
+    public void bloquearParaAtualizacao(Long... ids) {
+        Long[] ordenados = Arrays.stream(ids)
+                .map(id -> Objects.requireNonNull(id, "O ID da conta não pode ser nulo para bloqueio."))
+                .distinct()
+                .sorted()
+                .toArray(Long[]::new);
+
+        for (Long id : ordenados) {
+            try {
+                jdbcTemplate.queryForObject(BLOQUEAR_SQL, Long.class, id);
+            } catch (EmptyResultDataAccessException e) {
+                throw new RepositorioException("Conta com ID " + id + " não encontrada para bloqueio.", e);
+            }
+        }
+        logger.debug("Contas {} bloqueadas para atualização.", Arrays.toString(ordenados));
+    }
+
+    /**
+     * Bloqueia as linhas das contas até o fim da transação corrente e devolve os saldos lidos sob o
+     * bloqueio, com consultas IN de até {@value #TAMANHO_MAXIMO_IN} contas em ordem crescente de ID.
+     * Contas inexistentes ficam fora do mapa.
+     */
+    @Transactional
+    public Map<Long, BigDecimal> bloquearELerSaldos(Collection<Long> ids) {
+        List<Long> ordenados = ids.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        Map<Long, BigDecimal> saldos = new HashMap<>();
+        for (int inicio = 0; inicio < ordenados.size(); inicio += TAMANHO_MAXIMO_IN) {
+            List<Long> bloco = ordenados.subList(inicio, Math.min(inicio + TAMANHO_MAXIMO_IN, ordenados.size()));
+            String sql = "SELECT id, saldo FROM conta WHERE id IN (" + String.join(", ", Collections.nCopies(bloco.size(), "?"))
+                    + ") ORDER BY id FOR UPDATE";
+            jdbcTemplate.query(sql, rs -> {
+                saldos.put(rs.getLong("id"), rs.getBigDecimal("saldo"));
+            }, bloco.toArray());
+        }
+        logger.debug("{} contas bloqueadas para atualização.", saldos.size());
+        return saldos;
+    }
+
+    public boolean existe(Long id) {
+        Integer encontradas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM conta WHERE id = ?", Integer.class, id);
+        return encontradas != null && encontradas > 0;
+    }
+
+    public Optional<BigDecimal> buscarSaldo(Long id) {
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE id = ?", BigDecimal.class, id));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    // conta.versao muda a cada escrita de saldo; a soma do resumo mensal, a cada movimentação gravada,
+    // inclusive operações do modo razão, que não tocam a linha da conta. Compras no crédito não têm conta
+    // de origem nem de destino: não entram no extrato da conta e não mudam o token
+    private static final String SELECT_VERSAO_SQL = """
+            SELECT c.versao,
+                   (SELECT COALESCE(SUM(r.quantidade), 0) FROM resumo_mensal_movimentacao r WHERE r.id_conta = c.id) AS movimentacoes
+            FROM conta c
+            WHERE c.id = ?
+            """;
+
+    /**
+     * Token que muda sempre que o saldo ou o extrato da conta mudam, lido só da chave primária da
+     * conta e das linhas de resumo mensal dela. As duas partes são atualizadas sob bloqueio de linha na
+     * transação da escrita, então o token avança na ordem dos commits.
+     *
+     * @return vazio se a conta não existe.
+     */
+    public Optional<String> buscarVersao(Long id) {
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(SELECT_VERSAO_SQL,
+                    (rs, rowNum) -> rs.getLong("versao") + "-" + rs.getLong("movimentacoes"), id));
+        } catch (EmptyResultDataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Aplica a variação líquida de saldo de várias contas em um único lote de UPDATEs condicionais.
+     * As contas são atualizadas em ordem crescente de ID, e nenhuma pode terminar com saldo negativo.
+     *
+     * @return true se todas as variações foram aplicadas; false se alguma conta não existe ou ficaria
+     *         negativa (cabe ao chamador desfazer a transação).
+     */
+    @Transactional
+    public boolean aplicarVariacoesEmLote(Map<Long, BigDecimal> variacoes) {
+        List<Object[]> parametros = new TreeMap<>(variacoes).entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey(), e.getValue()})
+                .toList();
+
+        invalidarCache(variacoes.keySet().toArray(Long[]::new));
+        int[] rowsAffected = jdbcTemplate.batchUpdate(APLICAR_DELTA_SQL, parametros);
+        for (int i = 0; i < rowsAffected.length; i++) {
+            if (rowsAffected[i] == 0) {
+                logger.warn("Variação de saldo recusada para a conta ID {} no lote.", parametros.get(i)[1]);
+                return false;
+            }
+        }
+
+        logger.debug("Variações de saldo aplicadas em lote para {} contas.", parametros.size());
+        return true;
+    }
+
     public List<Conta> buscarPorClienteId(Integer clienteId) {
         String sql = BASE_SELECT_SQL + " WHERE c.id_cliente = ?";
         try {
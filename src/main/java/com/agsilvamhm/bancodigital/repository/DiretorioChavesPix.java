@@ -0,0 +1,88 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diretório de chaves PIX em memória: cada chave (hoje, o CPF do cliente, como gravado na tabela cliente)
+ * aponta para o id da conta de destino, que é a conta de menor id do cliente. Carregado do banco na
+ * inicialização e mantido pelos serviços a cada cliente ou conta criados e cliente excluído; as mudanças
+ * só entram no diretório depois do commit da transação que as gravou.
+ */
+@Repository
+public class DiretorioChavesPix {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiretorioChavesPix.class);
+
+    /**
+     * Valor de uma chave cujo cliente existe mas ainda não tem conta.
+     */
+    public static final long SEM_CONTA = 0L;
+
+    private static final String SELECT_CHAVES = """
+            SELECT cl.cpf, COALESCE(MIN(c.id), 0) AS id_conta
+            FROM cliente cl
+            LEFT JOIN conta c ON c.id_cliente = cl.id
+            GROUP BY cl.cpf
+            """;
+
+    private final Map<String, Long> contasPorChave = new ConcurrentHashMap<>();
+
+    public DiretorioChavesPix(JdbcTemplate jdbcTemplate) {
+        try {
+            jdbcTemplate.query(SELECT_CHAVES,
+                    (RowCallbackHandler) rs -> contasPorChave.put(rs.getString("cpf"), rs.getLong("id_conta")));
+        } catch (DataAccessException ex) {
+            throw new RepositorioException("Erro ao carregar o diretório de chaves PIX.", ex);
+        }
+        logger.info("Diretório de chaves PIX carregado com {} chaves.", contasPorChave.size());
+    }
+
+    /**
+     * Id da conta de destino da chave, {@link #SEM_CONTA} se o cliente não tiver conta, ou null se a
+     * chave não pertencer a nenhum cliente.
+     */
+    public Long resolver(String chave) {
+        return chave != null ? contasPorChave.get(chave) : null;
+    }
+
+    public int tamanho() {
+        return contasPorChave.size();
+    }
+
+    public void registrarCliente(String cpf) {
+        depoisDoCommit(() -> contasPorChave.putIfAbsent(cpf, SEM_CONTA));
+    }
+
+    public void registrarConta(String cpf, long contaId) {
+        depoisDoCommit(() -> contasPorChave.merge(cpf, contaId,
+                (atual, nova) -> atual == SEM_CONTA ? nova : Math.min(atual, nova)));
+    }
+
+    public void removerCliente(String cpf) {
+        depoisDoCommit(() -> contasPorChave.remove(cpf));
+    }
+
+    private static void depoisDoCommit(Runnable alteracao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            alteracao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                alteracao.run();
+            }
+        });
+    }
+}
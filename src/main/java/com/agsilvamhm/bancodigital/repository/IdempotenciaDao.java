@@ -0,0 +1,58 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.model.dto.RespostaIdempotenteDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class IdempotenciaDao {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaDao.class);
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdempotenciaDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private final RowMapper<RespostaIdempotenteDTO> respostaRowMapper = (rs, rowNum) -> new RespostaIdempotenteDTO(
+            rs.getString("impressao_digital"),
+            rs.getString("resposta"),
+            rs.getTimestamp("expira_em").toLocalDateTime());
+
+    /**
+     * Registra a resposta associada à chave. Deve ser chamado na mesma transação da operação,
+     * para que a chave só fique gravada se a operação for confirmada. Uma chave já existente
+     * provoca {@link org.springframework.dao.DuplicateKeyException}.
+     */
+    public void inserir(String chave, RespostaIdempotenteDTO resposta) {
+        // Uma chave expirada ainda não removida não deve impedir o reaproveitamento
+        jdbcTemplate.update("DELETE FROM idempotencia WHERE chave = ? AND expira_em <= CURRENT_TIMESTAMP", chave);
+        jdbcTemplate.update("INSERT INTO idempotencia (chave, impressao_digital, resposta, expira_em) VALUES (?, ?, ?, ?)",
+                chave, resposta.impressaoDigital(), resposta.resposta(), Timestamp.valueOf(resposta.expiraEm()));
+    }
+
+    public Optional<RespostaIdempotenteDTO> buscarValida(String chave, LocalDateTime agora) {
+        List<RespostaIdempotenteDTO> encontradas = jdbcTemplate.query(
+                "SELECT impressao_digital, resposta, expira_em FROM idempotencia WHERE chave = ? AND expira_em > ?",
+                respostaRowMapper, chave, Timestamp.valueOf(agora));
+        return encontradas.stream().findFirst();
+    }
+
+    public int removerExpiradas(LocalDateTime agora) {
+        int removidas = jdbcTemplate.update("DELETE FROM idempotencia WHERE expira_em <= ?", Timestamp.valueOf(agora));
+        if (removidas > 0) {
+            logger.info("{} chaves de idempotência expiradas removidas.", removidas);
+        }
+        return removidas;
+    }
+}
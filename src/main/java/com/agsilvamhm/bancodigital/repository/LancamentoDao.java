@@ -0,0 +1,168 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Acesso ao razão contábil (tabela lancamento, somente inserções) e aos snapshots de saldo.
+ * O saldo de uma conta é o último snapshot somado aos lançamentos posteriores a ele; sem snapshot,
+ * o saldo de abertura é o valor em conta.saldo, que no modo razão só é gravado junto com um snapshot.
+ */
+@Repository
+public class LancamentoDao {
+
+    private static final Logger logger = LoggerFactory.getLogger(LancamentoDao.class);
+
+    private static final String INSERT_LANCAMENTO = """
+        INSERT INTO lancamento (id_conta, natureza, valor_centavos, tipo, data_hora)
+        VALUES (?, ?, ?, ?, ?)
+    """;
+
+    private static final int[] TIPOS_INSERT_LANCAMENTO = {Types.INTEGER, Types.CHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP};
+
+    private static final String SALDO_SQL = """
+        SELECT COALESCE(s.saldo_centavos, CAST(c.saldo * 100 AS BIGINT))
+                 + COALESCE(SUM(CASE WHEN l.natureza = 'C' THEN l.valor_centavos ELSE -l.valor_centavos END), 0) AS saldo_centavos,
+               COALESCE(MAX(l.id), s.id_ultimo_lancamento, 0) AS id_ultimo_lancamento
+        FROM conta c
+        LEFT JOIN saldo_snapshot s ON s.id_conta = c.id
+        LEFT JOIN lancamento l ON l.id_conta = c.id AND l.id > COALESCE(s.id_ultimo_lancamento, 0)
+        WHERE c.id = ?
+        GROUP BY c.id, c.saldo, s.saldo_centavos, s.id_ultimo_lancamento
+    """;
+
+    private static final String SALDOS_SQL = """
+        SELECT c.id,
+               COALESCE(s.saldo_centavos, CAST(c.saldo * 100 AS BIGINT))
+                 + COALESCE(SUM(CASE WHEN l.natureza = 'C' THEN l.valor_centavos ELSE -l.valor_centavos END), 0) AS saldo_centavos
+        FROM conta c
+        LEFT JOIN saldo_snapshot s ON s.id_conta = c.id
+        LEFT JOIN lancamento l ON l.id_conta = c.id AND l.id > COALESCE(s.id_ultimo_lancamento, 0)
+        GROUP BY c.id, c.saldo, s.saldo_centavos
+    """;
+
+    // Só as contas com lançamentos acima da marca d'água entram na contagem, que usa o índice
+    // (id_conta, id) a partir do snapshot de cada uma: o custo acompanha os lançamentos novos e o
+    // que está pendente nessas contas, não o histórico inteiro da tabela.
+    private static final String CONTAS_PARA_SNAPSHOT_SQL = """
+        SELECT l.id_conta
+        FROM lancamento l
+        LEFT JOIN saldo_snapshot s ON s.id_conta = l.id_conta
+        WHERE l.id_conta IN (SELECT DISTINCT n.id_conta FROM lancamento n WHERE n.id > ? AND n.id_conta IS NOT NULL)
+          AND l.id > COALESCE(s.id_ultimo_lancamento, 0)
+        GROUP BY l.id_conta
+        HAVING COUNT(*) >= ?
+        ORDER BY l.id_conta
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public LancamentoDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Grava as partidas dobradas das movimentações com um único batch JDBC: débito na conta de origem
+     * e crédito na de destino; quando falta um dos lados, a contrapartida é a conta de compensação externa.
+     */
+    public void registrar(List<Movimentacao> movimentacoes) {
+        Objects.requireNonNull(movimentacoes, "A lista de movimentações não pode ser nula.");
+        List<Object[]> parametros = new ArrayList<>(movimentacoes.size() * 2);
+        for (Movimentacao movimentacao : movimentacoes) {
+            Long idOrigem = movimentacao.getContaOrigem() != null ? movimentacao.getContaOrigem().getId() : null;
+            Long idDestino = movimentacao.getContaDestino() != null ? movimentacao.getContaDestino().getId() : null;
+            if (idOrigem == null && idDestino == null) {
+                throw new IllegalArgumentException("A movimentação não possui conta de origem nem de destino.");
+            }
+            Timestamp dataHora = Timestamp.valueOf(movimentacao.getDataHora() != null ? movimentacao.getDataHora() : LocalDateTime.now());
+            parametros.add(new Object[]{idOrigem, "D", movimentacao.getValorCentavos(), movimentacao.getTipo().name(), dataHora});
+            parametros.add(new Object[]{idDestino, "C", movimentacao.getValorCentavos(), movimentacao.getTipo().name(), dataHora});
+        }
+        if (!parametros.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LANCAMENTO, parametros, TIPOS_INSERT_LANCAMENTO);
+        }
+    }
+
+    /**
+     * Saldo atual da conta, em centavos, a partir do último snapshot e dos lançamentos posteriores.
+     */
+    public Optional<Long> calcularSaldoCentavos(Long contaId) {
+        return reconstruir(contaId).map(SaldoReconstruido::saldoCentavos);
+    }
+
+    /**
+     * Saldo atual, em centavos, de todas as contas, com uma única consulta.
+     */
+    public Map<Long, Long> calcularSaldosCentavos() {
+        Map<Long, Long> saldos = new HashMap<>();
+        jdbcTemplate.query(SALDOS_SQL, rs -> {
+            saldos.put(rs.getLong("id"), rs.getLong("saldo_centavos"));
+        });
+        return saldos;
+    }
+
+    /**
+     * Maior id de lançamento gravado até agora (0 com a tabela vazia).
+     */
+    public long buscarUltimoId() {
+        Long ultimoId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM lancamento", Long.class);
+        return ultimoId != null ? ultimoId : 0L;
+    }
+
+    /**
+     * Contas com lançamento de id maior que {@code idLancamentoApos} e com pelo menos
+     * {@code lancamentosMinimos} lançamentos ainda não cobertos por um snapshot.
+     */
+    public List<Long> buscarContasParaSnapshot(long idLancamentoApos, int lancamentosMinimos) {
+        return jdbcTemplate.queryForList(CONTAS_PARA_SNAPSHOT_SQL, Long.class, idLancamentoApos, lancamentosMinimos);
+    }
+
+    /**
+     * Grava um novo snapshot da conta e atualiza a projeção em conta.saldo. O chamador deve manter a
+     * linha da conta bloqueada durante a transação, para que nenhum lançamento da conta com id menor
+     * que o do snapshot seja confirmado depois dele.
+     */
+    public void gravarSnapshot(Long contaId) {
+        SaldoReconstruido saldo = reconstruir(contaId)
+                .orElseThrow(() -> new RepositorioException("Conta com ID " + contaId + " não encontrada para snapshot.", null));
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+
+        int atualizados = jdbcTemplate.update(
+                "UPDATE saldo_snapshot SET saldo_centavos = ?, id_ultimo_lancamento = ?, criado_em = ? WHERE id_conta = ?",
+                saldo.saldoCentavos(), saldo.idUltimoLancamento(), agora, contaId);
+        if (atualizados == 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO saldo_snapshot (id_conta, saldo_centavos, id_ultimo_lancamento, criado_em) VALUES (?, ?, ?, ?)",
+                    contaId, saldo.saldoCentavos(), saldo.idUltimoLancamento(), agora);
+        }
+        jdbcTemplate.update("UPDATE conta SET saldo = ?, versao = versao + 1 WHERE id = ?",
+                Centavos.paraReais(saldo.saldoCentavos()), contaId);
+        logger.debug("Snapshot da conta ID {} gravado até o lançamento {}.", contaId, saldo.idUltimoLancamento());
+    }
+
+    private Optional<SaldoReconstruido> reconstruir(Long contaId) {
+        Objects.requireNonNull(contaId, "O ID da conta não pode ser nulo.");
+        return jdbcTemplate.query(SALDO_SQL, (rs, rowNum) -> new SaldoReconstruido(
+                rs.getLong("saldo_centavos"), rs.getLong("id_ultimo_lancamento")), contaId).stream().findFirst();
+    }
+
+    private record SaldoReconstruido(long saldoCentavos, long idUltimoLancamento) {
+    }
+}
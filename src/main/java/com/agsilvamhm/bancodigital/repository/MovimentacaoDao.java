@@ -2,72 +2,332 @@ package com.agsilvamhm.bancodigital.repository;
 
 import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
 import com.agsilvamhm.bancodigital.model.*;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResumoMensalDTO;
+import com.agsilvamhm.bancodigital.repository.arquivo.ArquivoMovimentacoes;
+import com.agsilvamhm.bancodigital.repository.arquivo.LinhaArquivada;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
 public class MovimentacaoDao {
 
     private static final Logger logger = LoggerFactory.getLogger(MovimentacaoDao.class);
     private final JdbcTemplate jdbcTemplate;
+    private final boolean bufferHabilitado;
+    private final int bufferTamanhoMaximo;
+    private final long bufferIntervaloMaximoNanos;
+    private final int exportacaoFetchSize;
+    private final ArquivoMovimentacoes arquivo;
 
-    @Autowired
     public MovimentacaoDao(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, false, 1, 0, 1000);
+    }
+
+    public MovimentacaoDao(JdbcTemplate jdbcTemplate, boolean bufferHabilitado, int bufferTamanhoMaximo,
+                           long bufferIntervaloMaximoMs, int exportacaoFetchSize) {
+        this(jdbcTemplate, bufferHabilitado, bufferTamanhoMaximo, bufferIntervaloMaximoMs, exportacaoFetchSize,
+                ArquivoMovimentacoes.desabilitado());
+    }
+
+    @Autowired
+    public MovimentacaoDao(JdbcTemplate jdbcTemplate,
+                           @Value("${bancodigital.movimentacao.buffer.habilitado:false}") boolean bufferHabilitado,
+                           @Value("${bancodigital.movimentacao.buffer.tamanho-maximo:200}") int bufferTamanhoMaximo,
+                           @Value("${bancodigital.movimentacao.buffer.intervalo-maximo-ms:100}") long bufferIntervaloMaximoMs,
+                           @Value("${bancodigital.extrato.exportacao.fetch-size:1000}") int exportacaoFetchSize,
+                           ArquivoMovimentacoes arquivo) {
+        if (exportacaoFetchSize <= 0) {
+            throw new IllegalArgumentException("O fetch size da exportação do extrato deve ser positivo.");
+        }
         this.jdbcTemplate = jdbcTemplate;
+        this.bufferHabilitado = bufferHabilitado;
+        this.bufferTamanhoMaximo = bufferTamanhoMaximo;
+        this.bufferIntervaloMaximoNanos = TimeUnit.MILLISECONDS.toNanos(bufferIntervaloMaximoMs);
+        this.exportacaoFetchSize = exportacaoFetchSize;
+        this.arquivo = arquivo;
     }
 
     // ATENÇÃO: Adicione 'id_cartao' à sua tabela 'movimentacao' no banco de dados!
     private static final String INSERT_MOVIMENTACAO = """
-        INSERT INTO movimentacao (tipo, valor, data_hora, id_conta_origem, id_conta_destino, id_cartao, descricao)
+        INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, id_cartao, descricao)
         VALUES (?, ?, ?, ?, ?, ?, ?)
     """;
 
+    private static final int[] TIPOS_INSERT_MOVIMENTACAO = {
+            Types.VARCHAR,
+            Types.BIGINT,      // valor_centavos
+            Types.TIMESTAMP,
+            Types.BIGINT,      // id_conta_origem
+            Types.BIGINT,      // id_conta_destino
+            Types.INTEGER,     // NOVO: id_cartao
+            Types.VARCHAR
+    };
+
+    /**
+     * Com o buffer habilitado, a movimentação é apenas enfileirada na transação corrente e gravada
+     * em lote quando o buffer enche, quando o intervalo máximo é excedido, antes de qualquer consulta
+     * deste DAO na mesma transação, ou no máximo imediatamente antes do commit. Um rollback descarta
+     * as movimentações pendentes junto com o restante da transação.
+     */
     @Transactional // Adicione @Transactional para o método salvar
     public void salvar(Movimentacao movimentacao) {
         Objects.requireNonNull(movimentacao, "Objeto de movimentação não pode ser nulo.");
 
+        if (bufferHabilitado && TransactionSynchronizationManager.isSynchronizationActive()) {
+            adiar(movimentacao);
+            return;
+        }
+
+        jdbcTemplate.update(INSERT_MOVIMENTACAO, parametrosInsert(movimentacao), TIPOS_INSERT_MOVIMENTACAO);
+        atualizarResumosMensais(List.of(movimentacao));
+
+        logger.info("Movimentação do tipo {} no valor de {} salva com sucesso.",
+                movimentacao.getTipo().getDescricao(), movimentacao.getValor()); // Usando getDescricao() do enum
+    }
+
+    /**
+     * Insere várias movimentações com um único batch JDBC, na transação do chamador.
+     */
+    @Transactional
+    public void salvarEmLote(List<Movimentacao> movimentacoes) {
+        Objects.requireNonNull(movimentacoes, "A lista de movimentações não pode ser nula.");
+        if (movimentacoes.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> parametros = movimentacoes.stream().map(this::parametrosInsert).toList();
+        jdbcTemplate.batchUpdate(INSERT_MOVIMENTACAO, parametros, TIPOS_INSERT_MOVIMENTACAO);
+        atualizarResumosMensais(movimentacoes);
+
+        logger.debug("{} movimentações salvas em lote.", movimentacoes.size());
+    }
+
+    private static final String MERGE_RESUMO_MENSAL = """
+        MERGE INTO resumo_mensal_movimentacao r
+        USING (VALUES (CAST(? AS INT), CAST(? AS INT), CAST(? AS VARCHAR(20)), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT)))
+            AS v(id_conta, ano_mes, tipo, quantidade, entradas_centavos, saidas_centavos)
+        ON r.id_conta = v.id_conta AND r.ano_mes = v.ano_mes AND r.tipo = v.tipo
+        WHEN MATCHED THEN UPDATE SET quantidade = r.quantidade + v.quantidade,
+                                     entradas_centavos = r.entradas_centavos + v.entradas_centavos,
+                                     saidas_centavos = r.saidas_centavos + v.saidas_centavos
+        WHEN NOT MATCHED THEN INSERT (id_conta, ano_mes, tipo, quantidade, entradas_centavos, saidas_centavos)
+                              VALUES (v.id_conta, v.ano_mes, v.tipo, v.quantidade, v.entradas_centavos, v.saidas_centavos)
+    """;
+
+    // Mesma consulta da carga inicial em schema.sql; %s restringe o período quando há movimentações arquivadas
+    private static final String INSERT_RESUMOS_MENSAIS_A_PARTIR_DAS_MOVIMENTACOES = """
+        INSERT INTO resumo_mensal_movimentacao (id_conta, ano_mes, tipo, quantidade, entradas_centavos, saidas_centavos)
+        SELECT id_conta, ano_mes, tipo, COUNT(*), SUM(entrada), SUM(saida)
+        FROM (
+            SELECT id_conta_origem AS id_conta, EXTRACT(YEAR FROM data_hora) * 100 + EXTRACT(MONTH FROM data_hora) AS ano_mes,
+                   tipo, 0 AS entrada, valor_centavos AS saida
+            FROM movimentacao WHERE id_conta_origem IS NOT NULL%1$s
+            UNION ALL
+            SELECT id_conta_destino, EXTRACT(YEAR FROM data_hora) * 100 + EXTRACT(MONTH FROM data_hora),
+                   tipo, valor_centavos, 0
+            FROM movimentacao WHERE id_conta_destino IS NOT NULL%1$s
+        ) lados
+        GROUP BY id_conta, ano_mes, tipo
+    """;
+
+    // Chave do resumo mensal; a ordem fixa das chaves faz transações concorrentes bloquearem as linhas na mesma sequência
+    private record ChaveResumoMensal(long contaId, int anoMes, TipoMovimentacao tipo) {
+        static final Comparator<ChaveResumoMensal> ORDEM = Comparator.comparingLong(ChaveResumoMensal::contaId)
+                .thenComparingInt(ChaveResumoMensal::anoMes)
+                .thenComparing(ChaveResumoMensal::tipo);
+    }
+
+    /**
+     * Soma as movimentações ao resumo mensal de cada conta envolvida, na transação do chamador: as
+     * movimentações são agregadas antes, de modo que um lote grava uma linha por (conta, mês, tipo).
+     */
+    private void atualizarResumosMensais(List<Movimentacao> movimentacoes) {
+        Map<ChaveResumoMensal, long[]> acumulados = new TreeMap<>(ChaveResumoMensal.ORDEM);
+        for (Movimentacao movimentacao : movimentacoes) {
+            int anoMes = anoMes(YearMonth.from(movimentacao.getDataHora()));
+            if (movimentacao.getContaOrigem() != null) {
+                long[] acumulado = acumulados.computeIfAbsent(
+                        new ChaveResumoMensal(movimentacao.getContaOrigem().getId(), anoMes, movimentacao.getTipo()), k -> new long[3]);
+                acumulado[0]++;
+                acumulado[2] += movimentacao.getValorCentavos();
+            }
+            if (movimentacao.getContaDestino() != null) {
+                long[] acumulado = acumulados.computeIfAbsent(
+                        new ChaveResumoMensal(movimentacao.getContaDestino().getId(), anoMes, movimentacao.getTipo()), k -> new long[3]);
+                acumulado[0]++;
+                acumulado[1] += movimentacao.getValorCentavos();
+            }
+        }
+        if (acumulados.isEmpty()) {
+            return;
+        }
+        List<Object[]> parametros = new ArrayList<>(acumulados.size());
+        acumulados.forEach((chave, acumulado) -> parametros.add(new Object[]{
+                chave.contaId(), chave.anoMes(), chave.tipo().name(), acumulado[0], acumulado[1], acumulado[2]}));
+        jdbcTemplate.batchUpdate(MERGE_RESUMO_MENSAL, parametros);
+    }
+
+    /**
+     * Resumo do mês da conta, uma linha por tipo de movimentação presente no mês: leitura direta pela
+     * chave primária, sem agregar movimentações.
+     */
+    public List<ResumoMensalDTO> buscarResumoMensal(Long contaId, YearMonth mes) {
+        descarregarPendentes();
+        try {
+            return jdbcTemplate.query("""
+                    SELECT tipo, quantidade, entradas_centavos, saidas_centavos
+                    FROM resumo_mensal_movimentacao
+                    WHERE id_conta = ? AND ano_mes = ?
+                    ORDER BY tipo
+                    """, (rs, rowNum) -> new ResumoMensalDTO(mes, TipoMovimentacao.valueOf(rs.getString("tipo")),
+                    rs.getLong("quantidade"), rs.getLong("entradas_centavos"), rs.getLong("saidas_centavos")),
+                    contaId, anoMes(mes));
+        } catch (DataAccessException e) {
+            logger.error("Erro ao buscar o resumo mensal da conta ID: {}", contaId, e);
+            throw new RepositorioException("Erro ao acessar o resumo mensal da conta.", e);
+        }
+    }
+
+    /**
+     * Apaga e recalcula os resumos mensais a partir das movimentações, na transação do chamador. Com
+     * movimentações arquivadas, só os meses a partir da data de corte do arquivo (sempre o primeiro dia
+     * de um mês) são recalculados; os anteriores, já fora da tabela, ficam como estão.
+     * Movimentações gravadas por outras transações durante a reconstrução podem ficar de fora ou ser
+     * contadas duas vezes; execute com o tráfego de escrita parado.
+     *
+     * @return quantidade de linhas de resumo gravadas.
+     */
+    public int reconstruirResumosMensais() {
+        LocalDateTime corte = arquivo.getDataCorte();
+        descarregarPendentes();
+        try {
+            int linhas;
+            if (corte == null) {
+                jdbcTemplate.update("DELETE FROM resumo_mensal_movimentacao");
+                linhas = jdbcTemplate.update(INSERT_RESUMOS_MENSAIS_A_PARTIR_DAS_MOVIMENTACOES.formatted(""));
+            } else {
+                Timestamp inicio = Timestamp.valueOf(corte);
+                jdbcTemplate.update("DELETE FROM resumo_mensal_movimentacao WHERE ano_mes >= ?", anoMes(YearMonth.from(corte)));
+                linhas = jdbcTemplate.update(INSERT_RESUMOS_MENSAIS_A_PARTIR_DAS_MOVIMENTACOES.formatted(" AND data_hora >= ?"),
+                        inicio, inicio);
+            }
+            logger.info("Resumos mensais reconstruídos: {} linhas.", linhas);
+            return linhas;
+        } catch (DataAccessException e) {
+            logger.error("Erro ao reconstruir os resumos mensais.", e);
+            throw new RepositorioException("Erro ao reconstruir os resumos mensais.", e);
+        }
+    }
+
+    private static int anoMes(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
+    }
+
+    /**
+     * Grava imediatamente as movimentações pendentes no buffer da transação corrente, se houver.
+     */
+    public void descarregarPendentes() {
+        if (!bufferHabilitado || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Pendentes pendentes = (Pendentes) TransactionSynchronizationManager.getResource(this);
+        if (pendentes != null) {
+            descarregar(pendentes);
+        }
+    }
+
+    private void adiar(Movimentacao movimentacao) {
+        Pendentes pendentes = (Pendentes) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            Pendentes novas = new Pendentes();
+            TransactionSynchronizationManager.bindResource(this, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    descarregar(novas);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MovimentacaoDao.this);
+                }
+            });
+            pendentes = novas;
+        }
+
+        if (pendentes.itens.isEmpty()) {
+            pendentes.inicioNanos = System.nanoTime();
+        }
+        pendentes.itens.add(movimentacao);
+        if (pendentes.itens.size() >= bufferTamanhoMaximo
+                || System.nanoTime() - pendentes.inicioNanos >= bufferIntervaloMaximoNanos) {
+            descarregar(pendentes);
+        }
+    }
+
+    private void descarregar(Pendentes pendentes) {
+        if (pendentes.itens.isEmpty()) {
+            return;
+        }
+        salvarEmLote(pendentes.itens);
+        pendentes.itens.clear();
+    }
+
+    // Movimentações aguardando gravação, vinculadas à transação corrente
+    private static final class Pendentes {
+        private final List<Movimentacao> itens = new ArrayList<>();
+        private long inicioNanos;
+    }
+
+    private Object[] parametrosInsert(Movimentacao movimentacao) {
         Long idOrigem = (movimentacao.getContaOrigem() != null) ? movimentacao.getContaOrigem().getId() : null;
         Long idDestino = (movimentacao.getContaDestino() != null) ? movimentacao.getContaDestino().getId() : null;
         Integer idCartao = (movimentacao.getCartao() != null) ? movimentacao.getCartao().getId() : null; // NOVO: id_cartao
 
-        Object[] params = {
+        return new Object[]{
                 movimentacao.getTipo().name(),
-                movimentacao.getValor(),
+                movimentacao.getValorCentavos(),
                 Timestamp.valueOf(movimentacao.getDataHora()),
                 idOrigem,
                 idDestino,
                 idCartao, // NOVO: Parâmetro para id_cartao
                 movimentacao.getDescricao()
         };
-
-        int[] types = {
-                Types.VARCHAR,
-                Types.DOUBLE, // Use DOUBLE para o tipo double da sua Movimentacao
-                Types.TIMESTAMP,
-                Types.BIGINT,      // id_conta_origem
-                Types.BIGINT,      // id_conta_destino
-                Types.INTEGER,     // NOVO: id_cartao
-                Types.VARCHAR
-        };
-
-        jdbcTemplate.update(INSERT_MOVIMENTACAO, params, types);
-
-        logger.info("Movimentação do tipo {} no valor de {} salva com sucesso.",
-                movimentacao.getTipo().getDescricao(), movimentacao.getValor()); // Usando getDescricao() do enum
     }
 
     // Base SELECT com todos os JOINS necessários para mapear Contas, Clientes e Cartões
@@ -75,9 +335,9 @@ public class MovimentacaoDao {
     // Certifique-se de que sua tabela 'conta' tem um 'id_cliente' e 'tipo_conta'
     // e que sua tabela 'cliente' tem 'cpf', 'data_nascimento', 'categoria'
     // e sua tabela 'cartao' tem 'numero', 'nome_titular', 'tipo_cartao', 'limite_credito'
-    private static final String BASE_SELECT_MOVIMENTACAO = """
+    static final String BASE_SELECT_MOVIMENTACAO = """
             SELECT
-                m.id as mov_id, m.tipo, m.valor, m.data_hora, m.descricao,
+                m.id as mov_id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
                 m.id_conta_origem, orig.numero as num_conta_origem, orig.agencia as ag_conta_origem, orig.saldo as saldo_conta_origem, orig.tipo_conta as tipo_conta_origem,
                 orig_cl.id as id_cliente_origem, orig_cl.cpf as cpf_cliente_origem, orig_cl.nome as nome_cliente_origem, orig_cl.data_nascimento as dt_nasc_cliente_origem, orig_cl.categoria as cat_cliente_origem,
                 m.id_conta_destino, dest.numero as num_conta_destino, dest.agencia as ag_conta_destino, dest.saldo as saldo_conta_destino, dest.tipo_conta as tipo_conta_destino,
@@ -93,107 +353,124 @@ public class MovimentacaoDao {
             """;
 
 
-    private final RowMapper<Movimentacao> movimentacaoRowMapper = (rs, rowNum) -> {
-        Movimentacao mov = new Movimentacao();
-        mov.setId(rs.getInt("mov_id"));
-        mov.setTipo(TipoMovimentacao.valueOf(rs.getString("tipo")));
-        mov.setValor(rs.getDouble("valor"));
-        mov.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
-        mov.setDescricao(rs.getString("descricao"));
-
-        // Mapeamento da Conta de Origem
-        if (rs.getObject("id_conta_origem") != null) {
-            Cliente clienteOrigem = new Cliente();
-            clienteOrigem.setId(rs.getInt("id_cliente_origem"));
-            clienteOrigem.setCpf(rs.getString("cpf_cliente_origem"));
-            clienteOrigem.setNome(rs.getString("nome_cliente_origem"));
-            if (rs.getTimestamp("dt_nasc_cliente_origem") != null) { // Usar getTimestamp para LocalDateTime/LocalDate
-                clienteOrigem.setDataNascimento(rs.getTimestamp("dt_nasc_cliente_origem").toLocalDateTime().toLocalDate());
-            }
-            if (rs.getString("cat_cliente_origem") != null) {
-                clienteOrigem.setCategoria(CategoriaCliente.valueOf(rs.getString("cat_cliente_origem")));
-            }
-
-            String tipoContaOrigemStr = rs.getString("tipo_conta_origem");
-            Conta contaOrigem;
-            if (tipoContaOrigemStr != null) {
-                if (TipoConta.CORRENTE.name().equals(tipoContaOrigemStr)) {
-                    contaOrigem = new ContaCorrente();
-                } else if (TipoConta.POUPANCA.name().equals(tipoContaOrigemStr)) {
-                    contaOrigem = new ContaPoupanca();
-                } else {
-                    logger.warn("Tipo de conta de origem desconhecido no mapeamento: {}", tipoContaOrigemStr);
-                    contaOrigem = new ContaCorrente(); // Fallback para um tipo padrão, ou lance uma exceção
-                }
-            } else {
-                logger.warn("Tipo de conta de origem nulo para a conta ID: {}", rs.getLong("id_conta_origem"));
-                contaOrigem = new ContaCorrente(); // Fallback
-            }
-
-            contaOrigem.setId(rs.getLong("id_conta_origem"));
-            contaOrigem.setNumero(rs.getString("num_conta_origem"));
-            contaOrigem.setAgencia(rs.getString("ag_conta_origem"));
-            contaOrigem.setSaldo(rs.getBigDecimal("saldo_conta_origem"));
-            contaOrigem.setCliente(clienteOrigem);
-            mov.setContaOrigem(contaOrigem);
-        }
-
-        // Mapeamento da Conta de Destino
-        if (rs.getObject("id_conta_destino") != null) {
-            Cliente clienteDestino = new Cliente();
-            clienteDestino.setId(rs.getInt("id_cliente_destino"));
-            clienteDestino.setCpf(rs.getString("cpf_cliente_destino"));
-            clienteDestino.setNome(rs.getString("nome_cliente_destino"));
-            if (rs.getTimestamp("dt_nasc_cliente_destino") != null) {
-                clienteDestino.setDataNascimento(rs.getTimestamp("dt_nasc_cliente_destino").toLocalDateTime().toLocalDate());
-            }
-            if (rs.getString("cat_cliente_destino") != null) {
-                clienteDestino.setCategoria(CategoriaCliente.valueOf(rs.getString("cat_cliente_destino")));
-            }
-
-            String tipoContaDestinoStr = rs.getString("tipo_conta_destino");
-            Conta contaDestino;
-            if (tipoContaDestinoStr != null) {
-                if (TipoConta.CORRENTE.name().equals(tipoContaDestinoStr)) {
-                    contaDestino = new ContaCorrente();
-                } else if (TipoConta.POUPANCA.name().equals(tipoContaDestinoStr)) {
-                    contaDestino = new ContaPoupanca();
-                } else {
-                    logger.warn("Tipo de conta de destino desconhecido no mapeamento: {}", tipoContaDestinoStr);
-                    contaDestino = new ContaCorrente(); // Fallback
-                }
+    // Colunas de BASE_SELECT_MOVIMENTACAO para cada lado da movimentação
+    private record ColunasConta(String id, String numero, String agencia, String saldo, String tipo,
+                                String idCliente, String cpf, String nome, String dataNascimento, String categoria,
+                                String lado) {
+        static final ColunasConta ORIGEM = new ColunasConta("id_conta_origem", "num_conta_origem", "ag_conta_origem",
+                "saldo_conta_origem", "tipo_conta_origem", "id_cliente_origem", "cpf_cliente_origem",
+                "nome_cliente_origem", "dt_nasc_cliente_origem", "cat_cliente_origem", "origem");
+        static final ColunasConta DESTINO = new ColunasConta("id_conta_destino", "num_conta_destino", "ag_conta_destino",
+                "saldo_conta_destino", "tipo_conta_destino", "id_cliente_destino", "cpf_cliente_destino",
+                "nome_cliente_destino", "dt_nasc_cliente_destino", "cat_cliente_destino", "destino");
+    }
+
+    /**
+     * Mapeador de um único resultado (crie um por consulta): contas, clientes e cartões que se repetem
+     * entre as linhas são montados uma vez e a mesma instância é reaproveitada nas linhas seguintes, sem
+     * reler as colunas nem converter de novo os enums. Por isso, dentro de uma mesma lista, movimentações
+     * da mesma conta compartilham o objeto Conta; as instâncias não devem ser alteradas pelos chamadores.
+     */
+    static final class MovimentacaoRowMapper implements RowMapper<Movimentacao> {
+
+        private final Map<Long, Conta> contas = new HashMap<>();
+        private final Map<Integer, Cliente> clientes = new HashMap<>();
+        private final Map<Integer, Cartao> cartoes = new HashMap<>();
+
+        @Override
+        public Movimentacao mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Movimentacao mov = new Movimentacao();
+            mov.setId(rs.getInt("mov_id"));
+            mov.setTipo(TipoMovimentacao.valueOf(rs.getString("tipo")));
+            mov.setValorCentavos(rs.getLong("valor_centavos"));
+            mov.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
+            mov.setDescricao(rs.getString("descricao"));
+            mov.setContaOrigem(conta(rs, ColunasConta.ORIGEM));
+            mov.setContaDestino(conta(rs, ColunasConta.DESTINO));
+            mov.setCartao(cartao(rs));
+            return mov;
+        }
+
+        private Conta conta(ResultSet rs, ColunasConta colunas) throws SQLException {
+            long id = rs.getLong(colunas.id());
+            if (rs.wasNull()) {
+                return null;
+            }
+            Conta conta = contas.get(id);
+            if (conta != null) {
+                return conta;
+            }
+
+            String tipoConta = rs.getString(colunas.tipo());
+            if (TipoConta.CORRENTE.name().equals(tipoConta)) {
+                conta = new ContaCorrente();
+            } else if (TipoConta.POUPANCA.name().equals(tipoConta)) {
+                conta = new ContaPoupanca();
             } else {
-                logger.warn("Tipo de conta de destino nulo para a conta ID: {}", rs.getLong("id_conta_destino"));
-                contaDestino = new ContaCorrente(); // Fallback
+                logger.warn("Tipo de conta de {} desconhecido no mapeamento para a conta ID {}: {}", colunas.lado(), id, tipoConta);
+                conta = new ContaCorrente(); // Fallback para um tipo padrão
             }
-            contaDestino.setId(rs.getLong("id_conta_destino"));
-            contaDestino.setNumero(rs.getString("num_conta_destino"));
-            contaDestino.setAgencia(rs.getString("ag_conta_destino"));
-            contaDestino.setSaldo(rs.getBigDecimal("saldo_conta_destino"));
-            contaDestino.setCliente(clienteDestino);
-            mov.setContaDestino(contaDestino);
+            conta.setId(id);
+            conta.setNumero(rs.getString(colunas.numero()));
+            conta.setAgencia(rs.getString(colunas.agencia()));
+            conta.setSaldo(rs.getBigDecimal(colunas.saldo()));
+            conta.setCliente(cliente(rs, colunas));
+            contas.put(id, conta);
+            return conta;
         }
 
-        // Mapeamento do Cartão (NOVO)
-        if (rs.getObject("id_cartao") != null) {
-            Cartao cartao = new Cartao();
-            cartao.setId(rs.getInt("id_cartao"));
+        private Cliente cliente(ResultSet rs, ColunasConta colunas) throws SQLException {
+            int id = rs.getInt(colunas.idCliente());
+            Cliente cliente = clientes.get(id);
+            if (cliente != null) {
+                return cliente;
+            }
+
+            cliente = new Cliente();
+            cliente.setId(id);
+            cliente.setCpf(rs.getString(colunas.cpf()));
+            cliente.setNome(rs.getString(colunas.nome()));
+            Timestamp dataNascimento = rs.getTimestamp(colunas.dataNascimento());
+            if (dataNascimento != null) {
+                cliente.setDataNascimento(dataNascimento.toLocalDateTime().toLocalDate());
+            }
+            String categoria = rs.getString(colunas.categoria());
+            if (categoria != null) {
+                cliente.setCategoria(CategoriaCliente.valueOf(categoria));
+            }
+            clientes.put(id, cliente);
+            return cliente;
+        }
+
+        private Cartao cartao(ResultSet rs) throws SQLException {
+            int id = rs.getInt("id_cartao");
+            if (rs.wasNull()) {
+                return null;
+            }
+            Cartao cartao = cartoes.get(id);
+            if (cartao != null) {
+                return cartao;
+            }
+
+            cartao = new Cartao();
+            cartao.setId(id);
             cartao.setNumero(rs.getString("num_cartao"));
             cartao.setNomeTitular(rs.getString("nome_titular_cartao"));
-            if (rs.getString("tipo_cartao_cartao") != null) {
-                cartao.setTipoCartao(TipoCartao.valueOf(rs.getString("tipo_cartao_cartao")));
+            String tipoCartao = rs.getString("tipo_cartao_cartao");
+            if (tipoCartao != null) {
+                cartao.setTipoCartao(TipoCartao.valueOf(tipoCartao));
             }
             cartao.setLimiteCredito(rs.getBigDecimal("limite_credito_cartao"));
-            mov.setCartao(cartao);
+            cartoes.put(id, cartao);
+            return cartao;
         }
-
-        return mov;
-    };
+    }
 
     public Optional<Movimentacao> buscarPorId(Integer id) {
+        descarregarPendentes();
         String sql = BASE_SELECT_MOVIMENTACAO + " WHERE m.id = ?";
         try {
-            Movimentacao movimentacao = jdbcTemplate.queryForObject(sql, movimentacaoRowMapper, id);
+            Movimentacao movimentacao = jdbcTemplate.queryForObject(sql, new MovimentacaoRowMapper(), id);
             return Optional.ofNullable(movimentacao);
         } catch (org.springframework.dao.EmptyResultDataAccessException e) {
             logger.warn("Nenhuma movimentação encontrada com ID: {}", id);
@@ -201,39 +478,445 @@ public class MovimentacaoDao {
         }
     }
 
-    public List<Movimentacao> buscarPorContaId(Long contaId) {
-        final String sql = BASE_SELECT_MOVIMENTACAO + """
-            WHERE
-                m.id_conta_origem = ? OR m.id_conta_destino = ?
-            ORDER BY
-                m.data_hora DESC
-        """;
+    // Ids de uma página do extrato: UNION ALL de duas varreduras nos índices (conta, data_hora, id),
+    // uma por lado da movimentação e cada uma já limitada, no lugar de um OR entre as duas colunas, que
+    // impede o uso de índice. O lado de destino descarta o que já veio pelo lado de origem. USE INDEX fixa
+    // o índice composto: pelo custo, o H2 empata com o índice simples da chave estrangeira, que não ordena.
+    // Com filtro de tipos, cada lado vira um ramo por tipo nos índices (conta, tipo, data_hora, id), que já
+    // entregam só as linhas do tipo na ordem da página. O período restringe a faixa de data_hora do índice;
+    // a faixa de valor é conferida nas linhas lidas do índice.
+    static String sqlPaginaExtrato(boolean comCursor) {
+        return sqlPaginaExtrato(comCursor, FiltroExtratoDTO.SEM_FILTRO);
+    }
+
+    static String sqlPaginaExtrato(boolean comCursor, FiltroExtratoDTO filtro) {
+        StringBuilder filtros = new StringBuilder();
+        if (comCursor) {
+            filtros.append(" AND m.data_hora <= ? AND (m.data_hora < ? OR m.id < ?)");
+        }
+        if (filtro.inicio() != null) {
+            filtros.append(" AND m.data_hora >= ?");
+        }
+        if (filtro.fim() != null) {
+            filtros.append(" AND m.data_hora < ?");
+        }
+        if (filtro.valorMinimoCentavos() != null) {
+            filtros.append(" AND m.valor_centavos >= ?");
+        }
+        if (filtro.valorMaximoCentavos() != null) {
+            filtros.append(" AND m.valor_centavos <= ?");
+        }
+
+        boolean porTipo = !filtro.tipos().isEmpty();
+        String ramoOrigem = """
+                (SELECT m.id, m.data_hora FROM movimentacao m USE INDEX (%s)
+                 WHERE m.id_conta_origem = ?%s%s
+                 ORDER BY m.data_hora DESC, m.id DESC LIMIT ?)
+                """.formatted(porTipo ? "idx_movimentacao_origem_tipo_data" : "idx_movimentacao_origem_data",
+                porTipo ? " AND m.tipo = ?" : "", filtros);
+        String ramoDestino = """
+                (SELECT m.id, m.data_hora FROM movimentacao m USE INDEX (%s)
+                 WHERE m.id_conta_destino = ?%s AND (m.id_conta_origem IS NULL OR m.id_conta_origem <> ?)%s
+                 ORDER BY m.data_hora DESC, m.id DESC LIMIT ?)
+                """.formatted(porTipo ? "idx_movimentacao_destino_tipo_data" : "idx_movimentacao_destino_data",
+                porTipo ? " AND m.tipo = ?" : "", filtros);
+
+        List<String> ramos = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, filtro.tipos().size()); i++) {
+            ramos.add(ramoOrigem);
+            ramos.add(ramoDestino);
+        }
+        return """
+            SELECT pagina.id, pagina.data_hora FROM (
+            %s) pagina
+            ORDER BY pagina.data_hora DESC, pagina.id DESC
+            LIMIT ?
+            """.formatted(String.join("UNION ALL\n", ramos));
+    }
+
+    static Object[] parametrosPaginaExtrato(Long contaId, CursorExtratoDTO cursor, int limite) {
+        return parametrosPaginaExtrato(contaId, cursor, FiltroExtratoDTO.SEM_FILTRO, limite);
+    }
+
+    static Object[] parametrosPaginaExtrato(Long contaId, CursorExtratoDTO cursor, FiltroExtratoDTO filtro, int limite) {
+        List<Object> filtros = new ArrayList<>();
+        if (cursor != null) {
+            Timestamp dataHora = Timestamp.valueOf(cursor.dataHora());
+            filtros.addAll(List.of(dataHora, dataHora, cursor.id()));
+        }
+        if (filtro.inicio() != null) {
+            filtros.add(Timestamp.valueOf(filtro.inicio()));
+        }
+        if (filtro.fim() != null) {
+            filtros.add(Timestamp.valueOf(filtro.fim()));
+        }
+        if (filtro.valorMinimoCentavos() != null) {
+            filtros.add(filtro.valorMinimoCentavos());
+        }
+        if (filtro.valorMaximoCentavos() != null) {
+            filtros.add(filtro.valorMaximoCentavos());
+        }
+
+        List<Object> parametros = new ArrayList<>();
+        List<TipoMovimentacao> tipos = filtro.tipos().isEmpty() ? Collections.singletonList(null) : List.copyOf(filtro.tipos());
+        for (TipoMovimentacao tipo : tipos) {
+            parametros.add(contaId);
+            if (tipo != null) {
+                parametros.add(tipo.name());
+            }
+            parametros.addAll(filtros);
+            parametros.add(limite);
+
+            parametros.add(contaId);
+            if (tipo != null) {
+                parametros.add(tipo.name());
+            }
+            parametros.add(contaId);
+            parametros.addAll(filtros);
+            parametros.add(limite);
+        }
+        parametros.add(limite);
+        return parametros.toArray();
+    }
+
+    // As contas são resolvidas só para as linhas da página, depois do LIMIT
+    private static final String SELECT_EXTRATO = """
+            SELECT m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero AS num_conta_origem, dest.numero AS num_conta_destino
+            FROM (%s) pagina
+            JOIN movimentacao m ON m.id = pagina.id
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            ORDER BY m.data_hora DESC, m.id DESC
+            """;
+
+    // Saldo logo após cada linha, do mais recente para o mais antigo: o saldo após a primeira linha da
+    // página menos a soma dos efeitos das linhas mais recentes que ela na própria página (função de janela).
+    // Sem saldo informado, parte do saldo atual da conta, lido no mesmo comando que a página.
+    // Compras no crédito aparecem no extrato mas não movimentam o saldo da conta.
+    private static final String SELECT_EXTRATO_COM_SALDO = """
+            SELECT m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero AS num_conta_origem, dest.numero AS num_conta_destino,
+                   COALESCE(CAST(? AS BIGINT), (SELECT CAST(c.saldo * 100 AS BIGINT) FROM conta c WHERE c.id = ?))
+                     - COALESCE(SUM(CASE WHEN m.tipo = '%1$s' THEN 0
+                                         WHEN m.id_conta_destino = ? THEN m.valor_centavos
+                                         ELSE -m.valor_centavos END)
+                                OVER (ORDER BY m.data_hora DESC, m.id DESC ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0)
+                     AS saldo_apos_centavos
+            FROM (%2$s) pagina
+            JOIN movimentacao m ON m.id = pagina.id
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            ORDER BY m.data_hora DESC, m.id DESC
+            """;
+
+    private static final RowMapper<LinhaExtratoDTO> linhaExtratoRowMapper = (rs, rowNum) -> linhaExtrato(rs, null);
+
+    private static final RowMapper<LinhaExtratoDTO> linhaExtratoComSaldoRowMapper = (rs, rowNum) -> {
+        long saldoApos = rs.getLong("saldo_apos_centavos");
+        return linhaExtrato(rs, rs.wasNull() ? null : saldoApos);
+    };
+
+    private static LinhaExtratoDTO linhaExtrato(ResultSet rs, Long saldoAposCentavos) throws SQLException {
+        return new LinhaExtratoDTO(
+                rs.getInt("id"),
+                TipoMovimentacao.valueOf(rs.getString("tipo")),
+                rs.getLong("valor_centavos"),
+                rs.getTimestamp("data_hora").toLocalDateTime(),
+                rs.getString("descricao"),
+                rs.getString("num_conta_origem"),
+                rs.getString("num_conta_destino"),
+                saldoAposCentavos);
+    }
+
+    /**
+     * Uma página do extrato da conta, da movimentação mais recente para a mais antiga, a partir do
+     * cursor (exclusivo) ou do início quando o cursor é nulo. A paginação por chave em (data_hora, id)
+     * mantém o custo da página independente de quantas movimentações a conta já teve. Projeta só as
+     * colunas exibidas no extrato: sem clientes, cartões ou saldos das contas envolvidas.
+     */
+    public List<LinhaExtratoDTO> buscarExtratoPorContaId(Long contaId, CursorExtratoDTO cursor, int limite) {
+        return buscarExtratoPorContaId(contaId, cursor, FiltroExtratoDTO.SEM_FILTRO, limite);
+    }
+
+    /**
+     * Página do extrato restrita pelo filtro, aplicado no WHERE de cada varredura de índice: a página
+     * lê apenas as linhas que devolve, mesmo quando o filtro descarta a maior parte do histórico.
+     */
+    public List<LinhaExtratoDTO> buscarExtratoPorContaId(Long contaId, CursorExtratoDTO cursor, FiltroExtratoDTO filtro, int limite) {
+        final String sql = SELECT_EXTRATO.formatted(sqlPaginaExtrato(cursor != null, filtro));
 
+        descarregarPendentes();
+        List<LinhaExtratoDTO> linhas;
         try {
-            return jdbcTemplate.query(sql, movimentacaoRowMapper, contaId, contaId);
+            linhas = jdbcTemplate.query(sql, linhaExtratoRowMapper, parametrosPaginaExtrato(contaId, cursor, filtro, limite));
         } catch (DataAccessException e) {
-            logger.error("Erro ao buscar movimentações para a conta ID: {}", contaId, e);
+            logger.error("Erro ao buscar o extrato da conta ID: {}", contaId, e);
             throw new RepositorioException("Erro ao acessar o extrato da conta.", e);
         }
+        List<LinhaArquivada> arquivadas = arquivadasDaPagina(contaId, cursor, filtro, limite, linhas);
+        if (arquivadas.isEmpty()) {
+            return linhas;
+        }
+        return intercalar(linhas.stream().map(linha -> new LinhaArquivada(linha, false)).toList(), arquivadas, limite)
+                .stream().map(LinhaArquivada::linha).toList();
     }
 
-    // NOVO MÉTODO: Busca gastos de crédito por cartão e período
-    // Usado no CartaoService para gerar a fatura
-    public List<Movimentacao> buscarGastosCreditoPorCartaoEMes(Integer cartaoId, YearMonth mesReferencia) {
-        // Define o início e fim do mês
-        LocalDateTime inicioMes = mesReferencia.atDay(1).atStartOfDay();
-        LocalDateTime fimMes = mesReferencia.atEndOfMonth().atTime(23, 59, 59);
+    private static final Comparator<LinhaExtratoDTO> ORDEM_EXTRATO =
+            Comparator.comparing(LinhaExtratoDTO::dataHora).thenComparingInt(LinhaExtratoDTO::id);
+
+    // Linhas do arquivo que podem entrar na página. Tudo o que foi arquivado é anterior à data de corte,
+    // então uma página cheia que termina depois dela dispensa a leitura do arquivo.
+    private List<LinhaArquivada> arquivadasDaPagina(Long contaId, CursorExtratoDTO cursor, FiltroExtratoDTO filtro,
+                                                    int limite, List<LinhaExtratoDTO> linhas) {
+        LocalDateTime corte = arquivo.getDataCorte();
+        if (corte == null || (linhas.size() >= limite && !linhas.get(linhas.size() - 1).dataHora().isBefore(corte))) {
+            return List.of();
+        }
+        return arquivo.buscarAnteriores(contaId, cursor, filtro, limite);
+    }
+
+    // Intercala as linhas da tabela e do arquivo, ambas já em ordem decrescente, até o limite
+    private static List<LinhaArquivada> intercalar(List<LinhaArquivada> tabela, List<LinhaArquivada> arquivadas, int limite) {
+        Comparator<LinhaArquivada> ordem = Comparator.comparing(LinhaArquivada::linha, ORDEM_EXTRATO.reversed());
+        List<LinhaArquivada> pagina = new ArrayList<>(Math.min(limite, tabela.size() + arquivadas.size()));
+        int t = 0;
+        int a = 0;
+        while (pagina.size() < limite && (t < tabela.size() || a < arquivadas.size())) {
+            if (a == arquivadas.size() || (t < tabela.size() && ordem.compare(tabela.get(t), arquivadas.get(a)) <= 0)) {
+                pagina.add(tabela.get(t++));
+            } else {
+                pagina.add(arquivadas.get(a++));
+            }
+        }
+        return pagina;
+    }
+
+    /**
+     * Igual a {@link #buscarExtratoPorContaId}, com o saldo após cada movimentação calculado em uma
+     * única passada sobre as linhas da página.
+     *
+     * @param saldoAposPrimeiraCentavos saldo logo após a primeira (mais recente) linha da página; nulo na
+     *                                  primeira página, para usar o saldo atual da conta
+     */
+    public List<LinhaExtratoDTO> buscarExtratoComSaldoPorContaId(Long contaId, CursorExtratoDTO cursor, int limite,
+                                                                 Long saldoAposPrimeiraCentavos) {
+        final String sql = SELECT_EXTRATO_COM_SALDO.formatted(TipoMovimentacao.COMPRA_CREDITO.name(),
+                sqlPaginaExtrato(cursor != null));
+        List<Object> parametros = new ArrayList<>(List.of(contaId, contaId));
+        parametros.add(0, saldoAposPrimeiraCentavos);
+        parametros.addAll(List.of(parametrosPaginaExtrato(contaId, cursor, limite)));
+
+        descarregarPendentes();
+        try {
+            List<LinhaExtratoDTO> linhas = jdbcTemplate.query(sql, linhaExtratoComSaldoRowMapper, parametros.toArray());
+            List<LinhaArquivada> arquivadas = arquivadasDaPagina(contaId, cursor, FiltroExtratoDTO.SEM_FILTRO, limite, linhas);
+            if (arquivadas.isEmpty()) {
+                return linhas;
+            }
+            return recalcularSaldos(contaId, linhas, arquivadas, limite, saldoAposPrimeiraCentavos);
+        } catch (DataAccessException e) {
+            logger.error("Erro ao buscar o extrato com saldo da conta ID: {}", contaId, e);
+            throw new RepositorioException("Erro ao acessar o extrato da conta.", e);
+        }
+    }
+
+    // Com linhas do arquivo na página, o saldo é refeito em Java sobre a página intercalada. Se a linha da
+    // tabela é entrada ou saída sai da diferença entre os saldos calculados pelo SQL; só a da última
+    // precisa de uma consulta pela chave primária.
+    private List<LinhaExtratoDTO> recalcularSaldos(Long contaId, List<LinhaExtratoDTO> linhas, List<LinhaArquivada> arquivadas,
+                                                   int limite, Long saldoAposPrimeiraCentavos) {
+        List<LinhaArquivada> tabela = new ArrayList<>(linhas.size());
+        for (int i = 0; i < linhas.size(); i++) {
+            LinhaExtratoDTO linha = linhas.get(i);
+            boolean entrada = i + 1 < linhas.size()
+                    ? linha.saldoAposCentavos() > linhas.get(i + 1).saldoAposCentavos()
+                    : Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                            "SELECT id_conta_destino IS NOT NULL AND id_conta_destino = ? FROM movimentacao WHERE id = ?",
+                            Boolean.class, contaId, linha.id()));
+            tabela.add(new LinhaArquivada(linha, entrada));
+        }
+
+        long saldo = !linhas.isEmpty() ? linhas.get(0).saldoAposCentavos()
+                : saldoAposPrimeiraCentavos != null ? saldoAposPrimeiraCentavos
+                : jdbcTemplate.queryForObject("SELECT CAST(saldo * 100 AS BIGINT) FROM conta WHERE id = ?", Long.class, contaId);
+        List<LinhaExtratoDTO> pagina = new ArrayList<>();
+        for (LinhaArquivada item : intercalar(tabela, arquivadas, limite)) {
+            LinhaExtratoDTO linha = item.linha();
+            pagina.add(new LinhaExtratoDTO(linha.id(), linha.tipo(), linha.valorCentavos(), linha.dataHora(), linha.descricao(),
+                    linha.contaOrigemNumero(), linha.contaDestinoNumero(), saldo));
+            saldo -= item.efeitoCentavos();
+        }
+        return pagina;
+    }
+
+    // Extrato completo em ordem cronológica, sem LIMIT: um ramo por lado da movimentação, cada um lido
+    // pelo seu índice por conta; a ordenação fica com o banco, que a faz fora da memória quando é grande
+    private static final String SELECT_EXPORTACAO_EXTRATO = """
+            SELECT m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero AS num_conta_origem, dest.numero AS num_conta_destino
+            FROM movimentacao m USE INDEX (idx_movimentacao_origem_data)
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            WHERE m.id_conta_origem = ?
+            UNION ALL
+            SELECT m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero AS num_conta_origem, dest.numero AS num_conta_destino
+            FROM movimentacao m USE INDEX (idx_movimentacao_destino_data)
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            WHERE m.id_conta_destino = ? AND (m.id_conta_origem IS NULL OR m.id_conta_origem <> ?)
+            ORDER BY data_hora ASC, id ASC
+            """;
+
+    /**
+     * Percorre todo o extrato da conta, do mais antigo ao mais recente, entregando uma linha por vez ao
+     * consumidor enquanto o ResultSet (somente avanço e somente leitura) é lido em blocos do fetch size
+     * configurado. Nenhuma linha é retida pelo DAO, então o uso de memória independe do tamanho do extrato.
+     * Exceções não verificadas lançadas pelo consumidor interrompem a leitura e são propagadas sem alteração.
+     * As linhas arquivadas são intercaladas com as da tabela pela mesma ordem, também sem serem retidas.
+     *
+     * @return quantidade de linhas entregues.
+     */
+    public long percorrerExtratoPorContaId(Long contaId, Consumer<LinhaExtratoDTO> consumidor) {
+        Objects.requireNonNull(contaId, "O ID da conta não pode ser nulo.");
+        Objects.requireNonNull(consumidor, "O consumidor das linhas não pode ser nulo.");
+
+        PreparedStatementCreator consulta = con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_EXPORTACAO_EXTRATO,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(exportacaoFetchSize);
+            ps.setLong(1, contaId);
+            ps.setLong(2, contaId);
+            ps.setLong(3, contaId);
+            return ps;
+        };
+        Iterator<LinhaArquivada> arquivadas = arquivo.crescente(contaId);
+        LinhaArquivada[] proximaArquivada = {arquivadas.hasNext() ? arquivadas.next() : null};
+        long[] linhas = {0};
+
+        descarregarPendentes();
+        try {
+            jdbcTemplate.query(consulta, (RowCallbackHandler) rs -> {
+                LinhaExtratoDTO linha = linhaExtratoRowMapper.mapRow(rs, 0);
+                while (proximaArquivada[0] != null && ORDEM_EXTRATO.compare(proximaArquivada[0].linha(), linha) < 0) {
+                    consumidor.accept(proximaArquivada[0].linha());
+                    linhas[0]++;
+                    proximaArquivada[0] = arquivadas.hasNext() ? arquivadas.next() : null;
+                }
+                consumidor.accept(linha);
+                linhas[0]++;
+            });
+            for (LinhaArquivada arquivada = proximaArquivada[0]; arquivada != null;
+                 arquivada = arquivadas.hasNext() ? arquivadas.next() : null) {
+                consumidor.accept(arquivada.linha());
+                linhas[0]++;
+            }
+            return linhas[0];
+        } catch (DataAccessException e) {
+            logger.error("Erro ao exportar o extrato da conta ID: {}", contaId, e);
+            throw new RepositorioException("Erro ao exportar o extrato da conta.", e);
+        }
+    }
+
+    // Movimentações que vão para o arquivo: anteriores ao corte, de alguma conta e sem cartão (as faturas
+    // continuam lendo só a tabela). Uma linha por conta envolvida, na ordem em que o segmento é gravado;
+    // primeira indica a linha que conta a movimentação uma única vez.
+    private static final String SELECT_PARA_ARQUIVAMENTO = """
+            SELECT m.id_conta_origem AS id_conta, FALSE AS entrada, TRUE AS primeira,
+                   m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero AS num_conta_origem, dest.numero AS num_conta_destino
+            FROM movimentacao m
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            WHERE m.data_hora < ? AND m.id <= ? AND m.id_cartao IS NULL AND m.id_conta_origem IS NOT NULL
+            UNION ALL
+            SELECT m.id_conta_destino, TRUE, m.id_conta_origem IS NULL,
+                   m.id, m.tipo, m.valor_centavos, m.data_hora, m.descricao,
+                   orig.numero, dest.numero
+            FROM movimentacao m
+            LEFT JOIN conta orig ON m.id_conta_origem = orig.id
+            LEFT JOIN conta dest ON m.id_conta_destino = dest.id
+            WHERE m.data_hora < ? AND m.id <= ? AND m.id_cartao IS NULL AND m.id_conta_destino IS NOT NULL
+              AND (m.id_conta_origem IS NULL OR m.id_conta_origem <> m.id_conta_destino)
+            ORDER BY id_conta, data_hora, id
+            """;
+
+    private static final String DELETE_ARQUIVADAS = """
+            DELETE FROM movimentacao
+            WHERE data_hora < ? AND id <= ? AND id_cartao IS NULL
+              AND (id_conta_origem IS NOT NULL OR id_conta_destino IS NOT NULL)
+            """;
+
+    /**
+     * Maior ID de movimentação gravado; limita o arquivamento às linhas já existentes quando ele começa.
+     */
+    public int buscarIdMaximo() {
+        descarregarPendentes();
+        try {
+            Integer id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM movimentacao", Integer.class);
+            return id != null ? id : 0;
+        } catch (DataAccessException e) {
+            logger.error("Erro ao buscar o maior ID de movimentação.", e);
+            throw new RepositorioException("Erro ao consultar as movimentações.", e);
+        }
+    }
+
+    /**
+     * Entrega as linhas de extrato a arquivar, ordenadas por conta, data e ID, para o job de arquivamento.
+     *
+     * @return quantidade de movimentações distintas entregues (uma transferência gera duas linhas).
+     */
+    public long percorrerParaArquivamento(LocalDateTime corte, int idMaximo, BiConsumer<Long, LinhaArquivada> consumidor) {
+        Timestamp limite = Timestamp.valueOf(corte);
+        long[] movimentacoes = {0};
+        try {
+            jdbcTemplate.query(SELECT_PARA_ARQUIVAMENTO, (RowCallbackHandler) rs -> {
+                if (rs.getBoolean("primeira")) {
+                    movimentacoes[0]++;
+                }
+                consumidor.accept(rs.getLong("id_conta"), new LinhaArquivada(linhaExtrato(rs, null), rs.getBoolean("entrada")));
+            }, limite, idMaximo, limite, idMaximo);
+            return movimentacoes[0];
+        } catch (DataAccessException e) {
+            logger.error("Erro ao ler as movimentações anteriores a {} para arquivamento.", corte, e);
+            throw new RepositorioException("Erro ao ler as movimentações para arquivamento.", e);
+        }
+    }
+
+    /**
+     * Remove da tabela as movimentações entregues por {@link #percorrerParaArquivamento} com os mesmos
+     * parâmetros, na transação do chamador.
+     */
+    public int excluirArquivadas(LocalDateTime corte, int idMaximo) {
+        try {
+            return jdbcTemplate.update(DELETE_ARQUIVADAS, Timestamp.valueOf(corte), idMaximo);
+        } catch (DataAccessException e) {
+            logger.error("Erro ao excluir as movimentações arquivadas anteriores a {}.", corte, e);
+            throw new RepositorioException("Erro ao excluir as movimentações arquivadas.", e);
+        }
+    }
 
-        final String sql = BASE_SELECT_MOVIMENTACAO + """
+    // Atendida pelo índice (id_cartao, tipo, data_hora)
+    static final String SQL_GASTOS_CREDITO_POR_CARTAO = BASE_SELECT_MOVIMENTACAO + """
                 WHERE m.id_cartao = ?
                 AND m.tipo = ?
                 AND m.data_hora >= ?
-                AND m.data_hora <= ?
+                AND m.data_hora < ?
                 ORDER BY m.data_hora ASC
                 """;
+
+    // NOVO MÉTODO: Busca gastos de crédito por cartão e período
+    // Usado no CartaoService para gerar a fatura
+    public List<Movimentacao> buscarGastosCreditoPorCartaoEMes(Integer cartaoId, YearMonth mesReferencia) {
+        // Intervalo semiaberto [início do mês, início do mês seguinte): inclui as frações do último segundo
+        LocalDateTime inicioMes = mesReferencia.atDay(1).atStartOfDay();
+        LocalDateTime inicioMesSeguinte = mesReferencia.plusMonths(1).atDay(1).atStartOfDay();
+
+        descarregarPendentes();
         try {
-            return jdbcTemplate.query(sql, movimentacaoRowMapper,
-                    cartaoId, TipoMovimentacao.COMPRA_CREDITO.name(), inicioMes, fimMes);
+            return jdbcTemplate.query(SQL_GASTOS_CREDITO_POR_CARTAO, new MovimentacaoRowMapper(),
+                    cartaoId, TipoMovimentacao.COMPRA_CREDITO.name(), inicioMes, inicioMesSeguinte);
         } catch (DataAccessException e) {
             logger.error("Erro ao buscar gastos de crédito para o cartão ID {} no mês {}: {}", cartaoId, mesReferencia, e.getMessage());
             throw new RepositorioException("Erro ao consultar gastos do cartão de crédito.", e);
@@ -0,0 +1,79 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
+import com.agsilvamhm.bancodigital.model.CategoriaCliente;
+import com.agsilvamhm.bancodigital.model.TarifaCategoria;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Acesso à tabela tarifa_categoria (somente inserções): cada linha define as tarifas de uma categoria a
+ * partir da sua data de vigência, até ser substituída por outra de vigência posterior.
+ */
+@Repository
+public class TarifaCategoriaDao {
+
+    private static final String SELECT_TODAS = """
+        SELECT categoria, taxa_manutencao, taxa_rendimento_anual, limite_credito_padrao, vigente_desde
+        FROM tarifa_categoria
+        ORDER BY id
+    """;
+
+    private static final String INSERT_TARIFA = """
+        INSERT INTO tarifa_categoria (categoria, taxa_manutencao, taxa_rendimento_anual, limite_credito_padrao,
+                                      vigente_desde, criado_em)
+        VALUES (?, ?, ?, ?, ?, ?)
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public TarifaCategoriaDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Todas as tarifas cadastradas, na ordem de cadastro.
+     */
+    public List<TarifaCategoria> listarTodas() {
+        try {
+            return jdbcTemplate.query(SELECT_TODAS, (rs, rowNum) -> TarifaCategoria.de(
+                    CategoriaCliente.valueOf(rs.getString("categoria")),
+                    rs.getBigDecimal("taxa_manutencao"),
+                    rs.getBigDecimal("taxa_rendimento_anual"),
+                    rs.getBigDecimal("limite_credito_padrao"),
+                    rs.getDate("vigente_desde").toLocalDate()));
+        } catch (DataAccessException ex) {
+            throw new RepositorioException("Erro ao carregar a tabela de tarifas.", ex);
+        }
+    }
+
+    /**
+     * Quantidade de linhas e maior id: como a tabela só recebe inserções, muda a cada tarifa confirmada,
+     * mesmo que as transações confirmem fora da ordem dos ids.
+     */
+    public String buscarVersao() {
+        try {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) || '-' || COALESCE(MAX(id), 0) FROM tarifa_categoria", String.class);
+        } catch (DataAccessException ex) {
+            throw new RepositorioException("Erro ao consultar a versão da tabela de tarifas.", ex);
+        }
+    }
+
+    public void salvar(TarifaCategoria tarifa) {
+        try {
+            jdbcTemplate.update(INSERT_TARIFA, tarifa.categoria().name(), tarifa.taxaManutencao(),
+                    tarifa.taxaRendimentoAnual(), tarifa.limiteCreditoPadrao(), Date.valueOf(tarifa.vigenteDesde()),
+                    Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DataAccessException ex) {
+            throw new RepositorioException("Erro ao salvar a tarifa da categoria " + tarifa.categoria() + ".", ex);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.agsilvamhm.bancodigital.repository.arquivo;
+
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Arquivo frio de movimentações: segmentos imutáveis em disco ({@link SegmentoMovimentacoes}) com as
+ * linhas de extrato das movimentações removidas da tabela movimentacao. Um segmento só passa a ser lido
+ * depois que o seu registro em arquivo_segmento é confirmado, na mesma transação que remove as linhas
+ * da tabela. Com várias instâncias sobre o mesmo diretório, cada uma relê arquivo_segmento periodicamente
+ * para abrir os segmentos publicados pelas outras. Arquivos sem registro, deixados por execuções
+ * desfeitas, são apagados na inicialização, mas só depois de uma idade mínima: um arquivo recente pode
+ * ser de um arquivamento de outra instância que ainda não foi confirmado.
+ * Todas as movimentações arquivadas são anteriores à data de corte; as posteriores continuam na tabela.
+ */
+@Repository
+public class ArquivoMovimentacoes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArquivoMovimentacoes.class);
+    private static final String EXTENSAO = ".seg";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean habilitado;
+    private final Path diretorio;
+    private final int linhasPorBloco;
+    private final Duration idadeMinimaOrfaos;
+    private final Set<String> carregados = new HashSet<>();
+    private volatile List<SegmentoMovimentacoes> segmentos = List.of();
+    private volatile LocalDateTime dataCorte;
+
+    @Autowired
+    public ArquivoMovimentacoes(JdbcTemplate jdbcTemplate,
+                                @Value("${bancodigital.arquivo.habilitado:false}") boolean habilitado,
+                                @Value("${bancodigital.arquivo.diretorio:}") String diretorio,
+                                @Value("${bancodigital.arquivo.linhas-por-bloco:256}") int linhasPorBloco,
+                                @Value("${bancodigital.arquivo.idade-minima-orfaos-ms:86400000}") long idadeMinimaOrfaosMs) {
+        if (linhasPorBloco <= 0) {
+            throw new IllegalArgumentException("A quantidade de linhas por bloco do arquivo deve ser positiva.");
+        }
+        if (habilitado && (diretorio == null || diretorio.isBlank())) {
+            throw new IllegalStateException("Informe bancodigital.arquivo.diretorio para habilitar o arquivo de movimentações: "
+                    + "os segmentos são a única cópia das movimentações arquivadas.");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.habilitado = habilitado;
+        this.diretorio = habilitado ? Paths.get(diretorio).toAbsolutePath() : null;
+        this.linhasPorBloco = linhasPorBloco;
+        this.idadeMinimaOrfaos = Duration.ofMillis(idadeMinimaOrfaosMs);
+        if (habilitado) {
+            carregar();
+        }
+    }
+
+    /**
+     * Arquivo desligado e vazio, para quem usa o MovimentacaoDao fora do contexto Spring.
+     */
+    public static ArquivoMovimentacoes desabilitado() {
+        return new ArquivoMovimentacoes(null, false, null, 1, 0);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Todas as movimentações arquivadas são anteriores a esta data; nula enquanto nada foi arquivado.
+     */
+    public LocalDateTime getDataCorte() {
+        return dataCorte;
+    }
+
+    private void carregar() {
+        Path temporario = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath();
+        if (diretorio.startsWith(temporario)) {
+            logger.warn("O arquivo de movimentações está em um diretório temporário ({}); limpezas do sistema "
+                    + "podem apagar a única cópia das movimentações arquivadas.", diretorio);
+        }
+        try {
+            Files.createDirectories(diretorio);
+            apagarOrfaos(new HashSet<>(jdbcTemplate.queryForList("SELECT nome_arquivo FROM arquivo_segmento", String.class)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao carregar o arquivo de movimentações em " + diretorio, e);
+        }
+        atualizar();
+        logger.info("Arquivo de movimentações em {} com {} segmentos.", diretorio, segmentos.size());
+    }
+
+    // Um arquivo sem registro e recente pode ser de um arquivamento em andamento em outra instância
+    private void apagarOrfaos(Set<String> registrados) throws IOException {
+        FileTime limite = FileTime.from(Instant.now().minus(idadeMinimaOrfaos));
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                if (registrados.contains(arquivo.getFileName().toString())) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(arquivo).compareTo(limite) < 0) {
+                    logger.warn("Segmento sem registro removido do arquivo: {}", arquivo);
+                    Files.delete(arquivo);
+                } else {
+                    logger.info("Segmento sem registro mantido por ser recente: {}", arquivo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Abre os segmentos registrados em arquivo_segmento que esta instância ainda não conhece, como os
+     * publicados por outras instâncias, e avança a data de corte.
+     *
+     * @return quantidade de segmentos abertos
+     */
+    @Scheduled(fixedDelayString = "${bancodigital.arquivo.atualizacao-ms:60000}")
+    public synchronized int atualizar() {
+        if (!habilitado) {
+            return 0;
+        }
+        record Registro(String nome, LocalDateTime corte) {
+        }
+        List<Registro> registros = jdbcTemplate.query("SELECT nome_arquivo, data_corte FROM arquivo_segmento ORDER BY id",
+                (rs, rowNum) -> new Registro(rs.getString("nome_arquivo"), rs.getTimestamp("data_corte").toLocalDateTime()));
+        List<SegmentoMovimentacoes> novos = new ArrayList<>();
+        LocalDateTime corte = null;
+        for (Registro registro : registros) {
+            if (carregados.contains(registro.nome())) {
+                continue;
+            }
+            Path arquivo = diretorio.resolve(registro.nome());
+            if (!Files.exists(arquivo)) {
+                throw new IllegalStateException("Segmento registrado não encontrado no arquivo: " + arquivo);
+            }
+            novos.add(SegmentoMovimentacoes.abrir(arquivo));
+            if (corte == null || registro.corte().isAfter(corte)) {
+                corte = registro.corte();
+            }
+        }
+        if (!novos.isEmpty()) {
+            adicionar(novos, corte);
+        }
+        return novos.size();
+    }
+
+    /**
+     * Cria o arquivo de um segmento novo, ainda invisível para as leituras até {@link #publicar}.
+     */
+    public SegmentoMovimentacoes.Escritor novoEscritor(long contaInicial) throws IOException {
+        if (!habilitado) {
+            throw new IllegalStateException("O arquivo de movimentações não está habilitado.");
+        }
+        String nome = "movimentacoes-%d-%s%s".formatted(contaInicial, UUID.randomUUID(), EXTENSAO);
+        return new SegmentoMovimentacoes.Escritor(diretorio.resolve(nome), linhasPorBloco);
+    }
+
+    /**
+     * Fecha e apaga segmentos que não chegaram a ser publicados.
+     */
+    public void descartar(List<SegmentoMovimentacoes.Escritor> escritores) {
+        for (SegmentoMovimentacoes.Escritor escritor : escritores) {
+            try {
+                escritor.close();
+            } catch (IOException e) {
+                logger.warn("Erro ao fechar o segmento {}.", escritor.getCaminho(), e);
+            }
+            apagar(escritor.getCaminho());
+        }
+    }
+
+    /**
+     * Registra os segmentos concluídos na transação corrente. Eles passam a ser lidos logo após o
+     * commit; se a transação for desfeita, os arquivos são apagados.
+     */
+    public void publicar(List<SegmentoMovimentacoes.Escritor> concluidos, LocalDateTime corte) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("A publicação de segmentos exige uma transação ativa.");
+        }
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO arquivo_segmento (nome_arquivo, data_corte, linhas, criado_em) VALUES (?, ?, ?, ?)",
+                concluidos.stream().map(escritor -> new Object[]{escritor.getCaminho().getFileName().toString(),
+                        Timestamp.valueOf(corte), escritor.getLinhas(), agora}).toList());
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                adicionar(concluidos.stream().map(escritor -> SegmentoMovimentacoes.abrir(escritor.getCaminho())).toList(), corte);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    concluidos.forEach(escritor -> apagar(escritor.getCaminho()));
+                }
+            }
+        });
+    }
+
+    private synchronized void adicionar(List<SegmentoMovimentacoes> novos, LocalDateTime corte) {
+        List<SegmentoMovimentacoes> todos = new ArrayList<>(segmentos);
+        for (SegmentoMovimentacoes segmento : novos) {
+            if (carregados.add(segmento.getCaminho().getFileName().toString())) {
+                todos.add(segmento);
+            }
+        }
+        segmentos = List.copyOf(todos);
+        if (dataCorte == null || corte.isAfter(dataCorte)) {
+            dataCorte = corte;
+        }
+    }
+
+    private static void apagar(Path arquivo) {
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Não foi possível apagar o segmento {}; ele será removido em uma próxima inicialização.", arquivo, e);
+        }
+    }
+
+    /**
+     * Linhas arquivadas da conta, da mais recente para a mais antiga, estritamente anteriores ao cursor
+     * (ou desde a mais recente, com cursor nulo) e aceitas pelo filtro, até o limite. Os segmentos que
+     * contêm a conta são intercalados pela ordem do extrato; o fim do período vira um cursor, e a leitura
+     * para ao passar do início do período.
+     */
+    public List<LinhaArquivada> buscarAnteriores(long contaId, CursorExtratoDTO cursor, FiltroExtratoDTO filtro, int limite) {
+        List<SegmentoMovimentacoes> daConta = segmentosDaConta(contaId);
+        if (daConta.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        CursorExtratoDTO inicioLeitura = cursor;
+        if (filtro.fim() != null) {
+            CursorExtratoDTO fimPeriodo = new CursorExtratoDTO(filtro.fim(), Integer.MIN_VALUE);
+            if (cursor == null || !SegmentoMovimentacoes.antes(cursor.dataHora(), cursor.id(), fimPeriodo)) {
+                inicioLeitura = fimPeriodo;
+            }
+        }
+
+        List<Iterator<LinhaArquivada>> leitores = new ArrayList<>(daConta.size());
+        for (SegmentoMovimentacoes segmento : daConta) {
+            leitores.add(segmento.decrescente(contaId, inicioLeitura));
+        }
+        Iterator<LinhaArquivada> linhas = intercalar(leitores, LinhaArquivada.ORDEM.reversed());
+
+        List<LinhaArquivada> resultado = new ArrayList<>(Math.min(limite, 1024));
+        while (resultado.size() < limite && linhas.hasNext()) {
+            LinhaArquivada linha = linhas.next();
+            if (filtro.inicio() != null && linha.linha().dataHora().isBefore(filtro.inicio())) {
+                break;
+            }
+            if (filtro.aceita(linha.linha())) {
+                resultado.add(linha);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Todas as linhas arquivadas da conta, da mais antiga para a mais recente, descomprimindo um bloco
+     * por vez de cada segmento conforme o iterador avança.
+     */
+    public Iterator<LinhaArquivada> crescente(long contaId) {
+        List<Iterator<LinhaArquivada>> leitores = new ArrayList<>();
+        for (SegmentoMovimentacoes segmento : segmentosDaConta(contaId)) {
+            leitores.add(segmento.crescente(contaId));
+        }
+        return leitores.isEmpty() ? Collections.emptyIterator() : intercalar(leitores, LinhaArquivada.ORDEM);
+    }
+
+    public boolean contemConta(long contaId) {
+        return !segmentosDaConta(contaId).isEmpty();
+    }
+
+    private List<SegmentoMovimentacoes> segmentosDaConta(long contaId) {
+        List<SegmentoMovimentacoes> atuais = segmentos;
+        if (atuais.isEmpty()) {
+            return List.of();
+        }
+        return atuais.stream().filter(segmento -> segmento.contemConta(contaId)).toList();
+    }
+
+    // Intercala leitores já ordenados (merge de k vias); com um único leitor, devolve o próprio
+    private static Iterator<LinhaArquivada> intercalar(List<Iterator<LinhaArquivada>> leitores, Comparator<LinhaArquivada> ordem) {
+        if (leitores.size() == 1) {
+            return leitores.get(0);
+        }
+        record Cabeca(LinhaArquivada linha, Iterator<LinhaArquivada> leitor) {
+        }
+        PriorityQueue<Cabeca> fila = new PriorityQueue<>(Comparator.comparing(Cabeca::linha, ordem));
+        for (Iterator<LinhaArquivada> leitor : leitores) {
+            if (leitor.hasNext()) {
+                fila.add(new Cabeca(leitor.next(), leitor));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !fila.isEmpty();
+            }
+
+            @Override
+            public LinhaArquivada next() {
+                Cabeca cabeca = fila.remove();
+                if (cabeca.leitor().hasNext()) {
+                    fila.add(new Cabeca(cabeca.leitor().next(), cabeca.leitor()));
+                }
+                return cabeca.linha();
+            }
+        };
+    }
+}
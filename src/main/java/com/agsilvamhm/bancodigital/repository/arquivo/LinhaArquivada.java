@@ -0,0 +1,25 @@
+package com.agsilvamhm.bancodigital.repository.arquivo;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+
+import java.util.Comparator;
+
+// Linha do extrato de uma conta guardada no arquivo; entrada indica que a conta é o destino da movimentação.
+public record LinhaArquivada(LinhaExtratoDTO linha, boolean entrada) {
+
+    // Ordem do extrato: (data_hora, id)
+    static final Comparator<LinhaArquivada> ORDEM = Comparator
+            .comparing((LinhaArquivada l) -> l.linha().dataHora())
+            .thenComparingInt(l -> l.linha().id());
+
+    /**
+     * Variação do saldo da conta causada pela movimentação; compras no crédito não movimentam a conta.
+     */
+    public long efeitoCentavos() {
+        if (linha.tipo() == TipoMovimentacao.COMPRA_CREDITO) {
+            return 0;
+        }
+        return entrada ? linha.valorCentavos() : -linha.valorCentavos();
+    }
+}
@@ -0,0 +1,440 @@
+package com.agsilvamhm.bancodigital.repository.arquivo;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Arquivo imutável com as linhas de extrato arquivadas de uma faixa de contas, lido por mapeamento
+ * em memória (somente leitura).
+ * <p>
+ * Formato: uma sequência de blocos comprimidos com Deflater, cada um com até {@code linhasPorBloco}
+ * linhas de uma única conta na ordem (data_hora, id); em seguida o índice esparso, com uma entrada por
+ * bloco (conta, primeira e última posição do bloco, posição no arquivo e tamanhos); e um rodapé com a
+ * posição do índice, a quantidade de blocos, a versão e o número mágico. Só o índice fica em memória;
+ * os blocos são descomprimidos sob demanda, e os que ficam fora da conta ou do cursor nem são lidos.
+ */
+public final class SegmentoMovimentacoes {
+
+    private static final int MAGICO = 0x42445347; // "BDSG"
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_RODAPE = Long.BYTES + 3 * Integer.BYTES;
+
+    private final Path caminho;
+    private final MappedByteBuffer dados;
+    private final List<Bloco> blocos;
+
+    private SegmentoMovimentacoes(Path caminho, MappedByteBuffer dados, List<Bloco> blocos) {
+        this.caminho = caminho;
+        this.dados = dados;
+        this.blocos = blocos;
+    }
+
+    /**
+     * Mapeia o arquivo em memória e carrega o índice esparso.
+     *
+     * @throws UncheckedIOException se o arquivo não puder ser lido ou não for um segmento válido.
+     */
+    public static SegmentoMovimentacoes abrir(Path caminho) {
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < TAMANHO_RODAPE) {
+                throw new IOException("Segmento truncado: " + caminho);
+            }
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Segmento maior que 2 GB: " + caminho);
+            }
+            MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            ByteBuffer rodape = dados.slice((int) tamanho - TAMANHO_RODAPE, TAMANHO_RODAPE);
+            long posicaoIndice = rodape.getLong();
+            int quantidadeBlocos = rodape.getInt();
+            int versao = rodape.getInt();
+            if (rodape.getInt() != MAGICO || versao != VERSAO) {
+                throw new IOException("Arquivo não é um segmento de movimentações válido: " + caminho);
+            }
+
+            ByteBuffer indice = dados.slice((int) posicaoIndice, (int) (tamanho - TAMANHO_RODAPE - posicaoIndice));
+            List<Bloco> blocos = new ArrayList<>(quantidadeBlocos);
+            for (int i = 0; i < quantidadeBlocos; i++) {
+                blocos.add(new Bloco(indice.getLong(),
+                        lerDataHora(indice), indice.getInt(),
+                        lerDataHora(indice), indice.getInt(),
+                        indice.getLong(), indice.getInt(), indice.getInt(), indice.getInt()));
+            }
+            return new SegmentoMovimentacoes(caminho, dados, Collections.unmodifiableList(blocos));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir o segmento " + caminho, e);
+        }
+    }
+
+    public Path getCaminho() {
+        return caminho;
+    }
+
+    public boolean contemConta(long contaId) {
+        int inicio = primeiroBlocoDaConta(contaId);
+        return inicio < blocos.size() && blocos.get(inicio).contaId() == contaId;
+    }
+
+    /**
+     * Linhas da conta da mais antiga para a mais recente.
+     */
+    public Iterator<LinhaArquivada> crescente(long contaId) {
+        List<Bloco> daConta = blocosDaConta(contaId);
+        return new LeitorBlocos(daConta.iterator(), false, null);
+    }
+
+    /**
+     * Linhas da conta da mais recente para a mais antiga, estritamente anteriores ao cursor (ou todas,
+     * com cursor nulo). Blocos que começam no cursor ou depois dele não são descomprimidos.
+     */
+    public Iterator<LinhaArquivada> decrescente(long contaId, CursorExtratoDTO cursor) {
+        List<Bloco> daConta = new ArrayList<>(blocosDaConta(contaId));
+        if (cursor != null) {
+            daConta.removeIf(bloco -> !antes(bloco.primeiraDataHora(), bloco.primeiroId(), cursor));
+        }
+        Collections.reverse(daConta);
+        return new LeitorBlocos(daConta.iterator(), true, cursor);
+    }
+
+    private List<Bloco> blocosDaConta(long contaId) {
+        int inicio = primeiroBlocoDaConta(contaId);
+        int fim = inicio;
+        while (fim < blocos.size() && blocos.get(fim).contaId() == contaId) {
+            fim++;
+        }
+        return blocos.subList(inicio, fim);
+    }
+
+    // Busca binária pelo primeiro bloco com conta >= contaId
+    private int primeiroBlocoDaConta(long contaId) {
+        int baixo = 0;
+        int alto = blocos.size();
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (blocos.get(meio).contaId() < contaId) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    static boolean antes(LocalDateTime dataHora, int id, CursorExtratoDTO cursor) {
+        int comparacao = dataHora.compareTo(cursor.dataHora());
+        return comparacao < 0 || (comparacao == 0 && id < cursor.id());
+    }
+
+    private List<LinhaArquivada> descomprimir(Bloco bloco) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(dados.slice((int) bloco.posicao(), bloco.tamanhoComprimido()));
+            byte[] original = new byte[bloco.tamanhoOriginal()];
+            int lidos = 0;
+            while (lidos < original.length && !inflater.finished()) {
+                int n = inflater.inflate(original, lidos, original.length - lidos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                lidos += n;
+            }
+            if (lidos != original.length) {
+                throw new IOException("Bloco corrompido no segmento " + caminho);
+            }
+
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(original));
+            List<LinhaArquivada> linhas = new ArrayList<>(bloco.linhas());
+            for (int i = 0; i < bloco.linhas(); i++) {
+                int id = entrada.readInt();
+                LocalDateTime dataHora = LocalDateTime.ofEpochSecond(entrada.readLong(), entrada.readInt(), ZoneOffset.UTC);
+                TipoMovimentacao tipo = TipoMovimentacao.valueOf(entrada.readUTF());
+                long valorCentavos = entrada.readLong();
+                boolean ehEntrada = entrada.readBoolean();
+                String descricao = lerTextoOpcional(entrada);
+                String contaOrigemNumero = lerTextoOpcional(entrada);
+                String contaDestinoNumero = lerTextoOpcional(entrada);
+                linhas.add(new LinhaArquivada(new LinhaExtratoDTO(id, tipo, valorCentavos, dataHora, descricao,
+                        contaOrigemNumero, contaDestinoNumero), ehEntrada));
+            }
+            return linhas;
+        } catch (IOException | DataFormatException e) {
+            throw new UncheckedIOException("Erro ao ler o segmento " + caminho,
+                    e instanceof IOException io ? io : new IOException(e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static LocalDateTime lerDataHora(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static String lerTextoOpcional(DataInputStream entrada) throws IOException {
+        return entrada.readBoolean() ? entrada.readUTF() : null;
+    }
+
+    // Entrada do índice esparso
+    private record Bloco(long contaId, LocalDateTime primeiraDataHora, int primeiroId,
+                         LocalDateTime ultimaDataHora, int ultimoId,
+                         long posicao, int tamanhoComprimido, int tamanhoOriginal, int linhas) {
+    }
+
+    // Percorre os blocos na ordem recebida, descomprimindo um de cada vez
+    private final class LeitorBlocos implements Iterator<LinhaArquivada> {
+
+        private final Iterator<Bloco> blocosRestantes;
+        private final boolean decrescente;
+        private final CursorExtratoDTO cursor;
+        private List<LinhaArquivada> atual = List.of();
+        private int posicao;
+        private LinhaArquivada proxima;
+
+        LeitorBlocos(Iterator<Bloco> blocosRestantes, boolean decrescente, CursorExtratoDTO cursor) {
+            this.blocosRestantes = blocosRestantes;
+            this.decrescente = decrescente;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (proxima == null) {
+                if (posicao < atual.size()) {
+                    LinhaArquivada candidata = atual.get(decrescente ? atual.size() - 1 - posicao : posicao);
+                    posicao++;
+                    if (cursor == null || antes(candidata.linha().dataHora(), candidata.linha().id(), cursor)) {
+                        proxima = candidata;
+                    }
+                } else if (blocosRestantes.hasNext()) {
+                    atual = descomprimir(blocosRestantes.next());
+                    posicao = 0;
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public LinhaArquivada next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LinhaArquivada linha = proxima;
+            proxima = null;
+            return linha;
+        }
+    }
+
+    /**
+     * Grava um segmento novo. As linhas devem chegar ordenadas por conta e, dentro da conta, por
+     * (data_hora, id); o arquivo só é válido depois de {@link #concluir()}.
+     */
+    public static final class Escritor implements AutoCloseable {
+
+        private final Path caminho;
+        private final int linhasPorBloco;
+        private final SaidaContada saida;
+        private final List<Bloco> blocos = new ArrayList<>();
+        private final List<LinhaArquivada> pendentes = new ArrayList<>();
+        private long contaPendente;
+        private LinhaArquivada ultima;
+        private long linhas;
+        private boolean concluido;
+
+        public Escritor(Path caminho, int linhasPorBloco) throws IOException {
+            if (linhasPorBloco <= 0) {
+                throw new IllegalArgumentException("A quantidade de linhas por bloco deve ser positiva.");
+            }
+            this.caminho = caminho;
+            this.linhasPorBloco = linhasPorBloco;
+            this.saida = new SaidaContada(new BufferedOutputStream(Files.newOutputStream(caminho,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+        }
+
+        public Path getCaminho() {
+            return caminho;
+        }
+
+        public long getLinhas() {
+            return linhas;
+        }
+
+        public void adicionar(long contaId, LinhaArquivada linha) throws IOException {
+            if (ultima != null && contaId != contaPendente) {
+                if (contaId < contaPendente) {
+                    throw new IllegalArgumentException("As linhas do segmento devem vir ordenadas por conta.");
+                }
+                gravarBloco();
+                ultima = null;
+            }
+            if (ultima != null && LinhaArquivada.ORDEM.compare(ultima, linha) >= 0) {
+                throw new IllegalArgumentException("As linhas de cada conta devem vir ordenadas por data e ID.");
+            }
+            contaPendente = contaId;
+            pendentes.add(linha);
+            ultima = linha;
+            linhas++;
+            if (pendentes.size() == linhasPorBloco) {
+                gravarBloco();
+            }
+        }
+
+        /**
+         * Grava o último bloco, o índice e o rodapé e força os dados para o disco.
+         */
+        public void concluir() throws IOException {
+            gravarBloco();
+            long posicaoIndice = saida.getQuantidade();
+            DataOutputStream indice = new DataOutputStream(saida);
+            for (Bloco bloco : blocos) {
+                indice.writeLong(bloco.contaId());
+                escreverDataHora(indice, bloco.primeiraDataHora());
+                indice.writeInt(bloco.primeiroId());
+                escreverDataHora(indice, bloco.ultimaDataHora());
+                indice.writeInt(bloco.ultimoId());
+                indice.writeLong(bloco.posicao());
+                indice.writeInt(bloco.tamanhoComprimido());
+                indice.writeInt(bloco.tamanhoOriginal());
+                indice.writeInt(bloco.linhas());
+            }
+            indice.writeLong(posicaoIndice);
+            indice.writeInt(blocos.size());
+            indice.writeInt(VERSAO);
+            indice.writeInt(MAGICO);
+            indice.flush();
+            saida.close();
+            try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            concluido = true;
+        }
+
+        private void gravarBloco() throws IOException {
+            if (pendentes.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(pendentes.size() * 64);
+            DataOutputStream dados = new DataOutputStream(bytes);
+            for (LinhaArquivada arquivada : pendentes) {
+                LinhaExtratoDTO linha = arquivada.linha();
+                dados.writeInt(linha.id());
+                escreverDataHora(dados, linha.dataHora());
+                dados.writeUTF(linha.tipo().name());
+                dados.writeLong(linha.valorCentavos());
+                dados.writeBoolean(arquivada.entrada());
+                escreverTextoOpcional(dados, linha.descricao());
+                escreverTextoOpcional(dados, linha.contaOrigemNumero());
+                escreverTextoOpcional(dados, linha.contaDestinoNumero());
+            }
+            byte[] original = bytes.toByteArray();
+
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            byte[] comprimido;
+            try {
+                deflater.setInput(original);
+                deflater.finish();
+                ByteArrayOutputStream destino = new ByteArrayOutputStream(original.length / 2 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    destino.write(buffer, 0, deflater.deflate(buffer));
+                }
+                comprimido = destino.toByteArray();
+            } finally {
+                deflater.end();
+            }
+
+            LinhaExtratoDTO primeira = pendentes.get(0).linha();
+            LinhaExtratoDTO ultimaDoBloco = pendentes.get(pendentes.size() - 1).linha();
+            blocos.add(new Bloco(contaPendente, primeira.dataHora(), primeira.id(), ultimaDoBloco.dataHora(), ultimaDoBloco.id(),
+                    saida.getQuantidade(), comprimido.length, original.length, pendentes.size()));
+            saida.write(comprimido);
+            pendentes.clear();
+        }
+
+        private static void escreverDataHora(DataOutputStream saida, LocalDateTime dataHora) throws IOException {
+            saida.writeLong(dataHora.toEpochSecond(ZoneOffset.UTC));
+            saida.writeInt(dataHora.getNano());
+        }
+
+        private static void escreverTextoOpcional(DataOutputStream saida, String texto) throws IOException {
+            saida.writeBoolean(texto != null);
+            if (texto != null) {
+                saida.writeUTF(texto);
+            }
+        }
+
+        /**
+         * Fecha o arquivo; um segmento não concluído é apagado.
+         */
+        @Override
+        public void close() throws IOException {
+            if (!concluido) {
+                saida.close();
+                Files.deleteIfExists(caminho);
+            }
+        }
+    }
+
+    // Conta os bytes gravados, para registrar a posição de cada bloco no índice
+    private static final class SaidaContada extends OutputStream {
+
+        private final OutputStream destino;
+        private long quantidade;
+
+        SaidaContada(OutputStream destino) {
+            this.destino = destino;
+        }
+
+        long getQuantidade() {
+            return quantidade;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            destino.write(b);
+            quantidade++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            destino.write(b, off, len);
+            quantidade += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            destino.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            destino.close();
+        }
+    }
+}
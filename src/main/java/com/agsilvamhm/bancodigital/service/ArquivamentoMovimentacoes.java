@@ -0,0 +1,159 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.arquivo.ArquivoMovimentacoes;
+import com.agsilvamhm.bancodigital.repository.arquivo.LinhaArquivada;
+import com.agsilvamhm.bancodigital.repository.arquivo.SegmentoMovimentacoes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Job de arquivamento: move as movimentações de conta anteriores ao corte (início do mês de
+ * {@code idade-dias} atrás) da tabela movimentacao para segmentos comprimidos do
+ * {@link ArquivoMovimentacoes}. A leitura, a exclusão e o registro dos segmentos acontecem na mesma
+ * transação; se ela for desfeita, os arquivos gravados são apagados e a tabela fica como estava.
+ * Compras com cartão ficam na tabela, porque as faturas são montadas apenas a partir dela.
+ */
+@Component
+public class ArquivamentoMovimentacoes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArquivamentoMovimentacoes.class);
+
+    private final MovimentacaoDao movimentacaoDao;
+    private final ArquivoMovimentacoes arquivo;
+    private final TransactionTemplate transacao;
+    private final int idadeDias;
+    private final int contasPorSegmento;
+
+    public ArquivamentoMovimentacoes(MovimentacaoDao movimentacaoDao, ArquivoMovimentacoes arquivo,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${bancodigital.arquivo.idade-dias:180}") int idadeDias,
+                                     @Value("${bancodigital.arquivo.contas-por-segmento:1000}") int contasPorSegmento) {
+        if (idadeDias <= 0) {
+            throw new IllegalArgumentException("A idade mínima das movimentações arquivadas deve ser positiva.");
+        }
+        if (contasPorSegmento <= 0) {
+            throw new IllegalArgumentException("A quantidade de contas por segmento deve ser positiva.");
+        }
+        this.movimentacaoDao = movimentacaoDao;
+        this.arquivo = arquivo;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.idadeDias = idadeDias;
+        this.contasPorSegmento = contasPorSegmento;
+    }
+
+    /**
+     * Arquiva as movimentações anteriores ao início do mês de {@code idade-dias} atrás.
+     *
+     * @return quantidade de movimentações arquivadas.
+     */
+    @Scheduled(fixedDelayString = "${bancodigital.arquivo.intervalo-ms:3600000}")
+    public long arquivar() {
+        if (!arquivo.isHabilitado()) {
+            return 0;
+        }
+        return arquivar(YearMonth.from(LocalDateTime.now().minusDays(idadeDias)).atDay(1).atStartOfDay());
+    }
+
+    /**
+     * Arquiva as movimentações anteriores ao corte, que precisa ser o início de um mês para que os
+     * resumos mensais continuem podendo ser reconstruídos a partir da tabela.
+     *
+     * @return quantidade de movimentações arquivadas.
+     */
+    public long arquivar(LocalDateTime corte) {
+        if (!arquivo.isHabilitado()) {
+            throw new IllegalStateException("O arquivo de movimentações não está habilitado.");
+        }
+        if (corte.getDayOfMonth() != 1 || !corte.toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            throw new IllegalArgumentException("A data de corte do arquivamento deve ser o início de um mês.");
+        }
+        Long arquivadas = transacao.execute(status -> arquivarNaTransacao(corte));
+        if (arquivadas > 0) {
+            logger.info("{} movimentações anteriores a {} arquivadas.", arquivadas, corte);
+        }
+        return arquivadas;
+    }
+
+    private long arquivarNaTransacao(LocalDateTime corte) {
+        int idMaximo = movimentacaoDao.buscarIdMaximo();
+        Gravacao gravacao = new Gravacao();
+        List<SegmentoMovimentacoes.Escritor> concluidos;
+        long lidas;
+        try {
+            lidas = movimentacaoDao.percorrerParaArquivamento(corte, idMaximo, gravacao);
+            concluidos = gravacao.concluir();
+            int excluidas = movimentacaoDao.excluirArquivadas(corte, idMaximo);
+            if (excluidas != lidas) {
+                throw new IllegalStateException("Arquivamento interrompido: %d movimentações lidas e %d excluídas."
+                        .formatted(lidas, excluidas));
+            }
+        } catch (RuntimeException e) {
+            gravacao.descartar();
+            throw e;
+        }
+        if (!concluidos.isEmpty()) {
+            arquivo.publicar(concluidos, corte);
+        }
+        return lidas;
+    }
+
+    // Distribui as linhas, que chegam ordenadas por conta, em segmentos de até contasPorSegmento contas
+    private final class Gravacao implements BiConsumer<Long, LinhaArquivada> {
+
+        private final List<SegmentoMovimentacoes.Escritor> escritores = new ArrayList<>();
+        private SegmentoMovimentacoes.Escritor atual;
+        private long contaAtual;
+        private int contasNoAtual;
+
+        @Override
+        public void accept(Long contaId, LinhaArquivada linha) {
+            try {
+                if (atual == null || contaId != contaAtual) {
+                    if (atual == null || contasNoAtual == contasPorSegmento) {
+                        if (atual != null) {
+                            atual.concluir();
+                        }
+                        atual = arquivo.novoEscritor(contaId);
+                        escritores.add(atual);
+                        contasNoAtual = 0;
+                    }
+                    contaAtual = contaId;
+                    contasNoAtual++;
+                }
+                atual.adicionar(contaId, linha);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao gravar o segmento do arquivo de movimentações.", e);
+            }
+        }
+
+        List<SegmentoMovimentacoes.Escritor> concluir() {
+            try {
+                if (atual != null) {
+                    atual.concluir();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao concluir o segmento do arquivo de movimentações.", e);
+            }
+            return escritores;
+        }
+
+        void descartar() {
+            arquivo.descartar(escritores);
+        }
+    }
+}
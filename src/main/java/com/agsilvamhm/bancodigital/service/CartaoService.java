@@ -9,6 +9,7 @@ import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
 import com.agsilvamhm.bancodigital.model.*;
 import com.agsilvamhm.bancodigital.model.dto.EmitirCartaoRequest;
 import com.agsilvamhm.bancodigital.model.dto.PagamentoCartaoRequest;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,12 +32,20 @@ public class CartaoService {
     private final CartaoDao cartaoDao;
     private final ContaDao contaDao; // Presume que você tem um ContaDao para buscar a Conta e seu Cliente
     private final MovimentacaoDao movimentacaoDao;
+    private final GerenciadorBloqueioContas gerenciadorBloqueio;
+    private final RazaoContabil razaoContabil;
+    private final GerenciadorTarifas gerenciadorTarifas;
 
     @Autowired
-    public CartaoService(CartaoDao cartaoDao, ContaDao contaDao, MovimentacaoDao movimentacaoDao) {
+    public CartaoService(CartaoDao cartaoDao, ContaDao contaDao, MovimentacaoDao movimentacaoDao,
+                         GerenciadorBloqueioContas gerenciadorBloqueio, RazaoContabil razaoContabil,
+                         GerenciadorTarifas gerenciadorTarifas) {
         this.cartaoDao = cartaoDao;
         this.contaDao = contaDao;
         this.movimentacaoDao = movimentacaoDao;
+        this.gerenciadorBloqueio = gerenciadorBloqueio;
+        this.razaoContabil = razaoContabil;
+        this.gerenciadorTarifas = gerenciadorTarifas;
     }
 
     @Transactional
@@ -65,7 +74,7 @@ public class CartaoService {
         novoCartao.setSenha(request.senha()); // Lembre-se de hashear a senha no mundo real
 
         if (TipoCartao.CREDITO.equals(request.tipoCartao())) {
-            novoCartao.setLimiteCredito(categoriaCliente.getLimiteCreditoPadrao());
+            novoCartao.setLimiteCredito(gerenciadorTarifas.tarifa(categoriaCliente).limiteCreditoPadrao());
             logger.info("Cartão de crédito para categoria {} com limite de R$ {}.", categoriaCliente.getDescricao(), novoCartao.getLimiteCredito());
         } else {
             novoCartao.setLimiteDiarioDebito(request.limiteDiarioDebito());
@@ -85,20 +94,26 @@ public class CartaoService {
         return cartaoDao.buscarPorContaId(contaId);
     }
 
+    /**
+     * A autorização usa só os dados do cartão em cache (situação, senha, limites); a conta não é lida:
+     * no débito, o saldo é conferido pelo débito condicional (ou pelo razão) e a movimentação só
+     * precisa do ID da conta.
+     */
     @Transactional
     public void realizarPagamento(Integer cartaoId, PagamentoCartaoRequest request) {
-        Cartao cartao = buscarPorId(cartaoId);
+        AutorizacaoCartao autorizacao = cartaoDao.buscarAutorizacao(cartaoId)
+                .orElseThrow(() -> new EntidadeNaoEncontradaException("Cartão com ID " + cartaoId + " não encontrado."));
 
-        if (!cartao.isAtivo()) {
+        if (!autorizacao.ativo()) {
             throw new RegraNegocioException("O cartão está inativo.");
         }
 
-        if (!cartao.getSenha().equals(request.senha())) { // Placeholder para demonstração
+        if (!autorizacao.senhaConfere(request.senha())) { // Placeholder para demonstração
             throw new RegraNegocioException("Senha do cartão incorreta.");
         }
 
-        if (TipoCartao.CREDITO.equals(cartao.getTipoCartao())) {
-            BigDecimal limiteDisponivelAtual = cartao.getLimiteCredito();
+        if (TipoCartao.CREDITO.equals(autorizacao.tipoCartao())) {
+            BigDecimal limiteDisponivelAtual = autorizacao.limiteCredito();
 
             if (limiteDisponivelAtual.compareTo(request.valor()) < 0) {
                 throw new RegraNegocioException("Limite de crédito insuficiente.");
@@ -106,7 +121,9 @@ public class CartaoService {
 
             Movimentacao movimentacao = new Movimentacao();
             movimentacao.setTipo(TipoMovimentacao.COMPRA_CREDITO);
-            movimentacao.setValor(request.valor().doubleValue());
+            movimentacao.setValorCentavos(Centavos.deReais(request.valor()));
+            Cartao cartao = new Cartao();
+            cartao.setId(autorizacao.id());
             movimentacao.setCartao(cartao); // Associa a movimentação ao cartão
             movimentacao.setDescricao(request.descricao());
             movimentacao.setDataHora(LocalDateTime.now()); // Garante que a data/hora é atual
@@ -114,27 +131,29 @@ public class CartaoService {
 
             logger.info("Pagamento de R$ {} no crédito para o cartão ID {} aprovado.", request.valor(), cartaoId);
 
-        } else if (TipoCartao.DEBITO.equals(cartao.getTipoCartao())) {
-            Conta conta = contaDao.buscarPorId(cartao.getConta().getId().longValue())
-                    .orElseThrow(() -> new EntidadeNaoEncontradaException("Conta associada ao cartão não encontrada."));
-
-            if (conta.getSaldo().compareTo(request.valor()) < 0) {
-                throw new RegraNegocioException("Saldo insuficiente na conta.");
-            }
-            if (cartao.getLimiteDiarioDebito() != null && request.valor().compareTo(cartao.getLimiteDiarioDebito()) > 0) {
+        } else if (TipoCartao.DEBITO.equals(autorizacao.tipoCartao())) {
+            if (autorizacao.limiteDiarioDebito() != null && request.valor().compareTo(autorizacao.limiteDiarioDebito()) > 0) {
                 throw new RegraNegocioException("Valor excede o limite diário de transação.");
             }
 
-            conta.setSaldo(conta.getSaldo().subtract(request.valor()));
-            contaDao.atualizar(conta); // Presume que você tem um método atualizar na ContaDao
-
+            Conta conta = new ContaCorrente();
+            conta.setId(autorizacao.idConta());
             Movimentacao movimentacao = new Movimentacao();
             movimentacao.setTipo(TipoMovimentacao.SAQUE); // Ou TipoMovimentacao.PAGAMENTO_DEBITO
-            movimentacao.setValor(request.valor().doubleValue());
+            movimentacao.setValorCentavos(Centavos.deReais(request.valor()));
             movimentacao.setContaOrigem(conta);
             movimentacao.setDescricao(request.descricao());
             movimentacao.setDataHora(LocalDateTime.now());
-            movimentacaoDao.salvar(movimentacao);
+
+            if (razaoContabil.isHabilitado()) {
+                razaoContabil.efetivar(movimentacao, "Saldo insuficiente na conta.");
+            } else {
+                gerenciadorBloqueio.bloquearAteFimDaTransacao(conta.getId());
+                if (!contaDao.debitar(conta.getId(), request.valor())) {
+                    throw new RegraNegocioException("Saldo insuficiente na conta.");
+                }
+                movimentacaoDao.salvar(movimentacao);
+            }
 
             logger.info("Pagamento de R$ {} no débito para o cartão ID {} aprovado.", request.valor(), cartaoId);
         }
@@ -180,21 +199,24 @@ public class CartaoService {
         }
 
         Conta contaPagamento = cartao.getConta(); // A conta associada ao cartão
-        if (contaPagamento.getSaldo().compareTo(valorPagamento) < 0) {
-            throw new RegraNegocioException("Saldo insuficiente na conta para pagar a fatura.");
-        }
-
-        contaPagamento.setSaldo(contaPagamento.getSaldo().subtract(valorPagamento));
-        contaDao.atualizar(contaPagamento);
-
         Movimentacao movimentacaoPagamento = new Movimentacao();
         movimentacaoPagamento.setTipo(TipoMovimentacao.PAGAMENTO_FATURA);
-        movimentacaoPagamento.setValor(valorPagamento.doubleValue());
+        movimentacaoPagamento.setValorCentavos(Centavos.deReais(valorPagamento));
         movimentacaoPagamento.setContaOrigem(contaPagamento); // A conta que pagou
         movimentacaoPagamento.setCartao(cartao); // O cartão cuja fatura foi paga
         movimentacaoPagamento.setDescricao("Pagamento de fatura do cartão " + cartao.getNumero());
         movimentacaoPagamento.setDataHora(LocalDateTime.now());
-        movimentacaoDao.salvar(movimentacaoPagamento);
+
+        if (razaoContabil.isHabilitado()) {
+            razaoContabil.efetivar(movimentacaoPagamento, "Saldo insuficiente na conta para pagar a fatura.");
+        } else {
+            gerenciadorBloqueio.bloquearAteFimDaTransacao(contaPagamento.getId());
+            if (!contaDao.debitar(contaPagamento.getId(), valorPagamento)) {
+                throw new RegraNegocioException("Saldo insuficiente na conta para pagar a fatura.");
+            }
+            contaPagamento.setSaldo(contaPagamento.getSaldo().subtract(valorPagamento));
+            movimentacaoDao.salvar(movimentacaoPagamento);
+        }
 
         logger.info("Pagamento de fatura de R$ {} para o cartão ID {} realizado com sucesso.", valorPagamento, cartaoId);
     }
@@ -221,9 +243,11 @@ public class CartaoService {
 
         List<Movimentacao> gastosNoMes = movimentacaoDao.buscarGastosCreditoPorCartaoEMes(cartaoId, mesReferencia);
 
-        BigDecimal totalGasto = gastosNoMes.stream()
-                .map(m -> BigDecimal.valueOf(m.getValor()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalGastoCentavos = 0;
+        for (Movimentacao gasto : gastosNoMes) {
+            totalGastoCentavos += gasto.getValorCentavos();
+        }
+        BigDecimal totalGasto = Centavos.paraReais(totalGastoCentavos);
 
         BigDecimal limiteCredito = cartao.getLimiteCredito();
         BigDecimal oitentaPorCentoDoLimite = limiteCredito.multiply(new BigDecimal("0.80"));
@@ -5,7 +5,10 @@ import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaExc
 import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
 import com.agsilvamhm.bancodigital.repository.EnderecoDao;
 import com.agsilvamhm.bancodigital.model.*;
+import com.agsilvamhm.bancodigital.repository.CartaoDao;
 import com.agsilvamhm.bancodigital.repository.ClienteDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
 
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
@@ -23,11 +26,18 @@ public class ClienteService {
 
     private final ClienteDao clienteDao;
     private final EnderecoDao enderecoDao;
+    private final ContaDao contaDao;
+    private final CartaoDao cartaoDao;
+    private final DiretorioChavesPix diretorioChavesPix;
 
     @Autowired
-    public ClienteService(ClienteDao clienteDao, EnderecoDao enderecoDao) {
+    public ClienteService(ClienteDao clienteDao, EnderecoDao enderecoDao, ContaDao contaDao, CartaoDao cartaoDao,
+                          DiretorioChavesPix diretorioChavesPix) {
         this.clienteDao = clienteDao;
         this.enderecoDao = enderecoDao;
+        this.contaDao = contaDao;
+        this.cartaoDao = cartaoDao;
+        this.diretorioChavesPix = diretorioChavesPix;
     }
 
     @Transactional
@@ -46,6 +56,7 @@ public class ClienteService {
             endereco.setId(idEndereco);
 
             clienteDao.salvar(cliente);
+            diretorioChavesPix.registrarCliente(cliente.getCpf());
             logger.info("Serviço: Cliente com CPF {} foi criado com sucesso.", cliente.getCpf());
 
             return cliente;
@@ -85,6 +96,7 @@ public class ClienteService {
         clienteExistente.setEndereco(enderecoParaAtualizar); // Associa o endereço atualizado
 
         clienteDao.atualizar(clienteExistente);
+        contaDao.limparCache(); // As contas em cache carregam nome e categoria do cliente
         logger.info("Serviço: Cliente com ID {} foi atualizado com sucesso.", id);
 
         return clienteExistente;
@@ -97,6 +109,9 @@ public class ClienteService {
         Cliente cliente = buscarPorId(id);
         Integer idEndereco = cliente.getEndereco().getId();
         clienteDao.deletar(id);
+        contaDao.limparCache(); // A exclusão do cliente apaga as contas e os cartões em cascata
+        cartaoDao.limparCache();
+        diretorioChavesPix.removerCliente(cliente.getCpf());
         enderecoDao.deletar(idEndereco);
         logger.info("Serviço: Cliente com ID {} e endereço associado ID {} foram deletados com sucesso.", id, idEndereco);
     }
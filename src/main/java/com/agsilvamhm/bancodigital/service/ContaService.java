@@ -2,39 +2,74 @@ package com.agsilvamhm.bancodigital.service;
 
 import com.agsilvamhm.bancodigital.repository.ClienteDao;
 import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
 import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
 import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaException;
 import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
 import com.agsilvamhm.bancodigital.controller.exception.RepositorioException;
 import com.agsilvamhm.bancodigital.model.*;
 import com.agsilvamhm.bancodigital.model.dto.*;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 @Service
 public class ContaService {
 
     private static final Logger logger = LoggerFactory.getLogger(ContaService.class);
+    public static final int TAMANHO_MAXIMO_PAGINA = 500;
 
     private final ContaDao contaDao;
     private final ClienteDao clienteDao;
+    private final DiretorioChavesPix diretorioChavesPix;
     private final MovimentacaoDao movimentacaoDao;
+    private final GerenciadorBloqueioContas gerenciadorBloqueio;
+    private final MotorTransferenciasParticionado motorParticionado;
+    private final RetentativaOtimista retentativaOtimista;
+    private final RazaoContabil razaoContabil;
+    private final GerenciadorTarifas gerenciadorTarifas;
+    private final TransactionTemplate transacao;
+    private final ModoConcorrencia modoConcorrencia;
 
     @Autowired
-    public ContaService(ContaDao contaDao, ClienteDao clienteDao, MovimentacaoDao movimentacaoDao) {
+    public ContaService(ContaDao contaDao, ClienteDao clienteDao, DiretorioChavesPix diretorioChavesPix,
+                        MovimentacaoDao movimentacaoDao,
+                        GerenciadorBloqueioContas gerenciadorBloqueio, MotorTransferenciasParticionado motorParticionado,
+                        RetentativaOtimista retentativaOtimista, RazaoContabil razaoContabil,
+                        GerenciadorTarifas gerenciadorTarifas, PlatformTransactionManager transactionManager,
+                        @Value("${bancodigital.concorrencia.modo:ATOMICO}") ModoConcorrencia modoConcorrencia) {
+        if (motorParticionado.isHabilitado() && razaoContabil.isHabilitado()) {
+            throw new IllegalStateException("O motor particionado e o modo razão não podem ser habilitados juntos.");
+        }
         this.contaDao = contaDao;
         this.clienteDao = clienteDao;
+        this.diretorioChavesPix = diretorioChavesPix;
         this.movimentacaoDao = movimentacaoDao;
+        this.gerenciadorBloqueio = gerenciadorBloqueio;
+        this.motorParticionado = motorParticionado;
+        this.retentativaOtimista = retentativaOtimista;
+        this.razaoContabil = razaoContabil;
+        this.gerenciadorTarifas = gerenciadorTarifas;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.modoConcorrencia = modoConcorrencia;
     }
 
     @Transactional
@@ -62,6 +97,7 @@ public class ContaService {
 
         try {
             Conta contaSalva = contaDao.salvar(novaConta);
+            diretorioChavesPix.registrarConta(cliente.getCpf(), contaSalva.getId());
             logger.info("Serviço: Conta ID {} para o cliente {} foi criada com sucesso.", contaSalva.getId(), cliente.getNome());
             return contaSalva;
         } catch (DataAccessException ex) {
@@ -73,21 +109,23 @@ public class ContaService {
     public Conta buscarPorId(Long id) {
         Objects.requireNonNull(id, "O ID da conta não pode ser nulo.");
         return contaDao.buscarPorId(id)
+                .map(this::comSaldoDoRazao)
                 .orElseThrow(() -> new EntidadeNaoEncontradaException("Conta com ID " + id + " não encontrada."));
     }
 
     public Conta buscarPorNumero(String numero) {
         Objects.requireNonNull(numero, "O número da conta não pode ser nulo.");
         return contaDao.buscarPorNumero(numero)
+                .map(this::comSaldoDoRazao)
                 .orElseThrow(() -> new EntidadeNaoEncontradaException("Conta com número " + numero + " não encontrada."));
     }
 
     public List<Conta> listarTodasContasCorrente() {
-        return contaDao.listarContasCorrente();
+        return comSaldosDoRazao(contaDao.listarContasCorrente());
     }
 
     public List<Conta> listarTodasContasPoupanca() {
-        return contaDao.listarContasPoupanca();
+        return comSaldosDoRazao(contaDao.listarContasPoupanca());
     }
 
     @Transactional
@@ -95,6 +133,22 @@ public class ContaService {
         contaDao.atualizar(conta);
     }
 
+    // No modo razão, conta.saldo é apenas uma projeção que pode estar defasada desde o último snapshot
+    private Conta comSaldoDoRazao(Conta conta) {
+        if (razaoContabil.isHabilitado()) {
+            conta.setSaldo(razaoContabil.consultarSaldo(conta.getId()));
+        }
+        return conta;
+    }
+
+    private List<Conta> comSaldosDoRazao(List<Conta> contas) {
+        if (razaoContabil.isHabilitado() && !contas.isEmpty()) {
+            Map<Long, BigDecimal> saldos = razaoContabil.consultarSaldos();
+            contas.forEach(conta -> conta.setSaldo(saldos.getOrDefault(conta.getId(), conta.getSaldo())));
+        }
+        return contas;
+    }
+
     private void validarNovaConta(CriarContaRequest request) {
         if (request.numero() == null || request.numero().trim().isEmpty()) {
             throw new IllegalArgumentException("O número da conta não pode ser vazio.");
@@ -113,7 +167,6 @@ public class ContaService {
         return conta.getSaldo();
     }
 
-    @Transactional
     public Movimentacao realizarTransferencia(Long idContaOrigem, TransferenciaRequestDTO request) {
         if (request.valor().compareTo(BigDecimal.ZERO) <= 0) {
             throw new RegraNegocioException("O valor da transferência deve ser positivo.");
@@ -125,109 +178,129 @@ public class ContaService {
         if (contaOrigem.getId().equals(contaDestino.getId())) {
             throw new RegraNegocioException("A conta de origem e destino não podem ser a mesma.");
         }
-        if (contaOrigem.getSaldo().compareTo(request.valor()) < 0) {
-            throw new RegraNegocioException("Saldo insuficiente na conta de origem.");
-        }
-        contaOrigem.setSaldo(contaOrigem.getSaldo().subtract(request.valor()));
-        contaDestino.setSaldo(contaDestino.getSaldo().add(request.valor()));
-        contaDao.atualizar(contaOrigem);
-        contaDao.atualizar(contaDestino);
-        Movimentacao movimentacao = new Movimentacao();
-        movimentacao.setTipo(TipoMovimentacao.TRANSFERENCIA);
-        movimentacao.setValor(request.valor().doubleValue());
-        movimentacao.setDataHora(LocalDateTime.now());
-        movimentacao.setContaOrigem(contaOrigem);
-        movimentacao.setContaDestino(contaDestino);
-        movimentacao.setDescricao(request.descricao());
-        movimentacaoDao.salvar(movimentacao);
+        Movimentacao movimentacao = novaMovimentacao(TipoMovimentacao.TRANSFERENCIA, request.valor(),
+                contaOrigem, contaDestino, request.descricao());
+        efetivar(movimentacao, request.valor(), "Saldo insuficiente na conta de origem.");
         logger.info("Transferência de R$ {} da conta #{} para #{} realizada com sucesso.",
                 request.valor(), contaOrigem.getNumero(), contaDestino.getNumero());
         return movimentacao;
     }
 
-    @Transactional
     public Movimentacao realizarDeposito(Long idConta, DepositoRequestDTO request) {
         Conta conta = buscarPorId(idConta);
-        BigDecimal novoSaldo = conta.getSaldo().add(request.valor());
-        conta.setSaldo(novoSaldo);
-        contaDao.atualizar(conta);
-        Movimentacao movimentacao = new Movimentacao();
-        movimentacao.setTipo(TipoMovimentacao.DEPOSITO);
-        movimentacao.setValor(request.valor().doubleValue());
-        movimentacao.setDataHora(LocalDateTime.now());
-        movimentacao.setContaOrigem(null);
-        movimentacao.setContaDestino(conta);
-        movimentacao.setDescricao(request.descricao() != null ? request.descricao() : "Depósito em conta");
-        movimentacaoDao.salvar(movimentacao);
+        Movimentacao movimentacao = novaMovimentacao(TipoMovimentacao.DEPOSITO, request.valor(), null, conta,
+                request.descricao() != null ? request.descricao() : "Depósito em conta");
+        efetivar(movimentacao, request.valor(), null);
         logger.info("Depósito de R$ {} na conta #{} realizado com sucesso.", request.valor(), conta.getNumero());
         return movimentacao;
     }
 
-    @Transactional
     public Movimentacao realizarSaque(Long idConta, OperacaoContaDTO request) {
         Conta conta = buscarPorId(idConta);
-        if (conta.getSaldo().compareTo(request.valor()) < 0) {
-            throw new RegraNegocioException("Saldo insuficiente para realizar o saque.");
-        }
-        BigDecimal novoSaldo = conta.getSaldo().subtract(request.valor());
-        conta.setSaldo(novoSaldo);
-        contaDao.atualizar(conta);
-        Movimentacao movimentacao = new Movimentacao();
-        movimentacao.setTipo(TipoMovimentacao.SAQUE);
-        movimentacao.setValor(request.valor().doubleValue());
-        movimentacao.setDataHora(LocalDateTime.now());
-        movimentacao.setContaOrigem(conta);
-        movimentacao.setContaDestino(null);
-        movimentacao.setDescricao(request.descricao() != null ? request.descricao() : "Saque em conta");
-        movimentacaoDao.salvar(movimentacao);
+        Movimentacao movimentacao = novaMovimentacao(TipoMovimentacao.SAQUE, request.valor(), conta, null,
+                request.descricao() != null ? request.descricao() : "Saque em conta");
+        efetivar(movimentacao, request.valor(), "Saldo insuficiente para realizar o saque.");
         logger.info("Saque de R$ {} da conta #{} realizado com sucesso.", request.valor(), conta.getNumero());
         return movimentacao;
     }
 
-    @Transactional
     public Movimentacao realizarPix(Long idContaOrigem, PixRequestDTO request) {
         Conta contaOrigem = buscarPorId(idContaOrigem);
-        Cliente clienteDestino = clienteDao.buscarPorCpf(request.chavePix())
-                .orElseThrow(() -> new EntidadeNaoEncontradaException(
-                        "Nenhuma conta encontrada para a Chave PIX (CPF) fornecida."));
-        List<Conta> contasDestino = contaDao.buscarPorClienteId(clienteDestino.getId());
-        if (contasDestino.isEmpty()) {
+        Long idContaDestino = diretorioChavesPix.resolver(request.chavePix());
+        if (idContaDestino == null) {
+            throw new EntidadeNaoEncontradaException("Nenhuma conta encontrada para a Chave PIX (CPF) fornecida.");
+        }
+        Conta contaDestino = idContaDestino == DiretorioChavesPix.SEM_CONTA ? null
+                : contaDao.buscarPorId(idContaDestino).orElse(null);
+        if (contaDestino == null) {
             throw new EntidadeNaoEncontradaException(
                     "O destinatário da Chave PIX não possui uma conta ativa.");
         }
-        Conta contaDestino = contasDestino.get(0);
         if (contaOrigem.getId().equals(contaDestino.getId())) {
             throw new RegraNegocioException("A conta de origem e destino não podem ser a mesma.");
         }
-        if (contaOrigem.getSaldo().compareTo(request.valor()) < 0) {
-            throw new RegraNegocioException("Saldo insuficiente para realizar o PIX.");
-        }
-        contaOrigem.setSaldo(contaOrigem.getSaldo().subtract(request.valor()));
-        contaDestino.setSaldo(contaDestino.getSaldo().add(request.valor()));
-        contaDao.atualizar(contaOrigem);
-        contaDao.atualizar(contaDestino);
-        Movimentacao movimentacao = new Movimentacao();
-        movimentacao.setTipo(TipoMovimentacao.PIX);
-        movimentacao.setValor(request.valor().doubleValue());
-        movimentacao.setDataHora(LocalDateTime.now());
-        movimentacao.setContaOrigem(contaOrigem);
-        movimentacao.setContaDestino(contaDestino);
-        movimentacao.setDescricao(request.descricao());
-        movimentacaoDao.salvar(movimentacao);
+        Movimentacao movimentacao = novaMovimentacao(TipoMovimentacao.PIX, request.valor(),
+                contaOrigem, contaDestino, request.descricao());
+        efetivar(movimentacao, request.valor(), "Saldo insuficiente para realizar o PIX.");
         logger.info("PIX de R$ {} da conta #{} para a Chave Pix '{}' realizado com sucesso.",
                 request.valor(), contaOrigem.getNumero(), request.chavePix());
         return movimentacao;
     }
 
-    public List<Movimentacao> listarMovimentacoesPorConta(Long idConta) {
+    public PaginaMovimentacoesDTO listarMovimentacoesPorConta(Long idConta, String cursor, int tamanhoPagina) {
+        return listarMovimentacoesPorConta(idConta, cursor, tamanhoPagina, false, FiltroExtratoDTO.SEM_FILTRO);
+    }
+
+    /**
+     * Página do extrato, da movimentação mais recente para a mais antiga.
+     *
+     * @param cursor       token devolvido em {@link PaginaMovimentacoesDTO#proximoCursor()}, ou nulo para a primeira página
+     * @param tamanhoPagina quantidade de movimentações por página, de 1 a {@value #TAMANHO_MAXIMO_PAGINA}
+     * @param comSaldo     inclui o saldo após cada movimentação; as páginas seguintes continuam do saldo
+     *                     guardado no cursor, sem somar de novo as movimentações já exibidas
+     * @param filtro       período, tipos e faixa de valor; as páginas seguintes devem repetir o mesmo filtro
+     */
+    public PaginaMovimentacoesDTO listarMovimentacoesPorConta(Long idConta, String cursor, int tamanhoPagina, boolean comSaldo,
+                                                             FiltroExtratoDTO filtro) {
+        if (tamanhoPagina < 1 || tamanhoPagina > TAMANHO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("O tamanho da página deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA + ".");
+        }
+        CursorExtratoDTO posicao = cursor != null && !cursor.isBlank() ? CursorExtratoDTO.decodificar(cursor) : null;
+        if (comSaldo && posicao != null && posicao.saldoCentavos() == null) {
+            throw new IllegalArgumentException("O cursor informado não contém saldo. Reinicie o extrato com saldo a partir da primeira página.");
+        }
+        // O saldo de cada linha é calculado a partir das linhas vizinhas na página, que o filtro removeria
+        if (comSaldo && !filtro.isVazio()) {
+            throw new IllegalArgumentException("O extrato com saldo não pode ser combinado com filtros.");
+        }
         logger.info("Buscando extrato para a conta ID: {}", idConta);
-        this.buscarPorId(idConta);
-        List<Movimentacao> movimentacoes = movimentacaoDao.buscarPorContaId(idConta);
+
+        // Uma linha a mais indica se existe próxima página, sem precisar de COUNT
+        List<LinhaExtratoDTO> movimentacoes;
+        if (comSaldo) {
+            Long saldoInicial = posicao != null ? posicao.saldoCentavos()
+                    // No modo razão conta.saldo é só uma projeção; fora dele o DAO lê o saldo na mesma consulta
+                    : razaoContabil.isHabilitado() ? Centavos.deReais(razaoContabil.consultarSaldo(idConta)) : null;
+            movimentacoes = movimentacaoDao.buscarExtratoComSaldoPorContaId(idConta, posicao, tamanhoPagina + 1, saldoInicial);
+        } else {
+            movimentacoes = movimentacaoDao.buscarExtratoPorContaId(idConta, posicao, filtro, tamanhoPagina + 1);
+        }
+        // Qualquer linha devolvida já prova que a conta existe (chave estrangeira); só a página vazia consulta a conta
+        if (movimentacoes.isEmpty() && !contaDao.existe(idConta)) {
+            throw new EntidadeNaoEncontradaException("Conta com ID " + idConta + " não encontrada.");
+        }
+        String proximoCursor = null;
+        if (movimentacoes.size() > tamanhoPagina) {
+            // O saldo após a linha excedente é o ponto de partida da próxima página
+            Long saldoProximaPagina = movimentacoes.get(tamanhoPagina).saldoAposCentavos();
+            movimentacoes = movimentacoes.subList(0, tamanhoPagina);
+            LinhaExtratoDTO ultima = movimentacoes.get(tamanhoPagina - 1);
+            proximoCursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id(), saldoProximaPagina).codificar();
+        }
         logger.info("Encontradas {} movimentações para a conta ID: {}", movimentacoes.size(), idConta);
-        return movimentacoes;
+        return new PaginaMovimentacoesDTO(movimentacoes, proximoCursor);
+    }
+
+    /**
+     * Totais do mês por tipo de movimentação, lidos do resumo mensal mantido a cada gravação.
+     */
+    public List<ResumoMensalDTO> consultarResumoMensal(Long idConta, YearMonth mes) {
+        List<ResumoMensalDTO> resumo = movimentacaoDao.buscarResumoMensal(idConta, mes);
+        if (resumo.isEmpty() && !contaDao.existe(idConta)) {
+            throw new EntidadeNaoEncontradaException("Conta com ID " + idConta + " não encontrada.");
+        }
+        return resumo;
     }
 
+    /**
+     * Regenera os resumos mensais a partir das movimentações, por exemplo depois de uma carga feita
+     * direto no banco. Deve ser executada sem operações de saldo em andamento.
+     */
     @Transactional
+    public int reconstruirResumosMensais() {
+        return movimentacaoDao.reconstruirResumosMensais();
+    }
+
     public Movimentacao aplicarTaxaManutencao(Long idConta) {
         logger.info("Iniciando aplicação de taxa de manutenção para a conta ID: {}", idConta);
         Conta conta = this.buscarPorId(idConta);
@@ -240,30 +313,19 @@ public class ContaService {
             throw new RegraNegocioException("A conta não possui um cliente ou categoria associada.");
         }
         CategoriaCliente categoria = cliente.getCategoria();
-        BigDecimal taxa = categoria.getTaxaManutencao();
+        BigDecimal taxa = gerenciadorTarifas.tarifa(categoria).taxaManutencao();
         if (taxa.compareTo(BigDecimal.ZERO) <= 0) {
             logger.info("Cliente da conta #{} é da categoria {} e está isento de taxa.", conta.getNumero(), categoria.getDescricao());
             return null;
         }
-        if (contaCorrente.getSaldo().compareTo(taxa) < 0) {
-            throw new RegraNegocioException("Saldo insuficiente para cobrança da taxa de manutenção.");
-        }
-        contaCorrente.setSaldo(contaCorrente.getSaldo().subtract(taxa));
-        contaDao.atualizar(contaCorrente);
+        Movimentacao movimentacaoTaxa = novaMovimentacao(TipoMovimentacao.TAXA_MANUTENCAO, taxa, contaCorrente, null,
+                "Cobrança de taxa de manutenção mensal - Categoria: " + categoria.getDescricao());
+        efetivar(movimentacaoTaxa, taxa, "Saldo insuficiente para cobrança da taxa de manutenção.");
         logger.info("Saldo da conta #{} atualizado após cobrança de taxa de R$ {}.", conta.getNumero(), taxa);
-        Movimentacao movimentacaoTaxa = new Movimentacao();
-        movimentacaoTaxa.setTipo(TipoMovimentacao.TAXA_MANUTENCAO);
-        movimentacaoTaxa.setValor(taxa.doubleValue());
-        movimentacaoTaxa.setDataHora(LocalDateTime.now());
-        movimentacaoTaxa.setDescricao("Cobrança de taxa de manutenção mensal - Categoria: " + categoria.getDescricao());
-        movimentacaoTaxa.setContaOrigem(contaCorrente);
-        movimentacaoTaxa.setContaDestino(null);
-        movimentacaoDao.salvar(movimentacaoTaxa);
         logger.info("Movimentação de taxa registrada para conta #{}.", conta.getNumero());
         return movimentacaoTaxa;
     }
 
-    @Transactional
     public Movimentacao aplicarRendimentos(Long idConta) {
         logger.info("Iniciando aplicação de rendimentos para a conta ID: {}", idConta);
         Conta conta = this.buscarPorId(idConta);
@@ -276,25 +338,110 @@ public class ContaService {
             throw new RegraNegocioException("A conta não possui um cliente ou categoria associada.");
         }
         CategoriaCliente categoria = cliente.getCategoria();
-        BigDecimal taxaRendimentoMensal = categoria.getTaxaRendimentoMensalEquivalente();
+        BigDecimal taxaRendimentoMensal = gerenciadorTarifas.tarifa(categoria).taxaRendimentoMensal();
         BigDecimal valorRendimento = contaPoupanca.getSaldo().multiply(taxaRendimentoMensal)
                 .setScale(2, RoundingMode.HALF_EVEN);
         if (valorRendimento.compareTo(BigDecimal.ZERO) <= 0) {
             logger.warn("Rendimento para a conta #{} resultou em R$ 0,00. Nenhuma operação realizada.", conta.getNumero());
             return null;
         }
-        contaPoupanca.setSaldo(contaPoupanca.getSaldo().add(valorRendimento));
-        contaDao.atualizar(contaPoupanca);
+        Movimentacao movimentacaoRendimento = novaMovimentacao(TipoMovimentacao.RENDIMENTO, valorRendimento, null, contaPoupanca,
+                "Crédito de rendimento mensal - Categoria: " + categoria.getDescricao());
+        efetivar(movimentacaoRendimento, valorRendimento, null);
         logger.info("Saldo da conta #{} atualizado após aplicação de rendimentos no valor de R$ {}.", conta.getNumero(), valorRendimento);
-        Movimentacao movimentacaoRendimento = new Movimentacao();
-        movimentacaoRendimento.setTipo(TipoMovimentacao.RENDIMENTO);
-        movimentacaoRendimento.setValor(valorRendimento.doubleValue());
-        movimentacaoRendimento.setDataHora(LocalDateTime.now());
-        movimentacaoRendimento.setDescricao("Crédito de rendimento mensal - Categoria: " + categoria.getDescricao());
-        movimentacaoRendimento.setContaOrigem(null);
-        movimentacaoRendimento.setContaDestino(contaPoupanca);
-        movimentacaoDao.salvar(movimentacaoRendimento);
         logger.info("Movimentação de rendimento registrada para conta #{}.", conta.getNumero());
         return movimentacaoRendimento;
     }
-}
\ No newline at end of file
+
+    private Movimentacao novaMovimentacao(TipoMovimentacao tipo, BigDecimal valor, Conta contaOrigem, Conta contaDestino, String descricao) {
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setTipo(tipo);
+        movimentacao.setValorCentavos(Centavos.deReais(valor));
+        movimentacao.setDataHora(LocalDateTime.now());
+        movimentacao.setContaOrigem(contaOrigem);
+        movimentacao.setContaDestino(contaDestino);
+        movimentacao.setDescricao(descricao);
+        return movimentacao;
+    }
+
+    // As operações de saldo não abrem transação antes daqui. Com o motor particionado habilitado e sem
+    // transação do chamador, a execução é delegada à partição dona da conta, e a thread do chamador espera
+    // a confirmação sem segurar uma conexão do pool. Dentro de uma transação do chamador (por exemplo, a da
+    // Idempotency-Key), a operação é executada nela, para ser confirmada ou desfeita junto com o restante.
+    private Movimentacao efetivar(Movimentacao movimentacao, BigDecimal valor, String mensagemSaldoInsuficiente) {
+        if (motorParticionado.isHabilitado() && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return motorParticionado.executar(movimentacao, valor, mensagemSaldoInsuficiente);
+        }
+        return transacao.execute(status -> efetivarNaTransacao(movimentacao, valor, mensagemSaldoInsuficiente));
+    }
+
+    // Aplica as pernas da movimentação (débito na origem, crédito no destino) e a registra;
+    // no modo razão, as pernas viram lançamentos e conta.saldo não é atualizado.
+    private Movimentacao efetivarNaTransacao(Movimentacao movimentacao, BigDecimal valor, String mensagemSaldoInsuficiente) {
+        if (razaoContabil.isHabilitado()) {
+            return razaoContabil.efetivar(movimentacao, mensagemSaldoInsuficiente);
+        }
+        Conta contaOrigem = movimentacao.getContaOrigem();
+        Conta contaDestino = movimentacao.getContaDestino();
+        bloquearContas(Stream.of(contaOrigem, contaDestino).filter(Objects::nonNull).toArray(Conta[]::new));
+        if (contaOrigem != null) {
+            debitar(contaOrigem, valor, mensagemSaldoInsuficiente);
+        }
+        if (contaDestino != null) {
+            creditar(contaDestino, valor);
+        }
+        movimentacaoDao.salvar(movimentacao);
+        return movimentacao;
+    }
+
+    // Primeiro o bloqueio em memória (quando habilitado), depois, no modo pessimista, as linhas no banco.
+    // O bloqueio de linhas só é necessário com duas contas: é o que evita deadlock entre transferências
+    // em sentidos opostos para o mesmo par de contas. Ambos valem até o fim da transação.
+    private void bloquearContas(Conta... contas) {
+        Long[] ids = Arrays.stream(contas).map(Conta::getId).toArray(Long[]::new);
+        gerenciadorBloqueio.bloquearAteFimDaTransacao(ids);
+        if (modoConcorrencia == ModoConcorrencia.PESSIMISTA && ids.length > 1) {
+            contaDao.bloquearParaAtualizacao(ids);
+        }
+    }
+
+    // O débito é condicional no próprio UPDATE; o saldo do objeto em memória só é ajustado
+    // para refletir a operação no recibo devolvido ao chamador.
+    private void debitar(Conta conta, BigDecimal valor, String mensagemSaldoInsuficiente) {
+        if (modoConcorrencia == ModoConcorrencia.OTIMISTA) {
+            atualizarOtimista(conta, valor.negate(), mensagemSaldoInsuficiente);
+            return;
+        }
+        if (!contaDao.debitar(conta.getId(), valor)) {
+            throw new RegraNegocioException(mensagemSaldoInsuficiente);
+        }
+        conta.setSaldo(conta.getSaldo().subtract(valor));
+    }
+
+    private void creditar(Conta conta, BigDecimal valor) {
+        if (modoConcorrencia == ModoConcorrencia.OTIMISTA) {
+            atualizarOtimista(conta, valor, null);
+            return;
+        }
+        if (!contaDao.creditar(conta.getId(), valor)) {
+            throw new EntidadeNaoEncontradaException("Conta com ID " + conta.getId() + " não encontrada para crédito.");
+        }
+        conta.setSaldo(conta.getSaldo().add(valor));
+    }
+
+    // Na primeira tentativa usa o saldo e a versão lidos no início da operação; nas seguintes relê a conta.
+    // O compare-and-set em ContaDao.atualizar lança ConflitoConcorrenciaException se a versão mudou.
+    private void atualizarOtimista(Conta conta, BigDecimal variacao, String mensagemSaldoInsuficiente) {
+        retentativaOtimista.executar(tentativa -> {
+            Conta atual = tentativa == 0 ? conta : buscarPorId(conta.getId());
+            BigDecimal novoSaldo = atual.getSaldo().add(variacao);
+            if (novoSaldo.signum() < 0) {
+                throw new RegraNegocioException(mensagemSaldoInsuficiente);
+            }
+            atual.setSaldo(novoSaldo);
+            contaDao.atualizar(atual);
+            conta.setSaldo(novoSaldo);
+            conta.setVersao(atual.getVersao());
+        });
+    }
+}
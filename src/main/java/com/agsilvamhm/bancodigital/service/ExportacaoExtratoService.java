@@ -0,0 +1,130 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaException;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exporta o extrato completo de uma conta (auditorias de vários anos) escrevendo cada linha na saída
+ * assim que ela é lida do banco, em CSV ou NDJSON. Nada é acumulado: o uso de memória é o mesmo para
+ * dez ou dez milhões de movimentações.
+ */
+@Service
+public class ExportacaoExtratoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacaoExtratoService.class);
+    private static final String CABECALHO_CSV = "id,data_hora,tipo,valor,descricao,conta_origem,conta_destino";
+
+    private final ContaDao contaDao;
+    private final MovimentacaoDao movimentacaoDao;
+    private final ObjectMapper objectMapper;
+
+    public ExportacaoExtratoService(ContaDao contaDao, MovimentacaoDao movimentacaoDao, ObjectMapper objectMapper) {
+        this.contaDao = contaDao;
+        this.movimentacaoDao = movimentacaoDao;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Deve ser chamado antes de a resposta começar a ser escrita, enquanto ainda é possível responder com erro.
+     */
+    public void verificarConta(Long idConta) {
+        if (!contaDao.existe(idConta)) {
+            throw new EntidadeNaoEncontradaException("Conta com ID " + idConta + " não encontrada.");
+        }
+    }
+
+    /**
+     * Escreve o extrato da conta na saída, do mais antigo ao mais recente. A saída não é fechada.
+     *
+     * @return quantidade de movimentações exportadas.
+     */
+    public long exportar(Long idConta, FormatoExportacao formato, OutputStream saida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        long linhas;
+        try {
+            linhas = switch (formato) {
+                case CSV -> exportarCsv(idConta, escritor);
+                case NDJSON -> exportarNdjson(idConta, escritor);
+            };
+        } catch (UncheckedIOException e) {
+            // Falha ao escrever (por exemplo, cliente desconectado) propagada de dentro da leitura do ResultSet
+            throw e.getCause();
+        }
+        escritor.flush();
+        logger.info("Extrato da conta ID {} exportado em {}: {} movimentações.", idConta, formato, linhas);
+        return linhas;
+    }
+
+    private long exportarCsv(Long idConta, Writer escritor) throws IOException {
+        escritor.write(CABECALHO_CSV);
+        escritor.write('\n');
+        StringBuilder linha = new StringBuilder(128);
+        return movimentacaoDao.percorrerExtratoPorContaId(idConta, movimentacao -> {
+            linha.setLength(0);
+            linha.append(movimentacao.id()).append(',')
+                    .append(movimentacao.dataHora()).append(',')
+                    .append(movimentacao.tipo().name()).append(',')
+                    .append(movimentacao.valor().toPlainString()).append(',');
+            campoCsv(linha, movimentacao.descricao()).append(',');
+            campoCsv(linha, movimentacao.contaOrigemNumero()).append(',');
+            campoCsv(linha, movimentacao.contaDestinoNumero()).append('\n');
+            escrever(escritor, linha);
+        });
+    }
+
+    private long exportarNdjson(Long idConta, Writer escritor) throws IOException {
+        // Não fecha o escritor ao terminar: quem é dono da saída é o chamador
+        try (SequenceWriter sequencia = objectMapper.writerFor(LinhaExtratoDTO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(escritor)) {
+            long linhas = movimentacaoDao.percorrerExtratoPorContaId(idConta, movimentacao -> {
+                try {
+                    sequencia.write(movimentacao);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (linhas > 0) {
+                sequencia.flush();
+                escritor.write('\n');
+            }
+            return linhas;
+        }
+    }
+
+    // RFC 4180: campos com vírgula, aspas ou quebra de linha vão entre aspas, com as aspas duplicadas
+    private static StringBuilder campoCsv(StringBuilder linha, String valor) {
+        if (valor == null) {
+            return linha;
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return linha.append(valor);
+        }
+        return linha.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void escrever(Writer escritor, CharSequence conteudo) {
+        try {
+            escritor.append(conteudo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.agsilvamhm.bancodigital.service;
+
+public enum FormatoExportacao {
+    CSV("text/csv", "csv"),                  // Cabeçalho e uma linha por movimentação (RFC 4180)
+    NDJSON("application/x-ndjson", "ndjson"); // Um objeto JSON por linha, no mesmo formato do extrato paginado
+
+    private final String tipoConteudo;
+    private final String extensao;
+
+    FormatoExportacao(String tipoConteudo, String extensao) {
+        this.tipoConteudo = tipoConteudo;
+        this.extensao = extensao;
+    }
+
+    public String getTipoConteudo() {
+        return tipoConteudo;
+    }
+
+    public String getExtensao() {
+        return extensao;
+    }
+}
@@ -0,0 +1,191 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.dto.ContaDisputadaDTO;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioBloqueiosDTO;
+import com.agsilvamhm.bancodigital.model.dto.SegmentoBloqueioDTO;
+import com.agsilvamhm.bancodigital.util.metricas.HistogramaLatencia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueios em memória por conta, para implantações de nó único: operações sobre a mesma conta
+ * são serializadas aqui, antes de chegarem ao banco. As contas são distribuídas em um número fixo
+ * de segmentos (lock striping), e os bloqueios ficam retidos até o fim da transação corrente.
+ */
+@Component
+public class GerenciadorBloqueioContas {
+
+    private static final Logger logger = LoggerFactory.getLogger(GerenciadorBloqueioContas.class);
+    private static final int MAX_CONTAS_MONITORADAS = 10_000;
+
+    private final boolean habilitado;
+    private final long timeoutMs;
+    private final Segmento[] segmentos;
+    private final Map<Long, EsperaConta> esperasPorConta = new ConcurrentHashMap<>();
+    private final LongAdder timeouts = new LongAdder();
+
+    public GerenciadorBloqueioContas(@Value("${bancodigital.bloqueio-local.habilitado:false}") boolean habilitado,
+                                     @Value("${bancodigital.bloqueio-local.segmentos:256}") int quantidadeSegmentos,
+                                     @Value("${bancodigital.bloqueio-local.timeout-ms:5000}") long timeoutMs) {
+        if (quantidadeSegmentos <= 0) {
+            throw new IllegalArgumentException("A quantidade de segmentos de bloqueio deve ser positiva.");
+        }
+        this.habilitado = habilitado;
+        this.timeoutMs = timeoutMs;
+        this.segmentos = new Segmento[quantidadeSegmentos];
+        for (int i = 0; i < quantidadeSegmentos; i++) {
+            segmentos[i] = new Segmento(i);
+        }
+        logger.info("Bloqueio local de contas {} com {} segmentos.", habilitado ? "habilitado" : "desabilitado", quantidadeSegmentos);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Bloqueia os segmentos das contas informadas e os libera automaticamente quando a transação
+     * corrente terminar (commit ou rollback). Os segmentos são sempre adquiridos em ordem crescente,
+     * o que impede deadlock entre operações que envolvem as mesmas contas em sentidos opostos.
+     */
+    public void bloquearAteFimDaTransacao(Long... contaIds) {
+        if (!habilitado) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("O bloqueio de contas exige uma transação ativa.");
+        }
+
+        int[] indices = Arrays.stream(contaIds).mapToInt(this::indiceSegmento).distinct().sorted().toArray();
+        List<Segmento> adquiridos = new ArrayList<>(indices.length);
+        try {
+            for (int indice : indices) {
+                Segmento segmento = segmentos[indice];
+                adquirir(segmento, contaIds);
+                adquiridos.add(segmento);
+            }
+        } catch (RuntimeException e) {
+            liberar(adquiridos);
+            throw e;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                liberar(adquiridos);
+            }
+        });
+    }
+
+    public RelatorioBloqueiosDTO gerarRelatorio(int limiteContas) {
+        List<SegmentoBloqueioDTO> usados = Arrays.stream(segmentos)
+                .filter(s -> s.aquisicoes.sum() > 0)
+                .sorted(Comparator.comparingLong((Segmento s) -> s.aquisicoesComEspera.sum()).reversed())
+                .map(Segmento::toDTO)
+                .toList();
+
+        List<ContaDisputadaDTO> contasMaisDisputadas = esperasPorConta.entrySet().stream()
+                .map(e -> new ContaDisputadaDTO(e.getKey(), e.getValue().esperas.sum(), e.getValue().esperaTotalNanos.sum() / 1_000))
+                .sorted(Comparator.comparingLong(ContaDisputadaDTO::esperaTotalMicros).reversed())
+                .limit(limiteContas)
+                .toList();
+
+        long aquisicoes = Arrays.stream(segmentos).mapToLong(s -> s.aquisicoes.sum()).sum();
+        long aquisicoesComEspera = Arrays.stream(segmentos).mapToLong(s -> s.aquisicoesComEspera.sum()).sum();
+        return new RelatorioBloqueiosDTO(habilitado, segmentos.length, aquisicoes, aquisicoesComEspera,
+                timeouts.sum(), usados, contasMaisDisputadas);
+    }
+
+    private void adquirir(Segmento segmento, Long[] contaIds) {
+        segmento.aquisicoes.increment();
+        if (segmento.lock.tryLock()) {
+            segmento.espera.registrar(0);
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        boolean adquirido;
+        try {
+            adquirido = segmento.lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflitoConcorrenciaException("Operação interrompida enquanto aguardava a liberação da conta.");
+        }
+        long espera = System.nanoTime() - inicio;
+
+        segmento.aquisicoesComEspera.increment();
+        segmento.espera.registrar(espera);
+        for (Long contaId : contaIds) {
+            if (indiceSegmento(contaId) == segmento.indice) {
+                registrarEspera(contaId, espera);
+            }
+        }
+
+        if (!adquirido) {
+            timeouts.increment();
+            logger.warn("Timeout de {} ms aguardando o segmento de bloqueio {}.", timeoutMs, segmento.indice);
+            throw new ConflitoConcorrenciaException("A conta está ocupada por outra operação. Tente novamente.");
+        }
+    }
+
+    private void registrarEspera(Long contaId, long espera) {
+        EsperaConta contador = esperasPorConta.get(contaId);
+        if (contador == null) {
+            if (esperasPorConta.size() >= MAX_CONTAS_MONITORADAS) {
+                return; // Mantém a memória limitada; as contas já monitoradas continuam sendo contabilizadas
+            }
+            contador = esperasPorConta.computeIfAbsent(contaId, id -> new EsperaConta());
+        }
+        contador.esperas.increment();
+        contador.esperaTotalNanos.add(espera);
+    }
+
+    private void liberar(List<Segmento> adquiridos) {
+        for (int i = adquiridos.size() - 1; i >= 0; i--) {
+            adquiridos.get(i).lock.unlock();
+        }
+    }
+
+    private int indiceSegmento(Long contaId) {
+        long id = contaId;
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9; // Espalha IDs sequenciais entre os segmentos
+        return Math.floorMod(hash, segmentos.length);
+    }
+
+    private static final class Segmento {
+        private final int indice;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder aquisicoes = new LongAdder();
+        private final LongAdder aquisicoesComEspera = new LongAdder();
+        private final HistogramaLatencia espera = new HistogramaLatencia();
+
+        private Segmento(int indice) {
+            this.indice = indice;
+        }
+
+        private SegmentoBloqueioDTO toDTO() {
+            return new SegmentoBloqueioDTO(indice, aquisicoes.sum(), aquisicoesComEspera.sum(),
+                    espera.getMediaMicros(), espera.percentilMicros(0.99), espera.getMaximoMicros(), espera.getFaixas());
+        }
+    }
+
+    private static final class EsperaConta {
+        private final LongAdder esperas = new LongAdder();
+        private final LongAdder esperaTotalNanos = new LongAdder();
+    }
+}
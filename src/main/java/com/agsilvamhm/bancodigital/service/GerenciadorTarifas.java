@@ -0,0 +1,103 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.CategoriaCliente;
+import com.agsilvamhm.bancodigital.model.TabelaTarifas;
+import com.agsilvamhm.bancodigital.model.TarifaCategoria;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Mantém em memória a {@link TabelaTarifas} vigente, lida pelos cálculos de taxa de manutenção, rendimento
+ * e limite de crédito sem acesso ao banco. A tabela é remontada e trocada de uma vez quando uma tarifa é
+ * cadastrada por esta instância, quando a verificação periódica encontra outra versão no banco (cadastros
+ * de outras instâncias) e quando começa a vigência de uma tarifa com data futura.
+ */
+@Component
+public class GerenciadorTarifas {
+
+    private static final Logger logger = LoggerFactory.getLogger(GerenciadorTarifas.class);
+
+    private final TarifaCategoriaDao tarifaCategoriaDao;
+    private final Supplier<LocalDate> hoje;
+    private volatile TabelaTarifas tabela;
+
+    @Autowired
+    public GerenciadorTarifas(TarifaCategoriaDao tarifaCategoriaDao) {
+        this(tarifaCategoriaDao, LocalDate::now);
+    }
+
+    GerenciadorTarifas(TarifaCategoriaDao tarifaCategoriaDao, Supplier<LocalDate> hoje) {
+        this.tarifaCategoriaDao = tarifaCategoriaDao;
+        this.hoje = hoje;
+        recarregar();
+    }
+
+    public TabelaTarifas atual() {
+        return tabela;
+    }
+
+    public TarifaCategoria tarifa(CategoriaCliente categoria) {
+        return tabela.tarifa(categoria);
+    }
+
+    /**
+     * Cadastra uma tarifa; ela entra na tabela em memória depois do commit, se já estiver vigente.
+     */
+    @Transactional
+    public TarifaCategoria cadastrar(CategoriaCliente categoria, BigDecimal taxaManutencao, BigDecimal taxaRendimentoAnual,
+                                     BigDecimal limiteCreditoPadrao, LocalDate vigenteDesde) {
+        Objects.requireNonNull(categoria, "A categoria da tarifa não pode ser nula.");
+        if (vigenteDesde.isBefore(hoje.get())) {
+            throw new IllegalArgumentException("A vigência de uma nova tarifa não pode ser anterior a hoje.");
+        }
+        TarifaCategoria tarifa = TarifaCategoria.de(categoria, taxaManutencao, taxaRendimentoAnual, limiteCreditoPadrao, vigenteDesde);
+        tarifaCategoriaDao.salvar(tarifa);
+        logger.info("Tarifa da categoria {} cadastrada com vigência a partir de {}.", categoria, vigenteDesde);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recarregar();
+                }
+            });
+        } else {
+            recarregar();
+        }
+        return tarifa;
+    }
+
+    /**
+     * Remonta a tabela se o banco tiver outra versão ou se a tabela atual tiver vencido.
+     *
+     * @return true se a tabela foi trocada
+     */
+    @Scheduled(fixedDelayString = "${bancodigital.tarifas.intervalo-ms:60000}")
+    public boolean atualizar() {
+        TabelaTarifas atual = tabela;
+        if (atual.vencidaEm(hoje.get()) || !atual.getVersao().equals(tarifaCategoriaDao.buscarVersao())) {
+            recarregar();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void recarregar() {
+        String versao = tarifaCategoriaDao.buscarVersao();
+        TabelaTarifas nova = TabelaTarifas.montar(tarifaCategoriaDao.listarTodas(), versao, hoje.get());
+        tabela = nova;
+        logger.info("Tabela de tarifas carregada (versão {}, próxima vigência {}).", versao, nova.getProximaVigencia());
+    }
+}
@@ -0,0 +1,207 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.dto.RespostaIdempotenteDTO;
+import com.agsilvamhm.bancodigital.repository.IdempotenciaDao;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Garante que requisições repetidas com o mesmo cabeçalho Idempotency-Key executem a operação uma
+ * única vez. A resposta da primeira execução é gravada na mesma transação da operação (tabela
+ * idempotencia) e mantida em um cache em memória limitado; as repetições recebem a resposta gravada.
+ * Repetições simultâneas no mesmo nó aguardam a execução em andamento em vez de disputar o banco.
+ */
+@Service
+public class IdempotenciaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaService.class);
+    private static final int TAMANHO_MAXIMO_CHAVE = 100;
+    private static final int INSERCOES_ENTRE_LIMPEZAS = 1_000;
+
+    private final IdempotenciaDao idempotenciaDao;
+    private final TransactionTemplate transacao;
+    private final ObjectMapper objectMapper;
+    private final Duration validade;
+    private final long esperaDuplicataMs;
+    private final Map<String, RespostaIdempotenteDTO> cache;
+    private final Map<String, CompletableFuture<RespostaIdempotenteDTO>> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong insercoes = new AtomicLong();
+
+    public IdempotenciaService(IdempotenciaDao idempotenciaDao, PlatformTransactionManager transactionManager,
+                               ObjectMapper objectMapper,
+                               @Value("${bancodigital.idempotencia.validade-horas:24}") long validadeHoras,
+                               @Value("${bancodigital.idempotencia.max-entradas-memoria:10000}") int maxEntradasMemoria,
+                               @Value("${bancodigital.idempotencia.espera-duplicata-ms:10000}") long esperaDuplicataMs) {
+        this.idempotenciaDao = idempotenciaDao;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validade = Duration.ofHours(validadeHoras);
+        this.esperaDuplicataMs = esperaDuplicataMs;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RespostaIdempotenteDTO> maisAntiga) {
+                return size() > maxEntradasMemoria;
+            }
+        };
+    }
+
+    /**
+     * Executa a operação protegida pela chave. Sem chave, a operação é executada normalmente.
+     *
+     * @param chave      valor do cabeçalho Idempotency-Key (opcional)
+     * @param operacao   identificação da operação (método e recurso), parte da impressão digital
+     * @param requisicao corpo da requisição, parte da impressão digital
+     * @param tipo       tipo da resposta, usado para reconstruí-la a partir do JSON gravado
+     * @throws RegraNegocioException se a chave já foi usada com outra operação ou outro corpo.
+     */
+    public <T> T executar(String chave, String operacao, Object requisicao, Class<T> tipo, Supplier<T> acao) {
+        if (chave == null || chave.isBlank()) {
+            return acao.get();
+        }
+        if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new IllegalArgumentException("A Idempotency-Key deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+        }
+        String impressaoDigital = impressaoDigital(operacao, requisicao);
+
+        RespostaIdempotenteDTO gravada = buscarNoCache(chave);
+        if (gravada != null) {
+            return reutilizar(chave, gravada, impressaoDigital, tipo);
+        }
+
+        CompletableFuture<RespostaIdempotenteDTO> execucao = new CompletableFuture<>();
+        CompletableFuture<RespostaIdempotenteDTO> anterior = emAndamento.putIfAbsent(chave, execucao);
+        if (anterior != null) {
+            return reutilizar(chave, aguardar(anterior), impressaoDigital, tipo);
+        }
+
+        try {
+            RespostaIdempotenteDTO resposta = idempotenciaDao.buscarValida(chave, LocalDateTime.now())
+                    .orElseGet(() -> executarEGravar(chave, impressaoDigital, acao));
+            guardarNoCache(chave, resposta);
+            execucao.complete(resposta);
+            return reutilizar(chave, resposta, impressaoDigital, tipo);
+        } catch (RuntimeException e) {
+            execucao.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, execucao);
+        }
+    }
+
+    private RespostaIdempotenteDTO executarEGravar(String chave, String impressaoDigital, Supplier<?> acao) {
+        RespostaIdempotenteDTO resposta;
+        try {
+            resposta = transacao.execute(status -> {
+                RespostaIdempotenteDTO novaResposta = new RespostaIdempotenteDTO(impressaoDigital,
+                        paraJson(acao.get()), LocalDateTime.now().plus(validade));
+                idempotenciaDao.inserir(chave, novaResposta);
+                return novaResposta;
+            });
+        } catch (DuplicateKeyException e) {
+            // Outro nó confirmou a mesma chave primeiro; esta transação (e sua operação) foi desfeita
+            logger.info("Idempotency-Key {} confirmada concorrentemente por outra instância.", chave);
+            return idempotenciaDao.buscarValida(chave, LocalDateTime.now())
+                    .orElseThrow(() -> new ConflitoConcorrenciaException("Requisição com a mesma Idempotency-Key em andamento."));
+        }
+
+        if (insercoes.incrementAndGet() % INSERCOES_ENTRE_LIMPEZAS == 0) {
+            idempotenciaDao.removerExpiradas(LocalDateTime.now());
+        }
+        return resposta;
+    }
+
+    private RespostaIdempotenteDTO aguardar(CompletableFuture<RespostaIdempotenteDTO> execucao) {
+        try {
+            return execucao.get(esperaDuplicataMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflitoConcorrenciaException("Requisição com a mesma Idempotency-Key em andamento.");
+        } catch (TimeoutException e) {
+            throw new ConflitoConcorrenciaException("Requisição com a mesma Idempotency-Key em andamento.");
+        } catch (ExecutionException e) {
+            // A execução original falhou e nada foi gravado: a repetição recebe o mesmo erro
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T reutilizar(String chave, RespostaIdempotenteDTO resposta, String impressaoDigital, Class<T> tipo) {
+        if (!resposta.impressaoDigital().equals(impressaoDigital)) {
+            throw new RegraNegocioException("A Idempotency-Key informada já foi usada em uma requisição diferente.");
+        }
+        logger.debug("Resposta entregue para a Idempotency-Key {}.", chave);
+        return deJson(resposta.resposta(), tipo);
+    }
+
+    private RespostaIdempotenteDTO buscarNoCache(String chave) {
+        synchronized (cache) {
+            RespostaIdempotenteDTO resposta = cache.get(chave);
+            if (resposta != null && resposta.expiraEm().isBefore(LocalDateTime.now())) {
+                cache.remove(chave);
+                return null;
+            }
+            return resposta;
+        }
+    }
+
+    private void guardarNoCache(String chave, RespostaIdempotenteDTO resposta) {
+        synchronized (cache) {
+            cache.put(chave, resposta);
+        }
+    }
+
+    private String impressaoDigital(String operacao, Object requisicao) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(operacao.getBytes(StandardCharsets.UTF_8));
+            sha256.update((byte) '\n');
+            sha256.update(objectMapper.writeValueAsBytes(requisicao));
+            return HexFormat.of().formatHex(sha256.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível calcular a impressão digital da requisição.", e);
+        }
+    }
+
+    private String paraJson(Object resposta) {
+        try {
+            return resposta == null ? null : objectMapper.writeValueAsString(resposta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta da operação.", e);
+        }
+    }
+
+    private <T> T deJson(String json, Class<T> tipo) {
+        try {
+            return json == null ? null : objectMapper.readValue(json, tipo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível reconstruir a resposta gravada.", e);
+        }
+    }
+}
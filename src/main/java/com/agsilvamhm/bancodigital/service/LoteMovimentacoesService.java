@@ -0,0 +1,169 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.InstrucaoLoteDTO;
+import com.agsilvamhm.bancodigital.model.dto.LoteMovimentacoesRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResultadoItemLoteDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResultadoLoteDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Executa lotes de transferências, depósitos e saques (arquivos de liquidação de parceiros) em uma
+ * única transação: as contas são resolvidas com consultas IN e bloqueadas, as instruções são validadas
+ * em ordem contra os saldos lidos sob o bloqueio, e o efeito líquido de todas as instruções aceitas é
+ * gravado com um batch de UPDATEs condicionais, seguido de um batch de INSERTs de movimentações.
+ * Instruções inválidas são recusadas individualmente sem impedir as demais.
+ */
+@Service
+public class LoteMovimentacoesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoteMovimentacoesService.class);
+
+    private final ContaDao contaDao;
+    private final MovimentacaoDao movimentacaoDao;
+    private final GerenciadorBloqueioContas gerenciadorBloqueio;
+    private final RazaoContabil razaoContabil;
+    private final TransactionTemplate transacao;
+
+    public LoteMovimentacoesService(ContaDao contaDao, MovimentacaoDao movimentacaoDao,
+                                    GerenciadorBloqueioContas gerenciadorBloqueio, RazaoContabil razaoContabil,
+                                    PlatformTransactionManager transactionManager) {
+        this.contaDao = contaDao;
+        this.movimentacaoDao = movimentacaoDao;
+        this.gerenciadorBloqueio = gerenciadorBloqueio;
+        this.razaoContabil = razaoContabil;
+        this.transacao = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Participa da transação do chamador quando existe uma (por exemplo, a da Idempotency-Key), sem
+     * savepoints: como os saldos são lidos com as linhas das contas já bloqueadas, nenhuma escrita
+     * concorrente pode invalidar a validação, e não há tentativa a desfazer e repetir.
+     */
+    public ResultadoLoteDTO executar(LoteMovimentacoesRequestDTO request) {
+        List<InstrucaoLoteDTO> instrucoes = request.instrucoes();
+        ResultadoLoteDTO lote = transacao.execute(status -> processar(instrucoes));
+        logger.info("Lote de {} instruções processado: {} efetivadas, {} recusadas.",
+                lote.total(), lote.efetivadas(), lote.recusadas());
+        return lote;
+    }
+
+    private ResultadoLoteDTO processar(List<InstrucaoLoteDTO> instrucoes) {
+        Map<String, Conta> contasPorNumero = contaDao.buscarPorNumeros(instrucoes.stream()
+                        .flatMap(i -> Stream.of(i.contaOrigemNumero(), i.contaDestinoNumero()))
+                        .filter(Objects::nonNull)
+                        .toList())
+                .stream()
+                .collect(Collectors.toMap(Conta::getNumero, Function.identity()));
+        List<Long> ids = contasPorNumero.values().stream().map(Conta::getId).toList();
+        gerenciadorBloqueio.bloquearAteFimDaTransacao(ids.toArray(Long[]::new));
+
+        // Saldos lidos sob o bloqueio das linhas, e não os da consulta acima, que podem já estar defasados
+        Map<Long, BigDecimal> saldos = new HashMap<>(razaoContabil.isHabilitado()
+                ? razaoContabil.bloquearELerSaldos(ids)
+                : contaDao.bloquearELerSaldos(ids));
+        contasPorNumero.values().removeIf(conta -> !saldos.containsKey(conta.getId())); // Apagadas antes do bloqueio
+        Map<Long, BigDecimal> variacoes = new TreeMap<>();
+        List<Movimentacao> movimentacoes = new ArrayList<>();
+        List<ResultadoItemLoteDTO> itens = new ArrayList<>(instrucoes.size());
+        LocalDateTime agora = LocalDateTime.now();
+
+        for (int indice = 0; indice < instrucoes.size(); indice++) {
+            InstrucaoLoteDTO instrucao = instrucoes.get(indice);
+            Conta origem = instrucao.contaOrigemNumero() != null ? contasPorNumero.get(instrucao.contaOrigemNumero()) : null;
+            Conta destino = instrucao.contaDestinoNumero() != null ? contasPorNumero.get(instrucao.contaDestinoNumero()) : null;
+
+            String recusa = validar(instrucao, origem, destino, saldos);
+            if (recusa != null) {
+                itens.add(new ResultadoItemLoteDTO(indice, false, recusa));
+                continue;
+            }
+
+            if (origem != null) {
+                saldos.merge(origem.getId(), instrucao.valor().negate(), BigDecimal::add);
+                variacoes.merge(origem.getId(), instrucao.valor().negate(), BigDecimal::add);
+            }
+            if (destino != null) {
+                saldos.merge(destino.getId(), instrucao.valor(), BigDecimal::add);
+                variacoes.merge(destino.getId(), instrucao.valor(), BigDecimal::add);
+            }
+            movimentacoes.add(novaMovimentacao(instrucao, origem, destino, agora));
+            itens.add(new ResultadoItemLoteDTO(indice, true, null));
+        }
+
+        if (razaoContabil.isHabilitado()) {
+            // Contas bloqueadas desde a leitura dos saldos: basta gravar as movimentações e suas partidas
+            razaoContabil.registrarEmLote(movimentacoes);
+        } else {
+            variacoes.values().removeIf(variacao -> variacao.signum() == 0);
+            if (!variacoes.isEmpty() && !contaDao.aplicarVariacoesEmLote(variacoes)) {
+                // Não deveria acontecer com as contas bloqueadas (ex.: conta apagada): desfaz o lote inteiro
+                throw new ConflitoConcorrenciaException("Saldos alterados durante o processamento do lote. Tente novamente.");
+            }
+            movimentacaoDao.salvarEmLote(movimentacoes);
+        }
+
+        int efetivadas = movimentacoes.size();
+        return new ResultadoLoteDTO(instrucoes.size(), efetivadas, instrucoes.size() - efetivadas, itens);
+    }
+
+    private String validar(InstrucaoLoteDTO instrucao, Conta origem, Conta destino, Map<Long, BigDecimal> saldos) {
+        boolean exigeOrigem = instrucao.tipo() == TipoMovimentacao.TRANSFERENCIA || instrucao.tipo() == TipoMovimentacao.SAQUE;
+        boolean exigeDestino = instrucao.tipo() == TipoMovimentacao.TRANSFERENCIA || instrucao.tipo() == TipoMovimentacao.DEPOSITO;
+        if (!exigeOrigem && !exigeDestino) {
+            return "Tipo de instrução não suportado em lote: " + instrucao.tipo() + ".";
+        }
+        if (exigeOrigem != (instrucao.contaOrigemNumero() != null) || exigeDestino != (instrucao.contaDestinoNumero() != null)) {
+            return "Contas informadas não correspondem ao tipo " + instrucao.tipo() + ".";
+        }
+        if (exigeOrigem && origem == null) {
+            return "Conta de origem " + instrucao.contaOrigemNumero() + " não encontrada.";
+        }
+        if (exigeDestino && destino == null) {
+            return "Conta de destino " + instrucao.contaDestinoNumero() + " não encontrada.";
+        }
+        if (origem != null && origem == destino) {
+            return "A conta de origem e destino não podem ser a mesma.";
+        }
+        if (instrucao.valor().stripTrailingZeros().scale() > 2) {
+            return "O valor deve ter no máximo duas casas decimais.";
+        }
+        if (origem != null && saldos.get(origem.getId()).compareTo(instrucao.valor()) < 0) {
+            return "Saldo insuficiente na conta de origem.";
+        }
+        return null;
+    }
+
+    private Movimentacao novaMovimentacao(InstrucaoLoteDTO instrucao, Conta origem, Conta destino, LocalDateTime dataHora) {
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setTipo(instrucao.tipo());
+        movimentacao.setValorCentavos(Centavos.deReais(instrucao.valor()));
+        movimentacao.setDataHora(dataHora);
+        movimentacao.setContaOrigem(origem);
+        movimentacao.setContaDestino(destino);
+        movimentacao.setDescricao(instrucao.descricao() != null ? instrucao.descricao() : "Movimentação em lote");
+        return movimentacao;
+    }
+}
@@ -0,0 +1,7 @@
+package com.agsilvamhm.bancodigital.service;
+
+public enum ModoConcorrencia {
+    ATOMICO,    // Débito e crédito condicionais direto no UPDATE, sem bloqueio prévio
+    PESSIMISTA, // Bloqueia (SELECT ... FOR UPDATE) as contas envolvidas, em ordem de ID, antes das pernas
+    OTIMISTA    // Lê saldo e versão, valida em memória e grava com compare-and-set na versão, com retentativas
+}
@@ -0,0 +1,330 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaException;
+import com.agsilvamhm.bancodigital.controller.exception.OperacaoPendenteException;
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execução das movimentações de saldo por partições de contas, para implantações de nó único.
+ * Cada partição tem uma fila limitada e uma única thread consumidora, dona dos saldos das contas
+ * da partição: os débitos são validados em memória e os comandos acumulados na fila são gravados
+ * juntos (group commit), com uma transação e um batch JDBC por lote. O chamador só é liberado
+ * depois que o lote que contém a sua movimentação foi confirmado no banco.
+ * O chamador não pode estar em uma transação: ela seguraria uma conexão do pool durante a espera,
+ * disputando com as partições, e a movimentação confirmada pela partição não seria desfeita com ela.
+ */
+@Component
+public class MotorTransferenciasParticionado {
+
+    private static final Logger logger = LoggerFactory.getLogger(MotorTransferenciasParticionado.class);
+
+    private final boolean habilitado;
+    private final int tamanhoLote;
+    private final long timeoutMs;
+    private final ContaDao contaDao;
+    private final MovimentacaoDao movimentacaoDao;
+    private final TransactionTemplate transacao;
+    private final Particao[] particoes;
+    private final LongAdder lotesConfirmados = new LongAdder();
+    private final LongAdder comandosConfirmados = new LongAdder();
+
+    public MotorTransferenciasParticionado(ContaDao contaDao, MovimentacaoDao movimentacaoDao,
+                                           PlatformTransactionManager transactionManager,
+                                           @Value("${bancodigital.motor-particionado.habilitado:false}") boolean habilitado,
+                                           @Value("${bancodigital.motor-particionado.particoes:4}") int quantidadeParticoes,
+                                           @Value("${bancodigital.motor-particionado.capacidade-fila:1024}") int capacidadeFila,
+                                           @Value("${bancodigital.motor-particionado.tamanho-lote:256}") int tamanhoLote,
+                                           @Value("${bancodigital.motor-particionado.timeout-ms:5000}") long timeoutMs) {
+        if (quantidadeParticoes <= 0 || capacidadeFila <= 0 || tamanhoLote <= 0) {
+            throw new IllegalArgumentException("Partições, capacidade da fila e tamanho do lote devem ser positivos.");
+        }
+        this.habilitado = habilitado;
+        this.tamanhoLote = tamanhoLote;
+        this.timeoutMs = timeoutMs;
+        this.contaDao = contaDao;
+        this.movimentacaoDao = movimentacaoDao;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.particoes = new Particao[habilitado ? quantidadeParticoes : 0];
+        for (int i = 0; i < particoes.length; i++) {
+            particoes[i] = new Particao(i, capacidadeFila);
+            particoes[i].thread.start();
+        }
+        logger.info("Motor particionado de transferências {} com {} partições.",
+                habilitado ? "habilitado" : "desabilitado", quantidadeParticoes);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    public long getLotesConfirmados() {
+        return lotesConfirmados.sum();
+    }
+
+    public long getComandosConfirmados() {
+        return comandosConfirmados.sum();
+    }
+
+    /**
+     * Enfileira a movimentação na partição da conta debitada (ou da creditada, quando não há débito)
+     * e aguarda a confirmação do lote, gravado em transação própria da partição.
+     *
+     * @throws IllegalStateException se chamado dentro de uma transação
+     * @throws ConflitoConcorrenciaException se a movimentação não foi executada (fila cheia, ou tempo
+     *         esgotado antes de a partição retirá-la da fila); pode ser repetida
+     * @throws OperacaoPendenteException se o tempo se esgotou com a movimentação já em gravação; o
+     *         resultado só é conhecido pelo extrato
+     */
+    public Movimentacao executar(Movimentacao movimentacao, BigDecimal valor, String mensagemSaldoInsuficiente) {
+        if (!habilitado) {
+            throw new IllegalStateException("O motor particionado de transferências está desabilitado.");
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("O motor particionado de transferências não pode ser chamado dentro de uma transação.");
+        }
+        Conta contaDona = movimentacao.getContaOrigem() != null ? movimentacao.getContaOrigem() : movimentacao.getContaDestino();
+        Comando comando = new Comando(movimentacao, valor, mensagemSaldoInsuficiente);
+        Particao particao = particoes[indiceParticao(contaDona.getId())];
+
+        try {
+            if (!particao.fila.offer(comando, timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ConflitoConcorrenciaException("O sistema está sobrecarregado. Tente novamente em instantes.");
+            }
+            return comando.resultado.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw desistir(particao, comando, "Operação interrompida enquanto aguardava a confirmação.");
+        } catch (TimeoutException e) {
+            throw desistir(particao, comando, "A operação não foi executada dentro do tempo limite. Tente novamente em instantes.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Só um comando ainda na fila pode ser cancelado com segurança. Se a partição já o retirou, ele
+    // pode ser confirmado depois da desistência, e um conflito comum levaria o cliente a repeti-lo.
+    private RuntimeException desistir(Particao particao, Comando comando, String mensagemNaoExecutada) {
+        if (comando.cancelar()) {
+            particao.fila.remove(comando);
+            return new ConflitoConcorrenciaException(mensagemNaoExecutada);
+        }
+        return new OperacaoPendenteException("A operação está em processamento e não foi confirmada dentro do tempo limite. "
+                + "Consulte o extrato antes de repetir.");
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        for (Particao particao : particoes) {
+            particao.ativa = false;
+        }
+        for (Particao particao : particoes) {
+            try {
+                particao.thread.join(timeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int indiceParticao(Long contaId) {
+        long id = contaId;
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9; // Espalha IDs sequenciais entre as partições
+        return Math.floorMod(hash, particoes.length);
+    }
+
+    private record Comando(Movimentacao movimentacao, BigDecimal valor, String mensagemSaldoInsuficiente,
+                           CompletableFuture<Movimentacao> resultado, AtomicInteger estado) {
+        private static final int PENDENTE = 0;
+        private static final int EM_EXECUCAO = 1;
+        private static final int CANCELADO = 2;
+
+        private Comando(Movimentacao movimentacao, BigDecimal valor, String mensagemSaldoInsuficiente) {
+            this(movimentacao, valor, mensagemSaldoInsuficiente, new CompletableFuture<>(), new AtomicInteger(PENDENTE));
+        }
+
+        // Partição e chamador disputam o comando: quem mudar o estado primeiro decide se ele é executado
+        private boolean iniciar() {
+            return estado.compareAndSet(PENDENTE, EM_EXECUCAO);
+        }
+
+        private boolean cancelar() {
+            return estado.compareAndSet(PENDENTE, CANCELADO);
+        }
+
+        private Long origemId() {
+            return movimentacao.getContaOrigem() != null ? movimentacao.getContaOrigem().getId() : null;
+        }
+
+        private Long destinoId() {
+            return movimentacao.getContaDestino() != null ? movimentacao.getContaDestino().getId() : null;
+        }
+    }
+
+    private final class Particao implements Runnable {
+        private final int indice;
+        private final BlockingQueue<Comando> fila;
+        private final Thread thread;
+        // Saldos conhecidos das contas debitadas por esta partição. Não são exatos: créditos vindos de
+        // outras partições não aparecem aqui, e débitos feitos fora do motor (cartão de débito, pagamento
+        // de fatura, lotes) também não, então o valor pode estar acima ou abaixo do saldo real. Um débito
+        // recusado em memória é conferido no banco antes de ser rejeitado, e um aceito em memória só é
+        // gravado se o UPDATE condicional de aplicarVariacoesEmLote não deixar o saldo negativo: é esse
+        // UPDATE que impede o saldo negativo, não este mapa.
+        private final Map<Long, BigDecimal> saldos = new HashMap<>();
+        private volatile boolean ativa = true;
+
+        private Particao(int indice, int capacidadeFila) {
+            this.indice = indice;
+            this.fila = new ArrayBlockingQueue<>(capacidadeFila);
+            this.thread = new Thread(this, "motor-particionado-" + indice);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Comando> lote = new ArrayList<>(tamanhoLote);
+            while (ativa || !fila.isEmpty()) {
+                try {
+                    Comando primeiro = fila.poll(100, TimeUnit.MILLISECONDS);
+                    if (primeiro == null) {
+                        continue;
+                    }
+                    lote.add(primeiro);
+                    fila.drainTo(lote, tamanhoLote - 1);
+                    lote.removeIf(comando -> !comando.iniciar());
+                    if (!lote.isEmpty()) {
+                        processarLote(lote);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    logger.error("Erro inesperado na partição {} do motor de transferências.", indice, e);
+                    lote.forEach(c -> c.resultado.completeExceptionally(e));
+                } finally {
+                    lote.clear();
+                }
+            }
+        }
+
+        private void processarLote(List<Comando> lote) {
+            Map<Long, BigDecimal> variacoes = new TreeMap<>();
+            List<Comando> aceitos = new ArrayList<>(lote.size());
+            for (Comando comando : lote) {
+                Long origemId = comando.origemId();
+                if (origemId != null && !possuiSaldo(origemId, comando.valor, variacoes)) {
+                    comando.resultado.completeExceptionally(new RegraNegocioException(comando.mensagemSaldoInsuficiente));
+                    continue;
+                }
+                if (origemId != null) {
+                    variacoes.merge(origemId, comando.valor.negate(), BigDecimal::add);
+                }
+                if (comando.destinoId() != null) {
+                    variacoes.merge(comando.destinoId(), comando.valor, BigDecimal::add);
+                }
+                aceitos.add(comando);
+            }
+            if (aceitos.isEmpty()) {
+                return;
+            }
+
+            try {
+                transacao.executeWithoutResult(status -> {
+                    if (!contaDao.aplicarVariacoesEmLote(variacoes)) {
+                        throw new LoteRecusadoException();
+                    }
+                    movimentacaoDao.salvarEmLote(aceitos.stream().map(Comando::movimentacao).toList());
+                });
+            } catch (RuntimeException e) {
+                saldos.clear();
+                if (aceitos.size() == 1) {
+                    aceitos.get(0).resultado.completeExceptionally(traduzirFalha(aceitos.get(0), e));
+                } else {
+                    // Um comando inválido não pode derrubar o lote inteiro: reprocessa um a um
+                    logger.warn("Lote de {} comandos recusado na partição {}; reprocessando individualmente.", aceitos.size(), indice);
+                    aceitos.forEach(c -> processarLote(List.of(c)));
+                }
+                return;
+            }
+
+            variacoes.forEach((contaId, variacao) -> saldos.computeIfPresent(contaId, (id, saldo) -> saldo.add(variacao)));
+            lotesConfirmados.increment();
+            comandosConfirmados.add(aceitos.size());
+            for (Comando comando : aceitos) {
+                Conta origem = comando.movimentacao.getContaOrigem();
+                Conta destino = comando.movimentacao.getContaDestino();
+                if (origem != null && origem.getSaldo() != null) {
+                    origem.setSaldo(origem.getSaldo().subtract(comando.valor));
+                }
+                if (destino != null && destino.getSaldo() != null) {
+                    destino.setSaldo(destino.getSaldo().add(comando.valor));
+                }
+                comando.resultado.complete(comando.movimentacao);
+            }
+        }
+
+        private boolean possuiSaldo(Long contaId, BigDecimal valor, Map<Long, BigDecimal> variacoes) {
+            BigDecimal pendente = variacoes.getOrDefault(contaId, BigDecimal.ZERO);
+            BigDecimal saldo = saldos.get(contaId);
+            if (saldo != null && saldo.add(pendente).compareTo(valor) >= 0) {
+                return true;
+            }
+            saldo = contaDao.buscarSaldo(contaId).orElse(null);
+            if (saldo == null) {
+                saldos.remove(contaId);
+                return false;
+            }
+            saldos.put(contaId, saldo);
+            return saldo.add(pendente).compareTo(valor) >= 0;
+        }
+
+        private RuntimeException traduzirFalha(Comando comando, RuntimeException e) {
+            if (!(e instanceof LoteRecusadoException)) {
+                return e;
+            }
+            if (comando.origemId() != null) {
+                return new RegraNegocioException(comando.mensagemSaldoInsuficiente);
+            }
+            return new EntidadeNaoEncontradaException("Conta com ID " + comando.destinoId() + " não encontrada para crédito.");
+        }
+    }
+
+    // Sinaliza, dentro da transação do lote, que alguma variação de saldo foi recusada e o lote deve ser desfeito
+    private static final class LoteRecusadoException extends RuntimeException {
+        private LoteRecusadoException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaException;
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Modo razão: as operações de saldo deixam de atualizar conta.saldo e passam a gravar apenas
+ * partidas dobradas na tabela lancamento. O saldo é sempre calculado como o último snapshot da
+ * conta mais os lançamentos posteriores; conta.saldo vira uma projeção atualizada pelo job de
+ * snapshots, que também limita quantos lançamentos precisam ser somados em cada leitura.
+ * As contas envolvidas são bloqueadas no banco (SELECT ... FOR UPDATE, em ordem de ID) até o fim
+ * da transação, independentemente do modo de concorrência configurado.
+ */
+@Component
+public class RazaoContabil {
+
+    private static final Logger logger = LoggerFactory.getLogger(RazaoContabil.class);
+
+    private final ContaDao contaDao;
+    private final MovimentacaoDao movimentacaoDao;
+    private final LancamentoDao lancamentoDao;
+    private final TransactionTemplate transacao;
+    private final boolean habilitado;
+    private final int lancamentosMinimosSnapshot;
+    // Maior id de lançamento já examinado pelo job de snapshots. Começa em 0, então a primeira execução
+    // depois da partida percorre a tabela uma vez; as seguintes só olham as contas com lançamentos novos.
+    private volatile long marcaSnapshots;
+
+    public RazaoContabil(ContaDao contaDao, MovimentacaoDao movimentacaoDao, LancamentoDao lancamentoDao,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${bancodigital.razao.habilitado:false}") boolean habilitado,
+                         @Value("${bancodigital.razao.snapshot.lancamentos-minimos:100}") int lancamentosMinimosSnapshot) {
+        if (lancamentosMinimosSnapshot <= 0) {
+            throw new IllegalArgumentException("A quantidade mínima de lançamentos para snapshot deve ser positiva.");
+        }
+        this.contaDao = contaDao;
+        this.movimentacaoDao = movimentacaoDao;
+        this.lancamentoDao = lancamentoDao;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.habilitado = habilitado;
+        this.lancamentosMinimosSnapshot = lancamentosMinimosSnapshot;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Registra a movimentação e suas partidas na transação do chamador. O saldo da conta de origem é
+     * conferido depois do bloqueio; os saldos dos objetos Conta são ajustados apenas para o recibo.
+     */
+    public Movimentacao efetivar(Movimentacao movimentacao, String mensagemSaldoInsuficiente) {
+        Conta contaOrigem = movimentacao.getContaOrigem();
+        Conta contaDestino = movimentacao.getContaDestino();
+        contaDao.bloquearParaAtualizacao(Stream.of(contaOrigem, contaDestino)
+                .filter(Objects::nonNull).map(Conta::getId).toArray(Long[]::new));
+
+        long valor = movimentacao.getValorCentavos();
+        if (contaOrigem != null) {
+            long saldoOrigem = saldoCentavos(contaOrigem.getId());
+            if (saldoOrigem < valor) {
+                throw new RegraNegocioException(mensagemSaldoInsuficiente);
+            }
+            contaOrigem.setSaldo(Centavos.paraReais(saldoOrigem - valor));
+        }
+        if (contaDestino != null) {
+            contaDestino.setSaldo(Centavos.paraReais(saldoCentavos(contaDestino.getId()) + valor));
+        }
+        movimentacaoDao.salvar(movimentacao);
+        lancamentoDao.registrar(List.of(movimentacao));
+        return movimentacao;
+    }
+
+    /**
+     * Bloqueia as contas até o fim da transação do chamador e devolve os saldos calculados pelo razão.
+     */
+    public Map<Long, BigDecimal> bloquearELerSaldos(Collection<Long> contaIds) {
+        contaDao.bloquearParaAtualizacao(contaIds.toArray(Long[]::new));
+        Map<Long, BigDecimal> saldos = new HashMap<>();
+        for (Long contaId : contaIds) {
+            saldos.put(contaId, Centavos.paraReais(saldoCentavos(contaId)));
+        }
+        return saldos;
+    }
+
+    /**
+     * Grava movimentações já validadas (com as contas bloqueadas) e suas partidas, em lote.
+     */
+    public void registrarEmLote(List<Movimentacao> movimentacoes) {
+        movimentacaoDao.salvarEmLote(movimentacoes);
+        lancamentoDao.registrar(movimentacoes);
+    }
+
+    public BigDecimal consultarSaldo(Long contaId) {
+        return Centavos.paraReais(saldoCentavos(contaId));
+    }
+
+    /**
+     * Saldos calculados pelo razão para todas as contas, por ID, com uma única consulta.
+     */
+    public Map<Long, BigDecimal> consultarSaldos() {
+        Map<Long, BigDecimal> saldos = new HashMap<>();
+        lancamentoDao.calcularSaldosCentavos().forEach((contaId, centavos) -> saldos.put(contaId, Centavos.paraReais(centavos)));
+        return saldos;
+    }
+
+    /**
+     * Grava um snapshot para cada conta com lançamentos acumulados acima do mínimo configurado,
+     * cada uma em transação própria e com a linha da conta bloqueada. Só são examinadas as contas que
+     * receberam lançamentos desde a execução anterior; as demais não mudaram de situação. Um lançamento
+     * confirmado fora da ordem dos ids pode escapar de uma execução, e a conta volta a ser examinada no
+     * próximo lançamento que receber.
+     *
+     * @return quantidade de snapshots gravados.
+     */
+    @Scheduled(fixedDelayString = "${bancodigital.razao.snapshot.intervalo-ms:60000}")
+    public int gerarSnapshots() {
+        if (!habilitado) {
+            return 0;
+        }
+        long ultimoLancamento = lancamentoDao.buscarUltimoId();
+        List<Long> contas = lancamentoDao.buscarContasParaSnapshot(marcaSnapshots, lancamentosMinimosSnapshot);
+        for (Long contaId : contas) {
+            transacao.executeWithoutResult(status -> {
+                contaDao.bloquearParaAtualizacao(contaId);
+                lancamentoDao.gravarSnapshot(contaId);
+                contaDao.invalidarCache(contaId); // O snapshot reescreve conta.saldo e conta.versao
+            });
+        }
+        marcaSnapshots = ultimoLancamento;
+        if (!contas.isEmpty()) {
+            logger.info("{} snapshots de saldo gravados.", contas.size());
+        }
+        return contas.size();
+    }
+
+    private long saldoCentavos(Long contaId) {
+        return lancamentoDao.calcularSaldoCentavos(contaId)
+                .orElseThrow(() -> new EntidadeNaoEncontradaException("Conta com ID " + contaId + " não encontrada."));
+    }
+}
@@ -0,0 +1,57 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioRequisicoesCondicionaisDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GET condicional nos endpoints de saldo e extrato da conta. O ETag vem da versão da conta
+ * ({@link ContaDao#buscarVersao}), lida antes da consulta completa: se uma escrita acontecer entre as
+ * duas, a resposta traz dados novos com o ETag antigo e a próxima requisição recebe 200 de novo,
+ * nunca um 304 com dados desatualizados. O ETag é fraco porque só garante a equivalência dos dados.
+ */
+@Component
+public class RequisicoesCondicionaisConta {
+
+    private final ContaDao contaDao;
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder condicionais = new LongAdder();
+    private final LongAdder naoModificadas = new LongAdder();
+
+    public RequisicoesCondicionaisConta(ContaDao contaDao) {
+        this.contaDao = contaDao;
+    }
+
+    /**
+     * Compara o If-None-Match da requisição com a versão atual da conta. Se coincidirem, prepara a
+     * resposta 304 e devolve true; senão, deixa o ETag atual na resposta e devolve false. Conta
+     * inexistente devolve false, para que a consulta normal produza o erro.
+     */
+    public boolean naoModificada(Long contaId, WebRequest requisicao) {
+        consultas.increment();
+        Optional<String> versao = contaDao.buscarVersao(contaId);
+        if (versao.isEmpty()) {
+            return false;
+        }
+        if (requisicao.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            condicionais.increment();
+        }
+        if (requisicao.checkNotModified("W/\"" + versao.get() + "\"")) {
+            naoModificadas.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public RelatorioRequisicoesCondicionaisDTO gerarRelatorio() {
+        long totalConsultas = consultas.sum();
+        long totalNaoModificadas = naoModificadas.sum();
+        return new RelatorioRequisicoesCondicionaisDTO(totalConsultas, condicionais.sum(), totalNaoModificadas,
+                totalConsultas == 0 ? 0.0 : (double) totalNaoModificadas / totalConsultas);
+    }
+}
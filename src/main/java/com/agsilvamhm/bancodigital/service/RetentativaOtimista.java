@@ -0,0 +1,91 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioConcorrenciaOtimistaDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Executa atualizações otimistas repetindo-as, um número limitado de vezes, quando a versão da conta
+ * mudou entre a leitura e a escrita. Entre as tentativas aplica um backoff exponencial com jitter
+ * completo, para que as operações em disputa não voltem a colidir no mesmo instante.
+ * Os contadores servem para comparar a taxa de conflitos com o modo pessimista em cada implantação.
+ */
+@Component
+public class RetentativaOtimista {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentativaOtimista.class);
+
+    private final ModoConcorrencia modoConcorrencia;
+    private final int maxTentativas;
+    private final long backoffBaseMs;
+    private final long backoffMaximoMs;
+    private final LongAdder operacoes = new LongAdder();
+    private final LongAdder conflitos = new LongAdder();
+    private final LongAdder retentativas = new LongAdder();
+    private final LongAdder esgotadas = new LongAdder();
+
+    public RetentativaOtimista(@Value("${bancodigital.concorrencia.modo:ATOMICO}") ModoConcorrencia modoConcorrencia,
+                               @Value("${bancodigital.concorrencia.otimista.max-tentativas:5}") int maxTentativas,
+                               @Value("${bancodigital.concorrencia.otimista.backoff-base-ms:2}") long backoffBaseMs,
+                               @Value("${bancodigital.concorrencia.otimista.backoff-maximo-ms:50}") long backoffMaximoMs) {
+        if (maxTentativas <= 0) {
+            throw new IllegalArgumentException("O número máximo de tentativas deve ser positivo.");
+        }
+        this.modoConcorrencia = modoConcorrencia;
+        this.maxTentativas = maxTentativas;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaximoMs = backoffMaximoMs;
+    }
+
+    /**
+     * Executa a operação, informando o número da tentativa (começando em 0). A partir da segunda
+     * tentativa a operação deve reler a conta antes de gravar.
+     *
+     * @throws ConflitoConcorrenciaException se todas as tentativas encontrarem conflito de versão.
+     */
+    public void executar(IntConsumer operacao) {
+        operacoes.increment();
+        for (int tentativa = 0; ; tentativa++) {
+            try {
+                operacao.accept(tentativa);
+                return;
+            } catch (ConflitoConcorrenciaException e) {
+                conflitos.increment();
+                if (tentativa + 1 >= maxTentativas) {
+                    esgotadas.increment();
+                    logger.warn("Atualização otimista abandonada após {} tentativas com conflito de versão.", maxTentativas);
+                    throw e;
+                }
+                retentativas.increment();
+                aguardar(tentativa);
+            }
+        }
+    }
+
+    public RelatorioConcorrenciaOtimistaDTO gerarRelatorio() {
+        long totalOperacoes = operacoes.sum();
+        long totalConflitos = conflitos.sum();
+        return new RelatorioConcorrenciaOtimistaDTO(modoConcorrencia.name(), maxTentativas, totalOperacoes, totalConflitos,
+                retentativas.sum(), esgotadas.sum(), totalOperacoes == 0 ? 0.0 : (double) totalConflitos / totalOperacoes);
+    }
+
+    private void aguardar(int tentativa) {
+        long teto = Math.min(backoffMaximoMs, backoffBaseMs << Math.min(tentativa, 20));
+        if (teto <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(teto + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConflitoConcorrenciaException("Operação interrompida enquanto aguardava nova tentativa.");
+        }
+    }
+}
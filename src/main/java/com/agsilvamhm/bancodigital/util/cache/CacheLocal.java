@@ -0,0 +1,161 @@
+package com.agsilvamhm.bancodigital.util.cache;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache em memória limitado por quantidade de entradas (as menos usadas saem primeiro) e por tempo
+ * de vida, com contadores de acertos, faltas e remoções. Seguro para uso concorrente.
+ * <p>
+ * Quem carrega um valor do banco deve ler {@link #geracao()} antes da consulta e guardá-lo com
+ * {@link #guardar(Object, Object, long)}: se houver uma invalidação no meio, o valor lido pode ser
+ * anterior a ela e não é guardado. Escritas feitas dentro de uma transação devem usar
+ * {@link #invalidarNaTransacao(Object)}, e as leituras da mesma transação devem consultar
+ * {@link #alteradaNaTransacao(Object)} antes de usar o cache.
+ */
+public class CacheLocal<K, V> {
+
+    private final String nome;
+    private final int tamanhoMaximo;
+    private final long validadeNanos;
+    private final LongSupplier relogio;
+    private final Map<K, Entrada<V>> entradas;
+    private final LongAdder acertos = new LongAdder();
+    private final LongAdder faltas = new LongAdder();
+    private final LongAdder remocoesPorCapacidade = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+    private final LongAdder invalidacoes = new LongAdder();
+    private final Object chaveAlteradas = new Object();
+    private long geracao;
+
+    private record Entrada<V>(V valor, long expiraEmNanos) {
+    }
+
+    public CacheLocal(String nome, int tamanhoMaximo, Duration validade) {
+        this(nome, tamanhoMaximo, validade, System::nanoTime);
+    }
+
+    CacheLocal(String nome, int tamanhoMaximo, Duration validade, LongSupplier relogio) {
+        if (tamanhoMaximo <= 0) {
+            throw new IllegalArgumentException("O tamanho máximo do cache " + nome + " deve ser positivo.");
+        }
+        if (validade.isNegative() || validade.isZero()) {
+            throw new IllegalArgumentException("A validade das entradas do cache " + nome + " deve ser positiva.");
+        }
+        this.nome = nome;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.validadeNanos = validade.toNanos();
+        this.relogio = relogio;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                if (size() > CacheLocal.this.tamanhoMaximo) {
+                    remocoesPorCapacidade.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Valor guardado para a chave, ou null se não houver ou se tiver expirado.
+     */
+    public V buscar(K chave) {
+        Entrada<V> entrada;
+        synchronized (this) {
+            entrada = entradas.get(chave);
+            if (entrada != null && relogio.getAsLong() - entrada.expiraEmNanos() >= 0) {
+                entradas.remove(chave);
+                expiradas.increment();
+                entrada = null;
+            }
+        }
+        (entrada != null ? acertos : faltas).increment();
+        return entrada != null ? entrada.valor() : null;
+    }
+
+    public synchronized long geracao() {
+        return geracao;
+    }
+
+    /**
+     * Guarda o valor se nenhuma invalidação aconteceu desde que a geração informada foi lida.
+     */
+    public synchronized void guardar(K chave, V valor, long geracaoLida) {
+        if (geracaoLida == geracao) {
+            entradas.put(chave, new Entrada<>(valor, relogio.getAsLong() + validadeNanos));
+        }
+    }
+
+    public synchronized void invalidar(K chave) {
+        geracao++;
+        invalidacoes.increment();
+        entradas.remove(chave);
+    }
+
+    /**
+     * Remove a entrada. Dentro de uma transação, a chave também deixa de ser lida do cache até o fim
+     * dela e sai de novo depois do commit ou rollback: nenhuma outra thread chega a ver um valor ainda
+     * não confirmado, nem um anterior à escrita depois que ela é confirmada.
+     */
+    public void invalidarNaTransacao(K chave) {
+        invalidar(chave);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<K> alteradas = (Set<K>) TransactionSynchronizationManager.getResource(chaveAlteradas);
+        if (alteradas == null) {
+            Set<K> novas = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(chaveAlteradas, novas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(chaveAlteradas);
+                    novas.forEach(CacheLocal.this::invalidar);
+                }
+            });
+            alteradas = novas;
+        }
+        alteradas.add(chave);
+    }
+
+    /**
+     * Indica se a chave foi invalidada pela transação corrente, que então deve ler direto do banco.
+     */
+    public boolean alteradaNaTransacao(K chave) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        Set<?> alteradas = (Set<?>) TransactionSynchronizationManager.getResource(chaveAlteradas);
+        return alteradas != null && alteradas.contains(chave);
+    }
+
+    public synchronized void limpar() {
+        geracao++;
+        invalidacoes.increment();
+        entradas.clear();
+    }
+
+    public RelatorioCacheDTO gerarRelatorio() {
+        int tamanho;
+        synchronized (this) {
+            tamanho = entradas.size();
+        }
+        long totalAcertos = acertos.sum();
+        long consultas = totalAcertos + faltas.sum();
+        return new RelatorioCacheDTO(nome, tamanho, tamanhoMaximo, Duration.ofNanos(validadeNanos).toMillis(),
+                totalAcertos, consultas - totalAcertos, remocoesPorCapacidade.sum(), expiradas.sum(), invalidacoes.sum(),
+                consultas == 0 ? 0.0 : (double) totalAcertos / consultas);
+    }
+}
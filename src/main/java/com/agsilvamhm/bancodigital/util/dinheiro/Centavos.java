@@ -0,0 +1,29 @@
+package com.agsilvamhm.bancodigital.util.dinheiro;
+
+import java.math.BigDecimal;
+
+/**
+ * Conversões entre valores monetários em reais (BigDecimal, como chegam na API) e a representação
+ * exata em centavos (long) usada nas movimentações.
+ */
+public final class Centavos {
+
+    private Centavos() {
+    }
+
+    /**
+     * @throws IllegalArgumentException se o valor tiver mais de duas casas decimais significativas
+     *                                  ou não couber em um long.
+     */
+    public static long deReais(BigDecimal reais) {
+        try {
+            return reais.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("O valor " + reais.toPlainString() + " deve ter no máximo duas casas decimais.");
+        }
+    }
+
+    public static BigDecimal paraReais(long centavos) {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+}
@@ -0,0 +1,75 @@
+package com.agsilvamhm.bancodigital.util.metricas;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências com faixas em potências de 2 (em microssegundos).
+ * O registro não aloca memória e é seguro para uso concorrente.
+ */
+public class HistogramaLatencia {
+
+    // Faixa i cobre (2^(i-1), 2^i] µs; a faixa 0 acumula tudo até 1 µs. A última vai além de ~17 min.
+    private static final int FAIXAS = 31;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maximoNanos = new AtomicLong();
+
+    public void registrar(long nanos) {
+        long micros = Math.max(0, nanos) / 1_000;
+        int faixa = micros <= 1 ? 0 : Math.min(FAIXAS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+        contagens.incrementAndGet(faixa);
+        totalNanos.add(nanos);
+        maximoNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getQuantidade() {
+        long quantidade = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            quantidade += contagens.get(i);
+        }
+        return quantidade;
+    }
+
+    public double getMediaMicros() {
+        long quantidade = getQuantidade();
+        return quantidade == 0 ? 0.0 : totalNanos.sum() / 1_000.0 / quantidade;
+    }
+
+    public long getMaximoMicros() {
+        return maximoNanos.get() / 1_000;
+    }
+
+    // Limite superior (em µs) da faixa onde cai o percentil pedido, ex.: 0.99 para p99.
+    public long percentilMicros(double percentil) {
+        long quantidade = getQuantidade();
+        if (quantidade == 0) {
+            return 0;
+        }
+        long alvo = (long) Math.ceil(quantidade * percentil);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return 1L << i;
+            }
+        }
+        return 1L << (FAIXAS - 1);
+    }
+
+    // Somente as faixas com ocorrências, rotuladas pelo limite superior: "<=64us" -> quantidade.
+    public Map<String, Long> getFaixas() {
+        Map<String, Long> faixas = new LinkedHashMap<>();
+        for (int i = 0; i < FAIXAS; i++) {
+            long contagem = contagens.get(i);
+            if (contagem > 0) {
+                faixas.put("<=" + (1L << i) + "us", contagem);
+            }
+        }
+        return faixas;
+    }
+}
@@ -1,4 +1,10 @@
 -- Limpa as tabelas existentes na ordem inversa de dependência para evitar erros de chave estrangeira
+DROP TABLE IF EXISTS "tarifa_categoria";
+DROP TABLE IF EXISTS "arquivo_segmento";
+DROP TABLE IF EXISTS "resumo_mensal_movimentacao";
+DROP TABLE IF EXISTS "saldo_snapshot";
+DROP TABLE IF EXISTS "lancamento";
+DROP TABLE IF EXISTS "idempotencia";
 DROP TABLE IF EXISTS "seguro_cartao";
 DROP TABLE IF EXISTS "movimentacao"; -- Movimentacao agora vem antes de Cartao no DROP
 DROP TABLE IF EXISTS "cartao";
@@ -42,6 +48,7 @@ CREATE TABLE "conta" (
   "numero" VARCHAR(20) UNIQUE NOT NULL,
   "agencia" VARCHAR(10) NOT NULL,
   "saldo" DECIMAL(15, 2) NOT NULL DEFAULT 0.00,
+  "versao" BIGINT NOT NULL DEFAULT 0,
   "id_cliente" INT NOT NULL,
   CONSTRAINT "fk_conta_cliente"
     FOREIGN KEY("id_cliente")
@@ -75,7 +82,7 @@ CREATE TABLE "cartao" (
 CREATE TABLE "movimentacao" (
   "id" INT AUTO_INCREMENT PRIMARY KEY,
   "tipo" VARCHAR(20) NOT NULL,
-  "valor" DECIMAL(15, 2) NOT NULL,
+  "valor_centavos" BIGINT NOT NULL,
   "data_hora" TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
   "id_conta_origem" INT NULL,
   "id_conta_destino" INT NULL,
@@ -86,6 +93,12 @@ CREATE TABLE "movimentacao" (
   CONSTRAINT "fk_movimentacao_conta_destino" FOREIGN KEY("id_conta_destino") REFERENCES "conta"("id"),
   CONSTRAINT "fk_movimentacao_cartao" FOREIGN KEY("id_cartao") REFERENCES "cartao"("id")
 );
+-- Extrato por conta (um índice por lado, lidos com UNION ALL; os com tipo servem o filtro por tipo) e gastos do cartão por tipo e período
+CREATE INDEX "idx_movimentacao_origem_data" ON "movimentacao"("id_conta_origem", "data_hora", "id");
+CREATE INDEX "idx_movimentacao_destino_data" ON "movimentacao"("id_conta_destino", "data_hora", "id");
+CREATE INDEX "idx_movimentacao_origem_tipo_data" ON "movimentacao"("id_conta_origem", "tipo", "data_hora", "id");
+CREATE INDEX "idx_movimentacao_destino_tipo_data" ON "movimentacao"("id_conta_destino", "tipo", "data_hora", "id");
+CREATE INDEX "idx_movimentacao_cartao_tipo_data" ON "movimentacao"("id_cartao", "tipo", "data_hora");
 
 ---
 -- 6. Tabela de Seguro de Cartão (Depende de cartao)
@@ -103,6 +116,84 @@ CREATE TABLE "seguro_cartao" (
     ON DELETE CASCADE
 );
 
+---
+-- 7. Respostas de requisições com Idempotency-Key (independente das demais)
+CREATE TABLE "idempotencia" (
+  "chave" VARCHAR(100) PRIMARY KEY,
+  "impressao_digital" VARCHAR(64) NOT NULL,
+  "resposta" CLOB,
+  "criado_em" TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  "expira_em" TIMESTAMP NOT NULL
+);
+CREATE INDEX "idx_idempotencia_expira_em" ON "idempotencia"("expira_em");
+
+---
+-- 8. Razão contábil de partidas dobradas (somente inserções; usado com bancodigital.razao.habilitado)
+-- Cada operação grava um débito e um crédito de mesmo valor. id_conta nulo é a conta de compensação
+-- externa (contrapartida de depósitos, saques, taxas, rendimentos e pagamentos).
+CREATE TABLE "lancamento" (
+  "id" BIGINT AUTO_INCREMENT PRIMARY KEY,
+  "id_conta" INT NULL,
+  "natureza" CHAR(1) NOT NULL,
+  "valor_centavos" BIGINT NOT NULL,
+  "tipo" VARCHAR(20) NOT NULL,
+  "data_hora" TIMESTAMP NOT NULL,
+  CONSTRAINT "check_lancamento_natureza" CHECK ("natureza" IN ('D', 'C')),
+  CONSTRAINT "check_lancamento_valor" CHECK ("valor_centavos" > 0),
+  CONSTRAINT "fk_lancamento_conta" FOREIGN KEY("id_conta") REFERENCES "conta"("id")
+);
+CREATE INDEX "idx_lancamento_conta_id" ON "lancamento"("id_conta", "id");
+
+---
+-- 9. Último snapshot de saldo por conta: saldo = snapshot + lançamentos com id maior que id_ultimo_lancamento
+CREATE TABLE "saldo_snapshot" (
+  "id_conta" INT PRIMARY KEY,
+  "saldo_centavos" BIGINT NOT NULL,
+  "id_ultimo_lancamento" BIGINT NOT NULL,
+  "criado_em" TIMESTAMP NOT NULL,
+  CONSTRAINT "fk_saldo_snapshot_conta" FOREIGN KEY("id_conta") REFERENCES "conta"("id")
+);
+
+---
+-- 10. Resumo mensal das movimentações por conta e tipo, atualizado na mesma transação que grava a
+-- movimentação. ano_mes no formato AAAAMM; entradas e saídas do ponto de vista da conta.
+CREATE TABLE "resumo_mensal_movimentacao" (
+  "id_conta" INT NOT NULL,
+  "ano_mes" INT NOT NULL,
+  "tipo" VARCHAR(20) NOT NULL,
+  "quantidade" BIGINT NOT NULL,
+  "entradas_centavos" BIGINT NOT NULL,
+  "saidas_centavos" BIGINT NOT NULL,
+  PRIMARY KEY ("id_conta", "ano_mes", "tipo"),
+  CONSTRAINT "fk_resumo_mensal_conta" FOREIGN KEY("id_conta") REFERENCES "conta"("id")
+);
+
+---
+-- 11. Segmentos do arquivo de movimentações antigas (bancodigital.arquivo.habilitado). Um arquivo de
+-- segmento só é lido se estiver registrado aqui: o registro é gravado na mesma transação que remove as
+-- movimentações arquivadas, e arquivos sem registro (de execuções desfeitas) são apagados depois de uma
+-- idade mínima (bancodigital.arquivo.idade-minima-orfaos-ms).
+CREATE TABLE "arquivo_segmento" (
+  "id" INT AUTO_INCREMENT PRIMARY KEY,
+  "nome_arquivo" VARCHAR(255) NOT NULL UNIQUE,
+  "data_corte" TIMESTAMP NOT NULL,
+  "linhas" BIGINT NOT NULL,
+  "criado_em" TIMESTAMP NOT NULL
+);
+
+---
+-- 12. Tarifas por categoria de cliente (somente inserções). Vale, para cada categoria, a linha de
+-- vigente_desde mais recente até a data corrente; a aplicação mantém uma cópia em memória das vigentes.
+CREATE TABLE "tarifa_categoria" (
+  "id" INT AUTO_INCREMENT PRIMARY KEY,
+  "categoria" VARCHAR(20) NOT NULL,
+  "taxa_manutencao" DECIMAL(19, 2) NOT NULL,
+  "taxa_rendimento_anual" DECIMAL(10, 6) NOT NULL,
+  "limite_credito_padrao" DECIMAL(19, 2) NOT NULL,
+  "vigente_desde" DATE NOT NULL,
+  "criado_em" TIMESTAMP NOT NULL
+);
+
 ---
 -- Povoar tabelas para os testes --
 -- O INSERT INTO funciona na mesma ordem de criação das tabelas
@@ -184,53 +275,72 @@ VALUES ('4000-1111-2222-3333', 'CARLA D. MARTINS', '2030-03-31', '202', 'senha20
 -- ID do Cartão de Crédito: 1, ID do Cartão de Débito: 2
 
 -- Depósito na Conta Corrente
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_destino, descricao)
-VALUES ('DEPOSITO', 200.00, CURRENT_TIMESTAMP, 1, 'Depósito em dinheiro');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_destino, descricao)
+VALUES ('DEPOSITO', 20000, CURRENT_TIMESTAMP, 1, 'Depósito em dinheiro');
 
 -- Compra com Cartão de Crédito (Cartão ID 1)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_cartao, descricao)
-VALUES ('COMPRA_CREDITO', 75.50, CURRENT_TIMESTAMP, 1, 1, 'Compra em supermercado');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+VALUES ('COMPRA_CREDITO', 7550, CURRENT_TIMESTAMP, 1, 1, 'Compra em supermercado');
 
 -- Saque na Conta Corrente
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, descricao)
-VALUES ('SAQUE', 100.00, CURRENT_TIMESTAMP, 1, 'Saque em caixa eletrônico');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, descricao)
+VALUES ('SAQUE', 10000, CURRENT_TIMESTAMP, 1, 'Saque em caixa eletrônico');
 
 -- Pix da Conta Corrente para a Conta Poupança
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_conta_destino, descricao)
-VALUES ('PIX', 300.00, CURRENT_TIMESTAMP, 1, 2, 'Transferência PIX para poupança');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, descricao)
+VALUES ('PIX', 30000, CURRENT_TIMESTAMP, 1, 2, 'Transferência PIX para poupança');
 
 -- Rendimento na Conta Poupança
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_destino, descricao)
-VALUES ('RENDIMENTO', 15.20, CURRENT_TIMESTAMP, 2, 'Rendimento mensal da poupança');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_destino, descricao)
+VALUES ('RENDIMENTO', 1520, CURRENT_TIMESTAMP, 2, 'Rendimento mensal da poupança');
 
 -- Pagamento de Fatura do Cartão de Crédito (Cartão ID 1)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_cartao, descricao)
-VALUES ('PAGAMENTO_FATURA', 75.50, CURRENT_TIMESTAMP, 1, 1, 'Pagamento fatura cartão de crédito');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+VALUES ('PAGAMENTO_FATURA', 7550, CURRENT_TIMESTAMP, 1, 1, 'Pagamento fatura cartão de crédito');
 
 -- Movimentações para Cliente 2 (Ana Pereira Lima)
 -- ID da Conta Corrente: 3, ID da Conta Poupança: 4
 -- ID do Cartão de Crédito: 3
 
 -- Compra com Cartão de Crédito (Cartão ID 3)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_cartao, descricao)
-VALUES ('COMPRA_CREDITO', 120.00, CURRENT_TIMESTAMP, 3, 3, 'Compra online de roupas');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+VALUES ('COMPRA_CREDITO', 12000, CURRENT_TIMESTAMP, 3, 3, 'Compra online de roupas');
 
 -- Transferência da Conta Corrente para outra conta (Não especificada)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, descricao)
-VALUES ('TRANSFERENCIA', 50.00, CURRENT_TIMESTAMP, 3, 'Transferência para amigo');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, descricao)
+VALUES ('TRANSFERENCIA', 5000, CURRENT_TIMESTAMP, 3, 'Transferência para amigo');
 
 -- Movimentações para Cliente 3 (Bruno Ferreira Alves)
 -- ID da Conta Corrente: 5, ID da Conta Poupança: 6
 -- ID do Cartão de Débito: 4
 
 -- Compra com Cartão de Débito (Cartão ID 4)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_cartao, descricao)
-VALUES ('SAQUE', 35.00, CURRENT_TIMESTAMP, 5, 4, 'Compra em padaria com cartão de débito');
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+VALUES ('SAQUE', 3500, CURRENT_TIMESTAMP, 5, 4, 'Compra em padaria com cartão de débito');
 
 -- Movimentações para Cliente 4 (Carla Dias Martins)
 -- ID da Conta Corrente: 7, ID da Conta Poupança: 8
 -- ID do Cartão de Crédito: 5
 
 -- Compra com Cartão de Crédito (Cartão ID 5)
-INSERT INTO "movimentacao" (tipo, valor, data_hora, id_conta_origem, id_cartao, descricao)
-VALUES ('COMPRA_CREDITO', 500.00, CURRENT_TIMESTAMP, 7, 5, 'Parcelamento de eletrônicos');
\ No newline at end of file
+INSERT INTO "movimentacao" (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+VALUES ('COMPRA_CREDITO', 50000, CURRENT_TIMESTAMP, 7, 5, 'Parcelamento de eletrônicos');
+
+-- Resumo mensal da carga inicial (mesma consulta da reconstrução em MovimentacaoDao)
+INSERT INTO "resumo_mensal_movimentacao" (id_conta, ano_mes, tipo, quantidade, entradas_centavos, saidas_centavos)
+SELECT id_conta, ano_mes, tipo, COUNT(*), SUM(entrada), SUM(saida)
+FROM (
+    SELECT id_conta_origem AS id_conta, EXTRACT(YEAR FROM data_hora) * 100 + EXTRACT(MONTH FROM data_hora) AS ano_mes,
+           tipo, 0 AS entrada, valor_centavos AS saida
+    FROM "movimentacao" WHERE id_conta_origem IS NOT NULL
+    UNION ALL
+    SELECT id_conta_destino, EXTRACT(YEAR FROM data_hora) * 100 + EXTRACT(MONTH FROM data_hora),
+           tipo, valor_centavos, 0
+    FROM "movimentacao" WHERE id_conta_destino IS NOT NULL
+) lados
+GROUP BY id_conta, ano_mes, tipo;
+
+INSERT INTO "tarifa_categoria" (categoria, taxa_manutencao, taxa_rendimento_anual, limite_credito_padrao, vigente_desde, criado_em) VALUES
+('COMUM', 12.00, 0.005, 1000.00, '2000-01-01', CURRENT_TIMESTAMP),
+('SUPER', 8.00, 0.007, 5000.00, '2000-01-01', CURRENT_TIMESTAMP),
+('PREMIUM', 0.00, 0.009, 10000.00, '2000-01-01', CURRENT_TIMESTAMP);
@@ -0,0 +1,85 @@
+package com.agsilvamhm.bancodigital.autenticacao.config;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtDecoderComCacheTest {
+
+    private static final Instant EMISSAO = Instant.parse("2026-03-10T12:00:00Z");
+
+    private final AtomicReference<Instant> agora = new AtomicReference<>(EMISSAO);
+    private final AtomicInteger verificacoes = new AtomicInteger();
+
+    // Faz o papel do NimbusJwtDecoder: "invalido" é recusado, "sem-exp" não tem expiração e os
+    // demais tokens expiram 300 segundos depois da emissão.
+    private final JwtDecoder decodificador = token -> {
+        verificacoes.incrementAndGet();
+        if (token.equals("invalido")) {
+            throw new BadJwtException("Assinatura inválida");
+        }
+        Jwt.Builder jwt = Jwt.withTokenValue(token).header("alg", "RS256").subject("admin").issuedAt(EMISSAO);
+        if (!token.equals("sem-exp")) {
+            jwt.expiresAt(EMISSAO.plusSeconds(300));
+        }
+        return jwt.build();
+    };
+
+    private final JwtDecoderComCache jwtDecoder =
+            new JwtDecoderComCache(decodificador, true, 100, Duration.ofMinutes(5), agora::get);
+
+    @Test
+    @DisplayName("O mesmo token só é verificado uma vez até expirar")
+    void decode_deveReaproveitarTokenVerificadoAteOExp() {
+        Jwt primeiro = jwtDecoder.decode("token-a");
+        assertSame(primeiro, jwtDecoder.decode("token-a"));
+        agora.set(EMISSAO.plusSeconds(299));
+        assertSame(primeiro, jwtDecoder.decode("token-a"));
+        assertEquals(1, verificacoes.get());
+
+        jwtDecoder.decode("token-b");
+        assertEquals(2, verificacoes.get());
+
+        agora.set(EMISSAO.plusSeconds(300));
+        jwtDecoder.decode("token-a");
+        assertEquals(3, verificacoes.get());
+
+        RelatorioCacheDTO relatorio = jwtDecoder.gerarRelatorioCache().get(0);
+        assertEquals(3, relatorio.acertos()); // a entrada vencida pelo exp ainda é encontrada, mas descartada
+        assertEquals("jwt-verificados", relatorio.nome());
+    }
+
+    @Test
+    @DisplayName("Tokens recusados e tokens sem expiração vão sempre ao decodificador")
+    void decode_naoDeveGuardarTokenRecusadoOuSemExpiracao() {
+        assertThrows(BadJwtException.class, () -> jwtDecoder.decode("invalido"));
+        assertThrows(BadJwtException.class, () -> jwtDecoder.decode("invalido"));
+        jwtDecoder.decode("sem-exp");
+        jwtDecoder.decode("sem-exp");
+
+        assertEquals(4, verificacoes.get());
+        assertEquals(0, jwtDecoder.gerarRelatorioCache().get(0).entradas());
+    }
+
+    @Test
+    @DisplayName("Com o cache desligado, toda chamada vai ao decodificador")
+    void decode_semCacheDeveDelegarSempre() {
+        JwtDecoderComCache semCache = new JwtDecoderComCache(decodificador, false, 100, Duration.ofMinutes(5), agora::get);
+        semCache.decode("token-a");
+        semCache.decode("token-a");
+
+        assertEquals(2, verificacoes.get());
+        assertEquals(List.of(), semCache.gerarRelatorioCache());
+    }
+}
@@ -0,0 +1,98 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.autenticacao.config.JwtDecoderComCache;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Autenticação de uma requisição: verificação RSA do JWT a cada chamada pelo NimbusJwtDecoder
+// (implementação anterior) contra o JwtDecoderComCache, com o mesmo token reaproveitado como fazem
+// os aplicativos durante os 300 segundos de validade. Mede tempo de CPU e bytes alocados pela thread.
+@Tag("benchmark")
+class DecodificacaoJwtBenchmark {
+
+    private static final int REQUISICOES = 20_000;
+    private static final int AQUECIMENTO = 3;
+    private static final int RODADAS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void verificacaoRsaVersusCache() throws Exception {
+        KeyPairGenerator gerador = KeyPairGenerator.getInstance("RSA");
+        gerador.initialize(2048);
+        KeyPair chaves = gerador.generateKeyPair();
+        RSAKey jwk = new RSAKey.Builder((RSAPublicKey) chaves.getPublic()).privateKey((RSAPrivateKey) chaves.getPrivate()).build();
+        NimbusJwtEncoder encoder = new NimbusJwtEncoder(new ImmutableJWKSet<>(new JWKSet(jwk)));
+        Instant agora = Instant.now();
+        String token = encoder.encode(JwtEncoderParameters.from(JwtClaimsSet.builder()
+                .issuer("bancodigital")
+                .subject("1")
+                .issuedAt(agora)
+                .expiresAt(agora.plusSeconds(300))
+                .claim("scope", "ADMIN")
+                .build())).getTokenValue();
+
+        JwtDecoder nimbus = NimbusJwtDecoder.withPublicKey((RSAPublicKey) chaves.getPublic()).build();
+        JwtDecoder comCache = new JwtDecoderComCache(nimbus, true, 10_000, Duration.ofMinutes(5));
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            decodificar(nimbus, token);
+            decodificar(comCache, token);
+        }
+
+        long alocadoAntes = alocadoPelaThread();
+        long cpuAntes = THREADS.getCurrentThreadCpuTime();
+        String assuntoNimbus = null;
+        for (int i = 0; i < RODADAS; i++) {
+            assuntoNimbus = decodificar(nimbus, token);
+        }
+        long cpuNimbus = THREADS.getCurrentThreadCpuTime() - cpuAntes;
+        long alocadoNimbus = alocadoPelaThread() - alocadoAntes;
+
+        alocadoAntes = alocadoPelaThread();
+        cpuAntes = THREADS.getCurrentThreadCpuTime();
+        String assuntoCache = null;
+        for (int i = 0; i < RODADAS; i++) {
+            assuntoCache = decodificar(comCache, token);
+        }
+        long cpuCache = THREADS.getCurrentThreadCpuTime() - cpuAntes;
+        long alocadoCache = alocadoPelaThread() - alocadoAntes;
+
+        long requisicoes = (long) REQUISICOES * RODADAS;
+        System.out.printf("Nimbus    | %10.2f us CPU/chamada | %,10d bytes/chamada%n", cpuNimbus / 1e3 / requisicoes, alocadoNimbus / requisicoes);
+        System.out.printf("Com cache | %10.2f us CPU/chamada | %,10d bytes/chamada%n", cpuCache / 1e3 / requisicoes, alocadoCache / requisicoes);
+
+        assertEquals(assuntoNimbus, assuntoCache);
+    }
+
+    private static String decodificar(JwtDecoder decodificador, String token) {
+        String assunto = null;
+        for (int i = 0; i < REQUISICOES; i++) {
+            assunto = decodificador.decode(token).getSubject();
+        }
+        return assunto;
+    }
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,138 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.model.ContaCorrente;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.repository.ConsultasMovimentacaoTeste;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Percorre o extrato de uma conta página a página: consulta completa da implementação anterior (cinco
+// joins, objetos Conta, Cliente e Cartão, mais buscarPorId para conferir a conta), reproduzida aqui,
+// contra a projeção LinhaExtratoDTO.
+@Tag("benchmark")
+class ExtratoBenchmark {
+
+    private static final long CONTA_ID = 1L;
+    private static final long CONTRAPARTE_ID = 3L;
+    private static final int MOVIMENTACOES = 20_000;
+    private static final int TAMANHO_PAGINA = 50;
+    private static final int PAGINAS = 100;
+    private static final int RODADAS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void consultaCompletaVersusProjecao() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("benchmark_extrato"));
+        ContaDao contaDao = new ContaDao(jdbcTemplate);
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        popular(movimentacaoDao);
+
+        // Aquecimento
+        percorrerCompleto(jdbcTemplate, contaDao);
+        percorrerProjecao(movimentacaoDao);
+
+        long alocadoAntes = alocadoPelaThread();
+        long inicio = System.nanoTime();
+        List<Integer> idsCompleto = null;
+        for (int i = 0; i < RODADAS; i++) {
+            idsCompleto = percorrerCompleto(jdbcTemplate, contaDao);
+        }
+        long duracaoCompleto = System.nanoTime() - inicio;
+        long alocadoCompleto = alocadoPelaThread() - alocadoAntes;
+
+        alocadoAntes = alocadoPelaThread();
+        inicio = System.nanoTime();
+        List<Integer> idsProjecao = null;
+        for (int i = 0; i < RODADAS; i++) {
+            idsProjecao = percorrerProjecao(movimentacaoDao);
+        }
+        long duracaoProjecao = System.nanoTime() - inicio;
+        long alocadoProjecao = alocadoPelaThread() - alocadoAntes;
+
+        int paginas = PAGINAS * RODADAS;
+        System.out.printf("Completa | %7.3f ms/página | %,10d bytes/página%n", duracaoCompleto / 1e6 / paginas, alocadoCompleto / paginas);
+        System.out.printf("Projeção | %7.3f ms/página | %,10d bytes/página%n", duracaoProjecao / 1e6 / paginas, alocadoProjecao / paginas);
+
+        assertEquals(idsCompleto, idsProjecao);
+    }
+
+    private List<Integer> percorrerCompleto(JdbcTemplate jdbcTemplate, ContaDao contaDao) {
+        List<Integer> ids = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        for (int pagina = 0; pagina < PAGINAS; pagina++) {
+            contaDao.buscarPorId(CONTA_ID).orElseThrow();
+            List<Movimentacao> movimentacoes = buscarPaginaCompleta(jdbcTemplate, cursor, TAMANHO_PAGINA + 1);
+            movimentacoes = movimentacoes.subList(0, Math.min(TAMANHO_PAGINA, movimentacoes.size()));
+            movimentacoes.forEach(m -> ids.add(m.getId()));
+            Movimentacao ultima = movimentacoes.get(movimentacoes.size() - 1);
+            cursor = new CursorExtratoDTO(ultima.getDataHora(), ultima.getId());
+        }
+        return ids;
+    }
+
+    private static List<Movimentacao> buscarPaginaCompleta(JdbcTemplate jdbcTemplate, CursorExtratoDTO cursor, int limite) {
+        String sql = ConsultasMovimentacaoTeste.baseSelectMovimentacao() + """
+            WHERE m.id IN (SELECT id FROM (%s) ids)
+            ORDER BY m.data_hora DESC, m.id DESC
+        """.formatted(ConsultasMovimentacaoTeste.sqlPaginaExtrato(cursor != null));
+        return jdbcTemplate.query(sql, ConsultasMovimentacaoTeste.novoMovimentacaoRowMapper(),
+                ConsultasMovimentacaoTeste.parametrosPaginaExtrato(CONTA_ID, cursor, limite));
+    }
+
+    private List<Integer> percorrerProjecao(MovimentacaoDao movimentacaoDao) {
+        List<Integer> ids = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        for (int pagina = 0; pagina < PAGINAS; pagina++) {
+            List<LinhaExtratoDTO> linhas = movimentacaoDao.buscarExtratoPorContaId(CONTA_ID, cursor, TAMANHO_PAGINA + 1);
+            linhas = linhas.subList(0, Math.min(TAMANHO_PAGINA, linhas.size()));
+            linhas.forEach(l -> ids.add(l.id()));
+            LinhaExtratoDTO ultima = linhas.get(linhas.size() - 1);
+            cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id());
+        }
+        return ids;
+    }
+
+    private void popular(MovimentacaoDao movimentacaoDao) {
+        ContaCorrente conta = new ContaCorrente();
+        conta.setId(CONTA_ID);
+        ContaCorrente contraparte = new ContaCorrente();
+        contraparte.setId(CONTRAPARTE_ID);
+        LocalDateTime inicio = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+        List<Movimentacao> lote = new ArrayList<>();
+        for (int i = 0; i < MOVIMENTACOES; i++) {
+            Movimentacao movimentacao = new Movimentacao();
+            movimentacao.setTipo(TipoMovimentacao.TRANSFERENCIA);
+            movimentacao.setValorCentavos(100 + i);
+            movimentacao.setDataHora(inicio.plusMinutes(i));
+            movimentacao.setContaOrigem(i % 2 == 0 ? conta : contraparte);
+            movimentacao.setContaDestino(i % 2 == 0 ? contraparte : conta);
+            movimentacao.setDescricao("Transferência " + i);
+            lote.add(movimentacao);
+            if (lote.size() == 1_000) {
+                movimentacaoDao.salvarEmLote(lote);
+                lote.clear();
+            }
+        }
+    }
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
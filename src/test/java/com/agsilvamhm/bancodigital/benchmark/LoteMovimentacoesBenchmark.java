@@ -0,0 +1,126 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.InstrucaoLoteDTO;
+import com.agsilvamhm.bancodigital.model.dto.LoteMovimentacoesRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.TransferenciaRequestDTO;
+import com.agsilvamhm.bancodigital.repository.ClienteDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import com.agsilvamhm.bancodigital.service.ContaService;
+import com.agsilvamhm.bancodigital.service.GerenciadorBloqueioContas;
+import com.agsilvamhm.bancodigital.service.GerenciadorTarifas;
+import com.agsilvamhm.bancodigital.service.LoteMovimentacoesService;
+import com.agsilvamhm.bancodigital.service.ModoConcorrencia;
+import com.agsilvamhm.bancodigital.service.MotorTransferenciasParticionado;
+import com.agsilvamhm.bancodigital.service.RazaoContabil;
+import com.agsilvamhm.bancodigital.service.RetentativaOtimista;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Um "arquivo de liquidação" de transferências aplicado chamada a chamada (uma transação por
+// transferência, como nos POSTs individuais) e via lote, em blocos de 1000 instruções.
+@Tag("benchmark")
+class LoteMovimentacoesBenchmark {
+
+    private static final int CONTAS_EXTRAS = 200;
+    private static final int INSTRUCOES = 20_000;
+    private static final int TAMANHO_LOTE = 1_000;
+
+    @Test
+    void chamadasIndividuaisVersusLote() {
+        Ambiente individual = new Ambiente("benchmark_lote_individual");
+        List<InstrucaoLoteDTO> instrucoes = gerarInstrucoes(individual.numeros);
+
+        long inicio = System.nanoTime();
+        for (InstrucaoLoteDTO instrucao : instrucoes) {
+            Long origemId = individual.ids.get(individual.numeros.indexOf(instrucao.contaOrigemNumero()));
+            TransferenciaRequestDTO request = new TransferenciaRequestDTO(instrucao.valor(), instrucao.contaDestinoNumero(), null);
+            individual.transacao.executeWithoutResult(status -> individual.contaService.realizarTransferencia(origemId, request));
+        }
+        long duracaoIndividual = System.nanoTime() - inicio;
+
+        Ambiente lote = new Ambiente("benchmark_lote_lote");
+        inicio = System.nanoTime();
+        for (int i = 0; i < instrucoes.size(); i += TAMANHO_LOTE) {
+            lote.loteService.executar(new LoteMovimentacoesRequestDTO(instrucoes.subList(i, Math.min(i + TAMANHO_LOTE, instrucoes.size()))));
+        }
+        long duracaoLote = System.nanoTime() - inicio;
+
+        System.out.printf("Individual | %9.1f transf/s%n", INSTRUCOES * 1e9 / duracaoIndividual);
+        System.out.printf("Lote       | %9.1f transf/s (blocos de %d)%n", INSTRUCOES * 1e9 / duracaoLote, TAMANHO_LOTE);
+
+        assertEquals(0, individual.total().compareTo(lote.total()));
+        assertEquals(individual.saldos(), lote.saldos(), "Os dois caminhos devem chegar aos mesmos saldos.");
+    }
+
+    private List<InstrucaoLoteDTO> gerarInstrucoes(List<String> numeros) {
+        Random random = new Random(42);
+        List<InstrucaoLoteDTO> instrucoes = new ArrayList<>(INSTRUCOES);
+        for (int i = 0; i < INSTRUCOES; i++) {
+            int origem = random.nextInt(numeros.size());
+            int destino = (origem + 1 + random.nextInt(numeros.size() - 1)) % numeros.size();
+            instrucoes.add(new InstrucaoLoteDTO(TipoMovimentacao.TRANSFERENCIA, numeros.get(origem), numeros.get(destino),
+                    BigDecimal.valueOf(random.nextInt(1, 10_000), 2), null));
+        }
+        return instrucoes;
+    }
+
+    private static final class Ambiente {
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transacao;
+        private final ContaService contaService;
+        private final LoteMovimentacoesService loteService;
+        private final List<Long> ids;
+        private final List<String> numeros;
+
+        private Ambiente(String nome) {
+            DataSource dataSource = BancoH2Teste.criar(nome);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            for (int i = 0; i < CONTAS_EXTRAS; i++) {
+                jdbcTemplate.update("INSERT INTO conta (tipo_conta, numero, agencia, saldo, id_cliente) VALUES ('CORRENTE', ?, '0001', 0, 1)",
+                        "BENCH-" + i);
+            }
+            jdbcTemplate.update("UPDATE conta SET saldo = 1000000.00");
+
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            ContaDao contaDao = new ContaDao(jdbcTemplate);
+            MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+            GerenciadorBloqueioContas bloqueio = new GerenciadorBloqueioContas(false, 64, 5000);
+            RetentativaOtimista retentativa = new RetentativaOtimista(ModoConcorrencia.ATOMICO, 5, 2, 50);
+            RazaoContabil razaoDesabilitado = new RazaoContabil(contaDao, movimentacaoDao, new LancamentoDao(jdbcTemplate), transactionManager, false, 100);
+            contaService = new ContaService(contaDao, new ClienteDao(jdbcTemplate), new DiretorioChavesPix(jdbcTemplate),
+                    movimentacaoDao, bloqueio,
+                    new MotorTransferenciasParticionado(contaDao, movimentacaoDao, transactionManager, false, 1, 1, 1, 5000),
+                    retentativa, razaoDesabilitado, new GerenciadorTarifas(new TarifaCategoriaDao(jdbcTemplate)),
+                    transactionManager, ModoConcorrencia.ATOMICO);
+            loteService = new LoteMovimentacoesService(contaDao, movimentacaoDao, bloqueio, razaoDesabilitado, transactionManager);
+            transacao = new TransactionTemplate(transactionManager);
+            ids = jdbcTemplate.queryForList("SELECT id FROM conta ORDER BY id", Long.class);
+            numeros = jdbcTemplate.queryForList("SELECT numero FROM conta ORDER BY id", String.class);
+        }
+
+        private BigDecimal total() {
+            return jdbcTemplate.queryForObject("SELECT SUM(saldo) FROM conta", BigDecimal.class);
+        }
+
+        private List<BigDecimal> saldos() {
+            return jdbcTemplate.queryForList("SELECT saldo FROM conta ORDER BY id", BigDecimal.class);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.model.Cartao;
+import com.agsilvamhm.bancodigital.model.CategoriaCliente;
+import com.agsilvamhm.bancodigital.model.Cliente;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.ContaCorrente;
+import com.agsilvamhm.bancodigital.model.ContaPoupanca;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoCartao;
+import com.agsilvamhm.bancodigital.model.TipoConta;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.repository.ConsultasMovimentacaoTeste;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Fatura de um cartão com 10 mil compras no mês: mapeamento anterior (Conta, Cliente e Cartão novos
+// em cada linha) contra o mapeador com mapa de identidade por consulta. A mesma consulta alimenta os
+// dois, então a diferença de bytes alocados vem só do mapeamento.
+@Tag("benchmark")
+class MapeamentoMovimentacaoBenchmark {
+
+    private static final int LINHAS = 10_000;
+    private static final int AQUECIMENTO = 5;
+    private static final int RODADAS = 20;
+    private static final LocalDateTime INICIO_MES = LocalDateTime.of(2021, 3, 1, 0, 0);
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void mapeamentoPorLinhaVersusMapaDeIdentidade() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("benchmark_mapeamento"));
+        jdbcTemplate.update("""
+                INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_cartao, descricao)
+                SELECT 'COMPRA_CREDITO', X, DATEADD(SECOND, X, CAST(? AS TIMESTAMP)), 1, 1, 'Compra ' || X
+                FROM SYSTEM_RANGE(1, ?)
+                """, Timestamp.valueOf(INICIO_MES), LINHAS);
+
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            consultar(jdbcTemplate, MapeadorAnterior::new);
+            consultar(jdbcTemplate, ConsultasMovimentacaoTeste::novoMovimentacaoRowMapper);
+        }
+
+        long alocadoAntes = alocadoPelaThread();
+        long inicio = System.nanoTime();
+        List<Movimentacao> anterior = null;
+        for (int i = 0; i < RODADAS; i++) {
+            anterior = consultar(jdbcTemplate, MapeadorAnterior::new);
+        }
+        long duracaoAnterior = System.nanoTime() - inicio;
+        long alocadoAnterior = alocadoPelaThread() - alocadoAntes;
+
+        alocadoAntes = alocadoPelaThread();
+        inicio = System.nanoTime();
+        List<Movimentacao> identidade = null;
+        for (int i = 0; i < RODADAS; i++) {
+            identidade = consultar(jdbcTemplate, ConsultasMovimentacaoTeste::novoMovimentacaoRowMapper);
+        }
+        long duracaoIdentidade = System.nanoTime() - inicio;
+        long alocadoIdentidade = alocadoPelaThread() - alocadoAntes;
+
+        System.out.printf("Por linha  | %7.2f ms/fatura | %,12d bytes/fatura | %,6d contas distintas%n",
+                duracaoAnterior / 1e6 / RODADAS, alocadoAnterior / RODADAS, contasDistintas(anterior));
+        System.out.printf("Identidade | %7.2f ms/fatura | %,12d bytes/fatura | %,6d contas distintas%n",
+                duracaoIdentidade / 1e6 / RODADAS, alocadoIdentidade / RODADAS, contasDistintas(identidade));
+
+        assertEquals(LINHAS, identidade.size());
+        assertEquals(anterior.stream().map(Movimentacao::getId).toList(), identidade.stream().map(Movimentacao::getId).toList());
+        assertEquals(1, contasDistintas(identidade));
+    }
+
+    private static List<Movimentacao> consultar(JdbcTemplate jdbcTemplate, Supplier<RowMapper<Movimentacao>> mapeador) {
+        return jdbcTemplate.query(ConsultasMovimentacaoTeste.sqlGastosCreditoPorCartao(), mapeador.get(), 1,
+                TipoMovimentacao.COMPRA_CREDITO.name(), Timestamp.valueOf(INICIO_MES), Timestamp.valueOf(INICIO_MES.plusMonths(1)));
+    }
+
+    private static int contasDistintas(List<Movimentacao> movimentacoes) {
+        Set<Conta> contas = Collections.newSetFromMap(new IdentityHashMap<>());
+        movimentacoes.forEach(m -> contas.add(m.getContaOrigem()));
+        return contas.size();
+    }
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Mapeamento anterior, resumido ao que a fatura usa: lado de origem e cartão montados a cada linha
+    private static final class MapeadorAnterior implements RowMapper<Movimentacao> {
+        @Override
+        public Movimentacao mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Movimentacao mov = new Movimentacao();
+            mov.setId(rs.getInt("mov_id"));
+            mov.setTipo(TipoMovimentacao.valueOf(rs.getString("tipo")));
+            mov.setValorCentavos(rs.getLong("valor_centavos"));
+            mov.setDataHora(rs.getTimestamp("data_hora").toLocalDateTime());
+            mov.setDescricao(rs.getString("descricao"));
+
+            if (rs.getObject("id_conta_origem") != null) {
+                Cliente cliente = new Cliente();
+                cliente.setId(rs.getInt("id_cliente_origem"));
+                cliente.setCpf(rs.getString("cpf_cliente_origem"));
+                cliente.setNome(rs.getString("nome_cliente_origem"));
+                if (rs.getTimestamp("dt_nasc_cliente_origem") != null) {
+                    cliente.setDataNascimento(rs.getTimestamp("dt_nasc_cliente_origem").toLocalDateTime().toLocalDate());
+                }
+                if (rs.getString("cat_cliente_origem") != null) {
+                    cliente.setCategoria(CategoriaCliente.valueOf(rs.getString("cat_cliente_origem")));
+                }
+                Conta conta = TipoConta.POUPANCA.name().equals(rs.getString("tipo_conta_origem"))
+                        ? new ContaPoupanca() : new ContaCorrente();
+                conta.setId(rs.getLong("id_conta_origem"));
+                conta.setNumero(rs.getString("num_conta_origem"));
+                conta.setAgencia(rs.getString("ag_conta_origem"));
+                conta.setSaldo(rs.getBigDecimal("saldo_conta_origem"));
+                conta.setCliente(cliente);
+                mov.setContaOrigem(conta);
+            }
+
+            if (rs.getObject("id_cartao") != null) {
+                Cartao cartao = new Cartao();
+                cartao.setId(rs.getInt("id_cartao"));
+                cartao.setNumero(rs.getString("num_cartao"));
+                cartao.setNomeTitular(rs.getString("nome_titular_cartao"));
+                if (rs.getString("tipo_cartao_cartao") != null) {
+                    cartao.setTipoCartao(TipoCartao.valueOf(rs.getString("tipo_cartao_cartao")));
+                }
+                cartao.setLimiteCredito(rs.getBigDecimal("limite_credito_cartao"));
+                mov.setCartao(cartao);
+            }
+            return mov;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.model.dto.TransferenciaRequestDTO;
+import com.agsilvamhm.bancodigital.repository.ClienteDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import com.agsilvamhm.bancodigital.service.ContaService;
+import com.agsilvamhm.bancodigital.service.GerenciadorBloqueioContas;
+import com.agsilvamhm.bancodigital.service.GerenciadorTarifas;
+import com.agsilvamhm.bancodigital.service.ModoConcorrencia;
+import com.agsilvamhm.bancodigital.service.MotorTransferenciasParticionado;
+import com.agsilvamhm.bancodigital.service.RazaoContabil;
+import com.agsilvamhm.bancodigital.service.RetentativaOtimista;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Transferências aleatórias entre muitas contas, comparando o caminho transacional por requisição
+// com o motor particionado (uma thread por partição e gravação em lote).
+@Tag("benchmark")
+class MotorParticionadoBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int CONTAS_EXTRAS = 200;
+    private static final long DURACAO_MS = 10_000;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void transferenciasAleatorias(boolean motorHabilitado) throws Exception {
+        DataSource dataSource = BancoH2Teste.criar("benchmark_motor");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < CONTAS_EXTRAS; i++) {
+            jdbcTemplate.update("INSERT INTO conta (tipo_conta, numero, agencia, saldo, id_cliente) VALUES ('CORRENTE', ?, '0001', 0, 1)",
+                    "BENCH-" + i);
+        }
+        jdbcTemplate.update("UPDATE conta SET saldo = 1000000.00");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        ContaDao contaDao = new ContaDao(jdbcTemplate);
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        MotorTransferenciasParticionado motor = new MotorTransferenciasParticionado(
+                contaDao, movimentacaoDao, transactionManager, motorHabilitado, 4, 1024, 256, 5000);
+        ContaService contaService = new ContaService(contaDao, new ClienteDao(jdbcTemplate), new DiretorioChavesPix(jdbcTemplate),
+                movimentacaoDao,
+                new GerenciadorBloqueioContas(false, 64, 5000), motor,
+                new RetentativaOtimista(ModoConcorrencia.ATOMICO, 5, 2, 50),
+                new RazaoContabil(contaDao, movimentacaoDao, new LancamentoDao(jdbcTemplate), transactionManager, false, 100),
+                new GerenciadorTarifas(new TarifaCategoriaDao(jdbcTemplate)), transactionManager, ModoConcorrencia.ATOMICO);
+
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM conta ORDER BY id", Long.class);
+        List<String> numeros = jdbcTemplate.queryForList("SELECT numero FROM conta ORDER BY id", String.class);
+        BigDecimal totalInicial = totalEmContas(jdbcTemplate);
+
+        LongAdder sucessos = new LongAdder();
+        LongAdder falhas = new LongAdder();
+        long fim = System.currentTimeMillis() + DURACAO_MS;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futuros.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < fim) {
+                    int origem = random.nextInt(ids.size());
+                    int destino = (origem + 1 + random.nextInt(ids.size() - 1)) % ids.size();
+                    TransferenciaRequestDTO request = new TransferenciaRequestDTO(
+                            BigDecimal.valueOf(random.nextInt(1, 10_000), 2), numeros.get(destino), "benchmark");
+                    try {
+                        // Sem transação em volta, como no controller: o ContaService decide onde executar
+                        contaService.realizarTransferencia(ids.get(origem), request);
+                        sucessos.increment();
+                    } catch (RuntimeException e) {
+                        falhas.increment();
+                    }
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        motor.encerrar();
+
+        System.out.printf("%-12s | %8.1f transf/s | %6d falhas | lote médio %6.1f%n",
+                motorHabilitado ? "PARTICIONADO" : "TRANSACIONAL", sucessos.sum() * 1000.0 / DURACAO_MS, falhas.sum(),
+                motor.getLotesConfirmados() == 0 ? 1.0 : (double) motor.getComandosConfirmados() / motor.getLotesConfirmados());
+
+        assertEquals(0, totalInicial.compareTo(totalEmContas(jdbcTemplate)), "O dinheiro total deve ser preservado.");
+        assertEquals(sucessos.sum(), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimentacao WHERE descricao = 'benchmark'", Long.class));
+    }
+
+    private BigDecimal totalEmContas(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT SUM(saldo) FROM conta", BigDecimal.class);
+    }
+}
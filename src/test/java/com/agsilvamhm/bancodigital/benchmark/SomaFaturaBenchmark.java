@@ -0,0 +1,88 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Soma dos gastos de uma fatura: redução com BigDecimal.valueOf(double) por item (implementação
+// anterior) contra a soma em long dos centavos. Mede tempo e bytes alocados pela thread.
+@Tag("benchmark")
+class SomaFaturaBenchmark {
+
+    private static final int MOVIMENTACOES = 1_000_000;
+    private static final int AQUECIMENTO = 5;
+    private static final int RODADAS = 10;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void somaBigDecimalVersusCentavos() {
+        Random random = new Random(42);
+        List<Movimentacao> gastos = new ArrayList<>(MOVIMENTACOES);
+        double[] valoresDouble = new double[MOVIMENTACOES];
+        for (int i = 0; i < MOVIMENTACOES; i++) {
+            Movimentacao movimentacao = new Movimentacao();
+            movimentacao.setValorCentavos(1 + random.nextInt(500_000));
+            gastos.add(movimentacao);
+            valoresDouble[i] = movimentacao.getValorCentavos() / 100.0;
+        }
+
+        BigDecimal esperado = null;
+        for (int i = 0; i < AQUECIMENTO; i++) {
+            esperado = somarBigDecimal(valoresDouble);
+            somarCentavos(gastos);
+        }
+
+        long alocadoAntes = alocadoPelaThread();
+        long inicio = System.nanoTime();
+        for (int i = 0; i < RODADAS; i++) {
+            esperado = somarBigDecimal(valoresDouble);
+        }
+        long duracaoBigDecimal = System.nanoTime() - inicio;
+        long alocadoBigDecimal = alocadoPelaThread() - alocadoAntes;
+
+        BigDecimal obtido = null;
+        alocadoAntes = alocadoPelaThread();
+        inicio = System.nanoTime();
+        for (int i = 0; i < RODADAS; i++) {
+            obtido = somarCentavos(gastos);
+        }
+        long duracaoCentavos = System.nanoTime() - inicio;
+        long alocadoCentavos = alocadoPelaThread() - alocadoAntes;
+
+        System.out.printf("BigDecimal | %8.2f ms/fatura | %,14d bytes/fatura%n", duracaoBigDecimal / 1e6 / RODADAS, alocadoBigDecimal / RODADAS);
+        System.out.printf("Centavos   | %8.2f ms/fatura | %,14d bytes/fatura%n", duracaoCentavos / 1e6 / RODADAS, alocadoCentavos / RODADAS);
+
+        assertEquals(0, esperado.compareTo(obtido));
+    }
+
+    private static BigDecimal somarBigDecimal(double[] valores) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (double valor : valores) {
+            total = total.add(BigDecimal.valueOf(valor));
+        }
+        return total;
+    }
+
+    private static BigDecimal somarCentavos(List<Movimentacao> gastos) {
+        long totalCentavos = 0;
+        for (Movimentacao gasto : gastos) {
+            totalCentavos += gasto.getValorCentavos();
+        }
+        return Centavos.paraReais(totalCentavos);
+    }
+
+    private static long alocadoPelaThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,116 @@
+package com.agsilvamhm.bancodigital.benchmark;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.dto.TransferenciaRequestDTO;
+import com.agsilvamhm.bancodigital.repository.ClienteDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import com.agsilvamhm.bancodigital.service.ContaService;
+import com.agsilvamhm.bancodigital.service.GerenciadorBloqueioContas;
+import com.agsilvamhm.bancodigital.service.GerenciadorTarifas;
+import com.agsilvamhm.bancodigital.service.ModoConcorrencia;
+import com.agsilvamhm.bancodigital.service.MotorTransferenciasParticionado;
+import com.agsilvamhm.bancodigital.service.RazaoContabil;
+import com.agsilvamhm.bancodigital.service.RetentativaOtimista;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Transferências em sentidos opostos entre poucas contas "quentes", medindo vazão e taxa de
+// falhas por bloqueio (timeout ou deadlock) em cada modo de concorrência, com e sem bloqueio em memória.
+@Tag("benchmark")
+class TransferenciaCruzadaBenchmark {
+
+    private static final int THREADS = 16;
+    private static final int CONTAS_QUENTES = 4;
+    private static final long DURACAO_MS = 10_000;
+
+    @ParameterizedTest
+    @CsvSource({"ATOMICO, false", "PESSIMISTA, false", "OTIMISTA, false", "ATOMICO, true"})
+    void transferenciasCruzadas(ModoConcorrencia modo, boolean bloqueioLocal) throws Exception {
+        DataSource dataSource = BancoH2Teste.criar("benchmark_" + modo.name().toLowerCase());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("UPDATE conta SET saldo = 1000000.00");
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        ContaDao contaDao = new ContaDao(jdbcTemplate);
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        MotorTransferenciasParticionado motorDesabilitado = new MotorTransferenciasParticionado(
+                contaDao, movimentacaoDao, transactionManager, false, 1, 1, 1, 5000);
+        RetentativaOtimista retentativaOtimista = new RetentativaOtimista(modo, 5, 2, 50);
+        ContaService contaService = new ContaService(contaDao, new ClienteDao(jdbcTemplate), new DiretorioChavesPix(jdbcTemplate),
+                movimentacaoDao,
+                new GerenciadorBloqueioContas(bloqueioLocal, 64, 5000), motorDesabilitado, retentativaOtimista,
+                new RazaoContabil(contaDao, movimentacaoDao, new LancamentoDao(jdbcTemplate), transactionManager, false, 100),
+                new GerenciadorTarifas(new TarifaCategoriaDao(jdbcTemplate)), transactionManager, modo);
+        TransactionTemplate transacao = new TransactionTemplate(transactionManager);
+
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM conta ORDER BY id LIMIT ?", Long.class, CONTAS_QUENTES);
+        List<String> numeros = jdbcTemplate.queryForList("SELECT numero FROM conta ORDER BY id LIMIT ?", String.class, CONTAS_QUENTES);
+        BigDecimal totalInicial = totalEmContas(jdbcTemplate);
+
+        LongAdder sucessos = new LongAdder();
+        LongAdder falhasDeBloqueio = new LongAdder();
+        long fim = System.currentTimeMillis() + DURACAO_MS;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futuros.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.currentTimeMillis() < fim) {
+                    int origem = random.nextInt(CONTAS_QUENTES);
+                    int destino = (origem + 1 + random.nextInt(CONTAS_QUENTES - 1)) % CONTAS_QUENTES;
+                    TransferenciaRequestDTO request = new TransferenciaRequestDTO(
+                            BigDecimal.valueOf(random.nextInt(1, 10_000), 2), numeros.get(destino), "benchmark");
+                    try {
+                        transacao.executeWithoutResult(status -> contaService.realizarTransferencia(ids.get(origem), request));
+                        sucessos.increment();
+                    } catch (PessimisticLockingFailureException | ConflitoConcorrenciaException e) {
+                        falhasDeBloqueio.increment();
+                    }
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        long total = sucessos.sum() + falhasDeBloqueio.sum();
+        System.out.printf("%-10s | bloqueio local %-5s | %8.1f transf/s | %6d falhas de bloqueio | taxa de falha %5.2f%%%n",
+                modo, bloqueioLocal, sucessos.sum() * 1000.0 / DURACAO_MS, falhasDeBloqueio.sum(),
+                total == 0 ? 0.0 : falhasDeBloqueio.sum() * 100.0 / total);
+        if (modo == ModoConcorrencia.OTIMISTA) {
+            System.out.println("           | " + retentativaOtimista.gerarRelatorio());
+        }
+
+        assertEquals(0, totalInicial.compareTo(totalEmContas(jdbcTemplate)), "O dinheiro total deve ser preservado.");
+    }
+
+    private BigDecimal totalEmContas(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT SUM(saldo) FROM conta", BigDecimal.class);
+    }
+}
@@ -0,0 +1,95 @@
+package com.agsilvamhm.bancodigital.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Contexto completo: o gerenciador de transações é o JpaTransactionManager da aplicação, não um montado à mão
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:lote_integracao;DATABASE_TO_UPPER=FALSE")
+@AutoConfigureMockMvc
+class LoteMovimentacoesIntegracaoTest {
+
+    private static final String LOTE = """
+            {"instrucoes": [
+              {"tipo": "TRANSFERENCIA", "contaOrigemNumero": "1001-1", "contaDestinoNumero": "2002-2", "valor": 100.00},
+              {"tipo": "SAQUE", "contaOrigemNumero": "2002-2", "valor": 50.00},
+              {"tipo": "SAQUE", "contaOrigemNumero": "1001-9", "valor": 999999.00}
+            ]}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtEncoder jwtEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Lote com Idempotency-Key executa uma vez na transação da chave e a repetição recebe a resposta gravada")
+    void loteComIdempotencyKey_deveExecutarUmaVez() throws Exception {
+        assertInstanceOf(JpaTransactionManager.class, transactionManager);
+        BigDecimal saldoOrigem = saldo("1001-1");
+        BigDecimal saldoDestino = saldo("2002-2");
+
+        String primeira = mockMvc.perform(post("/contas/lote")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenAdmin())
+                        .header("Idempotency-Key", "lote-integracao-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(LOTE))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.efetivadas").value(2))
+                .andExpect(jsonPath("$.recusadas").value(1))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/contas/lote")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenAdmin())
+                        .header("Idempotency-Key", "lote-integracao-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(LOTE))
+                .andExpect(status().isOk())
+                .andExpect(content().json(primeira));
+
+        assertEquals(0, saldoOrigem.subtract(new BigDecimal("100.00")).compareTo(saldo("1001-1")));
+        assertEquals(0, saldoDestino.add(new BigDecimal("50.00")).compareTo(saldo("2002-2")));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM idempotencia WHERE chave = ?", Integer.class, "lote-integracao-1"));
+    }
+
+    private String tokenAdmin() {
+        Instant agora = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("bancodigital")
+                .subject("teste")
+                .issuedAt(agora)
+                .expiresAt(agora.plusSeconds(300))
+                .claim("scope", "ADMIN")
+                .build();
+        return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
+    }
+
+    private BigDecimal saldo(String numero) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE numero = ?", BigDecimal.class, numero);
+    }
+}
@@ -0,0 +1,90 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.model.AutorizacaoCartao;
+import com.agsilvamhm.bancodigital.model.TipoCartao;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartaoDaoTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CartaoDao cartaoDao;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("cartao_dao"));
+        cartaoDao = new CartaoDao(jdbcTemplate, true, 100, 60_000);
+    }
+
+    @Test
+    @DisplayName("A autorização em cache sai a cada alteração de situação, limite ou senha")
+    void autorizacao_deveSerInvalidadaPelasAlteracoes() {
+        AutorizacaoCartao credito = cartaoDao.buscarAutorizacao(1).orElseThrow();
+        assertEquals(1L, credito.idConta());
+        assertEquals(TipoCartao.CREDITO, credito.tipoCartao());
+        assertTrue(credito.ativo());
+        assertTrue(credito.senhaConfere("senha123"));
+        assertFalse(credito.senhaConfere("senha456"));
+        assertSame(credito, cartaoDao.buscarAutorizacao(1).orElseThrow());
+
+        cartaoDao.atualizarStatus(1, false);
+        assertFalse(cartaoDao.buscarAutorizacao(1).orElseThrow().ativo());
+        cartaoDao.atualizarSenha(1, "nova");
+        assertTrue(cartaoDao.buscarAutorizacao(1).orElseThrow().senhaConfere("nova"));
+        cartaoDao.atualizarLimiteCredito(1, new BigDecimal("7000.00"));
+        assertEquals(new BigDecimal("7000.00"), cartaoDao.buscarAutorizacao(1).orElseThrow().limiteCredito());
+        cartaoDao.atualizarLimiteDiarioDebito(2, new BigDecimal("50.00"));
+        assertEquals(new BigDecimal("50.00"), cartaoDao.buscarAutorizacao(2).orElseThrow().limiteDiarioDebito());
+
+        assertEquals(Optional.empty(), cartaoDao.buscarAutorizacao(999));
+
+        RelatorioCacheDTO relatorio = cartaoDao.gerarRelatorioCache().get(0);
+        assertEquals(1, relatorio.acertos());
+        assertEquals(4, relatorio.invalidacoes());
+        assertEquals(List.of(), new CartaoDao(jdbcTemplate).gerarRelatorioCache());
+    }
+
+    @Test
+    @DisplayName("Cartões apagados em cascata deixam de autorizar depois de limpar o cache")
+    void limparCache_deveDescartarCartoesApagados() {
+        jdbcTemplate.update("INSERT INTO cartao (numero, nome_titular, data_validade, cvv, senha, tipo_cartao, "
+                + "limite_credito, limite_diario_debito, ativo, id_conta) VALUES ('4000-0000-0000-0001', 'ANA P. LIMA', "
+                + "'2029-01-31', '321', 'senha321', 'CREDITO', 1000.00, NULL, true, 3)");
+        Integer id = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cartao", Integer.class);
+        assertTrue(cartaoDao.buscarAutorizacao(id).isPresent());
+
+        // Como na exclusão em cascata a partir do cliente, que não passa pelo CartaoDao
+        jdbcTemplate.update("DELETE FROM cartao WHERE id = ?", id);
+        assertTrue(cartaoDao.buscarAutorizacao(id).isPresent());
+        cartaoDao.limparCache();
+
+        assertEquals(Optional.empty(), cartaoDao.buscarAutorizacao(id));
+    }
+
+    @Test
+    @DisplayName("Alteração desfeita não deixa a autorização nova no cache")
+    void autorizacao_naoDeveGuardarAlteracaoDesfeita() {
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        cartaoDao.buscarAutorizacao(1);
+
+        transacao.executeWithoutResult(status -> {
+            cartaoDao.atualizarStatus(1, false);
+            assertFalse(cartaoDao.buscarAutorizacao(1).orElseThrow().ativo());
+            status.setRollbackOnly();
+        });
+
+        assertTrue(cartaoDao.buscarAutorizacao(1).orElseThrow().ativo());
+    }
+}
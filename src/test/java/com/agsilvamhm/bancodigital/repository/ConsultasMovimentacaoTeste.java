@@ -0,0 +1,33 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import org.springframework.jdbc.core.RowMapper;
+
+// Expõe aos benchmarks, que ficam em outro pacote, o SQL e o mapeador internos do MovimentacaoDao,
+// sem tornar públicos na aplicação detalhes que só o DAO usa.
+public final class ConsultasMovimentacaoTeste {
+
+    private ConsultasMovimentacaoTeste() {
+    }
+
+    public static String baseSelectMovimentacao() {
+        return MovimentacaoDao.BASE_SELECT_MOVIMENTACAO;
+    }
+
+    public static String sqlPaginaExtrato(boolean comCursor) {
+        return MovimentacaoDao.sqlPaginaExtrato(comCursor);
+    }
+
+    public static Object[] parametrosPaginaExtrato(Long contaId, CursorExtratoDTO cursor, int limite) {
+        return MovimentacaoDao.parametrosPaginaExtrato(contaId, cursor, limite);
+    }
+
+    public static String sqlGastosCreditoPorCartao() {
+        return MovimentacaoDao.SQL_GASTOS_CREDITO_POR_CARTAO;
+    }
+
+    public static RowMapper<Movimentacao> novoMovimentacaoRowMapper() {
+        return new MovimentacaoDao.MovimentacaoRowMapper();
+    }
+}
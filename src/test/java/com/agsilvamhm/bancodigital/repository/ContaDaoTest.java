@@ -0,0 +1,224 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContaDaoTest {
+
+    private static final int THREADS = 16;
+
+    private JdbcTemplate jdbcTemplate;
+    private ContaDao contaDao;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("conta_dao"));
+        contaDao = new ContaDao(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Débitos concorrentes na mesma conta nunca deixam o saldo negativo nem perdem atualizações")
+    void debitosConcorrentes_devemRespeitarSaldo() throws Exception {
+        Long contaId = 3L; // Saldo inicial de 850.00
+        BigDecimal saldoInicial = saldo(contaId);
+        BigDecimal valor = new BigDecimal("1.00");
+        int tentativasPorThread = 100;
+        AtomicInteger sucessos = new AtomicInteger();
+
+        executarEmParalelo(() -> {
+            for (int i = 0; i < tentativasPorThread; i++) {
+                if (contaDao.debitar(contaId, valor)) {
+                    sucessos.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        // 1600 tentativas para 850 reais: exatamente 850 débitos devem passar
+        assertEquals(saldoInicial.intValue(), sucessos.get());
+        assertEquals(0, BigDecimal.ZERO.compareTo(saldo(contaId)));
+    }
+
+    @Test
+    @DisplayName("Créditos e débitos concorrentes preservam o total de dinheiro entre as contas")
+    void movimentacoesConcorrentes_devemPreservarTotal() throws Exception {
+        Long contaA = 1L;
+        Long contaB = 3L;
+        BigDecimal totalInicial = saldo(contaA).add(saldo(contaB));
+
+        executarEmParalelo(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 200; i++) {
+                boolean sentidoAB = random.nextBoolean();
+                Long origem = sentidoAB ? contaA : contaB;
+                Long destino = sentidoAB ? contaB : contaA;
+                BigDecimal valor = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                if (contaDao.debitar(origem, valor)) {
+                    assertTrue(contaDao.creditar(destino, valor));
+                }
+            }
+            return null;
+        });
+
+        assertEquals(0, totalInicial.compareTo(saldo(contaA).add(saldo(contaB))));
+        assertTrue(saldo(contaA).signum() >= 0);
+        assertTrue(saldo(contaB).signum() >= 0);
+    }
+
+    @Test
+    @DisplayName("Débito e crédito em conta inexistente devem retornar falso")
+    void operacoesEmContaInexistente_devemRetornarFalso() {
+        assertFalse(contaDao.debitar(999L, BigDecimal.ONE));
+        assertFalse(contaDao.creditar(999L, BigDecimal.ONE));
+    }
+
+    @Test
+    @DisplayName("atualizar com versão desatualizada deve lançar conflito sem alterar o saldo")
+    void atualizarComVersaoDesatualizada_deveLancarConflito() {
+        Conta leitura1 = contaDao.buscarPorId(1L).orElseThrow();
+        Conta leitura2 = contaDao.buscarPorId(1L).orElseThrow();
+
+        leitura1.setSaldo(leitura1.getSaldo().add(BigDecimal.TEN));
+        contaDao.atualizar(leitura1);
+        assertEquals(leitura2.getVersao() + 1, leitura1.getVersao());
+
+        leitura2.setSaldo(BigDecimal.ZERO);
+        assertThrows(ConflitoConcorrenciaException.class, () -> contaDao.atualizar(leitura2));
+        assertEquals(0, leitura1.getSaldo().compareTo(saldo(1L)));
+    }
+
+    @Test
+    @DisplayName("Débitos e créditos atômicos também devem avançar a versão da conta")
+    void debitoAtomico_deveAvancarVersao() {
+        Long versaoInicial = contaDao.buscarPorId(1L).orElseThrow().getVersao();
+
+        assertTrue(contaDao.debitar(1L, BigDecimal.ONE));
+        assertTrue(contaDao.creditar(1L, BigDecimal.ONE));
+
+        assertEquals(versaoInicial + 2, contaDao.buscarPorId(1L).orElseThrow().getVersao());
+    }
+
+    @Test
+    @DisplayName("A versão da conta muda com escritas de saldo e com movimentações que não tocam o saldo")
+    void buscarVersao_deveMudarComSaldoEMovimentacoes() {
+        String inicial = contaDao.buscarVersao(1L).orElseThrow();
+        assertEquals(inicial, contaDao.buscarVersao(1L).orElseThrow());
+
+        assertTrue(contaDao.creditar(1L, BigDecimal.ONE));
+        String aposCredito = contaDao.buscarVersao(1L).orElseThrow();
+        assertNotEquals(inicial, aposCredito);
+
+        Movimentacao compra = new Movimentacao();
+        compra.setTipo(TipoMovimentacao.COMPRA_CREDITO);
+        compra.setValorCentavos(990);
+        compra.setDataHora(LocalDateTime.now());
+        compra.setContaOrigem(contaDao.buscarPorId(1L).orElseThrow());
+        new MovimentacaoDao(jdbcTemplate).salvar(compra);
+        assertNotEquals(aposCredito, contaDao.buscarVersao(1L).orElseThrow());
+
+        assertTrue(contaDao.buscarVersao(999L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("O cache devolve cópias, sai nas escritas e não expõe saldo de transação não confirmada")
+    void cache_deveSerInvalidadoPelasEscritas() throws Exception {
+        ContaDao comCache = new ContaDao(jdbcTemplate, true, 100, 60_000);
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        BigDecimal saldoInicial = saldo(3L);
+
+        Conta lida = comCache.buscarPorId(3L).orElseThrow();
+        lida.setSaldo(BigDecimal.ZERO);
+        assertEquals(0, saldoInicial.compareTo(comCache.buscarPorId(3L).orElseThrow().getSaldo()));
+        assertEquals(0, saldoInicial.compareTo(comCache.buscarPorNumero("2002-2").orElseThrow().getSaldo()));
+
+        transacao.executeWithoutResult(status -> {
+            assertTrue(comCache.debitar(3L, BigDecimal.TEN));
+            // A própria transação lê o saldo novo; as outras threads, o confirmado, sem guardá-lo no cache
+            assertEquals(0, saldoInicial.subtract(BigDecimal.TEN).compareTo(comCache.buscarPorId(3L).orElseThrow().getSaldo()));
+            BigDecimal saldoEmOutraThread = assertDoesNotThrow(() -> Executors.newSingleThreadExecutor()
+                    .submit(() -> comCache.buscarPorId(3L).orElseThrow().getSaldo()).get());
+            assertEquals(0, saldoInicial.compareTo(saldoEmOutraThread));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, saldoInicial.compareTo(comCache.buscarPorId(3L).orElseThrow().getSaldo()));
+
+        assertTrue(comCache.creditar(3L, BigDecimal.ONE));
+        assertEquals(0, saldoInicial.add(BigDecimal.ONE).compareTo(comCache.buscarPorId(3L).orElseThrow().getSaldo()));
+
+        jdbcTemplate.update("UPDATE cliente SET nome = 'Outro' WHERE id = 2");
+        comCache.limparCache();
+        assertEquals("Outro", comCache.buscarPorNumero("2002-2").orElseThrow().getCliente().getNome());
+
+        RelatorioCacheDTO relatorio = comCache.gerarRelatorioCache().get(0);
+        assertTrue(relatorio.acertos() >= 1);
+        assertTrue(relatorio.invalidacoes() >= 3);
+        assertEquals(List.of(), contaDao.gerarRelatorioCache());
+    }
+
+    @Test
+    @DisplayName("bloquearELerSaldos devolve os saldos das contas existentes e as mantém bloqueadas até o fim da transação")
+    void bloquearELerSaldos_deveBloquearAsLinhas() {
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+
+        transacao.executeWithoutResult(status -> {
+            Map<Long, BigDecimal> saldos = contaDao.bloquearELerSaldos(List.of(3L, 1L, 999L));
+
+            assertEquals(Set.of(1L, 3L), saldos.keySet());
+            assertEquals(0, new BigDecimal("1500.75").compareTo(saldos.get(1L)));
+            assertEquals(0, new BigDecimal("850.00").compareTo(saldos.get(3L)));
+            // Outra conexão (de outra thread) não consegue alterar a conta enquanto a transação estiver aberta
+            ExecutionException falha = assertThrows(ExecutionException.class, () -> CompletableFuture.runAsync(
+                    () -> jdbcTemplate.update("UPDATE conta SET saldo = saldo + 1 WHERE id = ?", 1L)).get());
+            assertInstanceOf(DataAccessException.class, falha.getCause());
+        });
+
+        assertEquals(0, new BigDecimal("1500.75").compareTo(saldo(1L)));
+    }
+
+    private BigDecimal saldo(Long contaId) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE id = ?", BigDecimal.class, contaId);
+    }
+
+    private void executarEmParalelo(Callable<Void> tarefa) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futuros = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futuros.add(executor.submit(tarefa));
+            }
+            for (Future<Void> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
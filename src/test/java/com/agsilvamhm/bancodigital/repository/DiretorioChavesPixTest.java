@@ -0,0 +1,63 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiretorioChavesPixTest {
+
+    private static final String CPF_RICARDO = "980.246.810-05";
+    private static final String CPF_ELISA = "567.890.123-14";
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacao;
+    private DiretorioChavesPix diretorio;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("diretorio_pix"));
+        transacao = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        diretorio = new DiretorioChavesPix(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("A carga inicial aponta cada CPF para a conta de menor id do cliente")
+    void carga_deveResolverChavesDoBanco() {
+        assertEquals(6, diretorio.tamanho());
+        assertEquals(1L, diretorio.resolver(CPF_RICARDO));
+        assertEquals(DiretorioChavesPix.SEM_CONTA, diretorio.resolver(CPF_ELISA));
+        assertNull(diretorio.resolver("000.000.000-00"));
+        assertNull(diretorio.resolver(null));
+    }
+
+    @Test
+    @DisplayName("Alterações só entram no diretório depois do commit")
+    void alteracoes_devemEsperarOCommit() {
+        transacao.executeWithoutResult(status -> {
+            diretorio.registrarConta(CPF_ELISA, 42L);
+            assertEquals(DiretorioChavesPix.SEM_CONTA, diretorio.resolver(CPF_ELISA));
+            status.setRollbackOnly();
+        });
+        assertEquals(DiretorioChavesPix.SEM_CONTA, diretorio.resolver(CPF_ELISA));
+
+        transacao.executeWithoutResult(status -> {
+            diretorio.registrarConta(CPF_ELISA, 42L);
+            diretorio.registrarConta(CPF_RICARDO, 43L);
+            diretorio.registrarCliente("111.222.333-96");
+            diretorio.removerCliente(CPF_RICARDO);
+        });
+        assertEquals(42L, diretorio.resolver(CPF_ELISA));
+        assertNull(diretorio.resolver(CPF_RICARDO));
+        assertEquals(DiretorioChavesPix.SEM_CONTA, diretorio.resolver("111.222.333-96"));
+
+        diretorio.registrarConta("111.222.333-96", 50L);
+        diretorio.registrarConta("111.222.333-96", 44L);
+        assertEquals(44L, diretorio.resolver("111.222.333-96"));
+    }
+}
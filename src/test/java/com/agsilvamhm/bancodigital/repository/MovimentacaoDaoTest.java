@@ -0,0 +1,336 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.ContaCorrente;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResumoMensalDTO;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovimentacaoDaoTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacao;
+    private MovimentacaoDao movimentacaoDao;
+    private int movimentacoesIniciais;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = BancoH2Teste.criar("movimentacao_dao");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        movimentacaoDao = new MovimentacaoDao(jdbcTemplate, true, 3, 60_000, 1000);
+        movimentacoesIniciais = quantidadeMovimentacoes();
+    }
+
+    @Test
+    @DisplayName("salvarEmLote deve gravar todas as movimentações")
+    void salvarEmLote_deveGravarTodas() {
+        List<Movimentacao> lote = IntStream.range(0, 5).mapToObj(i -> deposito(2L)).toList();
+
+        movimentacaoDao.salvarEmLote(lote);
+
+        assertEquals(movimentacoesIniciais + 5, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("Com buffer, as movimentações são gravadas ao encher o buffer e antes do commit")
+    void buffer_deveDescarregarPorTamanhoEAntesDoCommit() {
+        transacao.executeWithoutResult(status -> {
+            movimentacaoDao.salvar(deposito(2L));
+            movimentacaoDao.salvar(deposito(2L));
+            assertEquals(movimentacoesIniciais, quantidadeMovimentacoes());
+
+            movimentacaoDao.salvar(deposito(2L)); // Atinge o tamanho máximo (3)
+            assertEquals(movimentacoesIniciais + 3, quantidadeMovimentacoes());
+
+            movimentacaoDao.salvar(deposito(2L));
+        });
+
+        assertEquals(movimentacoesIniciais + 4, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("Rollback deve descartar as movimentações pendentes no buffer")
+    void buffer_rollbackDeveDescartarPendentes() {
+        transacao.executeWithoutResult(status -> {
+            movimentacaoDao.salvar(deposito(2L));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(movimentacoesIniciais, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("Consultas na mesma transação devem enxergar as movimentações pendentes")
+    void buffer_consultaDeveEnxergarPendentes() {
+        int extratoAntes = movimentacaoDao.buscarExtratoPorContaId(2L, null, 100).size();
+
+        int extratoDurante = transacao.execute(status -> {
+            movimentacaoDao.salvar(deposito(2L));
+            return movimentacaoDao.buscarExtratoPorContaId(2L, null, 100).size();
+        });
+
+        assertEquals(extratoAntes + 1, extratoDurante);
+    }
+
+    @Test
+    @DisplayName("Sem transação ativa, a movimentação é gravada imediatamente")
+    void semTransacao_deveGravarImediatamente() {
+        movimentacaoDao.salvar(deposito(2L));
+
+        assertEquals(movimentacoesIniciais + 1, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("A paginação por cursor percorre o extrato sem repetir nem pular movimentações com a mesma data")
+    void paginacao_devePercorrerExtratoPorCursor() {
+        LocalDateTime mesmoInstante = LocalDateTime.of(2030, 1, 1, 12, 0);
+        List<Movimentacao> lote = IntStream.range(0, 7).mapToObj(i -> {
+            Movimentacao movimentacao = deposito(4L);
+            movimentacao.setDataHora(i < 5 ? mesmoInstante : mesmoInstante.minusDays(i));
+            return movimentacao;
+        }).toList();
+        movimentacaoDao.salvarEmLote(lote);
+        int total = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimentacao WHERE id_conta_origem = 4 OR id_conta_destino = 4", Integer.class);
+
+        List<Integer> percorridos = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        List<LinhaExtratoDTO> pagina;
+        do {
+            pagina = movimentacaoDao.buscarExtratoPorContaId(4L, cursor, 3);
+            pagina.forEach(linha -> percorridos.add(linha.id()));
+            if (!pagina.isEmpty()) {
+                LinhaExtratoDTO ultima = pagina.get(pagina.size() - 1);
+                cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id());
+            }
+        } while (pagina.size() == 3);
+
+        assertEquals(total, percorridos.size());
+        assertEquals(total, percorridos.stream().distinct().count());
+        List<Integer> idsMesmoInstante = percorridos.subList(0, 5);
+        assertEquals(idsMesmoInstante.stream().sorted(Comparator.reverseOrder()).toList(), idsMesmoInstante);
+    }
+
+    @Test
+    @DisplayName("O extrato projetado traz os números das contas, da movimentação mais recente para a mais antiga")
+    void extrato_deveProjetarLinhasCompactas() {
+        Movimentacao transferencia = deposito(3L);
+        transferencia.setTipo(TipoMovimentacao.TRANSFERENCIA);
+        Conta origem = new ContaCorrente();
+        origem.setId(1L);
+        transferencia.setContaOrigem(origem);
+        movimentacaoDao.salvar(transferencia);
+
+        List<LinhaExtratoDTO> linhas = movimentacaoDao.buscarExtratoPorContaId(3L, null, 100);
+        List<Integer> esperados = jdbcTemplate.queryForList("""
+                SELECT id FROM movimentacao WHERE id_conta_origem = 3 OR id_conta_destino = 3
+                ORDER BY data_hora DESC, id DESC
+                """, Integer.class);
+
+        assertEquals(esperados, linhas.stream().map(LinhaExtratoDTO::id).toList());
+        LinhaExtratoDTO maisRecente = linhas.get(0);
+        assertEquals(TipoMovimentacao.TRANSFERENCIA, maisRecente.tipo());
+        assertEquals("1001-1", maisRecente.contaOrigemNumero());
+        assertEquals("2002-2", maisRecente.contaDestinoNumero());
+        assertEquals(1000L, maisRecente.valorCentavos());
+    }
+
+    @Test
+    @DisplayName("O saldo após cada linha parte do saldo da conta e continua entre páginas pelo saldo do cursor")
+    void extratoComSaldo_deveAcumularEntrePaginas() {
+        // Carga inicial da conta 1001-1 (saldo 1500.75); a compra no crédito não altera o saldo
+        List<LinhaExtratoDTO> completo = movimentacaoDao.buscarExtratoComSaldoPorContaId(1L, null, 100, null);
+        assertEquals(5, completo.size());
+        assertEquals(150_075L, completo.get(0).saldoAposCentavos());
+        for (int i = 1; i < completo.size(); i++) {
+            LinhaExtratoDTO maisRecente = completo.get(i - 1);
+            long efeito = maisRecente.tipo() == TipoMovimentacao.COMPRA_CREDITO ? 0
+                    : "1001-1".equals(maisRecente.contaDestinoNumero()) ? maisRecente.valorCentavos() : -maisRecente.valorCentavos();
+            assertEquals(maisRecente.saldoAposCentavos() - efeito, completo.get(i).saldoAposCentavos());
+        }
+
+        List<LinhaExtratoDTO> paginado = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        List<LinhaExtratoDTO> pagina;
+        do {
+            pagina = movimentacaoDao.buscarExtratoComSaldoPorContaId(1L, cursor, 3, cursor != null ? cursor.saldoCentavos() : null);
+            paginado.addAll(pagina.subList(0, Math.min(2, pagina.size())));
+            if (pagina.size() == 3) {
+                LinhaExtratoDTO ultima = pagina.get(1);
+                cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id(), pagina.get(2).saldoAposCentavos());
+            }
+        } while (pagina.size() == 3);
+
+        assertEquals(completo, paginado);
+        assertNull(movimentacaoDao.buscarExtratoPorContaId(1L, null, 1).get(0).saldoAposCentavos());
+    }
+
+    @Test
+    @DisplayName("O extrato filtrado devolve só as movimentações do período, dos tipos e da faixa de valor pedidos")
+    void extratoFiltrado_deveAplicarFiltrosNaConsulta() {
+        LocalDateTime base = LocalDateTime.of(2030, 3, 15, 10, 0);
+        List<Movimentacao> lote = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Movimentacao movimentacao = deposito(4L);
+            movimentacao.setTipo(i % 3 == 0 ? TipoMovimentacao.DEPOSITO : i % 3 == 1 ? TipoMovimentacao.PIX : TipoMovimentacao.RENDIMENTO);
+            movimentacao.setValorCentavos(1000L * (i + 1));
+            movimentacao.setDataHora(base.minusDays(i * 10L));
+            lote.add(movimentacao);
+        }
+        movimentacaoDao.salvarEmLote(lote);
+        FiltroExtratoDTO filtro = new FiltroExtratoDTO(base.minusDays(60), base.plusSeconds(1),
+                Set.of(TipoMovimentacao.PIX, TipoMovimentacao.DEPOSITO), 2000L, 6000L);
+
+        List<Movimentacao> esperadas = lote.stream()
+                .filter(m -> !m.getDataHora().isBefore(filtro.inicio()) && m.getDataHora().isBefore(filtro.fim()))
+                .filter(m -> filtro.tipos().contains(m.getTipo()))
+                .filter(m -> m.getValorCentavos() >= 2000L && m.getValorCentavos() <= 6000L)
+                .toList();
+        assertEquals(List.of(2000L, 4000L, 5000L), esperadas.stream().map(Movimentacao::getValorCentavos).toList());
+
+        List<LinhaExtratoDTO> percorridas = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        List<LinhaExtratoDTO> pagina;
+        do {
+            pagina = movimentacaoDao.buscarExtratoPorContaId(4L, cursor, filtro, 2);
+            percorridas.addAll(pagina);
+            if (!pagina.isEmpty()) {
+                LinhaExtratoDTO ultima = pagina.get(pagina.size() - 1);
+                cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id());
+            }
+        } while (pagina.size() == 2);
+
+        assertEquals(esperadas.stream().map(Movimentacao::getValorCentavos).toList(),
+                percorridas.stream().map(LinhaExtratoDTO::valorCentavos).toList());
+    }
+
+    @Test
+    @DisplayName("Em um mesmo resultado, cada conta, cliente e cartão é mapeado uma única vez")
+    void mapeamento_deveReaproveitarInstanciasPorId() {
+        // Carga inicial da conta 1001-1: depósito, compra e pagamento com o cartão 1, saque e PIX para a 1001-9
+        List<Movimentacao> movimentacoes = movimentacoesDaConta(1L, 100);
+
+        List<Conta> contasDaConta1 = movimentacoes.stream()
+                .flatMap(m -> Stream.of(m.getContaOrigem(), m.getContaDestino()))
+                .filter(c -> c != null && c.getId() == 1L)
+                .toList();
+        assertEquals(5, contasDaConta1.size());
+        contasDaConta1.forEach(conta -> assertSame(contasDaConta1.get(0), conta));
+        assertEquals("1001-1", contasDaConta1.get(0).getNumero());
+
+        Movimentacao pix = movimentacoes.stream().filter(m -> m.getTipo() == TipoMovimentacao.PIX).findFirst().orElseThrow();
+        assertNotSame(pix.getContaOrigem(), pix.getContaDestino());
+        assertSame(pix.getContaOrigem().getCliente(), pix.getContaDestino().getCliente()); // mesmo titular
+
+        List<Movimentacao> comCartao = movimentacoes.stream().filter(m -> m.getCartao() != null).toList();
+        assertEquals(2, comCartao.size());
+        assertSame(comCartao.get(0).getCartao(), comCartao.get(1).getCartao());
+
+        // Consultas diferentes não compartilham instâncias
+        assertNotSame(contasDaConta1.get(0), movimentacoesDaConta(1L, 1).get(0).getContaOrigem());
+    }
+
+    @Test
+    @DisplayName("O resumo mensal acompanha salvar e salvarEmLote, descarta rollbacks e coincide com a reconstrução")
+    void resumoMensal_deveSerMantidoNaMesmaTransacao() {
+        LocalDateTime janeiro = LocalDateTime.of(2031, 1, 31, 23, 59);
+        Movimentacao transferencia = deposito(3L);
+        transferencia.setTipo(TipoMovimentacao.TRANSFERENCIA);
+        transferencia.setDataHora(janeiro);
+        Conta origem = new ContaCorrente();
+        origem.setId(1L);
+        transferencia.setContaOrigem(origem);
+        movimentacaoDao.salvar(transferencia);
+
+        List<Movimentacao> lote = IntStream.range(0, 4).mapToObj(i -> {
+            Movimentacao movimentacao = deposito(3L);
+            movimentacao.setValorCentavos(100L * (i + 1));
+            movimentacao.setDataHora(i < 3 ? janeiro.minusDays(i) : janeiro.plusMinutes(1)); // a última cai em fevereiro
+            return movimentacao;
+        }).toList();
+        transacao.executeWithoutResult(status -> movimentacaoDao.salvarEmLote(lote));
+        transacao.executeWithoutResult(status -> {
+            movimentacaoDao.salvar(deposito(3L));
+            status.setRollbackOnly();
+        });
+
+        YearMonth mes = YearMonth.of(2031, 1);
+        assertEquals(List.of(
+                new ResumoMensalDTO(mes, TipoMovimentacao.DEPOSITO, 3, 600, 0),
+                new ResumoMensalDTO(mes, TipoMovimentacao.TRANSFERENCIA, 1, 1000, 0)), movimentacaoDao.buscarResumoMensal(3L, mes));
+        assertEquals(List.of(new ResumoMensalDTO(mes, TipoMovimentacao.TRANSFERENCIA, 1, 0, 1000)),
+                movimentacaoDao.buscarResumoMensal(1L, mes));
+        assertEquals(List.of(new ResumoMensalDTO(mes.plusMonths(1), TipoMovimentacao.DEPOSITO, 1, 400, 0)),
+                movimentacaoDao.buscarResumoMensal(3L, mes.plusMonths(1)));
+
+        List<Map<String, Object>> mantido = resumosGravados();
+        movimentacaoDao.reconstruirResumosMensais();
+        assertEquals(mantido, resumosGravados());
+    }
+
+    @Test
+    @DisplayName("O valor é gravado e lido em centavos exatos")
+    void valorCentavos_deveSerPreservadoExatamente() {
+        Movimentacao movimentacao = deposito(2L);
+        movimentacao.setValorCentavos(1_234_567_890_123L);
+        movimentacaoDao.salvar(movimentacao);
+
+        Long gravado = jdbcTemplate.queryForObject(
+                "SELECT valor_centavos FROM movimentacao ORDER BY id DESC LIMIT 1", Long.class);
+        assertEquals(1_234_567_890_123L, gravado);
+        assertEquals("12345678901.23", movimentacao.getValor().toPlainString());
+    }
+
+    // Movimentações completas da conta pelo mesmo mapeador das consultas de fatura e buscarPorId
+    private List<Movimentacao> movimentacoesDaConta(Long contaId, int limite) {
+        return jdbcTemplate.query(MovimentacaoDao.BASE_SELECT_MOVIMENTACAO + """
+                WHERE m.id_conta_origem = ? OR m.id_conta_destino = ?
+                ORDER BY m.data_hora DESC, m.id DESC
+                LIMIT ?
+                """, new MovimentacaoDao.MovimentacaoRowMapper(), contaId, contaId, limite);
+    }
+
+    private List<Map<String, Object>> resumosGravados() {
+        return jdbcTemplate.queryForList("SELECT * FROM resumo_mensal_movimentacao ORDER BY id_conta, ano_mes, tipo");
+    }
+
+    private Movimentacao deposito(Long contaId) {
+        Conta conta = new ContaCorrente();
+        conta.setId(contaId);
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setTipo(TipoMovimentacao.DEPOSITO);
+        movimentacao.setValorCentavos(1000);
+        movimentacao.setDataHora(LocalDateTime.now());
+        movimentacao.setContaDestino(conta);
+        movimentacao.setDescricao("teste");
+        return movimentacao;
+    }
+
+    private int quantidadeMovimentacoes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimentacao", Integer.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.agsilvamhm.bancodigital.repository;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Confere pelo plano de execução (EXPLAIN) que as consultas quentes de movimentacao usam os índices.
+// A tabela recebe 50 mil linhas, uma a cada 20 segundos, e ANALYZE grava as estatísticas: com elas o
+// otimizador já prefere os índices a varrer a tabela, sem o custo de povoar o volume de produção.
+class MovimentacaoIndicesTest {
+
+    private static final int LINHAS = 50_000;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void povoar() {
+        jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("movimentacao_indices"));
+        // 1 em cada 4 linhas é compra no crédito (cartões 1 a 5); as demais são transferências entre as contas 1 a 10.
+        jdbcTemplate.update("""
+                INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, id_cartao)
+                SELECT CASE WHEN MOD(X, 4) = 0 THEN 'COMPRA_CREDITO' ELSE 'TRANSFERENCIA' END,
+                       X,
+                       DATEADD(SECOND, X * 20, TIMESTAMP '2020-01-01 00:00:00'),
+                       CASE WHEN MOD(X, 4) = 0 THEN NULL ELSE MOD(X, 10) + 1 END,
+                       CASE WHEN MOD(X, 4) = 0 THEN NULL ELSE MOD(X + 3, 10) + 1 END,
+                       CASE WHEN MOD(X, 4) = 0 THEN MOD(X, 5) + 1 END
+                FROM SYSTEM_RANGE(1, ?)
+                """, LINHAS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    @DisplayName("Extrato usa os índices de origem e de destino, sem varrer a tabela")
+    void extrato_deveUsarIndicesPorLado() {
+        CursorExtratoDTO cursor = new CursorExtratoDTO(LocalDateTime.of(2020, 1, 10, 0, 0), LINHAS);
+        for (CursorExtratoDTO posicao : new CursorExtratoDTO[]{null, cursor}) {
+            String plano = explicar(MovimentacaoDao.sqlPaginaExtrato(posicao != null),
+                    MovimentacaoDao.parametrosPaginaExtrato(1L, posicao, 51));
+
+            assertTrue(plano.contains("idx_movimentacao_origem_data"), plano);
+            assertTrue(plano.contains("idx_movimentacao_destino_data"), plano);
+            assertFalse(plano.contains("tableScan"), plano);
+        }
+    }
+
+    @Test
+    @DisplayName("Extrato filtrado por tipo e período usa os índices (conta, tipo, data_hora, id)")
+    void extratoFiltrado_deveUsarIndicesPorTipo() {
+        FiltroExtratoDTO filtro = new FiltroExtratoDTO(LocalDateTime.of(2020, 1, 2, 0, 0), LocalDateTime.of(2020, 1, 3, 0, 0),
+                Set.of(TipoMovimentacao.TRANSFERENCIA), null, 5_000_000L);
+        String plano = explicar(MovimentacaoDao.sqlPaginaExtrato(false, filtro),
+                MovimentacaoDao.parametrosPaginaExtrato(1L, null, filtro, 51));
+
+        assertTrue(plano.contains("idx_movimentacao_origem_tipo_data"), plano);
+        assertTrue(plano.contains("idx_movimentacao_destino_tipo_data"), plano);
+        assertFalse(plano.contains("tableScan"), plano);
+
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        List<LinhaExtratoDTO> pagina = movimentacaoDao.buscarExtratoPorContaId(1L, null, filtro, 50);
+        assertEquals(50, pagina.size());
+        pagina.forEach(linha -> {
+            assertEquals(TipoMovimentacao.TRANSFERENCIA, linha.tipo());
+            assertTrue(linha.dataHora().isBefore(filtro.fim()) && !linha.dataHora().isBefore(filtro.inicio()));
+        });
+    }
+
+    @Test
+    @DisplayName("Gastos do cartão no mês usam o índice (id_cartao, tipo, data_hora)")
+    void gastosCredito_devemUsarIndiceDoCartao() {
+        String plano = explicar(MovimentacaoDao.SQL_GASTOS_CREDITO_POR_CARTAO, 1, TipoMovimentacao.COMPRA_CREDITO.name(),
+                Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 0, 0)), Timestamp.valueOf(LocalDateTime.of(2020, 2, 1, 0, 0)));
+
+        assertTrue(plano.contains("idx_movimentacao_cartao_tipo_data"), plano);
+    }
+
+    @Test
+    @DisplayName("Página do extrato de uma conta com milhares de movimentações é lida pelos índices")
+    void extrato_devePaginarSemVarrerATabela() {
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+
+        long inicio = System.nanoTime();
+        var pagina = movimentacaoDao.buscarExtratoPorContaId(1L, null, 50);
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        assertEquals(50, pagina.size());
+        assertTrue(duracaoMs < 1_000, "Página levou " + duracaoMs + " ms");
+    }
+
+    private String explicar(String sql, Object... parametros) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parametros));
+    }
+}
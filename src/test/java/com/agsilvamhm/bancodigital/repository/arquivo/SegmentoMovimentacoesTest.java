@@ -0,0 +1,89 @@
+package com.agsilvamhm.bancodigital.repository.arquivo;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentoMovimentacoesTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    @DisplayName("O segmento devolve as linhas de cada conta nas duas ordens, atravessando vários blocos")
+    void segmento_deveLerLinhasGravadasPorConta() throws Exception {
+        List<LinhaArquivada> conta1 = linhas(1, 10);
+        List<LinhaArquivada> conta3 = linhas(100, 3);
+        Path caminho = diretorio.resolve("teste.seg");
+        try (SegmentoMovimentacoes.Escritor escritor = new SegmentoMovimentacoes.Escritor(caminho, 4)) {
+            for (LinhaArquivada linha : conta1) {
+                escritor.adicionar(1, linha);
+            }
+            for (LinhaArquivada linha : conta3) {
+                escritor.adicionar(3, linha);
+            }
+            escritor.concluir();
+            assertEquals(13, escritor.getLinhas());
+        }
+
+        SegmentoMovimentacoes segmento = SegmentoMovimentacoes.abrir(caminho);
+        assertTrue(segmento.contemConta(1));
+        assertFalse(segmento.contemConta(2));
+        assertEquals(conta1, lista(segmento.crescente(1)));
+        assertEquals(conta3, lista(segmento.crescente(3)));
+        assertFalse(segmento.crescente(2).hasNext());
+
+        List<LinhaArquivada> decrescente = new ArrayList<>(conta1);
+        Collections.reverse(decrescente);
+        assertEquals(decrescente, lista(segmento.decrescente(1, null)));
+
+        // Linhas 4 e 5 têm a mesma data: o cursor na 5 devolve a 4 e as anteriores
+        LinhaExtratoDTO quinta = conta1.get(4).linha();
+        assertEquals(decrescente.subList(6, 10), lista(segmento.decrescente(1, new CursorExtratoDTO(quinta.dataHora(), quinta.id()))));
+    }
+
+    @Test
+    @DisplayName("Linhas fora de ordem são recusadas e o segmento não concluído é apagado")
+    void escritor_deveRecusarLinhasForaDeOrdem() throws Exception {
+        Path caminho = diretorio.resolve("invalido.seg");
+        List<LinhaArquivada> linhas = linhas(1, 3);
+        try (SegmentoMovimentacoes.Escritor escritor = new SegmentoMovimentacoes.Escritor(caminho, 4)) {
+            escritor.adicionar(2, linhas.get(1));
+            assertThrows(IllegalArgumentException.class, () -> escritor.adicionar(2, linhas.get(0)));
+            assertThrows(IllegalArgumentException.class, () -> escritor.adicionar(1, linhas.get(2)));
+        }
+        assertFalse(Files.exists(caminho));
+    }
+
+    // Uma linha por hora, exceto a quinta, com a mesma data da quarta; entradas e saídas alternadas
+    private static List<LinhaArquivada> linhas(int primeiroId, int quantidade) {
+        List<LinhaArquivada> linhas = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            LocalDateTime dataHora = INICIO.plusHours(i == 4 ? 3 : i);
+            linhas.add(new LinhaArquivada(new LinhaExtratoDTO(primeiroId + i, TipoMovimentacao.TRANSFERENCIA, 100L + i, dataHora,
+                    i % 3 == 0 ? null : "Transferência " + i, "1001-1", i % 2 == 0 ? null : "2002-2", null), i % 2 == 1));
+        }
+        return linhas;
+    }
+
+    private static List<LinhaArquivada> lista(Iterator<LinhaArquivada> iterador) {
+        List<LinhaArquivada> lista = new ArrayList<>();
+        iterador.forEachRemaining(lista::add);
+        return lista;
+    }
+}
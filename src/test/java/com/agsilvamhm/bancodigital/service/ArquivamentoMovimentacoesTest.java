@@ -0,0 +1,236 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResumoMensalDTO;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.arquivo.ArquivoMovimentacoes;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArquivamentoMovimentacoesTest {
+
+    private static final long CONTA_1 = 1L; // 1001-1
+    private static final long CONTA_3 = 3L; // 2002-2
+    private static final LocalDateTime CORTE = LocalDateTime.of(2022, 1, 1, 0, 0);
+    private static final long IDADE_MINIMA_ORFAOS_MS = 3_600_000;
+
+    @TempDir
+    Path diretorio;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private ArquivoMovimentacoes arquivo;
+    private MovimentacaoDao movimentacaoDao;
+    private ArquivamentoMovimentacoes arquivamento;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = BancoH2Teste.criar("arquivamento");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        popularHistorico();
+        iniciar();
+    }
+
+    // Recria os componentes sobre o mesmo banco e diretório, como em um reinício da aplicação
+    private void iniciar() {
+        arquivo = novoArquivo();
+        movimentacaoDao = new MovimentacaoDao(jdbcTemplate, false, 1, 0, 1000, arquivo);
+        arquivamento = new ArquivamentoMovimentacoes(movimentacaoDao, arquivo, transactionManager, 180, 1);
+    }
+
+    @Test
+    @DisplayName("Depois do arquivamento, extrato, saldo, filtros, exportação e resumos continuam iguais")
+    void arquivamento_deveManterAsConsultasDoExtrato() {
+        FiltroExtratoDTO filtro = FiltroExtratoDTO.de(LocalDate.of(2020, 3, 1), LocalDate.of(2026, 12, 31),
+                Set.of(TipoMovimentacao.TRANSFERENCIA, TipoMovimentacao.COMPRA_CREDITO), null, null);
+        List<LinhaExtratoDTO> extratoAntes = percorrer(CONTA_1, FiltroExtratoDTO.SEM_FILTRO);
+        List<LinhaExtratoDTO> filtradoAntes = percorrer(CONTA_1, filtro);
+        List<LinhaExtratoDTO> comSaldoAntes = percorrerComSaldo(CONTA_1);
+        List<LinhaExtratoDTO> exportacaoAntes = exportar(CONTA_1);
+        List<LinhaExtratoDTO> extratoConta3Antes = percorrer(CONTA_3, FiltroExtratoDTO.SEM_FILTRO);
+        List<ResumoMensalDTO> resumoAntes = movimentacaoDao.buscarResumoMensal(CONTA_1, YearMonth.of(2020, 2));
+        int movimentacoesAntes = quantidadeMovimentacoes();
+
+        assertEquals(36, arquivamento.arquivar(CORTE));
+
+        // A compra com cartão antiga fica na tabela e é intercalada com as linhas do arquivo
+        assertEquals(movimentacoesAntes - 36, quantidadeMovimentacoes());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM movimentacao WHERE data_hora < ?", Integer.class, CORTE));
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM arquivo_segmento", Integer.class));
+        assertEquals(CORTE, arquivo.getDataCorte());
+
+        assertEquals(extratoAntes, percorrer(CONTA_1, FiltroExtratoDTO.SEM_FILTRO));
+        assertEquals(filtradoAntes, percorrer(CONTA_1, filtro));
+        assertEquals(comSaldoAntes, percorrerComSaldo(CONTA_1));
+        assertEquals(exportacaoAntes, exportar(CONTA_1));
+        assertEquals(extratoConta3Antes, percorrer(CONTA_3, FiltroExtratoDTO.SEM_FILTRO));
+
+        movimentacaoDao.reconstruirResumosMensais();
+        assertEquals(resumoAntes, movimentacaoDao.buscarResumoMensal(CONTA_1, YearMonth.of(2020, 2)));
+
+        // Nada mais a arquivar; após o reinício os segmentos são recarregados
+        assertEquals(0, arquivamento.arquivar(CORTE));
+        iniciar();
+        assertEquals(CORTE, arquivo.getDataCorte());
+        assertEquals(extratoAntes, percorrer(CONTA_1, FiltroExtratoDTO.SEM_FILTRO));
+    }
+
+    @Test
+    @DisplayName("Rollback mantém as movimentações na tabela e apaga os segmentos gravados")
+    void rollback_deveDescartarSegmentos() throws IOException {
+        int movimentacoesAntes = quantidadeMovimentacoes();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            arquivamento.arquivar(CORTE);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(movimentacoesAntes, quantidadeMovimentacoes());
+        assertNull(arquivo.getDataCorte());
+        assertEquals(List.of(), segmentosNoDiretorio());
+    }
+
+    @Test
+    @DisplayName("Só segmentos sem registro mais antigos que a idade mínima são apagados; o corte deve ser início de mês")
+    void carregar_deveApagarSegmentosSemRegistroAntigos() throws IOException {
+        arquivamento.arquivar(CORTE);
+        Path antigo = Files.createFile(diretorio.resolve("movimentacoes-9-antigo.seg"));
+        Files.setLastModifiedTime(antigo, FileTime.from(Instant.now().minus(2, ChronoUnit.HOURS)));
+        // Pode ser de um arquivamento de outra instância ainda não confirmado
+        Path recente = Files.createFile(diretorio.resolve("movimentacoes-9-recente.seg"));
+
+        iniciar();
+
+        assertFalse(Files.exists(antigo));
+        assertTrue(Files.exists(recente));
+        assertEquals(3, segmentosNoDiretorio().size());
+        assertThrows(IllegalArgumentException.class, () -> arquivamento.arquivar(CORTE.plusDays(1)));
+    }
+
+    @Test
+    @DisplayName("Outra instância sobre o mesmo banco e diretório abre os segmentos publicados ao atualizar")
+    void atualizar_deveAbrirSegmentosDeOutraInstancia() {
+        ArquivoMovimentacoes outraInstancia = novoArquivo();
+        MovimentacaoDao outroDao = new MovimentacaoDao(jdbcTemplate, false, 1, 0, 1000, outraInstancia);
+        List<LinhaExtratoDTO> extratoAntes = percorrer(CONTA_1, FiltroExtratoDTO.SEM_FILTRO);
+
+        arquivamento.arquivar(CORTE);
+
+        assertNull(outraInstancia.getDataCorte());
+        assertEquals(2, outraInstancia.atualizar());
+        assertEquals(0, outraInstancia.atualizar());
+        assertEquals(0, arquivo.atualizar());
+        assertEquals(CORTE, outraInstancia.getDataCorte());
+        movimentacaoDao = outroDao;
+        assertEquals(extratoAntes, percorrer(CONTA_1, FiltroExtratoDTO.SEM_FILTRO));
+    }
+
+    @Test
+    @DisplayName("Arquivo habilitado sem diretório configurado não inicia")
+    void habilitadoSemDiretorio_deveFalhar() {
+        assertThrows(IllegalStateException.class,
+                () -> new ArquivoMovimentacoes(jdbcTemplate, true, " ", 4, IDADE_MINIMA_ORFAOS_MS));
+    }
+
+    private ArquivoMovimentacoes novoArquivo() {
+        return new ArquivoMovimentacoes(jdbcTemplate, true, diretorio.toString(), 4, IDADE_MINIMA_ORFAOS_MS);
+    }
+
+    // Transferências mensais entre as contas 1 e 3 e depósitos na conta 1 em 2020 e 2021, uma compra
+    // com cartão antiga e algumas movimentações recentes, com datas repetidas para exercitar o desempate por ID
+    private void popularHistorico() {
+        String insert = "INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, id_cartao, descricao) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        LocalDateTime inicio = LocalDateTime.of(2020, 1, 10, 9, 0);
+        for (int i = 0; i < 24; i++) {
+            LocalDateTime dataHora = inicio.plusMonths(i);
+            boolean daConta1 = i % 2 == 0;
+            jdbcTemplate.update(insert, "TRANSFERENCIA", 1000 + i, dataHora, daConta1 ? CONTA_1 : CONTA_3,
+                    daConta1 ? CONTA_3 : CONTA_1, null, "Transferência " + i);
+            if (i % 2 == 0) {
+                jdbcTemplate.update(insert, "DEPOSITO", 500 + i, dataHora, null, CONTA_1, null, null);
+            }
+        }
+        jdbcTemplate.update(insert, "COMPRA_CREDITO", 4990, LocalDateTime.of(2021, 6, 15, 12, 0), CONTA_1, null, 1, "Compra antiga");
+        for (int i = 0; i < 5; i++) {
+            jdbcTemplate.update(insert, "TRANSFERENCIA", 2000 + i, LocalDateTime.of(2026, 1, 5 + i, 10, 0), CONTA_1, CONTA_3, null, null);
+        }
+        movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        movimentacaoDao.reconstruirResumosMensais();
+    }
+
+    private List<LinhaExtratoDTO> percorrer(long contaId, FiltroExtratoDTO filtro) {
+        List<LinhaExtratoDTO> linhas = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        while (true) {
+            List<LinhaExtratoDTO> pagina = movimentacaoDao.buscarExtratoPorContaId(contaId, cursor, filtro, 3);
+            linhas.addAll(pagina);
+            if (pagina.size() < 3) {
+                return linhas;
+            }
+            LinhaExtratoDTO ultima = pagina.get(2);
+            cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id());
+        }
+    }
+
+    // Como o ContaService: uma linha a mais dá o saldo que ancora a página seguinte
+    private List<LinhaExtratoDTO> percorrerComSaldo(long contaId) {
+        List<LinhaExtratoDTO> linhas = new ArrayList<>();
+        CursorExtratoDTO cursor = null;
+        Long saldo = null;
+        while (true) {
+            List<LinhaExtratoDTO> pagina = movimentacaoDao.buscarExtratoComSaldoPorContaId(contaId, cursor, 4, saldo);
+            linhas.addAll(pagina.subList(0, Math.min(3, pagina.size())));
+            if (pagina.size() < 4) {
+                return linhas;
+            }
+            LinhaExtratoDTO ultima = pagina.get(2);
+            cursor = new CursorExtratoDTO(ultima.dataHora(), ultima.id());
+            saldo = pagina.get(3).saldoAposCentavos();
+        }
+    }
+
+    private List<LinhaExtratoDTO> exportar(long contaId) {
+        List<LinhaExtratoDTO> linhas = new ArrayList<>();
+        assertEquals(movimentacaoDao.percorrerExtratoPorContaId(contaId, linhas::add), linhas.size());
+        return linhas;
+    }
+
+    private int quantidadeMovimentacoes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimentacao", Integer.class);
+    }
+
+    private List<Path> segmentosNoDiretorio() throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.toList();
+        }
+    }
+}
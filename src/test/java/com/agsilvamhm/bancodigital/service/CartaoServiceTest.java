@@ -11,6 +11,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -37,6 +38,10 @@ public class CartaoServiceTest {
     private ContaDao contaDao;
     @Mock
     private MovimentacaoDao movimentacaoDao;
+    @Mock
+    private GerenciadorBloqueioContas gerenciadorBloqueio;
+    @Mock
+    private RazaoContabil razaoContabil;
 
     @InjectMocks // Injeta os mocks nas dependências do CartaoService
     private CartaoService cartaoService;
@@ -101,7 +106,7 @@ public class CartaoServiceTest {
         PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("100.00"), "1234", "Compra Online");
 
         // Mocks
-        when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
+        when(cartaoDao.buscarAutorizacao(cartaoCreditoSuper.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoCreditoSuper)));
         doNothing().when(movimentacaoDao).salvar(any(Movimentacao.class)); // Simula salvar movimentação
 
         // Ação
@@ -118,7 +123,7 @@ public class CartaoServiceTest {
         PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("6000.00"), "1234", "Compra Grande");
 
         // Mocks
-        when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
+        when(cartaoDao.buscarAutorizacao(cartaoCreditoSuper.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoCreditoSuper)));
 
         // Ação e Verificação
         assertThrows(RegraNegocioException.class, () ->
@@ -126,20 +131,42 @@ public class CartaoServiceTest {
         verify(movimentacaoDao, never()).salvar(any(Movimentacao.class));
     }
 
+    @Test
+    @DisplayName("Deve realizar pagamento no débito sem ler a conta")
+    void deveRealizarPagamentoDebitoSemLerAConta() {
+        // Cenário
+        PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("150.00"), "4321", "Mercado");
+
+        // Mocks
+        when(cartaoDao.buscarAutorizacao(cartaoDebitoComum.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoDebitoComum)));
+        when(contaDao.debitar(cartaoDebitoComum.getConta().getId(), request.valor())).thenReturn(true);
+
+        // Ação
+        cartaoService.realizarPagamento(cartaoDebitoComum.getId(), request);
+
+        // Verificações
+        ArgumentCaptor<Movimentacao> movimentacao = ArgumentCaptor.forClass(Movimentacao.class);
+        verify(movimentacaoDao).salvar(movimentacao.capture());
+        assertEquals(cartaoDebitoComum.getConta().getId(), movimentacao.getValue().getContaOrigem().getId());
+        verify(contaDao, never()).buscarPorId(any());
+    }
+
     @Test
     @DisplayName("Deve lançar exceção ao pagar no débito com saldo insuficiente")
     void deveLancarExcecaoAoPagarDebitoComSaldoInsuficiente() {
         // Cenário
         PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("3000.00"), "4321", "Compra Cara");
+        cartaoDebitoComum.setLimiteDiarioDebito(new BigDecimal("5000.00")); // Limite não deve ser o motivo da recusa
 
         // Mocks
-        when(cartaoDao.buscarPorId(cartaoDebitoComum.getId())).thenReturn(Optional.of(cartaoDebitoComum));
-        when(contaDao.buscarPorId(cartaoDebitoComum.getConta().getId())).thenReturn(Optional.of(cartaoDebitoComum.getConta()));
+        when(cartaoDao.buscarAutorizacao(cartaoDebitoComum.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoDebitoComum)));
+        when(contaDao.debitar(cartaoDebitoComum.getConta().getId(), request.valor())).thenReturn(false);
 
         // Ação e Verificação
         assertThrows(RegraNegocioException.class, () ->
                 cartaoService.realizarPagamento(cartaoDebitoComum.getId(), request));
         verify(contaDao, never()).atualizar(any()); // Não deve atualizar a conta
+        assertEquals(new BigDecimal("2000.00"), cartaoDebitoComum.getConta().getSaldo());
         verify(movimentacaoDao, never()).salvar(any(Movimentacao.class));
     }
 
@@ -221,14 +248,14 @@ public class CartaoServiceTest {
 
         // Mocks
         when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
-        doNothing().when(contaDao).atualizar(any()); // Simula atualização da conta
+        when(contaDao.debitar(contaCorrenteSuper.getId(), valorPagamento)).thenReturn(true); // Simula o débito condicional
         doNothing().when(movimentacaoDao).salvar(any(Movimentacao.class));
 
         // Ação
         assertDoesNotThrow(() -> cartaoService.pagarFatura(cartaoCreditoSuper.getId(), request.valorPagamento()));
 
         // Verificações
-        verify(contaDao, times(1)).atualizar(any());
+        verify(contaDao, times(1)).debitar(contaCorrenteSuper.getId(), valorPagamento);
         verify(movimentacaoDao, times(1)).salvar(any(Movimentacao.class));
         // Verifica que o saldo da conta foi debitado (10000 - 500 = 9500)
         assertEquals(new BigDecimal("9500.00"), contaCorrenteSuper.getSaldo());
@@ -260,11 +287,13 @@ public class CartaoServiceTest {
 
         // Mocks
         when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
+        when(contaDao.debitar(contaCorrenteSuper.getId(), valorPagamento)).thenReturn(false);
 
         // Ação e Verificação
         assertThrows(RegraNegocioException.class, () ->
                 cartaoService.pagarFatura(cartaoCreditoSuper.getId(), request.valorPagamento()));
         verify(contaDao, never()).atualizar(any());
+        assertEquals(new BigDecimal("10000.00"), contaCorrenteSuper.getSaldo());
         verify(movimentacaoDao, never()).salvar(any(Movimentacao.class));
     }
 
@@ -324,7 +353,7 @@ public class CartaoServiceTest {
         PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("100.00"), "1234", "Compra");
 
         // Mocks
-        when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
+        when(cartaoDao.buscarAutorizacao(cartaoCreditoSuper.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoCreditoSuper)));
 
         // Ação e Verificação
         assertThrows(RegraNegocioException.class, () ->
@@ -338,7 +367,7 @@ public class CartaoServiceTest {
         PagamentoCartaoRequest request = new PagamentoCartaoRequest(new BigDecimal("100.00"), "senhaErrada", "Compra");
 
         // Mocks
-        when(cartaoDao.buscarPorId(cartaoCreditoSuper.getId())).thenReturn(Optional.of(cartaoCreditoSuper));
+        when(cartaoDao.buscarAutorizacao(cartaoCreditoSuper.getId())).thenReturn(Optional.of(AutorizacaoCartao.de(cartaoCreditoSuper)));
 
         // Ação e Verificação
         assertThrows(RegraNegocioException.class, () ->
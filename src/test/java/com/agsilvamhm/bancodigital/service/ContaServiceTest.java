@@ -4,9 +4,17 @@ import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaExc
 import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
 import com.agsilvamhm.bancodigital.model.*;
 import com.agsilvamhm.bancodigital.model.dto.CriarContaRequest;
+import com.agsilvamhm.bancodigital.model.dto.CursorExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.FiltroExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.LinhaExtratoDTO;
+import com.agsilvamhm.bancodigital.model.dto.PaginaMovimentacoesDTO;
+import com.agsilvamhm.bancodigital.model.dto.PixRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResumoMensalDTO;
 import com.agsilvamhm.bancodigital.repository.ClienteDao;
 import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
 import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,15 +22,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,7 +47,21 @@ class ContaServiceTest {
     @Mock
     private ClienteDao clienteDao;
     @Mock
+    private DiretorioChavesPix diretorioChavesPix;
+    @Mock
     private MovimentacaoDao movimentacaoDao;
+    @Mock
+    private GerenciadorBloqueioContas gerenciadorBloqueio;
+    @Mock
+    private MotorTransferenciasParticionado motorParticionado;
+    @Mock
+    private RetentativaOtimista retentativaOtimista;
+    @Mock
+    private RazaoContabil razaoContabil;
+    @Mock
+    private GerenciadorTarifas gerenciadorTarifas;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private ContaService contaService;
@@ -45,6 +73,8 @@ class ContaServiceTest {
 
     @BeforeEach
     void setUp() {
+        lenient().when(gerenciadorTarifas.tarifa(any())).thenAnswer(chamada -> TarifaCategoria.padrao(chamada.getArgument(0)));
+
         clienteComum = new Cliente();
         clienteComum.setId(1);
         clienteComum.setNome("Cliente Comum");
@@ -92,6 +122,7 @@ class ContaServiceTest {
         assertEquals(clienteComum.getId(), novaConta.getCliente().getId());
         assertEquals(BigDecimal.ZERO, novaConta.getSaldo());
         verify(contaDao, times(1)).salvar(any(ContaCorrente.class));
+        verify(diretorioChavesPix).registrarConta(clienteComum.getCpf(), 1L);
     }
 
     @Test
@@ -111,14 +142,29 @@ class ContaServiceTest {
         when(contaDao.buscarPorId(contaCorrente.getId())).thenReturn(Optional.of(contaCorrente));
         BigDecimal saldoInicial = contaCorrente.getSaldo();
         BigDecimal taxaEsperada = CategoriaCliente.COMUM.getTaxaManutencao();
+        when(contaDao.debitar(contaCorrente.getId(), taxaEsperada)).thenReturn(true);
         Movimentacao movimentacao = contaService.aplicarTaxaManutencao(contaCorrente.getId());
         assertNotNull(movimentacao);
         assertEquals(saldoInicial.subtract(taxaEsperada), contaCorrente.getSaldo());
-        assertEquals(taxaEsperada.doubleValue(), movimentacao.getValor());
-        verify(contaDao, times(1)).atualizar(contaCorrente);
+        assertEquals(Centavos.deReais(taxaEsperada), movimentacao.getValorCentavos());
+        verify(contaDao, times(1)).debitar(contaCorrente.getId(), taxaEsperada);
+        verify(contaDao, never()).atualizar(any());
         verify(movimentacaoDao, times(1)).salvar(any(Movimentacao.class));
     }
 
+    @Test
+    @DisplayName("Taxa de manutenção deve vir da tabela de tarifas vigente")
+    void aplicarTaxaManutencao_deveUsarTarifaVigente() {
+        BigDecimal taxaVigente = new BigDecimal("20.00");
+        when(gerenciadorTarifas.tarifa(CategoriaCliente.COMUM)).thenReturn(TarifaCategoria.de(CategoriaCliente.COMUM,
+                taxaVigente, new BigDecimal("0.005"), new BigDecimal("1000.00"), LocalDate.of(2026, 1, 1)));
+        when(contaDao.buscarPorId(contaCorrente.getId())).thenReturn(Optional.of(contaCorrente));
+        when(contaDao.debitar(contaCorrente.getId(), taxaVigente)).thenReturn(true);
+
+        Movimentacao movimentacao = contaService.aplicarTaxaManutencao(contaCorrente.getId());
+        assertEquals(Centavos.deReais(taxaVigente), movimentacao.getValorCentavos());
+    }
+
     @Test
     @DisplayName("Não deve aplicar taxa de manutenção para cliente Premium")
     void aplicarTaxaManutencao_naoDeveFazerNada_paraClientePremium() {
@@ -127,6 +173,7 @@ class ContaServiceTest {
         Movimentacao movimentacao = contaService.aplicarTaxaManutencao(contaCorrente.getId());
         assertNull(movimentacao);
         verify(contaDao, never()).atualizar(any());
+        verify(contaDao, never()).debitar(any(), any());
         verify(movimentacaoDao, never()).salvar(any());
     }
 
@@ -135,10 +182,11 @@ class ContaServiceTest {
     void aplicarTaxaManutencao_deveLancarExcecao_quandoSaldoInsuficiente() {
         contaCorrente.setSaldo(new BigDecimal("5.00")); // Saldo menor que a taxa de R$12.00
         when(contaDao.buscarPorId(contaCorrente.getId())).thenReturn(Optional.of(contaCorrente));
+        when(contaDao.debitar(contaCorrente.getId(), CategoriaCliente.COMUM.getTaxaManutencao())).thenReturn(false);
         assertThrows(RegraNegocioException.class, () -> {
             contaService.aplicarTaxaManutencao(contaCorrente.getId());
         });
-        verify(contaDao, never()).atualizar(any());
+        assertEquals(new BigDecimal("5.00"), contaCorrente.getSaldo());
         verify(movimentacaoDao, never()).salvar(any());
     }
 
@@ -149,9 +197,10 @@ class ContaServiceTest {
         BigDecimal saldoInicial = contaPoupanca.getSaldo();
         BigDecimal taxaMensal = CategoriaCliente.COMUM.getTaxaRendimentoMensalEquivalente();
         BigDecimal rendimentoEsperado = saldoInicial.multiply(taxaMensal);
+        when(contaDao.creditar(eq(contaPoupanca.getId()), any(BigDecimal.class))).thenReturn(true);
         contaService.aplicarRendimentos(contaPoupanca.getId());
         assertThat(contaPoupanca.getSaldo().toString()).startsWith(saldoInicial.add(rendimentoEsperado).toString().substring(0, 4));
-        verify(contaDao, times(1)).atualizar(contaPoupanca);
+        verify(contaDao, times(1)).creditar(eq(contaPoupanca.getId()), any(BigDecimal.class));
         verify(movimentacaoDao, times(1)).salvar(any(Movimentacao.class));
     }
 
@@ -163,6 +212,136 @@ class ContaServiceTest {
             contaService.aplicarRendimentos(contaCorrente.getId());
         });
         assertEquals("Rendimentos só podem ser aplicados a Contas Poupança.", exception.getMessage());
-        verify(contaDao, never()).atualizar(any());
+        verify(contaDao, never()).creditar(any(), any());
+    }
+
+    @Test
+    @DisplayName("Extrato paginado deve devolver o cursor da última movimentação quando há próxima página")
+    void listarMovimentacoes_deveDevolverProximoCursor() {
+        LocalDateTime agora = LocalDateTime.of(2030, 1, 1, 12, 0);
+        List<LinhaExtratoDTO> tresLinhas = List.of(linha(9, agora), linha(8, agora), linha(7, agora.minusHours(1)));
+        when(movimentacaoDao.buscarExtratoPorContaId(contaCorrente.getId(), null, FiltroExtratoDTO.SEM_FILTRO, 3)).thenReturn(tresLinhas);
+
+        PaginaMovimentacoesDTO pagina = contaService.listarMovimentacoesPorConta(contaCorrente.getId(), null, 2);
+
+        assertEquals(2, pagina.movimentacoes().size());
+        assertEquals(new CursorExtratoDTO(agora, 8), CursorExtratoDTO.decodificar(pagina.proximoCursor()));
+        verifyNoInteractions(contaDao); // As linhas devolvidas já comprovam que a conta existe
+    }
+
+    @Test
+    @DisplayName("Extrato com saldo deve continuar a próxima página a partir do saldo guardado no cursor")
+    void listarMovimentacoesComSaldo_deveLevarSaldoNoCursor() {
+        LocalDateTime agora = LocalDateTime.of(2030, 1, 1, 12, 0);
+        CursorExtratoDTO anterior = new CursorExtratoDTO(agora.plusHours(1), 10, 5_000L);
+        List<LinhaExtratoDTO> tresLinhas = List.of(linha(9, agora, 5_000L), linha(8, agora, 4_900L), linha(7, agora, 4_800L));
+        when(movimentacaoDao.buscarExtratoComSaldoPorContaId(contaCorrente.getId(), anterior, 3, 5_000L)).thenReturn(tresLinhas);
+
+        PaginaMovimentacoesDTO pagina = contaService.listarMovimentacoesPorConta(contaCorrente.getId(), anterior.codificar(), 2, true, FiltroExtratoDTO.SEM_FILTRO);
+
+        assertEquals(2, pagina.movimentacoes().size());
+        assertEquals(new CursorExtratoDTO(agora, 8, 4_800L), CursorExtratoDTO.decodificar(pagina.proximoCursor()));
+        verify(movimentacaoDao, never()).buscarExtratoPorContaId(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Extrato com saldo deve recusar cursor emitido sem saldo")
+    void listarMovimentacoesComSaldo_deveRecusarCursorSemSaldo() {
+        String cursorSemSaldo = new CursorExtratoDTO(LocalDateTime.of(2030, 1, 1, 12, 0), 8).codificar();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> contaService.listarMovimentacoesPorConta(contaCorrente.getId(), cursorSemSaldo, 2, true, FiltroExtratoDTO.SEM_FILTRO));
+        verifyNoInteractions(movimentacaoDao);
+    }
+
+    @Test
+    @DisplayName("Extrato filtrado deve repassar o filtro ao DAO e recusar a combinação com saldo")
+    void listarMovimentacoesFiltradas_deveRepassarFiltro() {
+        FiltroExtratoDTO filtro = FiltroExtratoDTO.de(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31),
+                Set.of(TipoMovimentacao.PIX), null, new BigDecimal("100.00"));
+        when(movimentacaoDao.buscarExtratoPorContaId(contaCorrente.getId(), null, filtro, 11)).thenReturn(List.of(linha(9, LocalDateTime.now())));
+
+        assertEquals(1, contaService.listarMovimentacoesPorConta(contaCorrente.getId(), null, 10, false, filtro).movimentacoes().size());
+        assertThrows(IllegalArgumentException.class,
+                () -> contaService.listarMovimentacoesPorConta(contaCorrente.getId(), null, 10, true, filtro));
+    }
+
+    @Test
+    @DisplayName("Filtro do extrato deve tornar a data final inclusiva e recusar faixas invertidas")
+    void filtroExtrato_deveConverterEValidarParametros() {
+        FiltroExtratoDTO filtro = FiltroExtratoDTO.de(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31), null,
+                new BigDecimal("0.50"), new BigDecimal("10"));
+
+        assertEquals(LocalDateTime.of(2030, 2, 1, 0, 0), filtro.fim());
+        assertEquals(50L, filtro.valorMinimoCentavos());
+        assertEquals(1000L, filtro.valorMaximoCentavos());
+        assertTrue(filtro.tipos().isEmpty());
+        assertTrue(FiltroExtratoDTO.SEM_FILTRO.isVazio());
+        assertThrows(IllegalArgumentException.class,
+                () -> FiltroExtratoDTO.de(LocalDate.of(2030, 2, 1), LocalDate.of(2030, 1, 1), null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> FiltroExtratoDTO.de(null, null, null, new BigDecimal("5"), new BigDecimal("4.99")));
+        assertThrows(IllegalArgumentException.class,
+                () -> FiltroExtratoDTO.de(null, null, null, new BigDecimal("0.001"), null));
+    }
+
+    @Test
+    @DisplayName("Resumo mensal vazio só consulta a conta para distinguir mês sem movimentações de conta inexistente")
+    void consultarResumoMensal_deveVerificarContaApenasQuandoVazio() {
+        YearMonth mes = YearMonth.of(2030, 1);
+        when(movimentacaoDao.buscarResumoMensal(contaCorrente.getId(), mes))
+                .thenReturn(List.of(new ResumoMensalDTO(mes, TipoMovimentacao.DEPOSITO, 2, 5000, 0)));
+        when(movimentacaoDao.buscarResumoMensal(99L, mes)).thenReturn(List.of());
+        when(contaDao.existe(99L)).thenReturn(false);
+
+        assertEquals(1, contaService.consultarResumoMensal(contaCorrente.getId(), mes).size());
+        assertThrows(EntidadeNaoEncontradaException.class, () -> contaService.consultarResumoMensal(99L, mes));
+        verify(contaDao, never()).existe(contaCorrente.getId());
+    }
+
+    @Test
+    @DisplayName("Extrato vazio de conta inexistente deve lançar EntidadeNaoEncontradaException")
+    void listarMovimentacoes_deveLancarExcecao_quandoContaNaoExiste() {
+        when(movimentacaoDao.buscarExtratoPorContaId(99L, null, FiltroExtratoDTO.SEM_FILTRO, 11)).thenReturn(List.of());
+        when(contaDao.existe(99L)).thenReturn(false);
+
+        assertThrows(EntidadeNaoEncontradaException.class, () -> contaService.listarMovimentacoesPorConta(99L, null, 10));
+    }
+
+    @Test
+    @DisplayName("PIX resolve a chave pelo diretório e distingue chave desconhecida de cliente sem conta")
+    void realizarPix_deveResolverChavePeloDiretorio() {
+        when(contaDao.buscarPorId(contaCorrente.getId())).thenReturn(Optional.of(contaCorrente));
+        when(diretorioChavesPix.resolver("000.000.000-00")).thenReturn(null);
+        when(diretorioChavesPix.resolver("567.890.123-14")).thenReturn(DiretorioChavesPix.SEM_CONTA);
+        when(diretorioChavesPix.resolver("980.246.810-05")).thenReturn(contaCorrente.getId());
+
+        var chaveDesconhecida = assertThrows(EntidadeNaoEncontradaException.class, () -> contaService.realizarPix(
+                contaCorrente.getId(), new PixRequestDTO(BigDecimal.TEN, "000.000.000-00", null)));
+        assertEquals("Nenhuma conta encontrada para a Chave PIX (CPF) fornecida.", chaveDesconhecida.getMessage());
+        var semConta = assertThrows(EntidadeNaoEncontradaException.class, () -> contaService.realizarPix(
+                contaCorrente.getId(), new PixRequestDTO(BigDecimal.TEN, "567.890.123-14", null)));
+        assertEquals("O destinatário da Chave PIX não possui uma conta ativa.", semConta.getMessage());
+        assertThrows(RegraNegocioException.class, () -> contaService.realizarPix(
+                contaCorrente.getId(), new PixRequestDTO(BigDecimal.TEN, "980.246.810-05", null)));
+        verifyNoInteractions(clienteDao, movimentacaoDao);
+    }
+
+    @Test
+    @DisplayName("Extrato paginado deve rejeitar tamanho de página e cursor inválidos")
+    void listarMovimentacoes_deveRejeitarParametrosInvalidos() {
+        assertThrows(IllegalArgumentException.class, () -> contaService.listarMovimentacoesPorConta(10L, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> contaService.listarMovimentacoesPorConta(10L, null, ContaService.TAMANHO_MAXIMO_PAGINA + 1));
+        assertThrows(IllegalArgumentException.class, () -> contaService.listarMovimentacoesPorConta(10L, "nao-e-um-cursor", 10));
+        verifyNoInteractions(movimentacaoDao);
+    }
+
+    private LinhaExtratoDTO linha(int id, LocalDateTime dataHora) {
+        return linha(id, dataHora, null);
+    }
+
+    private LinhaExtratoDTO linha(int id, LocalDateTime dataHora, Long saldoApos) {
+        return new LinhaExtratoDTO(id, TipoMovimentacao.DEPOSITO, 100, dataHora, null, null, contaCorrente.getNumero(), saldoApos);
     }
 }
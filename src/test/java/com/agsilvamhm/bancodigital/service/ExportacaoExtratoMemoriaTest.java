@@ -0,0 +1,104 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Exporta um milhão de movimentações em uma JVM separada com heap de 64 MB: materializar o extrato
+// (mais de 250 bytes por linha) estouraria o heap, enquanto a exportação em fluxo passa com folga.
+// O banco fica em arquivo para que os dados não ocupem o heap da JVM testada. Leva cerca de dois
+// minutos, então fica fora do build padrão: rode com mvn test -Plento.
+@Tag("lento")
+class ExportacaoExtratoMemoriaTest {
+
+    private static final int LINHAS = 1_000_000;
+    private static final int LINHAS_POR_INSERT = 20_000;
+    private static final String HEAP_MAXIMO = "-Xmx64m";
+
+    @Test
+    @DisplayName("Exportação de um milhão de movimentações cabe em um heap de 64 MB")
+    void exportacao_deveManterMemoriaConstante(@TempDir Path diretorio) throws Exception {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Path log = diretorio.resolve("exportador.log");
+        Process processo = new ProcessBuilder(List.of(java.toString(), HEAP_MAXIMO,
+                "-cp", System.getProperty("java.class.path"),
+                Exportador.class.getName(), diretorio.resolve("extrato").toString(), String.valueOf(LINHAS)))
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+
+        boolean terminou = processo.waitFor(5, TimeUnit.MINUTES);
+        if (!terminou) {
+            processo.destroyForcibly();
+        }
+        String saida = Files.readString(log, StandardCharsets.UTF_8);
+        assertTrue(terminou, "Exportador não terminou no tempo limite:\n" + saida);
+        assertEquals(0, processo.exitValue(), saida);
+        assertTrue(saida.contains("linhas exportadas: " + (LINHAS + 5)), saida); // mais as 5 da carga inicial
+    }
+
+    // Executado na JVM filha: povoa a conta 1 e exporta o extrato em CSV para uma saída que só conta linhas
+    static final class Exportador {
+
+        public static void main(String[] args) throws Exception {
+            String url = "jdbc:h2:file:" + args[0] + ";DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1;CACHE_SIZE=4096";
+            int linhas = Integer.parseInt(args[1]);
+            DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "sa");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+            for (int inicio = 1; inicio <= linhas; inicio += LINHAS_POR_INSERT) {
+                jdbcTemplate.update("""
+                        INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, descricao)
+                        SELECT 'TRANSFERENCIA', X, DATEADD(SECOND, X, TIMESTAMP '2015-01-01 00:00:00'),
+                               CASE WHEN MOD(X, 2) = 0 THEN 1 ELSE 3 END, CASE WHEN MOD(X, 2) = 0 THEN 3 ELSE 1 END,
+                               'Transferencia ' || X
+                        FROM SYSTEM_RANGE(?, ?)
+                        """, inicio, Math.min(inicio + LINHAS_POR_INSERT - 1, linhas));
+            }
+
+            ExportacaoExtratoService exportacaoService = new ExportacaoExtratoService(new ContaDao(jdbcTemplate),
+                    new MovimentacaoDao(jdbcTemplate, false, 1, 0, 1000), new ObjectMapper().findAndRegisterModules());
+            ContadorDeLinhas contador = new ContadorDeLinhas();
+            exportacaoService.exportar(1L, FormatoExportacao.CSV, contador);
+
+            System.out.println("linhas exportadas: " + (contador.linhas - 1)); // sem o cabeçalho
+            System.exit(0);
+        }
+    }
+
+    private static final class ContadorDeLinhas extends OutputStream {
+        private long linhas;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                linhas++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+    }
+}
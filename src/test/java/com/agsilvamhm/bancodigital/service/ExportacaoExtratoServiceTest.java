@@ -0,0 +1,101 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.EntidadeNaoEncontradaException;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportacaoExtratoServiceTest {
+
+    private static final Long CONTA_1 = 1L; // 1001-1, cinco movimentações na carga inicial
+    private static final Long CONTA_3 = 3L; // 2002-2, duas movimentações na carga inicial
+
+    private JdbcTemplate jdbcTemplate;
+    private ObjectMapper objectMapper;
+    private ExportacaoExtratoService exportacaoService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(BancoH2Teste.criar("exportacao_extrato"));
+        objectMapper = new ObjectMapper().findAndRegisterModules();
+        exportacaoService = new ExportacaoExtratoService(new ContaDao(jdbcTemplate),
+                new MovimentacaoDao(jdbcTemplate, false, 1, 0, 2), objectMapper);
+    }
+
+    @Test
+    @DisplayName("CSV traz cabeçalho, ordem cronológica e campos com vírgula ou aspas entre aspas")
+    void csv_deveEscaparCamposEOrdenarDoMaisAntigo() throws Exception {
+        jdbcTemplate.update("""
+                INSERT INTO movimentacao (tipo, valor_centavos, data_hora, id_conta_origem, id_conta_destino, descricao)
+                VALUES ('TRANSFERENCIA', 123456, ?, 1, 3, 'Aluguel, "março"')
+                """, Timestamp.valueOf(LocalDateTime.of(2020, 3, 5, 10, 30)));
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        long exportadas = exportacaoService.exportar(CONTA_3, FormatoExportacao.CSV, saida);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, exportadas);
+        assertEquals(4, linhas.length);
+        assertEquals("id,data_hora,tipo,valor,descricao,conta_origem,conta_destino", linhas[0]);
+        assertTrue(linhas[1].endsWith(",2020-03-05T10:30,TRANSFERENCIA,1234.56,\"Aluguel, \"\"março\"\"\",1001-1,2002-2"), linhas[1]);
+        assertTrue(linhas[3].contains(",TRANSFERENCIA,50.00,") && linhas[3].endsWith(",2002-2,"), linhas[3]);
+    }
+
+    @Test
+    @DisplayName("NDJSON traz um objeto por linha, no formato do extrato paginado")
+    void ndjson_deveEscreverUmaLinhaPorMovimentacao() throws Exception {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        long exportadas = exportacaoService.exportar(CONTA_1, FormatoExportacao.NDJSON, saida);
+
+        String conteudo = saida.toString(StandardCharsets.UTF_8);
+        assertTrue(conteudo.endsWith("\n"));
+        List<JsonNode> linhas = new ArrayList<>();
+        for (String json : conteudo.split("\n")) {
+            linhas.add(objectMapper.readTree(json));
+        }
+        assertEquals(5, exportadas);
+        assertEquals(5, linhas.size());
+        assertEquals(0, new BigDecimal("200.00").compareTo(linhas.get(0).get("valor").decimalValue()));
+        assertEquals("DEPOSITO", linhas.get(0).get("tipo").asText());
+        assertEquals("1001-1", linhas.get(0).get("contaDestinoNumero").asText());
+        for (int i = 1; i < linhas.size(); i++) {
+            assertTrue(linhas.get(i - 1).get("id").asInt() < linhas.get(i).get("id").asInt());
+        }
+    }
+
+    @Test
+    @DisplayName("Conta sem movimentações gera apenas o cabeçalho do CSV e NDJSON vazio")
+    void contaSemMovimentacoes_deveGerarSaidaVazia() throws Exception {
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+
+        assertEquals(0, exportacaoService.exportar(9L, FormatoExportacao.CSV, csv));
+        assertEquals(0, exportacaoService.exportar(9L, FormatoExportacao.NDJSON, ndjson));
+
+        assertEquals("id,data_hora,tipo,valor,descricao,conta_origem,conta_destino\n", csv.toString(StandardCharsets.UTF_8));
+        assertEquals(0, ndjson.size());
+    }
+
+    @Test
+    @DisplayName("Conta inexistente é recusada antes de a exportação começar")
+    void verificarConta_deveRecusarContaInexistente() {
+        assertDoesNotThrow(() -> exportacaoService.verificarConta(CONTA_1));
+        assertThrows(EntidadeNaoEncontradaException.class, () -> exportacaoService.verificarConta(999L));
+    }
+}
@@ -0,0 +1,87 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioBloqueiosDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GerenciadorBloqueioContasTest {
+
+    @AfterEach
+    void limparSincronizacao() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Desabilitado, não deve bloquear nem exigir transação")
+    void desabilitado_naoDeveBloquear() {
+        GerenciadorBloqueioContas gerenciador = new GerenciadorBloqueioContas(false, 16, 100);
+        assertDoesNotThrow(() -> gerenciador.bloquearAteFimDaTransacao(1L, 2L));
+        assertEquals(0, gerenciador.gerarRelatorio(10).aquisicoes());
+    }
+
+    @Test
+    @DisplayName("Deve exigir uma transação ativa quando habilitado")
+    void habilitado_semTransacao_deveLancarExcecao() {
+        GerenciadorBloqueioContas gerenciador = new GerenciadorBloqueioContas(true, 16, 100);
+        assertThrows(IllegalStateException.class, () -> gerenciador.bloquearAteFimDaTransacao(1L));
+    }
+
+    @Test
+    @DisplayName("Deve reter o bloqueio até o fim da transação e registrar a disputa pela conta")
+    void deveReterBloqueioAteFimDaTransacao() {
+        GerenciadorBloqueioContas gerenciador = new GerenciadorBloqueioContas(true, 16, 50);
+
+        TransactionSynchronizationManager.initSynchronization();
+        gerenciador.bloquearAteFimDaTransacao(7L, 3L);
+
+        // Outra thread (outra transação) não consegue a conta 7 enquanto a primeira transação não termina
+        CompletableFuture<Throwable> concorrente = CompletableFuture.supplyAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                gerenciador.bloquearAteFimDaTransacao(7L);
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        assertInstanceOf(ConflitoConcorrenciaException.class, concorrente.join());
+
+        // Ao concluir a transação, os segmentos são liberados
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        CompletableFuture<Throwable> posCommit = CompletableFuture.supplyAsync(() -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                gerenciador.bloquearAteFimDaTransacao(7L);
+                TransactionSynchronizationManager.getSynchronizations()
+                        .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        assertNull(posCommit.join());
+
+        RelatorioBloqueiosDTO relatorio = gerenciador.gerarRelatorio(10);
+        assertEquals(1, relatorio.timeouts());
+        assertEquals(1, relatorio.aquisicoesComEspera());
+        assertEquals(7L, relatorio.contasMaisDisputadas().get(0).contaId());
+        assertFalse(relatorio.segmentos().isEmpty());
+    }
+}
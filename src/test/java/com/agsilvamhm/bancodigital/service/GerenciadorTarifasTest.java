@@ -0,0 +1,82 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.CategoriaCliente;
+import com.agsilvamhm.bancodigital.model.TabelaTarifas;
+import com.agsilvamhm.bancodigital.model.TarifaCategoria;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GerenciadorTarifasTest {
+
+    private final AtomicReference<LocalDate> hoje = new AtomicReference<>(LocalDate.of(2026, 3, 10));
+    private TarifaCategoriaDao tarifaCategoriaDao;
+    private GerenciadorTarifas gerenciador;
+
+    @BeforeEach
+    void setUp() {
+        tarifaCategoriaDao = new TarifaCategoriaDao(new JdbcTemplate(BancoH2Teste.criar("tarifas")));
+        gerenciador = new GerenciadorTarifas(tarifaCategoriaDao, hoje::get);
+    }
+
+    @Test
+    @DisplayName("A carga inicial reproduz as tarifas padrão, com a taxa mensal já calculada")
+    void carga_deveTrazerTarifasDoBanco() {
+        for (CategoriaCliente categoria : CategoriaCliente.values()) {
+            TarifaCategoria tarifa = gerenciador.tarifa(categoria);
+            assertEquals(0, categoria.getTaxaManutencao().compareTo(tarifa.taxaManutencao()));
+            assertEquals(0, categoria.getLimiteCreditoPadrao().compareTo(tarifa.limiteCreditoPadrao()));
+            assertEquals(categoria.getTaxaRendimentoMensalEquivalente(), tarifa.taxaRendimentoMensal());
+        }
+        assertNull(gerenciador.atual().getProximaVigencia());
+        assertFalse(gerenciador.atualizar());
+    }
+
+    @Test
+    @DisplayName("Tarifa com vigência futura só entra na tabela quando a data chega")
+    void tarifaFutura_deveEntrarNaVigencia() {
+        TabelaTarifas anterior = gerenciador.atual();
+        gerenciador.cadastrar(CategoriaCliente.COMUM, new BigDecimal("15.00"), new BigDecimal("0.006"),
+                new BigDecimal("1500.00"), LocalDate.of(2026, 4, 1));
+
+        assertNotSame(anterior, gerenciador.atual());
+        assertEquals(new BigDecimal("12.00"), gerenciador.tarifa(CategoriaCliente.COMUM).taxaManutencao());
+        assertEquals(LocalDate.of(2026, 4, 1), gerenciador.atual().getProximaVigencia());
+        assertFalse(gerenciador.atualizar());
+
+        hoje.set(LocalDate.of(2026, 4, 1));
+        assertTrue(gerenciador.atualizar());
+        TarifaCategoria comum = gerenciador.tarifa(CategoriaCliente.COMUM);
+        assertEquals(new BigDecimal("15.00"), comum.taxaManutencao());
+        assertEquals(CategoriaCliente.taxaMensalEquivalente(new BigDecimal("0.006")), comum.taxaRendimentoMensal());
+        assertEquals(new BigDecimal("8.00"), gerenciador.tarifa(CategoriaCliente.SUPER).taxaManutencao());
+    }
+
+    @Test
+    @DisplayName("Cadastros de outra instância são percebidos pela versão da tabela")
+    void atualizar_deveRecarregarQuandoABaseMudar() {
+        GerenciadorTarifas outraInstancia = new GerenciadorTarifas(tarifaCategoriaDao, hoje::get);
+        outraInstancia.cadastrar(CategoriaCliente.PREMIUM, BigDecimal.ZERO, new BigDecimal("0.010"),
+                new BigDecimal("20000.00"), hoje.get());
+
+        assertEquals(new BigDecimal("10000.00"), gerenciador.tarifa(CategoriaCliente.PREMIUM).limiteCreditoPadrao());
+        assertTrue(gerenciador.atualizar());
+        assertEquals(new BigDecimal("20000.00"), gerenciador.tarifa(CategoriaCliente.PREMIUM).limiteCreditoPadrao());
+    }
+
+    @Test
+    @DisplayName("Não deve aceitar tarifa com vigência no passado")
+    void cadastrar_deveRecusarVigenciaPassada() {
+        assertThrows(IllegalArgumentException.class, () -> gerenciador.cadastrar(CategoriaCliente.COMUM,
+                BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.TEN, hoje.get().minusDays(1)));
+    }
+}
@@ -0,0 +1,142 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.ContaCorrente;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.OperacaoContaDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.IdempotenciaDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotenciaServiceTest {
+
+    private static final BigDecimal VALOR = new BigDecimal("10.00");
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ContaDao contaDao;
+    private IdempotenciaService idempotenciaService;
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = BancoH2Teste.criar("idempotencia");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        contaDao = new ContaDao(jdbcTemplate);
+        idempotenciaService = novaInstancia();
+    }
+
+    @Test
+    @DisplayName("Requisições simultâneas com a mesma chave devem executar a operação uma única vez")
+    void duplicatasSimultaneas_devemExecutarUmaVez() throws Exception {
+        BigDecimal saldoInicial = saldo(1L);
+        OperacaoContaDTO request = new OperacaoContaDTO(VALOR, "saque");
+        int threads = 16;
+        CountDownLatch largada = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Movimentacao>> futuros = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                return idempotenciaService.executar("chave-1", "POST /contas/1/saque", request, Movimentacao.class, this::sacar);
+            }));
+        }
+        largada.countDown();
+        List<Movimentacao> respostas = new ArrayList<>();
+        for (Future<Movimentacao> futuro : futuros) {
+            respostas.add(futuro.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, execucoes.get());
+        assertEquals(0, saldoInicial.subtract(VALOR).compareTo(saldo(1L)));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotencia", Integer.class));
+        respostas.forEach(resposta -> {
+            assertEquals(TipoMovimentacao.SAQUE, resposta.getTipo());
+            assertEquals(1L, resposta.getContaOrigem().getId());
+        });
+    }
+
+    @Test
+    @DisplayName("Outra instância deve devolver a resposta gravada no banco sem executar a operação")
+    void repeticaoEmOutraInstancia_deveUsarRespostaGravada() {
+        OperacaoContaDTO request = new OperacaoContaDTO(VALOR, "saque");
+        idempotenciaService.executar("chave-2", "POST /contas/1/saque", request, Movimentacao.class, this::sacar);
+        BigDecimal saldoAposPrimeira = saldo(1L);
+
+        Movimentacao repetida = novaInstancia()
+                .executar("chave-2", "POST /contas/1/saque", request, Movimentacao.class, this::sacar);
+
+        assertEquals(1, execucoes.get());
+        assertEquals(0, saldoAposPrimeira.compareTo(saldo(1L)));
+        assertEquals(0, VALOR.compareTo(repetida.getValor()));
+    }
+
+    @Test
+    @DisplayName("Reutilizar a chave com outro corpo deve ser recusado")
+    void chaveComOutroCorpo_deveSerRecusada() {
+        idempotenciaService.executar("chave-3", "POST /contas/1/saque", new OperacaoContaDTO(VALOR, "saque"),
+                Movimentacao.class, this::sacar);
+
+        assertThrows(RegraNegocioException.class, () -> idempotenciaService.executar("chave-3", "POST /contas/1/saque",
+                new OperacaoContaDTO(BigDecimal.ONE, "saque"), Movimentacao.class, this::sacar));
+        assertEquals(1, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("Uma execução com erro não deve ser gravada, e a repetição executa novamente")
+    void execucaoComErro_naoDeveSerGravada() {
+        OperacaoContaDTO request = new OperacaoContaDTO(VALOR, "saque");
+
+        assertThrows(RegraNegocioException.class, () -> idempotenciaService.executar("chave-4", "POST /contas/1/saque",
+                request, Movimentacao.class, () -> { throw new RegraNegocioException("Saldo insuficiente."); }));
+        idempotenciaService.executar("chave-4", "POST /contas/1/saque", request, Movimentacao.class, this::sacar);
+
+        assertEquals(1, execucoes.get());
+        assertTrue(new IdempotenciaDao(jdbcTemplate).buscarValida("chave-4", LocalDateTime.now()).isPresent());
+    }
+
+    private Movimentacao sacar() {
+        execucoes.incrementAndGet();
+        assertTrue(contaDao.debitar(1L, VALOR));
+        ContaCorrente conta = new ContaCorrente();
+        conta.setId(1L);
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setTipo(TipoMovimentacao.SAQUE);
+        movimentacao.setValorCentavos(Centavos.deReais(VALOR));
+        movimentacao.setDataHora(LocalDateTime.now());
+        movimentacao.setContaOrigem(conta);
+        return movimentacao;
+    }
+
+    private IdempotenciaService novaInstancia() {
+        return new IdempotenciaService(new IdempotenciaDao(jdbcTemplate), new DataSourceTransactionManager(dataSource),
+                new ObjectMapper().findAndRegisterModules(), 24, 100, 10_000);
+    }
+
+    private BigDecimal saldo(Long contaId) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE id = ?", BigDecimal.class, contaId);
+    }
+}
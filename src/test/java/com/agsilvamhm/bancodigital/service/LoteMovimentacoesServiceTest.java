@@ -0,0 +1,108 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.InstrucaoLoteDTO;
+import com.agsilvamhm.bancodigital.model.dto.LoteMovimentacoesRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.ResultadoLoteDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoteMovimentacoesServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private LoteMovimentacoesService loteService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = BancoH2Teste.criar("lote");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        ContaDao contaDao = new ContaDao(jdbcTemplate);
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        loteService = new LoteMovimentacoesService(contaDao, movimentacaoDao,
+                new GerenciadorBloqueioContas(false, 16, 1000),
+                new RazaoContabil(contaDao, movimentacaoDao, new LancamentoDao(jdbcTemplate), transactionManager, false, 100),
+                transactionManager);
+    }
+
+    @Test
+    @DisplayName("Lote deve efetivar as instruções válidas e recusar individualmente as inválidas")
+    void loteMisto_deveDevolverResultadoPorItem() {
+        BigDecimal saldo1 = saldo("1001-1"); // 1500.75
+        BigDecimal saldo3 = saldo("2002-2"); // 850.00
+        int movimentacoesIniciais = quantidadeMovimentacoes();
+
+        ResultadoLoteDTO resultado = loteService.executar(new LoteMovimentacoesRequestDTO(List.of(
+                instrucao(TipoMovimentacao.TRANSFERENCIA, "1001-1", "2002-2", "500.00"),
+                instrucao(TipoMovimentacao.SAQUE, "2002-2", null, "1350.00"),    // usa o crédito da instrução anterior
+                instrucao(TipoMovimentacao.SAQUE, "2002-2", null, "0.01"),       // saldo esgotado pelo saque anterior
+                instrucao(TipoMovimentacao.DEPOSITO, null, "9999-9", "10.00"),   // conta inexistente
+                instrucao(TipoMovimentacao.PIX, "1001-1", "2002-2", "1.00"),     // tipo não suportado em lote
+                instrucao(TipoMovimentacao.DEPOSITO, null, "1001-1", "99.25")
+        )));
+
+        assertEquals(6, resultado.total());
+        assertEquals(3, resultado.efetivadas());
+        assertEquals(3, resultado.recusadas());
+        assertEquals(List.of(true, true, false, false, false, true),
+                resultado.itens().stream().map(item -> item.efetivada()).toList());
+        assertEquals("Saldo insuficiente na conta de origem.", resultado.itens().get(2).mensagem());
+
+        assertEquals(0, saldo1.subtract(new BigDecimal("500.00")).add(new BigDecimal("99.25")).compareTo(saldo("1001-1")));
+        assertEquals(0, saldo3.add(new BigDecimal("500.00")).subtract(new BigDecimal("1350.00")).compareTo(saldo("2002-2")));
+        assertEquals(movimentacoesIniciais + 3, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("Instrução com fração de centavo é recusada sem afetar as demais")
+    void fracaoDeCentavo_deveSerRecusada() {
+        ResultadoLoteDTO resultado = loteService.executar(new LoteMovimentacoesRequestDTO(List.of(
+                instrucao(TipoMovimentacao.DEPOSITO, null, "1001-1", "10.005"),
+                instrucao(TipoMovimentacao.DEPOSITO, null, "1001-1", "10.500")
+        )));
+
+        assertEquals(List.of(false, true), resultado.itens().stream().map(item -> item.efetivada()).toList());
+        assertEquals("O valor deve ter no máximo duas casas decimais.", resultado.itens().get(0).mensagem());
+    }
+
+    @Test
+    @DisplayName("Lote dentro de uma transação externa deve participar dela")
+    void loteEmTransacaoExterna_deveSerDesfeitoComEla() {
+        BigDecimal saldoInicial = saldo("1001-1");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            loteService.executar(new LoteMovimentacoesRequestDTO(List.of(
+                    instrucao(TipoMovimentacao.SAQUE, "1001-1", null, "100.00"))));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, saldoInicial.compareTo(saldo("1001-1")));
+    }
+
+    private InstrucaoLoteDTO instrucao(TipoMovimentacao tipo, String origem, String destino, String valor) {
+        return new InstrucaoLoteDTO(tipo, origem, destino, new BigDecimal(valor), null);
+    }
+
+    private BigDecimal saldo(String numero) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE numero = ?", BigDecimal.class, numero);
+    }
+
+    private int quantidadeMovimentacoes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimentacao", Integer.class);
+    }
+}
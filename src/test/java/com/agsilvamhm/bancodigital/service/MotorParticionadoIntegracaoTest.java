@@ -0,0 +1,124 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.dto.TransferenciaRequestDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Contexto completo com o motor habilitado e um pool de apenas duas conexões
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:motor_integracao;DATABASE_TO_UPPER=FALSE",
+        "spring.datasource.hikari.maximum-pool-size=2",
+        "spring.datasource.hikari.connection-timeout=2000",
+        "bancodigital.motor-particionado.habilitado=true",
+        "bancodigital.motor-particionado.timeout-ms=5000"})
+class MotorParticionadoIntegracaoTest {
+
+    private static final int CHAMADORES = 16;
+    private static final int TRANSFERENCIAS_POR_CHAMADOR = 10;
+    private static final BigDecimal VALOR = new BigDecimal("0.01");
+
+    @Autowired
+    private ContaService contaService;
+    @Autowired
+    private IdempotenciaService idempotenciaService;
+    @Autowired
+    private MotorTransferenciasParticionado motor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Mais chamadores simultâneos que conexões no pool: nenhum segura conexão enquanto aguarda o motor")
+    void maisChamadoresQueConexoes_naoDevemEsgotarOPool() throws Exception {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM conta ORDER BY id", Long.class);
+        List<String> numeros = jdbcTemplate.queryForList("SELECT numero FROM conta ORDER BY id", String.class);
+        BigDecimal totalInicial = totalEmContas();
+        int movimentacoesIniciais = quantidadeMovimentacoes();
+        long confirmadosIniciais = motor.getComandosConfirmados();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CHAMADORES);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < CHAMADORES; t++) {
+            int chamador = t;
+            futuros.add(executor.submit(() -> {
+                for (int i = 0; i < TRANSFERENCIAS_POR_CHAMADOR; i++) {
+                    int origem = (chamador + i) % ids.size();
+                    int destino = (origem + 1) % ids.size();
+                    contaService.realizarTransferencia(ids.get(origem), new TransferenciaRequestDTO(VALOR, numeros.get(destino), null));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get(); // Propaga qualquer tempo esgotado ou OperacaoPendenteException
+        }
+        executor.shutdown();
+
+        int transferencias = CHAMADORES * TRANSFERENCIAS_POR_CHAMADOR;
+        assertEquals(confirmadosIniciais + transferencias, motor.getComandosConfirmados());
+        assertEquals(movimentacoesIniciais + transferencias, quantidadeMovimentacoes());
+        assertEquals(0, totalInicial.compareTo(totalEmContas()));
+    }
+
+    @Test
+    @DisplayName("Com Idempotency-Key, a transferência é executada na transação da chave, fora do motor")
+    void comIdempotencyKey_naoDevePassarPeloMotor() {
+        BigDecimal saldoOrigem = saldo("3003-3");
+        long confirmadosIniciais = motor.getComandosConfirmados();
+        TransferenciaRequestDTO request = new TransferenciaRequestDTO(new BigDecimal("10.00"), "4004-4", null);
+
+        Movimentacao recibo = idempotenciaService.executar("motor-integracao-1", "POST /contas/5/transferencia", request,
+                Movimentacao.class, () -> contaService.realizarTransferencia(5L, request));
+        Movimentacao repeticao = idempotenciaService.executar("motor-integracao-1", "POST /contas/5/transferencia", request,
+                Movimentacao.class, () -> contaService.realizarTransferencia(5L, request));
+
+        assertEquals(recibo.getId(), repeticao.getId());
+        assertEquals(confirmadosIniciais, motor.getComandosConfirmados());
+        assertEquals(0, saldoOrigem.subtract(new BigDecimal("10.00")).compareTo(saldo("3003-3")));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM idempotencia WHERE chave = ?", Integer.class, "motor-integracao-1"));
+    }
+
+    @Test
+    @DisplayName("Transação do chamador desfeita desfaz também a transferência")
+    void transacaoDoChamadorDesfeita_deveDesfazerATransferencia() {
+        BigDecimal saldoOrigem = saldo("5005-5");
+        BigDecimal saldoDestino = saldo("1001-1");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            contaService.realizarTransferencia(9L, new TransferenciaRequestDTO(new BigDecimal("20.00"), "1001-1", null));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, saldoOrigem.compareTo(saldo("5005-5")));
+        assertEquals(0, saldoDestino.compareTo(saldo("1001-1")));
+    }
+
+    private BigDecimal saldo(String numero) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE numero = ?", BigDecimal.class, numero);
+    }
+
+    private BigDecimal totalEmContas() {
+        return jdbcTemplate.queryForObject("SELECT SUM(saldo) FROM conta", BigDecimal.class);
+    }
+
+    private int quantidadeMovimentacoes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimentacao", Integer.class);
+    }
+}
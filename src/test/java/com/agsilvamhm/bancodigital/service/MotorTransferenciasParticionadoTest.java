@@ -0,0 +1,185 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.controller.exception.OperacaoPendenteException;
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.ContaCorrente;
+import com.agsilvamhm.bancodigital.model.Movimentacao;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import com.agsilvamhm.bancodigital.util.dinheiro.Centavos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MotorTransferenciasParticionadoTest {
+
+    private DataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private MotorTransferenciasParticionado motor;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = BancoH2Teste.criar("motor_particionado");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        motor = new MotorTransferenciasParticionado(new ContaDao(jdbcTemplate), new MovimentacaoDao(jdbcTemplate),
+                new DataSourceTransactionManager(dataSource), true, 3, 64, 32, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        motor.encerrar();
+    }
+
+    @Test
+    @DisplayName("Transferências concorrentes pelo motor preservam o total e registram uma movimentação por sucesso")
+    void transferenciasConcorrentes_devemPreservarTotal() throws Exception {
+        BigDecimal totalInicial = totalEmContas();
+        int movimentacoesIniciais = quantidadeMovimentacoes();
+        AtomicInteger sucessos = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futuros.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 100; i++) {
+                    long origem = random.nextLong(1, 11);
+                    long destino = origem % 10 + 1;
+                    BigDecimal valor = BigDecimal.valueOf(random.nextInt(1, 50_000), 2);
+                    try {
+                        motor.executar(transferencia(origem, destino, valor), valor, "Saldo insuficiente.");
+                        sucessos.incrementAndGet();
+                    } catch (RegraNegocioException e) {
+                        // Saldo insuficiente é um resultado esperado com valores aleatórios
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, totalInicial.compareTo(totalEmContas()));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM conta WHERE saldo < 0", Integer.class));
+        assertEquals(movimentacoesIniciais + sucessos.get(), quantidadeMovimentacoes());
+        assertTrue(motor.getLotesConfirmados() <= motor.getComandosConfirmados());
+    }
+
+    @Test
+    @DisplayName("Débito acima do saldo deve ser recusado sem alterar as contas")
+    void debitoAcimaDoSaldo_deveSerRecusado() {
+        BigDecimal saldoOrigem = saldo(3L);
+        BigDecimal valor = saldoOrigem.add(BigDecimal.ONE);
+        int movimentacoesIniciais = quantidadeMovimentacoes();
+
+        RegraNegocioException ex = assertThrows(RegraNegocioException.class,
+                () -> motor.executar(transferencia(3L, 4L, valor), valor, "Saldo insuficiente na conta de origem."));
+
+        assertEquals("Saldo insuficiente na conta de origem.", ex.getMessage());
+        assertEquals(0, saldoOrigem.compareTo(saldo(3L)));
+        assertEquals(movimentacoesIniciais, quantidadeMovimentacoes());
+    }
+
+    @Test
+    @DisplayName("Chamada dentro de uma transação deve ser rejeitada sem enfileirar o comando")
+    void chamadaDentroDeTransacao_deveSerRejeitada() {
+        TransactionTemplate transacao = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        BigDecimal valor = new BigDecimal("10.00");
+
+        assertThrows(IllegalStateException.class, () -> transacao.executeWithoutResult(status ->
+                motor.executar(transferencia(3L, 4L, valor), valor, "Saldo insuficiente na conta de origem.")));
+        assertEquals(0, motor.getComandosConfirmados());
+    }
+
+    @Test
+    @DisplayName("Tempo esgotado: comando ainda na fila é cancelado; comando já em execução fica pendente")
+    void tempoEsgotado_deveDistinguirCanceladoDePendente() throws Exception {
+        CountDownLatch liberarParticao = new CountDownLatch(1);
+        ContaDao contaDaoLento = new ContaDao(jdbcTemplate) {
+            @Override
+            public Optional<BigDecimal> buscarSaldo(Long id) {
+                try {
+                    liberarParticao.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.buscarSaldo(id);
+            }
+        };
+        MotorTransferenciasParticionado motorLento = new MotorTransferenciasParticionado(contaDaoLento,
+                new MovimentacaoDao(jdbcTemplate), new DataSourceTransactionManager(dataSource), true, 1, 8, 8, 200);
+        int movimentacoesIniciais = quantidadeMovimentacoes();
+        BigDecimal valor = new BigDecimal("1.00");
+        try {
+            // A partição retira o primeiro comando e fica presa na leitura do saldo
+            assertThrows(OperacaoPendenteException.class,
+                    () -> motorLento.executar(transferencia(1L, 2L, valor), valor, "Saldo insuficiente."));
+            // O segundo continua na fila quando o tempo se esgota, e é cancelado
+            assertThrows(ConflitoConcorrenciaException.class,
+                    () -> motorLento.executar(transferencia(1L, 2L, valor), valor, "Saldo insuficiente."));
+        } finally {
+            liberarParticao.countDown();
+        }
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (motorLento.getComandosConfirmados() == 0 && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        motorLento.encerrar();
+
+        assertEquals(1, motorLento.getComandosConfirmados());
+        assertEquals(movimentacoesIniciais + 1, quantidadeMovimentacoes());
+    }
+
+    private Movimentacao transferencia(long origemId, long destinoId, BigDecimal valor) {
+        Movimentacao movimentacao = new Movimentacao();
+        movimentacao.setTipo(TipoMovimentacao.TRANSFERENCIA);
+        movimentacao.setValorCentavos(Centavos.deReais(valor));
+        movimentacao.setDataHora(LocalDateTime.now());
+        movimentacao.setContaOrigem(conta(origemId));
+        movimentacao.setContaDestino(conta(destinoId));
+        return movimentacao;
+    }
+
+    private Conta conta(long id) {
+        Conta conta = new ContaCorrente();
+        conta.setId(id);
+        return conta;
+    }
+
+    private BigDecimal saldo(Long contaId) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE id = ?", BigDecimal.class, contaId);
+    }
+
+    private int quantidadeMovimentacoes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM movimentacao", Integer.class);
+    }
+
+    private BigDecimal totalEmContas() {
+        return jdbcTemplate.queryForObject("SELECT SUM(saldo) FROM conta", BigDecimal.class);
+    }
+}
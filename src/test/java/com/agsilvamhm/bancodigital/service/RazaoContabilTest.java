@@ -0,0 +1,148 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.Conta;
+import com.agsilvamhm.bancodigital.model.TipoMovimentacao;
+import com.agsilvamhm.bancodigital.model.dto.DepositoRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.InstrucaoLoteDTO;
+import com.agsilvamhm.bancodigital.model.dto.LoteMovimentacoesRequestDTO;
+import com.agsilvamhm.bancodigital.model.dto.OperacaoContaDTO;
+import com.agsilvamhm.bancodigital.model.dto.TransferenciaRequestDTO;
+import com.agsilvamhm.bancodigital.repository.ClienteDao;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import com.agsilvamhm.bancodigital.repository.DiretorioChavesPix;
+import com.agsilvamhm.bancodigital.repository.LancamentoDao;
+import com.agsilvamhm.bancodigital.repository.MovimentacaoDao;
+import com.agsilvamhm.bancodigital.repository.TarifaCategoriaDao;
+import com.agsilvamhm.bancodigital.support.BancoH2Teste;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RazaoContabilTest {
+
+    private static final Long CONTA_1 = 1L; // 1001-1, saldo inicial 1500.75
+    private static final Long CONTA_3 = 3L; // 2002-2, saldo inicial 850.00
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transacao;
+    private RazaoContabil razao;
+    private ContaService contaService;
+    private LoteMovimentacoesService loteService;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = BancoH2Teste.criar("razao");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transacao = new TransactionTemplate(transactionManager);
+        ContaDao contaDao = new ContaDao(jdbcTemplate);
+        MovimentacaoDao movimentacaoDao = new MovimentacaoDao(jdbcTemplate);
+        GerenciadorBloqueioContas bloqueio = new GerenciadorBloqueioContas(false, 16, 1000);
+        RetentativaOtimista retentativa = new RetentativaOtimista(ModoConcorrencia.ATOMICO, 3, 0, 0);
+        razao = new RazaoContabil(contaDao, movimentacaoDao, new LancamentoDao(jdbcTemplate), transactionManager, true, 3);
+        contaService = new ContaService(contaDao, new ClienteDao(jdbcTemplate), new DiretorioChavesPix(jdbcTemplate),
+                movimentacaoDao, bloqueio,
+                new MotorTransferenciasParticionado(contaDao, movimentacaoDao, transactionManager, false, 1, 1, 1, 1000),
+                retentativa, razao, new GerenciadorTarifas(new TarifaCategoriaDao(jdbcTemplate)),
+                transactionManager, ModoConcorrencia.ATOMICO);
+        loteService = new LoteMovimentacoesService(contaDao, movimentacaoDao, bloqueio, razao, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Operações gravam partidas dobradas e não alteram conta.saldo")
+    void operacoes_devemGravarPartidasSemAtualizarConta() {
+        transacao.executeWithoutResult(s -> contaService.realizarDeposito(CONTA_1, new DepositoRequestDTO(new BigDecimal("100.00"), null)));
+        transacao.executeWithoutResult(s -> contaService.realizarSaque(CONTA_1, new OperacaoContaDTO(new BigDecimal("0.75"), null)));
+        transacao.executeWithoutResult(s -> contaService.realizarTransferencia(CONTA_1,
+                new TransferenciaRequestDTO(new BigDecimal("600.00"), "2002-2", null)));
+
+        assertEquals(0, new BigDecimal("1000.00").compareTo(contaService.consultarSaldo(CONTA_1)));
+        assertEquals(0, new BigDecimal("1450.00").compareTo(contaService.consultarSaldo(CONTA_3)));
+        assertEquals(0, new BigDecimal("1500.75").compareTo(saldoProjetado(CONTA_1)));
+
+        assertEquals(6, quantidadeLancamentos());
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "SELECT SUM(CASE WHEN natureza = 'C' THEN valor_centavos ELSE -valor_centavos END) FROM lancamento", Long.class));
+    }
+
+    @Test
+    @DisplayName("Débito acima do saldo calculado pelo razão é recusado sem gravar lançamentos")
+    void saldoInsuficiente_deveSerRecusado() {
+        assertThrows(RegraNegocioException.class, () -> transacao.executeWithoutResult(s ->
+                contaService.realizarSaque(CONTA_3, new OperacaoContaDTO(new BigDecimal("850.01"), null))));
+
+        assertEquals(0, quantidadeLancamentos());
+        assertEquals(0, new BigDecimal("850.00").compareTo(contaService.consultarSaldo(CONTA_3)));
+    }
+
+    @Test
+    @DisplayName("Snapshot limita o replay e atualiza a projeção sem mudar o saldo calculado")
+    void snapshot_deveAtualizarProjecaoEManterSaldo() {
+        for (int i = 0; i < 3; i++) {
+            transacao.executeWithoutResult(s -> contaService.realizarDeposito(CONTA_1, new DepositoRequestDTO(new BigDecimal("10.00"), null)));
+        }
+        transacao.executeWithoutResult(s -> contaService.realizarDeposito(CONTA_3, new DepositoRequestDTO(new BigDecimal("1.00"), null)));
+
+        assertEquals(1, razao.gerarSnapshots()); // CONTA_3 ainda não atingiu o mínimo de lançamentos
+        assertEquals(0, razao.gerarSnapshots());
+        assertEquals(0, new BigDecimal("1530.75").compareTo(saldoProjetado(CONTA_1)));
+        assertEquals(0, new BigDecimal("1530.75").compareTo(contaService.consultarSaldo(CONTA_1)));
+
+        transacao.executeWithoutResult(s -> contaService.realizarSaque(CONTA_1, new OperacaoContaDTO(new BigDecimal("30.75"), null)));
+        assertEquals(0, new BigDecimal("1500.00").compareTo(contaService.consultarSaldo(CONTA_1)));
+        assertEquals(0, new BigDecimal("851.00").compareTo(contaService.consultarSaldo(CONTA_3)));
+
+        // O lançamento de CONTA_3 anterior à marca d'água continua contando para o mínimo
+        for (int i = 0; i < 2; i++) {
+            transacao.executeWithoutResult(s -> contaService.realizarDeposito(CONTA_3, new DepositoRequestDTO(new BigDecimal("1.00"), null)));
+        }
+        assertEquals(1, razao.gerarSnapshots());
+        assertEquals(0, new BigDecimal("853.00").compareTo(saldoProjetado(CONTA_3)));
+    }
+
+    @Test
+    @DisplayName("Listagens de contas mostram o saldo calculado pelo razão, como as buscas por ID e número")
+    void listagens_devemUsarSaldoDoRazao() {
+        transacao.executeWithoutResult(s -> contaService.realizarTransferencia(CONTA_1,
+                new TransferenciaRequestDTO(new BigDecimal("0.75"), "2002-8", null)));
+
+        Conta corrente = contaService.listarTodasContasCorrente().stream()
+                .filter(conta -> conta.getId().equals(CONTA_1)).findFirst().orElseThrow();
+        Conta poupanca = contaService.listarTodasContasPoupanca().stream()
+                .filter(conta -> conta.getNumero().equals("2002-8")).findFirst().orElseThrow();
+
+        assertEquals(0, new BigDecimal("1500.00").compareTo(corrente.getSaldo()));
+        assertEquals(0, new BigDecimal("25001.55").compareTo(poupanca.getSaldo()));
+        assertEquals(0, contaService.buscarPorId(CONTA_1).getSaldo().compareTo(corrente.getSaldo()));
+    }
+
+    @Test
+    @DisplayName("Lote no modo razão valida contra o saldo calculado e grava apenas lançamentos")
+    void lote_deveUsarORazao() {
+        loteService.executar(new LoteMovimentacoesRequestDTO(List.of(
+                new InstrucaoLoteDTO(TipoMovimentacao.TRANSFERENCIA, "2002-2", "1001-1", new BigDecimal("800.00"), null),
+                new InstrucaoLoteDTO(TipoMovimentacao.SAQUE, "2002-2", null, new BigDecimal("50.01"), null))));
+
+        assertEquals(0, new BigDecimal("50.00").compareTo(contaService.consultarSaldo(CONTA_3)));
+        assertEquals(0, new BigDecimal("850.00").compareTo(saldoProjetado(CONTA_3)));
+        assertEquals(2, quantidadeLancamentos());
+    }
+
+    private BigDecimal saldoProjetado(Long contaId) {
+        return jdbcTemplate.queryForObject("SELECT saldo FROM conta WHERE id = ?", BigDecimal.class, contaId);
+    }
+
+    private int quantidadeLancamentos() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lancamento", Integer.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioRequisicoesCondicionaisDTO;
+import com.agsilvamhm.bancodigital.repository.ContaDao;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RequisicoesCondicionaisContaTest {
+
+    @Mock
+    private ContaDao contaDao;
+
+    @InjectMocks
+    private RequisicoesCondicionaisConta requisicoesCondicionais;
+
+    @Test
+    @DisplayName("If-None-Match com a versão atual responde 304; versão nova responde 200 com o ETag atual")
+    void naoModificada_deveCompararComAVersaoDaConta() {
+        when(contaDao.buscarVersao(1L))
+                .thenReturn(Optional.of("7-42"))
+                .thenReturn(Optional.of("7-42"))
+                .thenReturn(Optional.of("8-43"));
+
+        MockHttpServletResponse primeira = new MockHttpServletResponse();
+        assertFalse(requisicoesCondicionais.naoModificada(1L, requisicao(null, primeira)));
+        assertEquals("W/\"7-42\"", primeira.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse segunda = new MockHttpServletResponse();
+        assertTrue(requisicoesCondicionais.naoModificada(1L, requisicao("W/\"7-42\"", segunda)));
+        assertEquals(304, segunda.getStatus());
+
+        MockHttpServletResponse terceira = new MockHttpServletResponse();
+        assertFalse(requisicoesCondicionais.naoModificada(1L, requisicao("W/\"7-42\"", terceira)));
+        assertEquals("W/\"8-43\"", terceira.getHeader(HttpHeaders.ETAG));
+
+        RelatorioRequisicoesCondicionaisDTO relatorio = requisicoesCondicionais.gerarRelatorio();
+        assertEquals(3, relatorio.consultas());
+        assertEquals(2, relatorio.comIfNoneMatch());
+        assertEquals(1, relatorio.naoModificadas());
+        assertEquals(1.0 / 3, relatorio.naoModificadasPorConsulta(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Conta inexistente segue para a consulta normal, que produz o erro")
+    void contaInexistente_naoDeveResponder304() {
+        when(contaDao.buscarVersao(99L)).thenReturn(Optional.empty());
+
+        MockHttpServletResponse resposta = new MockHttpServletResponse();
+        assertFalse(requisicoesCondicionais.naoModificada(99L, requisicao("*", resposta)));
+        assertNull(resposta.getHeader(HttpHeaders.ETAG));
+    }
+
+    private static ServletWebRequest requisicao(String ifNoneMatch, MockHttpServletResponse resposta) {
+        MockHttpServletRequest requisicao = new MockHttpServletRequest("GET", "/contas/1/saldo");
+        if (ifNoneMatch != null) {
+            requisicao.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return new ServletWebRequest(requisicao, resposta);
+    }
+}
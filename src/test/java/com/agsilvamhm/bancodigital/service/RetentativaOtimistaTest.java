@@ -0,0 +1,63 @@
+package com.agsilvamhm.bancodigital.service;
+
+import com.agsilvamhm.bancodigital.controller.exception.ConflitoConcorrenciaException;
+import com.agsilvamhm.bancodigital.controller.exception.RegraNegocioException;
+import com.agsilvamhm.bancodigital.model.dto.RelatorioConcorrenciaOtimistaDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetentativaOtimistaTest {
+
+    private final RetentativaOtimista retentativa = new RetentativaOtimista(ModoConcorrencia.OTIMISTA, 3, 0, 0);
+
+    @Test
+    @DisplayName("Conflitos de versão devem ser repetidos até a operação passar")
+    void conflitoTransitorio_deveSerRepetido() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        retentativa.executar(tentativa -> {
+            assertEquals(chamadas.getAndIncrement(), tentativa);
+            if (tentativa < 2) {
+                throw new ConflitoConcorrenciaException("conflito");
+            }
+        });
+
+        RelatorioConcorrenciaOtimistaDTO relatorio = retentativa.gerarRelatorio();
+        assertEquals(3, chamadas.get());
+        assertEquals(1, relatorio.operacoes());
+        assertEquals(2, relatorio.conflitos());
+        assertEquals(2, relatorio.retentativas());
+        assertEquals(0, relatorio.esgotadas());
+    }
+
+    @Test
+    @DisplayName("Após o número máximo de tentativas o conflito deve ser propagado")
+    void conflitoPersistente_deveEsgotarTentativas() {
+        assertThrows(ConflitoConcorrenciaException.class,
+                () -> retentativa.executar(tentativa -> { throw new ConflitoConcorrenciaException("conflito"); }));
+
+        RelatorioConcorrenciaOtimistaDTO relatorio = retentativa.gerarRelatorio();
+        assertEquals(3, relatorio.conflitos());
+        assertEquals(2, relatorio.retentativas());
+        assertEquals(1, relatorio.esgotadas());
+        assertEquals("OTIMISTA", relatorio.modoAtual());
+    }
+
+    @Test
+    @DisplayName("Outras exceções não devem ser repetidas")
+    void erroDeNegocio_naoDeveSerRepetido() {
+        AtomicInteger chamadas = new AtomicInteger();
+
+        assertThrows(RegraNegocioException.class, () -> retentativa.executar(tentativa -> {
+            chamadas.incrementAndGet();
+            throw new RegraNegocioException("Saldo insuficiente.");
+        }));
+
+        assertEquals(1, chamadas.get());
+        assertEquals(0, retentativa.gerarRelatorio().conflitos());
+    }
+}
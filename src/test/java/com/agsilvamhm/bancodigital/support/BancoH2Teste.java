@@ -0,0 +1,23 @@
+package com.agsilvamhm.bancodigital.support;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+// Cria bancos H2 em memória isolados, com o mesmo schema.sql e carga inicial da aplicação.
+public final class BancoH2Teste {
+
+    private BancoH2Teste() {
+    }
+
+    public static DataSource criar(String prefixo) {
+        String url = "jdbc:h2:mem:" + prefixo + "_" + UUID.randomUUID()
+                + ";DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=1000";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "sa");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,54 @@
+package com.agsilvamhm.bancodigital.util.cache;
+
+import com.agsilvamhm.bancodigital.model.dto.RelatorioCacheDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheLocalTest {
+
+    private final AtomicLong agora = new AtomicLong();
+    private final CacheLocal<String, Integer> cache = new CacheLocal<>("teste", 2, Duration.ofSeconds(10), agora::get);
+
+    @Test
+    @DisplayName("Entradas expiram pela validade e as menos usadas saem ao passar do tamanho máximo")
+    void cache_deveRespeitarValidadeETamanho() {
+        cache.guardar("a", 1, cache.geracao());
+        cache.guardar("b", 2, cache.geracao());
+        assertEquals(1, cache.buscar("a"));
+        cache.guardar("c", 3, cache.geracao()); // "b" é a menos usada
+
+        assertNull(cache.buscar("b"));
+        assertEquals(3, cache.buscar("c"));
+
+        agora.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertNull(cache.buscar("a"));
+
+        RelatorioCacheDTO relatorio = cache.gerarRelatorio();
+        assertEquals(2, relatorio.acertos());
+        assertEquals(2, relatorio.faltas());
+        assertEquals(1, relatorio.remocoesPorCapacidade());
+        assertEquals(1, relatorio.expiradas());
+        assertEquals(1, relatorio.entradas());
+        assertEquals(0.5, relatorio.taxaAcertos());
+    }
+
+    @Test
+    @DisplayName("Valor lido antes de uma invalidação não é guardado")
+    void guardar_deveIgnorarValorAnteriorAInvalidacao() {
+        long geracao = cache.geracao();
+        cache.invalidar("a");
+
+        cache.guardar("a", 1, geracao);
+        assertNull(cache.buscar("a"));
+
+        cache.guardar("a", 2, cache.geracao());
+        cache.limpar();
+        assertNull(cache.buscar("a"));
+        assertEquals(2, cache.gerarRelatorio().invalidacoes());
+    }
+}